@@ -0,0 +1,205 @@
+package main.rice;
+
+import main.rice.test.TestCase;
+import main.rice.test.TesterPool;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Stateless class for running many test generation jobs in a single JVM, so that JVM
+ * startup, class loading and JIT warm-up are paid once rather than once per job. Jobs
+ * are read from a manifest and run concurrently on one shared pool, which bounds the
+ * number of jobs in flight at any time; options shared by every job (e.g. a config
+ * cache) are given once for the whole batch. Jobs may also share a TesterPool, so that
+ * the process slots, the executor for testing files and the fork server are set up once
+ * for the whole batch rather than once per job.
+ * <p>
+ * The manifest is a JSON object of the form
+ * <pre>
+ *   {"jobs": [{"name": "func0", "args": ["func0.json", "impls/func0", "func0.py"]}, ...]}
+ * </pre>
+ * where each job's args are exactly the command line args Main would be given for it,
+ * and its name (which defaults to its position in the manifest) identifies it in the
+ * output. Jobs that run concurrently must not share an implementation directory, since
+ * testing writes helper files into it, unless they are given "--workspace dir" (e.g. as a
+ * shared option), in which case each job stages its files into a workspace of its own.
+ */
+public class BatchRunner {
+
+    /**
+     * A single job in a batch, along with its outcome once it has run.
+     */
+    public static class Job {
+
+        /**
+         * The name identifying the job.
+         */
+        private final String name;
+
+        /**
+         * The command line args for the job.
+         */
+        private final List<String> args;
+
+        /**
+         * The concise test set generated by the job, or null if it has not run or failed.
+         */
+        private Set<TestCase> result;
+
+        /**
+         * The exception that made the job fail, or null if it has not run or succeeded.
+         */
+        private Exception error;
+
+        /**
+         * Constructor for a Job; initializes its name and args.
+         *
+         * @param name the name identifying the job
+         * @param args the command line args for the job
+         */
+        public Job(String name, List<String> args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        /**
+         * Returns the name identifying the job.
+         *
+         * @return the name of the job
+         */
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * Returns the command line args for the job.
+         *
+         * @return the args of the job
+         */
+        public List<String> getArgs() {
+            return this.args;
+        }
+
+        /**
+         * Returns the concise test set generated by the job.
+         *
+         * @return the generated test set, or null if the job has not run or failed
+         */
+        public Set<TestCase> getResult() {
+            return this.result;
+        }
+
+        /**
+         * Returns the exception that made the job fail.
+         *
+         * @return the exception, or null if the job has not run or succeeded
+         */
+        public Exception getError() {
+            return this.error;
+        }
+    }
+
+    /**
+     * Reads the jobs listed in a manifest.
+     *
+     * @param manifestPath the path to the manifest
+     * @return the jobs, in the order they are listed
+     * @throws IOException if the manifest cannot be read or is malformed
+     */
+    public static List<Job> readManifest(String manifestPath) throws IOException {
+        String contents = Files.readString(Path.of(manifestPath));
+        List<Job> jobs = new ArrayList<>();
+        try {
+            JSONArray jobArray = new JSONObject(contents).getJSONArray("jobs");
+            for (int i = 0; i < jobArray.length(); i++) {
+                JSONObject jobObject = jobArray.getJSONObject(i);
+                JSONArray argArray = jobObject.getJSONArray("args");
+                List<String> args = new ArrayList<>();
+                for (int j = 0; j < argArray.length(); j++) {
+                    args.add(argArray.getString(j));
+                }
+                jobs.add(new Job(jobObject.optString("name", String.valueOf(i)), args));
+            }
+        } catch (JSONException e) {
+            throw new IOException("malformed batch manifest " + manifestPath + ": "
+                    + e.getMessage());
+        }
+        return jobs;
+    }
+
+    /**
+     * Runs the given jobs, at most concurrency at a time, and records the outcome of
+     * each in the job itself. A failing job does not stop the others.
+     *
+     * @param jobs        the jobs to run
+     * @param sharedArgs  options (e.g. "--config-cache", "dir") passed to every job,
+     *                    ahead of its own args, so that a job's own options win
+     * @param concurrency the maximum number of jobs to run at once
+     * @return jobs, once every job has finished
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     * @throws IllegalArgumentException if concurrency is less than 1
+     */
+    public static List<Job> run(List<Job> jobs, List<String> sharedArgs, int concurrency)
+            throws InterruptedException {
+        return run(jobs, sharedArgs, concurrency, null);
+    }
+
+    /**
+     * Runs the given jobs exactly as run(jobs, sharedArgs, concurrency) does, but tests
+     * every job with the resources of the given pool rather than with resources of its
+     * own.
+     *
+     * @param jobs        the jobs to run
+     * @param sharedArgs  options passed to every job, ahead of its own args
+     * @param concurrency the maximum number of jobs to run at once
+     * @param testerPool  the resources shared by every job, or null for none
+     * @return jobs, once every job has finished
+     * @throws InterruptedException if interrupted while waiting for the jobs
+     * @throws IllegalArgumentException if concurrency is less than 1
+     */
+    public static List<Job> run(List<Job> jobs, List<String> sharedArgs, int concurrency,
+                                TesterPool testerPool) throws InterruptedException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Job job : jobs) {
+                List<String> args = new ArrayList<>(sharedArgs);
+                args.addAll(job.args);
+                futures.add(pool.submit(() -> {
+                    try {
+                        job.result = Main.generateTests(args.toArray(new String[0]),
+                                message -> { }, testerPool);
+                    } catch (Exception e) {
+                        job.error = e;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    // Jobs catch their own exceptions, so only errors can get here
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return jobs;
+    }
+}
@@ -0,0 +1,388 @@
+package main.rice;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import main.rice.test.TestCase;
+import main.rice.test.TesterPool;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A long-running server which exposes test generation over a local HTTP API, so that
+ * callers (e.g. an autograder front end) pay JVM startup, class loading and JIT warm-up
+ * once rather than once per request. The server listens on the loopback interface only,
+ * and runs at most a fixed number of jobs at a time; further jobs wait for a slot.
+ * <p>
+ * Since a job reads (and, without a workspace, writes helper files next to) the files it
+ * is given and runs the Python in them, the server trusts a request only as far as
+ * follows:
+ * <ul>
+ *     <li>every request to /generate must carry the server's shared secret, as the header
+ *     "Authorization: Bearer token", or it is rejected with 401</li>
+ *     <li>a request with an Origin header, which browsers add to cross-site requests, is
+ *     rejected with 403, and one whose Content-Type is not application/json with 415</li>
+ *     <li>a job's args may only name files (the positional args, and --load-results) that
+ *     resolve to paths inside the server's root directory, and may only set the options
+ *     that choose how the concise test set is selected (see ALLOWED_OPTIONS); anything
+ *     else, including every option that writes files or changes how Python is run, can
+ *     only be given as a shared option, and is rejected with 400</li>
+ * </ul>
+ * <p>
+ * The API consists of:
+ * <ul>
+ *     <li>GET /health: responds "ok"</li>
+ *     <li>POST /generate: runs the job whose body is {"args": [...]}, where the args
+ *     are the command line args Main would be given for it (with relative paths
+ *     resolved against the root directory), and streams back
+ *     one JSON object per line as the job runs: {"progress": message} for each stage,
+ *     followed by either {"result": [test case, ...]} or {"error": message}</li>
+ * </ul>
+ * As with BatchRunner, options shared by every job (e.g. a config cache, which keeps
+ * configs that have been seen before from being parsed again) are given once for the
+ * whole server, and jobs that run concurrently must not share an implementation
+ * directory unless they are given a workspace (e.g. "--workspace dir" as a shared
+ * option).
+ */
+public class GenerationServer {
+
+    /**
+     * The options a request may set, each of which takes a value that is not a path.
+     */
+    private static final Set<String> ALLOWED_OPTIONS = Set.of("--exact-ms", "--reduce",
+            "--weighted", "--k-coverage", "--cover-threads", "--improve-ms", "--early-stop");
+
+    /**
+     * The options a request may set whose value is the path of a file to read.
+     */
+    private static final Set<String> PATH_OPTIONS = Set.of("--load-results");
+
+    /**
+     * The underlying HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * The threads on which requests are handled.
+     */
+    private final ExecutorService handlers;
+
+    /**
+     * The slots available to running jobs.
+     */
+    private final Semaphore jobSlots;
+
+    /**
+     * The options passed to every job, ahead of its own args.
+     */
+    private final List<String> sharedArgs;
+
+    /**
+     * The shared secret every request to /generate must carry.
+     */
+    private final byte[] token;
+
+    /**
+     * The directory inside which every file named by a request must be, as a real path.
+     */
+    private final Path root;
+
+    /**
+     * The resources every job tests with (see TesterPool), kept warm between requests,
+     * or null if each job uses its own.
+     */
+    private final TesterPool pool;
+
+    /**
+     * Constructor for a GenerationServer; binds it to the given port on the loopback
+     * interface, but does not start it.
+     *
+     * @param port        the port to listen on, or 0 for any free port
+     * @param sharedArgs  options passed to every job, ahead of its own args; these are
+     *                    trusted, and may set any option
+     * @param concurrency the maximum number of jobs to run at once
+     * @param token       the shared secret every request to /generate must carry
+     * @param root        the directory inside which every file named by a request must be
+     * @param pool        the resources every job tests with, which the server closes when
+     *                    it stops; or null for each job to use its own
+     * @throws IOException if the root cannot be resolved or the server cannot be bound
+     * @throws IllegalArgumentException if concurrency is less than 1 or token is empty
+     */
+    public GenerationServer(int port, List<String> sharedArgs, int concurrency, String token,
+                            Path root, TesterPool pool) throws IOException {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        if (token.isEmpty()) {
+            throw new IllegalArgumentException("token must not be empty");
+        }
+        this.token = token.getBytes(StandardCharsets.UTF_8);
+        this.root = root.toRealPath();
+        this.sharedArgs = new ArrayList<>(sharedArgs);
+        this.pool = pool;
+        this.jobSlots = new Semaphore(concurrency, true);
+        this.server = HttpServer.create(
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        this.handlers = Executors.newCachedThreadPool();
+        this.server.setExecutor(this.handlers);
+        this.server.createContext("/health", this::handleHealth);
+        this.server.createContext("/generate", this::handleGenerate);
+    }
+
+    /**
+     * Starts accepting requests, on a background thread.
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Stops accepting requests and shuts the server down, interrupting any jobs that are
+     * still running, and closes the pool.
+     *
+     * @throws IOException if the pool's fork server cannot be shut down
+     */
+    public void stop() throws IOException {
+        this.server.stop(0);
+        this.handlers.shutdownNow();
+        if (this.pool != null) {
+            this.pool.close();
+        }
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     *
+     * @return the port, which is chosen by the system if the server was given port 0
+     */
+    public int getPort() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Handles a request to /health.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            this.respond(exchange, 405, "method not allowed");
+            return;
+        }
+        this.respond(exchange, 200, "ok");
+    }
+
+    /**
+     * Handles a request to /generate, streaming back the job's progress and outcome.
+     *
+     * @param exchange the request and its response
+     * @throws IOException if the response cannot be sent
+     */
+    private void handleGenerate(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            this.respond(exchange, 405, "method not allowed");
+            return;
+        }
+        if (!exchange.getRequestURI().getPath().equals("/generate")) {
+            this.respond(exchange, 404, "not found");
+            return;
+        }
+        if (!this.isAuthorized(exchange)) {
+            this.respond(exchange, 401, "unauthorized");
+            return;
+        }
+        if (exchange.getRequestHeaders().containsKey("Origin")) {
+            this.respond(exchange, 403, "cross-origin requests are not allowed");
+            return;
+        }
+        if (!isJson(exchange.getRequestHeaders().getFirst("Content-Type"))) {
+            this.respond(exchange, 415, "content type must be application/json");
+            return;
+        }
+
+        // Parse the job's args, and check that they are allowed
+        List<String> args = new ArrayList<>(this.sharedArgs);
+        try {
+            String body = new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8);
+            JSONArray argArray = new JSONObject(body).getJSONArray("args");
+            List<String> jobArgs = new ArrayList<>();
+            for (int i = 0; i < argArray.length(); i++) {
+                jobArgs.add(argArray.getString(i));
+            }
+            args.addAll(this.checkArgs(jobArgs));
+        } catch (JSONException | IllegalArgumentException e) {
+            this.respond(exchange, 400, new JSONObject().put("error",
+                    "malformed request: " + e.getMessage()) + "\n");
+            return;
+        }
+
+        // A response length of 0 streams the response in chunks as it is written
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            try {
+                sendLine(out, new JSONObject().put("progress", "queued"));
+                this.jobSlots.acquire();
+                try {
+                    Set<TestCase> result = Main.generateTests(args.toArray(new String[0]),
+                            message -> sendProgress(out, message), this.pool);
+                    JSONArray cases = new JSONArray();
+                    for (TestCase testCase : result) {
+                        cases.put(testCase.toString());
+                    }
+                    sendLine(out, new JSONObject().put("result", cases));
+                } finally {
+                    this.jobSlots.release();
+                }
+            } catch (UncheckedIOException e) {
+                // The client went away, so there is no one left to tell
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                sendLine(out, new JSONObject().put("error", "interrupted"));
+            } catch (Exception e) {
+                sendLine(out, new JSONObject().put("error", e.toString()));
+            }
+        }
+    }
+
+    /**
+     * Helper function which checks that a request carries the shared secret, comparing
+     * it in time independent of where it differs.
+     *
+     * @param exchange the request
+     * @return true if the request's Authorization header holds the shared secret
+     */
+    private boolean isAuthorized(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.startsWith("Bearer ")) {
+            return false;
+        }
+        byte[] given = header.substring("Bearer ".length()).getBytes(StandardCharsets.UTF_8);
+        return MessageDigest.isEqual(given, this.token);
+    }
+
+    /**
+     * Helper function which checks that a Content-Type header names JSON.
+     *
+     * @param contentType the value of the header, or null if there is none
+     * @return true if the media type is application/json, whatever its parameters
+     */
+    private static boolean isJson(String contentType) {
+        return contentType != null && contentType.split(";", 2)[0].trim()
+                .equalsIgnoreCase("application/json");
+    }
+
+    /**
+     * Helper function which checks a job's args against what a request may set: only the
+     * options in ALLOWED_OPTIONS and PATH_OPTIONS, and only paths inside the root.
+     *
+     * @param jobArgs the args given by the request
+     * @return the args, with each path replaced by the real path it resolves to
+     * @throws IllegalArgumentException if an option is not allowed or lacks its value, or
+     *                                  a path does not resolve to a file inside the root
+     */
+    private List<String> checkArgs(List<String> jobArgs) {
+        List<String> checked = new ArrayList<>();
+        for (int i = 0; i < jobArgs.size(); i++) {
+            String arg = jobArgs.get(i);
+            if (!arg.startsWith("--")) {
+                checked.add(this.checkPath(arg));
+                continue;
+            }
+            if (!ALLOWED_OPTIONS.contains(arg) && !PATH_OPTIONS.contains(arg)) {
+                throw new IllegalArgumentException("option not allowed: " + arg);
+            }
+            if (i + 1 >= jobArgs.size()) {
+                throw new IllegalArgumentException("missing value for option " + arg);
+            }
+            String value = jobArgs.get(++i);
+            checked.add(arg);
+            checked.add(PATH_OPTIONS.contains(arg) ? this.checkPath(value) : value);
+        }
+        return checked;
+    }
+
+    /**
+     * Helper function which resolves a path given by a request against the root, and
+     * checks that it names an existing file or directory inside the root once every
+     * symbolic link has been followed.
+     *
+     * @param path the path given by the request
+     * @return the real path it resolves to
+     * @throws IllegalArgumentException if the path does not exist or is outside the root
+     */
+    private String checkPath(String path) {
+        try {
+            Path real = this.root.resolve(path).toRealPath();
+            if (!real.startsWith(this.root)) {
+                throw new IllegalArgumentException("path outside the root: " + path);
+            }
+            return real.toString();
+        } catch (IOException | InvalidPathException e) {
+            throw new IllegalArgumentException("no such path: " + path);
+        }
+    }
+
+    /**
+     * Helper function which sends a progress message from within a job, where checked
+     * exceptions cannot be thrown.
+     *
+     * @param out     the stream to write to
+     * @param message the progress message
+     * @throws UncheckedIOException if the message cannot be sent
+     */
+    private static void sendProgress(OutputStream out, String message) {
+        try {
+            sendLine(out, new JSONObject().put("progress", message));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Helper function which sends a single line of a streamed response, flushing it so
+     * that the client sees it immediately.
+     *
+     * @param out  the stream to write to
+     * @param line the JSON object to send
+     * @throws IOException if the line cannot be sent
+     */
+    private static void sendLine(OutputStream out, JSONObject line) throws IOException {
+        out.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    /**
+     * Helper function which sends a complete response.
+     *
+     * @param exchange the request and its response
+     * @param status   the HTTP status code
+     * @param body     the body of the response
+     * @throws IOException if the response cannot be sent
+     */
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
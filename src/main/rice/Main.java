@@ -4,11 +4,15 @@ package main.rice;
 
 import main.rice.basegen.BaseSetGenerator;
 import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.concisegen.CoverResult;
 import main.rice.node.APyNode;
 import main.rice.parse.*;
 import main.rice.test.*;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.security.SecureRandom;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Main class for the FEAT test case auto-generator.
@@ -18,6 +22,21 @@ public class Main {
     /**
      * Entry point for the test generation process. Reads the configuration file, generates a base test set,
      * runs tests, and uses a concise set generator to obtain an approximately minimal subset of tests.
+     * <p>
+     * Alternatively, given "--batch manifest", runs every job listed in the manifest (see BatchRunner)
+     * in this JVM, at most "--batch-jobs n" (by default, one per core) at a time, and prints each job's
+     * result under its name. Any other options given alongside --batch apply to every job. The jobs
+     * share one TesterPool, so that a batch starts one fork server (given "--fork-server true") and
+     * one executor for testing files, rather than one per job; "--test-jobs n" (by default, the number
+     * of jobs run at once) then bounds the Python processes alive across the whole batch, and
+     * "--test-jobs-min m" lets that bound adapt as it does for a single job.
+     * <p>
+     * Or, given "--serve port" and "--serve-root dir", starts a GenerationServer on the given local
+     * port, which runs at most "--serve-jobs n" (by default, one per core) jobs at a time until the
+     * process is killed, and only for requests naming files inside dir. Requests must carry the
+     * token in the environment variable FEAT_SERVE_TOKEN, or if it is unset, a random token which is
+     * printed on startup. Any other options given alongside --serve apply to every job, and the jobs
+     * share one TesterPool for as long as the server runs, exactly as those of a batch do.
      *
      * @param args Command line arguments, where args[0] is the path to the configuration file,
      *             args[1] is the path to the implementation directory, and args[2] is the path to the solution file.
@@ -26,17 +45,194 @@ public class Main {
      * @throws InvalidConfigException If there is an issue with the configuration file.
      */
     public static void main(String[] args) throws IOException, InterruptedException, InvalidConfigException {
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = parseOptions(args, positional);
+        if (options.containsKey("--batch")) {
+            runBatch(options);
+            return;
+        }
+        if (options.containsKey("--serve")) {
+            runServer(options);
+            return;
+        }
+
+        // Progress (including how close an exact cover came to minimum) goes to stderr, so
+        // that stdout holds only the result
         System.out.println("Generating concise test set");
-        System.out.println(generateTests(args));
+        System.out.println(generateTests(args, System.err::println));
+    }
+
+    /**
+     * Runs the jobs listed in a batch manifest and prints the outcome of each, in the
+     * order they are listed.
+     *
+     * @param options The options given on the command line, including --batch.
+     * @throws IOException          If the manifest cannot be read.
+     * @throws InterruptedException If interrupted while waiting for the jobs.
+     */
+    private static void runBatch(Map<String, String> options)
+            throws IOException, InterruptedException {
+        List<BatchRunner.Job> jobs = BatchRunner.readManifest(options.get("--batch"));
+        int concurrency = (int) parseLongOption(options, "--batch-jobs",
+                Runtime.getRuntime().availableProcessors());
+
+        // Every other option is shared by all of the jobs, as are the resources for testing
+        List<String> sharedArgs = sharedArgs(options, "--batch", "--batch-jobs");
+        try (TesterPool pool = newTesterPool(options, concurrency)) {
+            System.out.println("Generating concise test sets for " + jobs.size() + " jobs");
+            for (BatchRunner.Job job : BatchRunner.run(jobs, sharedArgs, concurrency, pool)) {
+                if (job.getError() != null) {
+                    System.out.println(job.getName() + ": failed: " + job.getError());
+                } else {
+                    System.out.println(job.getName() + ": " + job.getResult());
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a GenerationServer, which keeps running after this returns.
+     *
+     * @param options The options given on the command line, including --serve.
+     * @throws IOException          If the server cannot be started.
+     * @throws InterruptedException If interrupted while starting the fork server.
+     */
+    private static void runServer(Map<String, String> options)
+            throws IOException, InterruptedException {
+        if (!options.containsKey("--serve-root")) {
+            throw new IllegalArgumentException("--serve requires --serve-root dir");
+        }
+        String token = System.getenv("FEAT_SERVE_TOKEN");
+        boolean generated = (token == null || token.isEmpty());
+        if (generated) {
+            byte[] bytes = new byte[32];
+            new SecureRandom().nextBytes(bytes);
+            token = HexFormat.of().formatHex(bytes);
+        }
+        int concurrency = (int) parseLongOption(options, "--serve-jobs",
+                Runtime.getRuntime().availableProcessors());
+        TesterPool pool = newTesterPool(options, concurrency);
+        GenerationServer server;
+        try {
+            server = new GenerationServer((int) parseLongOption(options, "--serve", 0),
+                    sharedArgs(options, "--serve", "--serve-jobs", "--serve-root"),
+                    concurrency, token, Path.of(options.get("--serve-root")), pool);
+        } catch (IOException | RuntimeException e) {
+            pool.close();
+            throw e;
+        }
+        server.start();
+        System.out.println("Serving on http://127.0.0.1:" + server.getPort());
+        if (generated) {
+            System.out.println("Token: " + token);
+        }
+    }
+
+    /**
+     * Creates the TesterPool shared by the jobs of a batch or server, configured by the
+     * options that would otherwise configure each job's Tester: "--test-jobs n" (by
+     * default, the number of jobs run at once) and "--test-jobs-min m" bound the Python
+     * processes alive across every job, and "--fork-server" and "--pycache" configure the
+     * shared fork server.
+     *
+     * @param options     The options given on the command line.
+     * @param concurrency The maximum number of jobs run at once.
+     * @return The pool, which the caller must close.
+     * @throws InterruptedException If interrupted while starting the fork server.
+     */
+    private static TesterPool newTesterPool(Map<String, String> options, int concurrency)
+            throws InterruptedException {
+        int maxProcesses = (int) parseLongOption(options, "--test-jobs", concurrency);
+        int minProcesses = (int) parseLongOption(options, "--test-jobs-min", maxProcesses);
+        return new TesterPool(new ConcurrencyController(minProcesses, maxProcesses),
+                Boolean.parseBoolean(options.get("--fork-server")), options.get("--pycache"));
+    }
+
+    /**
+     * Collects the options to be passed to every job run by a batch or server.
+     *
+     * @param options  The options given on the command line.
+     * @param excluded The options that configure the batch or server itself, which are
+     *                 not passed on.
+     * @return The remaining options, as a list of args.
+     */
+    private static List<String> sharedArgs(Map<String, String> options, String... excluded) {
+        List<String> sharedArgs = new ArrayList<>();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            if (!Arrays.asList(excluded).contains(option.getKey())) {
+                sharedArgs.add(option.getKey());
+                sharedArgs.add(option.getValue());
+            }
+        }
+        return sharedArgs;
     }
 
     /**
      * Generates a concise set of tests using a multi-step process. Parses the configuration file,
      * generates a base test set, runs tests on the implementation, and applies a concise set generator
      * to obtain an approximately minimal subset of tests.
+     * <p>
+     * The following options may appear anywhere among the args:
+     * <ul>
+     *     <li>--save-results path: after running the tests, save the results to path</li>
+     *     <li>--load-results path: load previously-saved results from path instead of parsing a
+     *     config and running tests; no positional args are needed in this case</li>
+     *     <li>--matrix-file path: while testing, store the case-by-file matrix of results in a
+     *     memory-mapped scratch file at path rather than on the heap</li>
+     *     <li>--exact-ms millis: search for a minimum (rather than approximately minimal)
+     *     subset for up to millis milliseconds, and report how close to minimum the result
+     *     is as a progress message; cannot be combined with --early-stop, whose partial
+     *     results would make the minimum meaningless</li>
+     *     <li>--reduce true: shrink the problem (e.g. by dropping duplicate and dominated
+     *     test cases) before selecting an approximately minimal subset</li>
+     *     <li>--weighted true: select a subset that minimizes the total runtime of the
+     *     selected tests (on the reference solution) rather than their number</li>
+     *     <li>--k-coverage k: select a subset in which every incorrect implementation is
+     *     caught by at least k tests (where possible) rather than by one; may be combined
+     *     with --exact-ms, but with none of the other options choosing how the subset is
+     *     selected</li>
+     *     <li>--cover-threads n: evaluate the greedy selection on n threads (0 for one per
+     *     core); selects the same subset as the default, single-threaded selection</li>
+     *     <li>--improve-ms ms: spend up to ms milliseconds shrinking the greedy selection
+     *     with local search</li>
+     *     <li>--config-cache dir: cache the compiled config in dir, keyed by the hash of
+     *     the config file, so that later runs on the same config skip parsing it</li>
+     *     <li>--test-jobs n: test up to n implementations at once, with at most n Python
+     *     processes alive at any time; the results are the same as testing one at a time,
+     *     except with --early-stop (see below)</li>
+     *     <li>--test-jobs-min m: with --test-jobs n, adapt the number of Python processes
+     *     between m and n to the throughput, load and free memory observed while testing</li>
+     *     <li>--early-stop true: stop testing each implementation as soon as one test case
+     *     catches it, trying the cases that have caught the most implementations first; far
+     *     fewer tests are run, but the results record only one catching case per
+     *     implementation, so this cannot be combined with --k-coverage. With --test-jobs,
+     *     only catches in earlier runs (see --history) count, so that which case is
+     *     recorded does not depend on how the concurrent tests interleave</li>
+     *     <li>--history path: run the test cases that caught the most implementations in
+     *     earlier runs first, according to the history stored at path, and add the outcome
+     *     of this run to it afterwards; concurrent runs (e.g. the jobs of a batch) may
+     *     share one history, as each adds its outcome to the file under a lock</li>
+     *     <li>--workspace dir: stage the solution and implementations into a fresh
+     *     workspace inside dir, rather than adding helper files to them in place, so that
+     *     concurrent runs may test the same files; the workspace is removed afterwards</li>
+     *     <li>--pycache dir: cache the bytecode of the implementations in dir, so that each
+     *     is compiled once rather than once per test, and not at all by later runs</li>
+     *     <li>--fork-server true: start each Python process by forking it from one
+     *     pre-warmed interpreter, rather than starting a new interpreter per process, where
+     *     the platform supports it</li>
+     *     <li>--max-memory-mb n, --max-cpu-s n, --max-wall-s n, --max-file-mb n,
+     *     --max-procs n and --max-output-kb n: limit the memory, CPU time, wall-clock time
+     *     (by default, ten times the CPU time), size of any file written, number of
+     *     processes (of the user running the tests) and output of each process that tests
+     *     an implementation; a test case whose process exceeds a limit catches the
+     *     implementation</li>
+     * </ul>
+     * At most one of --exact-ms, --reduce, --weighted, --cover-threads and --improve-ms may
+     * be given; options that conflict are rejected rather than all but one being ignored.
      *
      * @param args Command line arguments, where args[0] is the path to the configuration file,
-     *             args[1] is the path to the implementation directory, and args[2] is the path to the solution file.
+     *             args[1] is the path to the implementation directory, and args[2] is the path to the solution file,
+     *             plus any of the options listed above.
      * @return A set of test cases representing an approximately minimal subset of tests.
      * @throws IOException           If there is an issue reading files.
      * @throws InterruptedException  If the execution is interrupted during the test generation process.
@@ -44,36 +240,238 @@ public class Main {
      */
     public static Set<TestCase> generateTests(String[] args)
             throws IOException, InterruptedException, InvalidConfigException {
-        // Extract the command line args
-        String configFilePath = args[0];
-        String implDirPath = args[1];
-        String solutionPath = args[2];
+        return generateTests(args, message -> { });
+    }
+
+    /**
+     * Generates a concise set of tests exactly as generateTests(args) does, reporting
+     * each stage of the process (and, while testing, each file tested) to the given
+     * callback as it happens.
+     *
+     * @param args     Command line arguments, as for generateTests(args).
+     * @param progress The callback to report progress messages to.
+     * @return A set of test cases representing an approximately minimal subset of tests.
+     * @throws IOException           If there is an issue reading files.
+     * @throws InterruptedException  If the execution is interrupted during the test generation process.
+     * @throws InvalidConfigException If there is an issue with the configuration file.
+     */
+    public static Set<TestCase> generateTests(String[] args, Consumer<String> progress)
+            throws IOException, InterruptedException, InvalidConfigException {
+        return generateTests(args, progress, null);
+    }
 
-        // Parse the config file
-        ConfigFile config = parseConfigFile(configFilePath);
-        String funcName = config.getFuncName();
+    /**
+     * Generates a concise set of tests exactly as generateTests(args, progress) does, but
+     * runs the tests with the resources of the given pool (see TesterPool), which it may
+     * share with other jobs running at once, rather than with resources of its own.
+     *
+     * @param args     Command line arguments, as for generateTests(args).
+     * @param progress The callback to report progress messages to.
+     * @param pool     The resources to run the tests with, or null to use the job's own.
+     * @return A set of test cases representing an approximately minimal subset of tests.
+     * @throws IOException           If there is an issue reading files.
+     * @throws InterruptedException  If the execution is interrupted during the test generation process.
+     * @throws InvalidConfigException If there is an issue with the configuration file.
+     */
+    public static Set<TestCase> generateTests(String[] args, Consumer<String> progress,
+                                              TesterPool pool)
+            throws IOException, InterruptedException, InvalidConfigException {
+        // Separate the options from the positional command line args
+        List<String> positional = new ArrayList<>();
+        Map<String, String> options = parseOptions(args, positional);
+        int k = (int) parseLongOption(options, "--k-coverage", 1);
+        checkCoverOptions(options, k);
 
-        // Generate the base test set, if it doesn't already exist
-        List<TestCase> baseTestSet = genBaseTestSet(config);
+        TestResults testResults;
+        if (options.containsKey("--load-results")) {
+            // Reuse the results of an earlier run
+            progress.accept("loading results");
+            testResults = TestResultsIO.read(options.get("--load-results"));
+        } else {
+            // Extract the positional args
+            if (positional.size() < 3) {
+                throw new IllegalArgumentException(
+                        "usage: Main configFile implDir solutionFile [options]");
+            }
+            String configFilePath = positional.get(0);
+            String implDirPath = positional.get(1);
+            String solutionPath = positional.get(2);
 
-        // Use base test set to test all files, if the test results don't already exist
-        TestResults testResults =
-                runTests(funcName, baseTestSet, implDirPath, solutionPath);
+            // Parse the config file
+            progress.accept("parsing config");
+            ConfigFile config = parseConfigFile(configFilePath, options.get("--config-cache"));
+            String funcName = config.getFuncName();
+
+            // Generate the base test set, if it doesn't already exist
+            progress.accept("generating base test set");
+            List<TestCase> baseTestSet = genBaseTestSet(config);
+
+            // Use base test set to test all files, if the test results don't already exist
+            progress.accept("running " + baseTestSet.size() + " tests");
+            testResults = runTests(funcName, baseTestSet, implDirPath, solutionPath, options,
+                    progress, pool);
+        }
+
+        // Save the results for later reuse, if requested
+        if (options.containsKey("--save-results")) {
+            TestResultsIO.write(testResults, options.get("--save-results"));
+        }
+
+        // Search for a minimum subset of the base test set, if requested
+        progress.accept("selecting concise test set");
+        if (options.containsKey("--exact-ms")) {
+            CoverResult cover = ConciseSetGenerator.exactSetCover(testResults, k,
+                    parseLongOption(options, "--exact-ms", 0));
+            progress.accept("exact cover: " + cover);
+            return cover.getCover();
+        }
 
         // Select an approximately minimal subset from the base test set
+        if (k > 1) {
+            return ConciseSetGenerator.multiSetCover(testResults, k);
+        }
+        if (Boolean.parseBoolean(options.get("--weighted"))) {
+            return ConciseSetGenerator.weightedSetCover(testResults);
+        }
+        if (options.containsKey("--cover-threads")) {
+            return ConciseSetGenerator.parallelSetCover(testResults,
+                    (int) parseLongOption(options, "--cover-threads", 0));
+        }
+        if (options.containsKey("--improve-ms")) {
+            return ConciseSetGenerator.improvedSetCover(testResults,
+                    parseLongOption(options, "--improve-ms", 0));
+        }
+        if (Boolean.parseBoolean(options.get("--reduce"))) {
+            return ConciseSetGenerator.reducedSetCover(testResults);
+        }
         return ConciseSetGenerator.setCover(testResults);
     }
 
+    /**
+     * Checks that the options selecting how the concise test set is chosen do not
+     * conflict, so that none is silently ignored in favor of another. At most one of
+     * --exact-ms, --weighted, --cover-threads, --improve-ms and --reduce may be given;
+     * --k-coverage may be combined only with --exact-ms; and --early-stop, whose results
+     * record only one catching test case per file, may be combined with neither.
+     *
+     * @param options The options given on the command line.
+     * @param k       The number of test cases required to catch each file.
+     * @throws IllegalArgumentException If the options conflict.
+     */
+    private static void checkCoverOptions(Map<String, String> options, int k) {
+        List<String> selected = new ArrayList<>();
+        for (String name : List.of("--exact-ms", "--cover-threads", "--improve-ms")) {
+            if (options.containsKey(name)) {
+                selected.add(name);
+            }
+        }
+        for (String name : List.of("--weighted", "--reduce")) {
+            if (Boolean.parseBoolean(options.get(name))) {
+                selected.add(name);
+            }
+        }
+        if (selected.size() > 1) {
+            throw new IllegalArgumentException(String.join(" and ", selected)
+                    + " cannot be combined");
+        }
+        if (k > 1 && !selected.isEmpty() && !selected.contains("--exact-ms")) {
+            throw new IllegalArgumentException(
+                    "--k-coverage cannot be combined with " + selected.get(0));
+        }
+        if (Boolean.parseBoolean(options.get("--early-stop"))) {
+            if (k > 1) {
+                throw new IllegalArgumentException(
+                        "--early-stop cannot be combined with --k-coverage");
+            }
+            if (selected.contains("--exact-ms")) {
+                throw new IllegalArgumentException(
+                        "--early-stop cannot be combined with --exact-ms");
+            }
+        }
+    }
+
+    /**
+     * Splits the command line args into options (of the form "--name value") and
+     * positional args.
+     *
+     * @param args       Command line arguments.
+     * @param positional The list to which the positional args are added, in order.
+     * @return A map from each option name (including the leading "--") to its value.
+     * @throws IllegalArgumentException If an option is missing its value.
+     */
+    private static Map<String, String> parseOptions(String[] args, List<String> positional) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--")) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("missing value for option " + args[i]);
+                }
+                options.put(args[i], args[++i]);
+            } else {
+                positional.add(args[i]);
+            }
+        }
+        return options;
+    }
+
+    /**
+     * Parses the value of a numeric option.
+     *
+     * @param options      The options given on the command line.
+     * @param name         The name of the option, including the leading "--".
+     * @param defaultValue The value to use if the option was not given.
+     * @return The value of the option, as a long.
+     * @throws IllegalArgumentException If the value is not an integer.
+     */
+    private static long parseLongOption(Map<String, String> options, String name,
+                                        long defaultValue) {
+        if (!options.containsKey(name)) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(options.get(name));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid value for option " + name + ": "
+                    + options.get(name));
+        }
+    }
+
+    /**
+     * Parses the limits on each process that tests an implementation.
+     *
+     * @param options The options given on the command line.
+     * @return The limits given, or null if no limit was given.
+     * @throws IllegalArgumentException If a limit is not a non-negative number.
+     */
+    private static ResourceLimits parseLimits(Map<String, String> options) {
+        String[] names = {"--max-memory-mb", "--max-cpu-s", "--max-wall-s", "--max-file-mb",
+                "--max-procs", "--max-output-kb"};
+        if (Arrays.stream(names).noneMatch(options::containsKey)) {
+            return null;
+        }
+        long cpuSeconds = parseLongOption(options, "--max-cpu-s", 0);
+        return new ResourceLimits(parseLongOption(options, "--max-memory-mb", 0) << 20,
+                cpuSeconds, parseLongOption(options, "--max-wall-s", 10 * cpuSeconds),
+                parseLongOption(options, "--max-file-mb", 0) << 20,
+                parseLongOption(options, "--max-procs", 0),
+                parseLongOption(options, "--max-output-kb", 0) << 10);
+    }
+
     /**
      * Parses the configuration file and returns the ConfigFile object.
      *
      * @param configFilePath The path to the configuration file.
+     * @param cacheDir       The directory in which compiled configs are cached, or null to
+     *                       always parse the configuration file.
      * @return The ConfigFile object containing information about the test generation.
      * @throws IOException            If there is an issue reading the configuration file.
      * @throws InvalidConfigException If the configuration file is invalid.
      */
-    private static ConfigFile parseConfigFile(String configFilePath)
+    private static ConfigFile parseConfigFile(String configFilePath, String cacheDir)
             throws IOException, InvalidConfigException {
+        if (cacheDir != null) {
+            return ConfigCache.load(configFilePath, cacheDir);
+        }
         ConfigFileParser parser = new ConfigFileParser();
         return ConfigFileParser.parse(parser.readFile(configFilePath));
     }
@@ -102,15 +500,46 @@ public class Main {
      * @param baseTestSet    The base test set to be used for testing.
      * @param implDirPath    The path to the implementation directory.
      * @param solutionPath   The path to the solution file.
+     * @param options        The options given on the command line.
+     * @param progress       The callback to report testing progress to.
+     * @param pool           The resources to run the tests with, or null to use the
+     *                       Tester's own.
      * @return The results of running tests on the implementation.
      * @throws IOException           If there is an issue reading files.
      * @throws InterruptedException  If the execution is interrupted during the test generation process.
      */
     private static TestResults runTests(String funcName, List<TestCase> baseTestSet,
-                                        String implDirPath, String solutionPath) throws IOException, InterruptedException {
+                                        String implDirPath, String solutionPath,
+                                        Map<String, String> options, Consumer<String> progress,
+                                        TesterPool pool)
+            throws IOException, InterruptedException {
         Tester tester = new Tester(funcName, solutionPath, implDirPath, baseTestSet);
+        tester.setMatrixPath(options.get("--matrix-file"));
+        tester.setProgressListener(progress);
+        tester.setWorkspaceDir(options.get("--workspace"));
+        tester.setBytecodeCache(options.get("--pycache"));
+        tester.setEarlyStop(Boolean.parseBoolean(options.get("--early-stop")));
+        tester.setForkServer(Boolean.parseBoolean(options.get("--fork-server")));
+        tester.setResourceLimits(parseLimits(options));
+        int maxProcesses = (int) parseLongOption(options, "--test-jobs", 1);
+        if (options.containsKey("--test-jobs-min")) {
+            tester.setAdaptiveProcesses((int) parseLongOption(options, "--test-jobs-min", 1),
+                    maxProcesses);
+        } else {
+            tester.setMaxProcesses(maxProcesses);
+        }
+        tester.setPool(pool);
+        TestHistory history = null;
+        if (options.containsKey("--history")) {
+            history = TestHistory.load(options.get("--history"));
+            tester.setHistory(history);
+        }
         tester.computeExpectedResults();
-        return tester.runTests();
+        TestResults results = tester.runTests();
+        if (history != null) {
+            history.save(options.get("--history"));
+        }
+        return results;
     }
 
 }
\ No newline at end of file
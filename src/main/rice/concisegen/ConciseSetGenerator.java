@@ -1,18 +1,21 @@
 package main.rice.concisegen;
 
+import main.rice.test.BitFileSet;
+import main.rice.test.BitMatrix;
+import main.rice.test.CompressedFileSet;
 import main.rice.test.TestCase;
 import main.rice.test.TestResults;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 /**
  * Stateless class that is a wrapper for a greedy approximation of the set cover
  * algorithm. Running the hitting set algorithm on the results of testing yields a
  * "concise" (approximately minimal) set of test cases that still catches every known
- * (based on the base test set) incorrect implementation.
+ * (based on the base test set) incorrect implementation. An exact (but potentially much
+ * slower) alternative is also provided, for when a truly minimal set is wanted.
  */
 public class ConciseSetGenerator {
 
@@ -27,43 +30,54 @@ public class ConciseSetGenerator {
      * @return M, a set of test cases that is an approximately minimal set covering
      */
     public static Set<TestCase> setCover(TestResults results) {
+        // Bit-packed results can be covered without copying or boxing anything
+        if (results.getMatrix() != null) {
+            return matrixSetCover(results);
+        }
 
         // Initialize the structure to return
         HashSet<TestCase> hittingSet = new HashSet<>();
 
-        // We'll be mutating both caseToFiles and wrongSet, so make copies
-        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        // Compress each set once up front; the greedy loop below then works purely with
+        // container-wise intersections and differences instead of copying and shrinking
+        // a HashSet per test case on every round
+        List<CompressedFileSet> caseToFiles = new ArrayList<>();
+        int[] numCaught = new int[results.getCaseToFiles().size()];
         for (Set<Integer> set : results.getCaseToFiles()) {
-            caseToFiles.add(new HashSet<>(set));
+            CompressedFileSet files = CompressedFileSet.of(set);
+            numCaught[caseToFiles.size()] = files.size();
+            caseToFiles.add(files);
         }
-        Set<Integer> wrongSet = new HashSet<>(results.getWrongSet());
+        CompressedFileSet wrongSet = CompressedFileSet.of(results.getWrongSet());
+        CompressedFileSet coveredFiles = new CompressedFileSet();
 
         // Select tests until we've "covered" every program that was initially in the
         // wrong set
-        while (wrongSet.size() > 0) {
+        while (!wrongSet.isEmpty()) {
             int maxFilesCaught = 0;
             int caseOfMaxFiles = -1;
 
             // Find the test case that covers the most heretofore-uncovered files
             for (int caseIndex = 0; caseIndex < caseToFiles.size(); caseIndex++) {
-                Set<Integer> filesCaught = caseToFiles.get(caseIndex);
-                if (filesCaught.size() > maxFilesCaught) {
-                    maxFilesCaught = filesCaught.size();
+                int filesCaught = numCaught[caseIndex]
+                        - caseToFiles.get(caseIndex).andCardinality(coveredFiles);
+                if (filesCaught > maxFilesCaught) {
+                    maxFilesCaught = filesCaught;
                     caseOfMaxFiles = caseIndex;
                 }
             }
 
-            // Remove all covered files from the wrongSet
-            HashSet<Integer> coveredFiles =
-                new HashSet<>(caseToFiles.get(caseOfMaxFiles));
-            wrongSet.removeAll(coveredFiles);
-
-            // Update the caseToFiles mapping such that the set of files caught by each
-            // test no longer includes the newly-covered files
-            for (Set<Integer> filesCaught : caseToFiles) {
-                filesCaught.removeAll(coveredFiles);
+            // No test case catches any of the remaining files, so they can't be covered
+            if (caseOfMaxFiles == -1) {
+                break;
             }
 
+            // Remove all covered files from the wrongSet, and record them as covered so
+            // that they no longer count towards any test case
+            CompressedFileSet selected = caseToFiles.get(caseOfMaxFiles);
+            wrongSet = wrongSet.andNot(selected);
+            coveredFiles = coveredFiles.or(selected);
+
             // Add the selected test case to the hitting set
             hittingSet.add(results.getTestCase(caseOfMaxFiles));
         }
@@ -71,4 +85,414 @@ public class ConciseSetGenerator {
         // Return the hitting set
         return hittingSet;
     }
-}
\ No newline at end of file
+
+    /**
+     * The same greedy approximation as setCover(), with the gain of every test case in
+     * each round evaluated in parallel. The lowest index still wins ties, so the result
+     * is deterministic and selects the same cases as setCover(), but large problems are
+     * solved several times faster on a machine with several cores.
+     *
+     * @param results     the results of running all tests in B on all files in S
+     * @param parallelism the number of threads to use; if not positive, the common
+     *                    fork-join pool is used instead
+     * @return M, a set of test cases that is an approximately minimal set covering, in
+     * the order they were selected
+     */
+    public static Set<TestCase> parallelSetCover(TestResults results, int parallelism) {
+        CoverMatrix matrix = CoverMatrix.of(results);
+        if (parallelism <= 0) {
+            return toTestCases(results, new int[0], matrix,
+                    matrix.parallelGreedyCover(ForkJoinPool.commonPool()));
+        }
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return toTestCases(results, new int[0], matrix,
+                    matrix.parallelGreedyCover(pool));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * The greedy approximation of setCover(), followed by a local search that shrinks
+     * the result for up to the given time budget: test cases made redundant by the
+     * others are dropped, and pairs of test cases are swapped for a single test case
+     * that catches every file only they catch. Every move shrinks the cover, so the
+     * result is never larger than that of setCover().
+     *
+     * @param results          the results of running all tests in B on all files in S
+     * @param timeBudgetMillis the maximum time to spend improving the greedy cover, in
+     *                         milliseconds
+     * @return M, a set of test cases that is an approximately minimal set covering; the
+     * greedy cases that remain come first, followed by those swapped in
+     */
+    public static Set<TestCase> improvedSetCover(TestResults results, long timeBudgetMillis) {
+        CoverMatrix matrix = CoverMatrix.of(results);
+        LocalSearch search = new LocalSearch(matrix, matrix.greedyCover(), timeBudgetMillis);
+        return toTestCases(results, new int[0], matrix, search.improve());
+    }
+
+    /**
+     * The same greedy approximation as setCover(), run after first shrinking the problem
+     * with reductions that never change the size of a minimum cover: cases that are the
+     * only ones to catch some file are selected up front, cases that catch a subset of
+     * another case's files are dropped, and files that are necessarily caught along with
+     * another file are dropped. The greedy rounds then only scan what remains. The result
+     * can differ from (and is often smaller than) that of setCover().
+     *
+     * @param results the results of running all tests in B on all files in S
+     * @return M, a set of test cases that is an approximately minimal set covering; the
+     * forced cases come first, followed by the rest in the order greedy selected them
+     */
+    public static Set<TestCase> reducedSetCover(TestResults results) {
+        CoverReduction reduction = CoverReduction.reduce(CoverMatrix.of(results));
+        CoverMatrix reduced = reduction.getReduced();
+        return toTestCases(results, reduction.getForcedCases(), reduced,
+                reduced.greedyCover());
+    }
+
+    /**
+     * A weighted greedy approximation of the set cover algorithm which minimizes the
+     * total runtime of the selected test cases rather than their number: each round, it
+     * selects the test case with the lowest runtime (on the reference solution) per
+     * heretofore-uncovered file, and afterwards drops any selected case made redundant
+     * by the others, slowest first. A case whose runtime was not measured (e.g. because
+     * the solution raised) is assumed to be as slow as the slowest case that was, and if
+     * no runtimes were measured, every case is treated as equally expensive.
+     *
+     * @param results the results of running all tests in B on all files in S
+     * @return M, a set of test cases that is a cheap set covering, in the order they
+     * were selected
+     */
+    public static Set<TestCase> weightedSetCover(TestResults results) {
+        CoverMatrix matrix = CoverMatrix.of(results);
+        long[] runtimes = results.getCaseRuntimes();
+        long slowest = (runtimes == null) ? 1 : Arrays.stream(runtimes).max().orElse(1);
+        double[] costs = new double[matrix.getNumRows()];
+        for (int row = 0; row < costs.length; row++) {
+            // Clamp to one nanosecond so that every cost is positive
+            long runtime = (runtimes == null) ? 1 : runtimes[matrix.caseIndex(row)];
+            costs[row] = Math.max(1, (runtime < 0) ? slowest : runtime);
+        }
+        return toTestCases(results, new int[0], matrix, matrix.weightedGreedyCover(costs));
+    }
+
+    /**
+     * Finds a minimum subset of B (M) such that all of the incorrect implementations are
+     * caught by at least one element in M, using branch-and-bound on the reduced problem
+     * (see reducedSetCover()). Because minimum set cover is NP-hard, the search is
+     * limited to the given time budget; if it runs out, the smallest cover found so far
+     * (never larger than the one setCover() returns) is returned instead, along with a
+     * lower bound on the size of a minimum cover.
+     *
+     * @param results          the results of running all tests in B on all files in S
+     * @param timeBudgetMillis the maximum time to spend searching, in milliseconds
+     * @return M, together with whether it is known to be minimum and the optimality gap
+     */
+    public static CoverResult exactSetCover(TestResults results, long timeBudgetMillis) {
+        // The time spent preparing the problem counts towards the budget
+        long start = System.nanoTime();
+        CoverMatrix matrix = CoverMatrix.of(results);
+        CoverReduction reduction = CoverReduction.reduce(matrix);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+        ExactCoverSolver solver = new ExactCoverSolver(reduction.getReduced(),
+                timeBudgetMillis - elapsedMillis);
+        int[] forced = reduction.getForcedCases();
+        int lowerBound = forced.length + solver.solve();
+        Set<TestCase> cover =
+                toTestCases(results, forced, reduction.getReduced(), solver.getBest());
+
+        // Greedy on the reduced problem is usually, but not always, no worse than greedy
+        // on the original, so fall back to the latter if the search was cut short
+        if (solver.timedOut()) {
+            int[] greedy = matrix.greedyCover();
+            if (greedy.length < cover.size()) {
+                cover = toTestCases(results, new int[0], matrix, greedy);
+            }
+        }
+        return new CoverResult(cover, lowerBound, !solver.timedOut());
+    }
+
+    /**
+     * A greedy approximation of multi-set cover: finds an approximately minimal subset of
+     * B (M) such that every incorrect implementation is caught by at least k distinct
+     * elements of M, which makes the suite robust to small changes in a submission.
+     * Files caught by fewer than k elements of B are instead caught by all of them. Each
+     * round selects the case that catches the most files that still need catching (the
+     * lowest index wins ties); with k = 1, this selects the same cases as setCover().
+     *
+     * @param results the results of running all tests in B on all files in S
+     * @param k       the number of test cases that should catch each file
+     * @return M, in the order its test cases were selected
+     * @throws IllegalArgumentException if k is less than 1
+     */
+    public static Set<TestCase> multiSetCover(TestResults results, int k) {
+        CoverMatrix matrix = CoverMatrix.of(results);
+        return toTestCases(results, new int[0], matrix,
+                matrix.greedyCover(matrix.demands(checkK(k))));
+    }
+
+    /**
+     * The exact counterpart of multiSetCover(): finds a minimum subset of B (M) such that
+     * every incorrect implementation is caught by at least k distinct elements of M (or
+     * by all elements of B that catch it, if there are fewer than k), within the given
+     * time budget. If the budget runs out, the smallest subset found so far (never
+     * larger than the one multiSetCover() returns) is returned instead, along with a
+     * lower bound on the size of a minimum one.
+     *
+     * @param results          the results of running all tests in B on all files in S
+     * @param k                the number of test cases that should catch each file
+     * @param timeBudgetMillis the maximum time to spend searching, in milliseconds
+     * @return M, together with whether it is known to be minimum and the optimality gap
+     * @throws IllegalArgumentException if k is less than 1
+     */
+    public static CoverResult exactSetCover(TestResults results, int k,
+                                            long timeBudgetMillis) {
+        if (checkK(k) == 1) {
+            return exactSetCover(results, timeBudgetMillis);
+        }
+
+        // The reductions assume each file need only be caught once, so are not applied
+        long start = System.nanoTime();
+        CoverMatrix matrix = CoverMatrix.of(results);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000L;
+        ExactCoverSolver solver = new ExactCoverSolver(matrix, matrix.demands(k),
+                timeBudgetMillis - elapsedMillis);
+        int lowerBound = solver.solve();
+        return new CoverResult(toTestCases(results, new int[0], matrix, solver.getBest()),
+                lowerBound, !solver.timedOut());
+    }
+
+    /**
+     * Extends an existing cover after new files have been tested, without recomputing it
+     * from scratch: only the new files that the existing cover fails to catch are
+     * considered, and greedy (with the same tie-breaking as setCover()) selects
+     * additional test cases until they are caught too. The work done is proportional to
+     * the number of new files rather than to the total number of files.
+     *
+     * @param results  the results of running all tests in B on all files in S, where S
+     *                 includes the new files
+     * @param cover    a set of test cases from B that catches every incorrect file other
+     *                 than the new ones; it is not modified
+     * @param newFiles the indices of the new files
+     * @return the test cases in cover (in their original order), followed by those that
+     * were added, in the order they were selected
+     */
+    public static Set<TestCase> extendCover(TestResults results, Set<TestCase> cover,
+                                            Set<Integer> newFiles) {
+        return extendCover(results, cover, newFiles, 0);
+    }
+
+    /**
+     * The same as extendCover(results, cover, newFiles), followed by an improvement pass
+     * of at most the given duration, which drops any test case (most recently added
+     * first) made redundant by the others.
+     *
+     * @param results       the results of running all tests in B on all files in S,
+     *                      where S includes the new files
+     * @param cover         a set of test cases from B that catches every incorrect file
+     *                      other than the new ones; it is not modified
+     * @param newFiles      the indices of the new files
+     * @param improveMillis the maximum time to spend improving the extended cover, in
+     *                      milliseconds; 0 to skip the improvement pass
+     * @return the extended (and possibly improved) cover, in selection order
+     */
+    public static Set<TestCase> extendCover(TestResults results, Set<TestCase> cover,
+                                            Set<Integer> newFiles, long improveMillis) {
+        long deadline = System.nanoTime() + improveMillis * 1_000_000L;
+        List<Set<Integer>> caseToFiles = results.getCaseToFiles();
+
+        // Find the index of each test case in the existing cover
+        Map<TestCase, Integer> indexOfCase = new HashMap<>();
+        for (int i = caseToFiles.size() - 1; i >= 0; i--) {
+            indexOfCase.put(results.getTestCase(i), i);
+        }
+        List<Integer> selected = new ArrayList<>();
+        for (TestCase test : cover) {
+            Integer caseIndex = indexOfCase.get(test);
+            if (caseIndex == null) {
+                throw new IllegalArgumentException("cover contains a test case that is "
+                        + "not in the results: " + test);
+            }
+            selected.add(caseIndex);
+        }
+
+        // The new incorrect files that the existing cover misses
+        List<Integer> uncovered = new ArrayList<>();
+        for (int file : newFiles) {
+            if (results.getWrongSet().contains(file)) {
+                uncovered.add(file);
+            }
+        }
+        for (int caseIndex : selected) {
+            uncovered.removeIf(caseToFiles.get(caseIndex)::contains);
+        }
+
+        // Greedily select cases until the missed files are caught
+        while (!uncovered.isEmpty()) {
+            int maxFilesCaught = 0;
+            int caseOfMaxFiles = -1;
+            for (int caseIndex = 0; caseIndex < caseToFiles.size(); caseIndex++) {
+                Set<Integer> filesCaught = caseToFiles.get(caseIndex);
+                int numCaught = 0;
+                for (int file : uncovered) {
+                    numCaught += filesCaught.contains(file) ? 1 : 0;
+                }
+                if (numCaught > maxFilesCaught) {
+                    maxFilesCaught = numCaught;
+                    caseOfMaxFiles = caseIndex;
+                }
+            }
+
+            // No test case catches any of the remaining files, so they can't be covered
+            if (caseOfMaxFiles == -1) {
+                break;
+            }
+            uncovered.removeIf(caseToFiles.get(caseOfMaxFiles)::contains);
+            selected.add(caseOfMaxFiles);
+        }
+
+        // Drop redundant cases, most recently added first, if there is time to
+        int[] rows = IntStream.range(0, selected.size()).toArray();
+        if (improveMillis > 0) {
+            int[] caseIndices = selected.stream().mapToInt(Integer::intValue).toArray();
+            CoverMatrix matrix = CoverMatrix.of(results, caseIndices);
+            double[] costs = new double[caseIndices.length];
+            Arrays.fill(costs, 1);
+            rows = matrix.removeRedundant(rows, costs, deadline);
+        }
+        Set<TestCase> extended = new LinkedHashSet<>();
+        for (int row : rows) {
+            extended.add(results.getTestCase(selected.get(row)));
+        }
+        return extended;
+    }
+
+    /**
+     * Helper function which validates the number of times each file should be caught.
+     *
+     * @param k the number of test cases that should catch each file
+     * @return k
+     * @throws IllegalArgumentException if k is less than 1
+     */
+    private static int checkK(int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1, but was " + k);
+        }
+        return k;
+    }
+
+    /**
+     * Helper function which converts the output of a cover algorithm back into test
+     * cases.
+     *
+     * @param results     the results the matrix was built from
+     * @param forcedCases the indices of any cases selected before the algorithm ran
+     * @param matrix      the cover matrix the algorithm ran on
+     * @param rows        the rows the algorithm selected, in the order it selected them
+     * @return the forced test cases followed by those of the selected rows, in order
+     */
+    private static Set<TestCase> toTestCases(TestResults results, int[] forcedCases,
+                                             CoverMatrix matrix, int[] rows) {
+        Set<TestCase> cover = new LinkedHashSet<>();
+        for (int caseIndex : forcedCases) {
+            cover.add(results.getTestCase(caseIndex));
+        }
+        for (int row : rows) {
+            cover.add(results.getTestCase(matrix.caseIndex(row)));
+        }
+        return cover;
+    }
+
+    /**
+     * The same greedy approximation as setCover(), specialized for results backed by a
+     * BitMatrix. Rather than copying and shrinking a set per test case, this keeps a
+     * single bitset of the heretofore-uncovered files and scores each test case by
+     * counting the bits it shares with that bitset, one word at a time. The matrix
+     * itself is only read, so the extra memory needed is proportional to the number of
+     * files rather than to the size of the matrix.
+     *
+     * @param results the results of running all tests in B on all files in S; must be
+     *                backed by a BitMatrix
+     * @return M, a set of test cases that is an approximately minimal set covering
+     */
+    private static Set<TestCase> matrixSetCover(TestResults results) {
+        BitMatrix matrix = results.getMatrix();
+        int numWords = matrix.getWordsPerRow();
+
+        // The files that still need to be covered, initially the entire wrongSet
+        long[] uncovered = new long[numWords];
+        if (results.getWrongSet() instanceof BitFileSet wrongWords) {
+            for (int w = 0; w < Math.min(numWords, wrongWords.getNumWords()); w++) {
+                uncovered[w] = wrongWords.getWord(w);
+            }
+        } else {
+            for (int file : results.getWrongSet()) {
+                uncovered[file >>> 6] |= 1L << file;
+            }
+        }
+
+        // The indices of the words of uncovered that are still non-zero; only these
+        // need to be examined when scoring a test case
+        int[] activeWords = new int[numWords];
+        for (int w = 0; w < numWords; w++) {
+            activeWords[w] = w;
+        }
+        int numActive = compactActiveWords(uncovered, activeWords, numWords);
+
+        HashSet<TestCase> hittingSet = new HashSet<>();
+        while (numActive > 0) {
+            int maxFilesCaught = 0;
+            int caseOfMaxFiles = -1;
+
+            // Find the test case that covers the most heretofore-uncovered files
+            for (int caseIndex = 0; caseIndex < matrix.getNumRows(); caseIndex++) {
+                int filesCaught = 0;
+                for (int i = 0; i < numActive; i++) {
+                    int w = activeWords[i];
+                    filesCaught += Long.bitCount(matrix.getWord(caseIndex, w) & uncovered[w]);
+                }
+                if (filesCaught > maxFilesCaught) {
+                    maxFilesCaught = filesCaught;
+                    caseOfMaxFiles = caseIndex;
+                }
+            }
+
+            // No test case catches any of the remaining files, so they can't be covered
+            if (caseOfMaxFiles == -1) {
+                break;
+            }
+
+            // Remove all covered files from the uncovered set
+            for (int i = 0; i < numActive; i++) {
+                int w = activeWords[i];
+                uncovered[w] &= ~matrix.getWord(caseOfMaxFiles, w);
+            }
+            numActive = compactActiveWords(uncovered, activeWords, numActive);
+
+            // Add the selected test case to the hitting set
+            hittingSet.add(results.getTestCase(caseOfMaxFiles));
+        }
+        return hittingSet;
+    }
+
+    /**
+     * Helper function for matrixSetCover() which drops the indices of words that have
+     * become zero from the list of active words.
+     *
+     * @param uncovered   the bitset of uncovered files
+     * @param activeWords the indices of possibly non-zero words; compacted in place
+     * @param numActive   the number of valid entries in activeWords
+     * @return the number of valid entries in activeWords after compaction
+     */
+    private static int compactActiveWords(long[] uncovered, int[] activeWords, int numActive) {
+        int kept = 0;
+        for (int i = 0; i < numActive; i++) {
+            int w = activeWords[i];
+            if (uncovered[w] != 0) {
+                activeWords[kept++] = w;
+            }
+        }
+        return kept;
+    }
+}
@@ -0,0 +1,554 @@
+package main.rice.concisegen;
+
+import main.rice.test.TestResults;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * A dense, bit-packed view of a set cover instance, built once from a TestResults object
+ * and shared by the cover algorithms in this package. Only the files that must be
+ * covered (those in the wrong set that at least one test case catches) are kept, and
+ * they are renumbered 0..numFiles-1, so that every row is as short as possible no matter
+ * how sparse the original file indices were. Row i is the set of (renumbered) files
+ * caught by the test case at index caseIndex(i) of the original results.
+ */
+class CoverMatrix {
+
+    /**
+     * The least number of word operations in a round of parallelGreedyCover() for which
+     * the round is worth running in parallel.
+     */
+    private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * The number of (renumbered) files to be covered.
+     */
+    private final int numFiles;
+
+    /**
+     * The number of 64-bit words in each row.
+     */
+    private final int numWords;
+
+    /**
+     * The rows of the matrix; rows[i] has bit j set iff row i catches file j.
+     */
+    private final long[][] rows;
+
+    /**
+     * The index, within the original results, of the test case of each row.
+     */
+    private final int[] caseIndices;
+
+    /**
+     * For each file, the rows that catch it, in ascending order; built on first use.
+     */
+    private int[][] rowsOfFile;
+
+    /**
+     * Constructor for a CoverMatrix with the given rows.
+     *
+     * @param numFiles    the number of files to be covered
+     * @param rows        the rows of the matrix, each of wordsFor(numFiles) words
+     * @param caseIndices the index of the test case of each row
+     */
+    CoverMatrix(int numFiles, long[][] rows, int[] caseIndices) {
+        this.numFiles = numFiles;
+        this.numWords = (numFiles + 63) >>> 6;
+        this.rows = rows;
+        this.caseIndices = caseIndices;
+    }
+
+    /**
+     * Builds the cover matrix of the given results.
+     *
+     * @param results the results of testing
+     * @return a CoverMatrix with one row per test case in results
+     */
+    static CoverMatrix of(TestResults results) {
+        return of(results, IntStream.range(0, results.getCaseToFiles().size()).toArray());
+    }
+
+    /**
+     * Builds the cover matrix of some of the test cases in the given results. Only the
+     * files those cases catch are included, so the cost depends only on their size.
+     *
+     * @param results     the results of testing
+     * @param caseIndices the indices of the test cases to include, in row order
+     * @return a CoverMatrix with one row per given test case
+     */
+    static CoverMatrix of(TestResults results, int[] caseIndices) {
+        List<Set<Integer>> caseToFiles = results.getCaseToFiles();
+        Set<Integer> wrongSet = results.getWrongSet();
+
+        // Renumber the files in the wrong set that some case catches, in ascending order
+        int maxFile = 0;
+        for (int caseIndex : caseIndices) {
+            for (int file : caseToFiles.get(caseIndex)) {
+                maxFile = Math.max(maxFile, file + 1);
+            }
+        }
+        int[] column = new int[maxFile];
+        for (int caseIndex : caseIndices) {
+            for (int file : caseToFiles.get(caseIndex)) {
+                if (wrongSet.contains(file)) {
+                    column[file] = 1;
+                }
+            }
+        }
+        int numFiles = 0;
+        for (int file = 0; file < maxFile; file++) {
+            column[file] = (column[file] == 1) ? numFiles++ : -1;
+        }
+
+        // Pack each case's files into a row
+        int numWords = (numFiles + 63) >>> 6;
+        long[][] rows = new long[caseIndices.length][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = new long[numWords];
+            for (int file : caseToFiles.get(caseIndices[i])) {
+                int col = column[file];
+                if (col >= 0) {
+                    rows[i][col >>> 6] |= 1L << col;
+                }
+            }
+        }
+        return new CoverMatrix(numFiles, rows, caseIndices.clone());
+    }
+
+    /**
+     * Builds a smaller matrix containing only the given rows and files, with the files
+     * renumbered in the order given. Each row keeps the test case it had in this matrix.
+     *
+     * @param rows  the rows to keep, in the order they should appear
+     * @param files the files to keep, in the order they should appear
+     * @return a new CoverMatrix restricted to rows and files
+     */
+    CoverMatrix select(int[] rows, int[] files) {
+        int numWords = (files.length + 63) >>> 6;
+        long[][] selected = new long[rows.length][];
+        int[] caseIndices = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            long[] words = this.rows[rows[i]];
+            selected[i] = new long[numWords];
+            caseIndices[i] = this.caseIndices[rows[i]];
+            for (int col = 0; col < files.length; col++) {
+                int file = files[col];
+                if ((words[file >>> 6] & (1L << file)) != 0) {
+                    selected[i][col >>> 6] |= 1L << col;
+                }
+            }
+        }
+        return new CoverMatrix(files.length, selected, caseIndices);
+    }
+
+    /**
+     * Returns the number of files to be covered.
+     *
+     * @return the number of files to be covered
+     */
+    int getNumFiles() {
+        return this.numFiles;
+    }
+
+    /**
+     * Returns the number of 64-bit words in each row.
+     *
+     * @return the number of words in each row
+     */
+    int getNumWords() {
+        return this.numWords;
+    }
+
+    /**
+     * Returns the number of rows (test cases).
+     *
+     * @return the number of rows
+     */
+    int getNumRows() {
+        return this.rows.length;
+    }
+
+    /**
+     * Returns the given row; the returned array must not be modified.
+     *
+     * @param row the row index
+     * @return the words of the row
+     */
+    long[] getRow(int row) {
+        return this.rows[row];
+    }
+
+    /**
+     * Returns the index, within the original results, of the test case of the given row.
+     *
+     * @param row the row index
+     * @return the index of the row's test case
+     */
+    int caseIndex(int row) {
+        return this.caseIndices[row];
+    }
+
+    /**
+     * Returns a new bitset containing every file to be covered.
+     *
+     * @return the set of all files, as an array of numWords words
+     */
+    long[] allFiles() {
+        long[] all = new long[this.numWords];
+        for (int file = 0; file < this.numFiles; file++) {
+            all[file >>> 6] |= 1L << file;
+        }
+        return all;
+    }
+
+    /**
+     * Returns, for each file, the rows that catch it, in ascending order.
+     *
+     * @return an array mapping each file to the rows that catch it; must not be modified
+     */
+    int[][] rowsOfFile() {
+        if (this.rowsOfFile == null) {
+            List<List<Integer>> lists = new ArrayList<>();
+            for (int file = 0; file < this.numFiles; file++) {
+                lists.add(new ArrayList<>());
+            }
+            for (int row = 0; row < this.rows.length; row++) {
+                for (int w = 0; w < this.numWords; w++) {
+                    long word = this.rows[row][w];
+                    while (word != 0) {
+                        lists.get((w << 6) + Long.numberOfTrailingZeros(word)).add(row);
+                        word &= word - 1;
+                    }
+                }
+            }
+            this.rowsOfFile = new int[this.numFiles][];
+            for (int file = 0; file < this.numFiles; file++) {
+                this.rowsOfFile[file] =
+                        lists.get(file).stream().mapToInt(Integer::intValue).toArray();
+            }
+        }
+        return this.rowsOfFile;
+    }
+
+    /**
+     * Counts the files in the given row that are also in the given bitset.
+     *
+     * @param row   the row index
+     * @param files a bitset of numWords words
+     * @return the number of files in both the row and files
+     */
+    int gain(int row, long[] files) {
+        long[] words = this.rows[row];
+        int count = 0;
+        for (int w = 0; w < this.numWords; w++) {
+            count += Long.bitCount(words[w] & files[w]);
+        }
+        return count;
+    }
+
+    /**
+     * Counts the files in the given bitset.
+     *
+     * @param files a bitset
+     * @return the number of set bits in files
+     */
+    static int cardinality(long[] files) {
+        int count = 0;
+        for (long word : files) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether the given bitset is empty.
+     *
+     * @param files a bitset
+     * @return true if no bit of files is set; false otherwise
+     */
+    static boolean isEmpty(long[] files) {
+        for (long word : files) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns, for each file, how many distinct rows must catch it for every file to be
+     * caught k times where possible: k, or the number of rows that catch the file if
+     * that is smaller.
+     *
+     * @param k the number of times each file should be caught
+     * @return the demand of each file
+     */
+    int[] demands(int k) {
+        int[][] rowsOfFile = this.rowsOfFile();
+        int[] demand = new int[this.numFiles];
+        for (int file = 0; file < this.numFiles; file++) {
+            demand[file] = Math.min(k, rowsOfFile[file].length);
+        }
+        return demand;
+    }
+
+    /**
+     * Runs the greedy approximation of set cover on this matrix, with the same
+     * tie-breaking as ConciseSetGenerator.setCover() (the lowest row wins).
+     *
+     * @return the selected rows, in the order they were selected
+     */
+    int[] greedyCover() {
+        return this.greedyCover(this.demands(1));
+    }
+
+    /**
+     * Runs the greedy approximation of multi-set cover on this matrix: each round
+     * selects the not-yet-selected row that catches the most files that still need to
+     * be caught (the lowest row wins ties), until each file has been caught by as many
+     * selected rows as its demand. Only a bitset of the files with unmet demand is
+     * scanned each round, so the cost per round does not depend on the demands.
+     *
+     * @param demand for each file, how many selected rows must catch it; no more than
+     *               the number of rows that catch it
+     * @return the selected rows, in the order they were selected
+     */
+    int[] greedyCover(int[] demand) {
+        int[] remaining = demand.clone();
+        long[] needy = new long[this.numWords];
+        for (int file = 0; file < this.numFiles; file++) {
+            if (remaining[file] > 0) {
+                needy[file >>> 6] |= 1L << file;
+            }
+        }
+
+        boolean[] selected = new boolean[this.rows.length];
+        List<Integer> order = new ArrayList<>();
+        while (!isEmpty(needy)) {
+            int maxGain = 0;
+            int bestRow = -1;
+            for (int row = 0; row < this.rows.length; row++) {
+                if (!selected[row]) {
+                    int gain = this.gain(row, needy);
+                    if (gain > maxGain) {
+                        maxGain = gain;
+                        bestRow = row;
+                    }
+                }
+            }
+
+            // Meet one unit of the demand of each needy file the row catches
+            long[] words = this.rows[bestRow];
+            for (int w = 0; w < this.numWords; w++) {
+                long word = words[w] & needy[w];
+                while (word != 0) {
+                    int bit = Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    if (--remaining[(w << 6) + bit] == 0) {
+                        needy[w] &= ~(1L << bit);
+                    }
+                }
+            }
+            selected[bestRow] = true;
+            order.add(bestRow);
+        }
+        return order.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Runs the same greedy approximation as greedyCover(), evaluating the gain of every
+     * row in parallel on the given pool. Each round is a parallel max-reduction over
+     * (gain, -row) pairs, so the lowest row still wins ties and the result does not
+     * depend on the number of threads. Between rounds, rows that no longer catch any
+     * uncovered file and words of the uncovered bitset that have become zero are dropped,
+     * so later rounds only touch what can still matter.
+     *
+     * @param pool the pool on which to evaluate gains
+     * @return the selected rows, in the order they were selected
+     */
+    int[] parallelGreedyCover(ForkJoinPool pool) {
+        long[] uncovered = this.allFiles();
+        int[] activeWords = IntStream.range(0, this.numWords).toArray();
+        int numActive = compact(activeWords, this.numWords, w -> uncovered[w] != 0);
+        int[] aliveRows = IntStream.range(0, this.rows.length).toArray();
+        int numAlive = this.rows.length;
+        int[] gains = new int[this.rows.length];
+
+        List<Integer> selected = new ArrayList<>();
+        while (numActive > 0) {
+            int active = numActive;
+            int alive = numAlive;
+            IntStream indices = IntStream.range(0, alive);
+            if ((long) alive * active >= PARALLEL_THRESHOLD) {
+                indices = indices.parallel();
+            }
+            IntStream scan = indices;
+            long best = pool.submit(() -> scan.mapToLong(i -> {
+                int row = aliveRows[i];
+                long[] words = this.rows[row];
+                int gain = 0;
+                for (int j = 0; j < active; j++) {
+                    int w = activeWords[j];
+                    gain += Long.bitCount(words[w] & uncovered[w]);
+                }
+                gains[row] = gain;
+                return ((long) gain << 32) | (Integer.MAX_VALUE - row);
+            }).max().orElse(0)).join();
+
+            // No row catches any of the remaining files, so they can't be covered
+            if ((best >>> 32) == 0) {
+                break;
+            }
+            int bestRow = Integer.MAX_VALUE - (int) best;
+            long[] words = this.rows[bestRow];
+            for (int j = 0; j < active; j++) {
+                int w = activeWords[j];
+                uncovered[w] &= ~words[w];
+            }
+            gains[bestRow] = 0;
+            selected.add(bestRow);
+
+            numActive = compact(activeWords, active, w -> uncovered[w] != 0);
+            numAlive = compact(aliveRows, alive, row -> gains[row] > 0);
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Helper function which keeps only the entries of an array that satisfy a predicate,
+     * moving them (in order) to the front.
+     *
+     * @param values the array to be compacted in place
+     * @param length the number of valid entries in values
+     * @param keep   the predicate that entries to be kept satisfy
+     * @return the number of valid entries after compaction
+     */
+    private static int compact(int[] values, int length, IntPredicate keep) {
+        int kept = 0;
+        for (int i = 0; i < length; i++) {
+            if (keep.test(values[i])) {
+                values[kept++] = values[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Runs the weighted greedy approximation of set cover on this matrix: each round
+     * selects the row with the lowest cost per newly-covered file (the lowest row wins
+     * ties). Afterwards, any selected row whose files are all covered by the other
+     * selected rows is dropped, most expensive first.
+     *
+     * @param costs the (positive) cost of each row
+     * @return the selected rows, in the order they were selected
+     */
+    int[] weightedGreedyCover(double[] costs) {
+        long[] uncovered = this.allFiles();
+        List<Integer> selected = new ArrayList<>();
+        while (!isEmpty(uncovered)) {
+            double maxGainPerCost = 0;
+            int bestRow = -1;
+            for (int row = 0; row < this.rows.length; row++) {
+                double gainPerCost = this.gain(row, uncovered) / costs[row];
+                if (gainPerCost > maxGainPerCost) {
+                    maxGainPerCost = gainPerCost;
+                    bestRow = row;
+                }
+            }
+            long[] words = this.rows[bestRow];
+            for (int w = 0; w < this.numWords; w++) {
+                uncovered[w] &= ~words[w];
+            }
+            selected.add(bestRow);
+        }
+        return this.removeRedundant(selected.stream().mapToInt(Integer::intValue).toArray(),
+                costs);
+    }
+
+    /**
+     * Drops rows from a cover that are not needed because every file they catch is also
+     * caught by another remaining row. Rows are considered from most to least expensive
+     * (the later-selected row first among equals).
+     *
+     * @param cover the selected rows, forming a cover
+     * @param costs the cost of each row
+     * @return the rows of cover that remain, in their original order
+     */
+    int[] removeRedundant(int[] cover, double[] costs) {
+        return this.removeRedundant(cover, costs, Long.MAX_VALUE);
+    }
+
+    /**
+     * The same as removeRedundant(cover, costs), but stops considering rows once
+     * System.nanoTime() passes the given deadline.
+     *
+     * @param cover    the selected rows, forming a cover
+     * @param costs    the cost of each row
+     * @param deadline the value of System.nanoTime() after which to stop
+     * @return the rows of cover that remain, in their original order
+     */
+    int[] removeRedundant(int[] cover, double[] costs, long deadline) {
+        // Count how many selected rows catch each file
+        int[] timesCaught = new int[this.numFiles];
+        for (int row : cover) {
+            this.forEachFile(row, file -> timesCaught[file]++);
+        }
+
+        Integer[] order = new Integer[cover.length];
+        for (int i = 0; i < cover.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> costs[cover[a]] != costs[cover[b]]
+                ? Double.compare(costs[cover[b]], costs[cover[a]]) : b - a);
+
+        boolean[] dropped = new boolean[cover.length];
+        for (int i : order) {
+            if (System.nanoTime() > deadline) {
+                break;
+            }
+            boolean redundant = true;
+            long[] words = this.rows[cover[i]];
+            for (int w = 0; w < this.numWords && redundant; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    if (timesCaught[(w << 6) + Long.numberOfTrailingZeros(word)] < 2) {
+                        redundant = false;
+                        break;
+                    }
+                    word &= word - 1;
+                }
+            }
+            if (redundant) {
+                dropped[i] = true;
+                this.forEachFile(cover[i], file -> timesCaught[file]--);
+            }
+        }
+        return IntStream.range(0, cover.length).filter(i -> !dropped[i])
+                .map(i -> cover[i]).toArray();
+    }
+
+    /**
+     * Invokes the given action on each file caught by the given row, in ascending order.
+     *
+     * @param row    the row index
+     * @param action the action to invoke with each file
+     */
+    void forEachFile(int row, IntConsumer action) {
+        long[] words = this.rows[row];
+        for (int w = 0; w < this.numWords; w++) {
+            long word = words[w];
+            while (word != 0) {
+                action.accept((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+    }
+}
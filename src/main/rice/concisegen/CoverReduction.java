@@ -0,0 +1,245 @@
+package main.rice.concisegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The result of shrinking a set cover instance with reductions that never change the
+ * size of a minimum cover. The following are applied repeatedly, until none of them
+ * changes anything:
+ * <ul>
+ *     <li>Essential cases: a file caught by only one case forces that case into every
+ *     cover, so the case is selected up front and the files it catches are dropped.</li>
+ *     <li>Dominated cases: a case whose (remaining) files are a subset of another case's
+ *     can always be swapped for that case, so it is dropped; of several cases that catch
+ *     exactly the same files, only the first is kept.</li>
+ *     <li>Dominated files: if every case that catches file a also catches file b, then
+ *     covering a covers b, so b is dropped; of several files caught by exactly the same
+ *     cases, only the first is kept.</li>
+ * </ul>
+ * A minimum cover of the original instance is the forced cases plus a minimum cover of
+ * the reduced one.
+ */
+class CoverReduction {
+
+    /**
+     * The indices (in the original results) of the cases forced into every cover, in the
+     * order they were found.
+     */
+    private final int[] forcedCases;
+
+    /**
+     * The instance that remains once the forced cases are selected.
+     */
+    private final CoverMatrix reduced;
+
+    /**
+     * Constructor for a CoverReduction; initializes all fields.
+     *
+     * @param forcedCases the cases forced into every cover
+     * @param reduced     the instance that remains
+     */
+    private CoverReduction(int[] forcedCases, CoverMatrix reduced) {
+        this.forcedCases = forcedCases;
+        this.reduced = reduced;
+    }
+
+    /**
+     * Reduces the given instance.
+     *
+     * @param matrix the instance to be reduced
+     * @return the forced cases and the reduced instance
+     */
+    static CoverReduction reduce(CoverMatrix matrix) {
+        List<Integer> forced = new ArrayList<>();
+        while (true) {
+            int[][] rowsOfFile = matrix.rowsOfFile();
+
+            // Select every essential case, and keep only the files they do not catch
+            boolean[] isForced = new boolean[matrix.getNumRows()];
+            long[] covered = new long[matrix.getNumWords()];
+            int numForced = 0;
+            for (int[] rows : rowsOfFile) {
+                if (rows.length == 1 && !isForced[rows[0]]) {
+                    isForced[rows[0]] = true;
+                    forced.add(matrix.caseIndex(rows[0]));
+                    numForced++;
+                    long[] words = matrix.getRow(rows[0]);
+                    for (int w = 0; w < covered.length; w++) {
+                        covered[w] |= words[w];
+                    }
+                }
+            }
+            boolean[] keepFile = new boolean[matrix.getNumFiles()];
+            for (int file = 0; file < keepFile.length; file++) {
+                keepFile[file] = (covered[file >>> 6] & (1L << file)) == 0;
+            }
+
+            // Drop the forced cases, cases left with no files, and dominated cases
+            long[][] masks = new long[matrix.getNumRows()][];
+            for (int row = 0; row < masks.length; row++) {
+                masks[row] = matrix.getRow(row).clone();
+                for (int w = 0; w < covered.length; w++) {
+                    masks[row][w] &= ~covered[w];
+                }
+            }
+            boolean[] keepRow = new boolean[matrix.getNumRows()];
+            for (int row = 0; row < keepRow.length; row++) {
+                keepRow[row] = !isForced[row] && !CoverMatrix.isEmpty(masks[row])
+                        && !isDominatedRow(row, masks, rowsOfFile);
+            }
+
+            // Drop dominated files, judged by the cases that remain
+            int[][] keptRowsOfFile = new int[rowsOfFile.length][];
+            for (int file = 0; file < rowsOfFile.length; file++) {
+                keptRowsOfFile[file] =
+                        Arrays.stream(rowsOfFile[file]).filter(row -> keepRow[row]).toArray();
+            }
+            boolean[] dominatedFile = new boolean[keepFile.length];
+            for (int file = 0; file < keepFile.length; file++) {
+                if (keepFile[file]) {
+                    markDominatedFiles(file, keepFile, dominatedFile, keptRowsOfFile,
+                            matrix);
+                }
+            }
+
+            // Stop once nothing changes; otherwise, shrink the matrix and go again
+            int[] rows = indicesOf(keepRow, null);
+            int[] files = indicesOf(keepFile, dominatedFile);
+            boolean changed = numForced > 0 || rows.length < matrix.getNumRows()
+                    || files.length < matrix.getNumFiles();
+            matrix = matrix.select(rows, files);
+            if (!changed) {
+                break;
+            }
+        }
+        return new CoverReduction(forced.stream().mapToInt(Integer::intValue).toArray(),
+                matrix);
+    }
+
+    /**
+     * Returns the indices (in the original results) of the cases forced into every cover.
+     *
+     * @return the forced cases, in the order they were found
+     */
+    int[] getForcedCases() {
+        return this.forcedCases;
+    }
+
+    /**
+     * Returns the instance that remains once the forced cases are selected.
+     *
+     * @return the reduced instance
+     */
+    CoverMatrix getReduced() {
+        return this.reduced;
+    }
+
+    /**
+     * Returns whether the given row is dominated by another: whether some other row
+     * catches every file it does, and either catches more or comes first. Only rows
+     * that catch the row's rarest file need to be checked.
+     *
+     * @param row        the row to check
+     * @param masks      the files of each row
+     * @param rowsOfFile for each file, the rows that catch it
+     * @return true if the row can be dropped; false otherwise
+     */
+    private static boolean isDominatedRow(int row, long[][] masks, int[][] rowsOfFile) {
+        long[] mask = masks[row];
+        int[] candidates = null;
+        for (int w = 0; w < mask.length; w++) {
+            long word = mask[w];
+            while (word != 0) {
+                int file = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (candidates == null || rowsOfFile[file].length < candidates.length) {
+                    candidates = rowsOfFile[file];
+                }
+            }
+        }
+        for (int other : candidates) {
+            if (other != row && isSubset(mask, masks[other])
+                    && (other < row || !isSubset(masks[other], mask))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks every file dominated by the given file: every other file caught by all of
+     * the cases that catch it (and, for files caught by exactly the same cases, that
+     * comes after it). Only the files of one of those cases need to be checked.
+     *
+     * @param file          the dominating file
+     * @param keepFile      which files have not been covered by forced cases
+     * @param dominatedFile the marks to be updated
+     * @param rowsOfFile    for each file, the remaining rows that catch it
+     * @param matrix        the instance being reduced
+     */
+    private static void markDominatedFiles(int file, boolean[] keepFile,
+                                           boolean[] dominatedFile, int[][] rowsOfFile,
+                                           CoverMatrix matrix) {
+        int[] rows = rowsOfFile[file];
+        if (rows.length == 0) {
+            return;
+        }
+        long[] first = matrix.getRow(rows[0]);
+        for (int w = 0; w < first.length; w++) {
+            long word = first[w];
+            while (word != 0) {
+                int other = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (other == file || !keepFile[other] || dominatedFile[other]) {
+                    continue;
+                }
+                boolean caughtByAll = true;
+                for (int row : rows) {
+                    long[] words = matrix.getRow(row);
+                    if ((words[other >>> 6] & (1L << other)) == 0) {
+                        caughtByAll = false;
+                        break;
+                    }
+                }
+                if (caughtByAll && (rowsOfFile[other].length > rows.length || other > file)) {
+                    dominatedFile[other] = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the indices at which keep is true and (if given) exclude is false.
+     *
+     * @param keep    which indices to keep
+     * @param exclude which indices to exclude despite keep, or null
+     * @return the kept indices, in ascending order
+     */
+    private static int[] indicesOf(boolean[] keep, boolean[] exclude) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < keep.length; i++) {
+            if (keep[i] && (exclude == null || !exclude[i])) {
+                indices.add(i);
+            }
+        }
+        return indices.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns whether every bit set in a is also set in b.
+     *
+     * @param a a bitset
+     * @param b a bitset of the same length
+     * @return true if a is a subset of b; false otherwise
+     */
+    private static boolean isSubset(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & ~b[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
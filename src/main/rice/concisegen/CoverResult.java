@@ -0,0 +1,93 @@
+package main.rice.concisegen;
+
+import main.rice.test.TestCase;
+
+import java.util.Set;
+
+/**
+ * The outcome of a set cover algorithm that can certify how close its answer is to the
+ * minimum: the selected test cases, together with a proven lower bound on the size of
+ * any covering subset of the same base test set.
+ */
+public class CoverResult {
+
+    /**
+     * The selected test cases, in the order they were selected.
+     */
+    private final Set<TestCase> cover;
+
+    /**
+     * A lower bound on the size of a minimum cover.
+     */
+    private final int lowerBound;
+
+    /**
+     * Whether cover is known to be a minimum cover.
+     */
+    private final boolean optimal;
+
+    /**
+     * Constructor for a CoverResult; initializes all fields.
+     *
+     * @param cover      the selected test cases
+     * @param lowerBound a lower bound on the size of a minimum cover
+     * @param optimal    whether cover is known to be a minimum cover
+     */
+    public CoverResult(Set<TestCase> cover, int lowerBound, boolean optimal) {
+        this.cover = cover;
+        this.lowerBound = optimal ? cover.size() : lowerBound;
+        this.optimal = optimal;
+    }
+
+    /**
+     * Returns the selected test cases, in the order they were selected.
+     *
+     * @return the selected test cases
+     */
+    public Set<TestCase> getCover() {
+        return this.cover;
+    }
+
+    /**
+     * Returns a lower bound on the size of a minimum cover; equal to the size of the
+     * cover if it is optimal.
+     *
+     * @return a lower bound on the size of a minimum cover
+     */
+    public int getLowerBound() {
+        return this.lowerBound;
+    }
+
+    /**
+     * Returns whether the cover is known to be a minimum cover.
+     *
+     * @return true if the cover is a minimum cover; false if it might not be
+     */
+    public boolean isOptimal() {
+        return this.optimal;
+    }
+
+    /**
+     * Returns the optimality gap: the number of test cases by which the cover might
+     * exceed a minimum cover.
+     *
+     * @return the size of the cover minus the lower bound; 0 if the cover is optimal
+     */
+    public int getGap() {
+        return this.cover.size() - this.lowerBound;
+    }
+
+    /**
+     * Returns a human-readable summary of the cover's size and optimality.
+     *
+     * @return a summary of this result
+     */
+    @Override
+    public String toString() {
+        if (this.optimal) {
+            return this.cover.size() + " test cases (optimal)";
+        }
+        return this.cover.size() + " test cases (lower bound " + this.lowerBound
+                + ", gap " + this.getGap() + ")";
+    }
+}
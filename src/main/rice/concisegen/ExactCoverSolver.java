@@ -0,0 +1,413 @@
+package main.rice.concisegen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A branch-and-bound solver for minimum (multi-)set cover over a CoverMatrix, in which
+ * each file must be caught by a given number of distinct selected rows (its demand). The
+ * search starts from the greedy cover as its incumbent, then repeatedly picks the file
+ * with unmet demand that is caught by the fewest available rows and branches on which of
+ * those rows is selected next; once a row's branch has been explored, the row is
+ * excluded from its siblings' branches, so that no cover is visited twice. Branches are
+ * pruned using two lower bounds on the number of rows still needed. While every unmet
+ * demand is 1 (as in ordinary set cover), rows that are dominated (on the files with
+ * unmet demand) by another candidate are never branched on.
+ * <p>
+ * The search stops when its time budget runs out, in which case the best cover found so
+ * far is returned along with the lower bound proven at the root.
+ */
+class ExactCoverSolver {
+
+    /**
+     * How many nodes are visited between checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 256;
+
+    /**
+     * A lower bound that exceeds any possible cover, used for infeasible branches.
+     */
+    private static final int INFEASIBLE = Integer.MAX_VALUE / 2;
+
+    /**
+     * The instance being solved.
+     */
+    private final CoverMatrix matrix;
+
+    /**
+     * The value of System.nanoTime() after which the search gives up.
+     */
+    private final long deadline;
+
+    /**
+     * For each file, the rows that catch it.
+     */
+    private final int[][] rowsOfFile;
+
+    /**
+     * For each file, how many more selected rows must catch it.
+     */
+    private final int[] demand;
+
+    /**
+     * The files whose demand is still positive.
+     */
+    private final long[] needy;
+
+    /**
+     * The sum of the demands of all files.
+     */
+    private int totalDemand = 0;
+
+    /**
+     * The number of files whose demand is at least 2.
+     */
+    private int numMultiDemand = 0;
+
+    /**
+     * Which rows are excluded from the current branch, either because they have already
+     * been selected or because a sibling branch already explored them.
+     */
+    private final boolean[] excluded;
+
+    /**
+     * Scratch marks used when computing the packing lower bound.
+     */
+    private final boolean[] used;
+
+    /**
+     * The rows chosen along the current branch; the first depth entries are valid.
+     */
+    private final int[] chosen;
+
+    /**
+     * The best cover found so far.
+     */
+    private int[] best;
+
+    /**
+     * The number of nodes visited so far.
+     */
+    private long nodes = 0;
+
+    /**
+     * Whether the search ran out of time.
+     */
+    private boolean timedOut = false;
+
+    /**
+     * Constructor for an ExactCoverSolver for ordinary set cover, in which each file
+     * must be caught once.
+     *
+     * @param matrix           the instance to be solved
+     * @param timeBudgetMillis the maximum time to spend searching, in milliseconds
+     */
+    ExactCoverSolver(CoverMatrix matrix, long timeBudgetMillis) {
+        this(matrix, matrix.demands(1), timeBudgetMillis);
+    }
+
+    /**
+     * Constructor for an ExactCoverSolver for multi-set cover.
+     *
+     * @param matrix           the instance to be solved
+     * @param demand           for each file, how many selected rows must catch it; no
+     *                         more than the number of rows that catch it
+     * @param timeBudgetMillis the maximum time to spend searching, in milliseconds
+     */
+    ExactCoverSolver(CoverMatrix matrix, int[] demand, long timeBudgetMillis) {
+        this.matrix = matrix;
+        this.deadline = System.nanoTime() + Math.max(0, timeBudgetMillis) * 1_000_000L;
+        this.rowsOfFile = matrix.rowsOfFile();
+        this.demand = demand.clone();
+        this.needy = new long[matrix.getNumWords()];
+        for (int file = 0; file < demand.length; file++) {
+            if (demand[file] > 0) {
+                this.needy[file >>> 6] |= 1L << file;
+                this.totalDemand += demand[file];
+                this.numMultiDemand += (demand[file] >= 2) ? 1 : 0;
+            }
+        }
+        this.excluded = new boolean[matrix.getNumRows()];
+        this.used = new boolean[matrix.getNumRows()];
+        this.chosen = new int[matrix.getNumRows()];
+        this.best = matrix.greedyCover(demand);
+    }
+
+    /**
+     * Searches for a minimum cover, within the time budget.
+     *
+     * @return the lower bound proven at the root, or the size of the best cover if the
+     * search completed (in which case the best cover is optimal)
+     */
+    int solve() {
+        int rootBound = this.lowerBound();
+        if (rootBound < this.best.length) {
+            this.search(0);
+        }
+        return this.timedOut ? Math.min(rootBound, this.best.length) : this.best.length;
+    }
+
+    /**
+     * Returns the best cover found by solve().
+     *
+     * @return the rows of the best cover found
+     */
+    int[] getBest() {
+        return this.best;
+    }
+
+    /**
+     * Returns whether solve() ran out of time before proving its cover optimal.
+     *
+     * @return true if the search was cut short; false otherwise
+     */
+    boolean timedOut() {
+        return this.timedOut;
+    }
+
+    /**
+     * Explores every cover that extends the current branch and could beat the
+     * incumbent.
+     *
+     * @param depth the number of rows chosen so far
+     */
+    private void search(int depth) {
+        if (this.timedOut) {
+            return;
+        }
+        if (++this.nodes % CLOCK_INTERVAL == 0 && System.nanoTime() > this.deadline) {
+            this.timedOut = true;
+            return;
+        }
+
+        // A complete cover can only get here if it beats the incumbent
+        if (this.totalDemand == 0) {
+            this.best = Arrays.copyOf(this.chosen, depth);
+            return;
+        }
+        if (depth + this.lowerBound() >= this.best.length) {
+            return;
+        }
+
+        // Branch on the needy file with the fewest rows left to cover it
+        int branchFile = -1;
+        int fewestRows = Integer.MAX_VALUE;
+        for (int w = 0; w < this.needy.length; w++) {
+            long word = this.needy[w];
+            while (word != 0) {
+                int file = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                int count = this.availableRows(file);
+                if (count < fewestRows) {
+                    fewestRows = count;
+                    branchFile = file;
+                }
+            }
+        }
+        List<Integer> candidates = this.candidates(branchFile);
+
+        // Try each candidate, excluding it from the branches of those tried after it
+        for (int row : candidates) {
+            long[] before = this.needy.clone();
+            this.select(row);
+            this.chosen[depth] = row;
+            this.search(depth + 1);
+            this.deselect(row, before);
+            if (this.timedOut || depth + 1 >= this.best.length) {
+                break;
+            }
+        }
+        for (int row : candidates) {
+            this.excluded[row] = false;
+        }
+    }
+
+    /**
+     * Selects the given row, excluding it from further selection and reducing the
+     * demand of each needy file it catches.
+     *
+     * @param row the row to select
+     */
+    private void select(int row) {
+        this.excluded[row] = true;
+        long[] words = this.matrix.getRow(row);
+        for (int w = 0; w < this.needy.length; w++) {
+            long word = words[w] & this.needy[w];
+            while (word != 0) {
+                int file = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                this.totalDemand--;
+                if (--this.demand[file] == 0) {
+                    this.needy[w] &= ~(1L << file);
+                } else if (this.demand[file] == 1) {
+                    this.numMultiDemand--;
+                }
+            }
+        }
+    }
+
+    /**
+     * Undoes select(), except that the row stays excluded.
+     *
+     * @param row    the row to deselect
+     * @param before the needy files before the row was selected
+     */
+    private void deselect(int row, long[] before) {
+        long[] words = this.matrix.getRow(row);
+        for (int w = 0; w < this.needy.length; w++) {
+            long word = words[w] & before[w];
+            while (word != 0) {
+                int file = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                this.totalDemand++;
+                if (++this.demand[file] == 2) {
+                    this.numMultiDemand++;
+                }
+            }
+            this.needy[w] = before[w];
+        }
+    }
+
+    /**
+     * Counts the rows that catch the given file and are not excluded.
+     *
+     * @param file the file
+     * @return the number of rows still available to catch file
+     */
+    private int availableRows(int file) {
+        int count = 0;
+        for (int row : this.rowsOfFile[file]) {
+            if (!this.excluded[row]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Lists the rows worth branching on to help cover the given file: the non-excluded
+     * rows that catch it, most needy files first. While every demand is 1, any row whose
+     * needy files are a subset of another candidate's is left out (for equal sets, only
+     * the first is kept).
+     *
+     * @param file the file to be covered
+     * @return the rows to branch on, in the order they should be tried
+     */
+    private List<Integer> candidates(int file) {
+        // Restrict each non-excluded row that catches file to the needy files; rows
+        // are referred to by their position in this list until the end
+        List<Integer> order = new ArrayList<>();
+        List<long[]> masks = new ArrayList<>();
+        for (int row : this.rowsOfFile[file]) {
+            if (!this.excluded[row]) {
+                long[] mask = this.needy.clone();
+                long[] words = this.matrix.getRow(row);
+                for (int w = 0; w < mask.length; w++) {
+                    mask[w] &= words[w];
+                }
+                order.add(order.size());
+                masks.add(mask);
+            }
+        }
+
+        // Order by gain, largest first; the sort is stable, so ties keep row order
+        int[] gains = masks.stream().mapToInt(CoverMatrix::cardinality).toArray();
+        order.sort((a, b) -> gains[b] - gains[a]);
+
+        // A dominated row can be swapped for its dominator only if no file still needs
+        // both of them
+        boolean pruneDominated = this.numMultiDemand == 0;
+        List<Integer> kept = new ArrayList<>();
+        for (int i = 0; i < order.size(); i++) {
+            long[] mask = masks.get(order.get(i));
+            boolean dominated = false;
+            for (int j = 0; j < order.size() && pruneDominated && !dominated; j++) {
+                long[] other = masks.get(order.get(j));
+                if (i != j && isSubset(mask, other)) {
+                    // Equal sets dominate each other, so only the first is kept
+                    dominated = j < i || !isSubset(other, mask);
+                }
+            }
+            if (!dominated) {
+                kept.add(order.get(i));
+            }
+        }
+
+        // Map the positions back to row indices
+        int[] original = Arrays.stream(this.rowsOfFile[file])
+                .filter(row -> !this.excluded[row]).toArray();
+        kept.replaceAll(position -> original[position]);
+        return kept;
+    }
+
+    /**
+     * Computes a lower bound on the number of rows needed to meet every demand without
+     * using any excluded row: the larger of (a) the total demand divided by the most
+     * needy files any one row catches, rounded up, and (b) the total demand of a
+     * greedily-built set of needy files no two of which are caught by the same row,
+     * since each of those needs rows of its own.
+     *
+     * @return a lower bound on the number of rows needed; INFEASIBLE if some demand
+     * cannot be met at all
+     */
+    private int lowerBound() {
+        if (this.totalDemand == 0) {
+            return 0;
+        }
+        int maxGain = 0;
+        for (int row = 0; row < this.matrix.getNumRows(); row++) {
+            if (!this.excluded[row]) {
+                maxGain = Math.max(maxGain, this.matrix.gain(row, this.needy));
+            }
+        }
+        if (maxGain == 0) {
+            return INFEASIBLE;
+        }
+        int sizeBound = (this.totalDemand + maxGain - 1) / maxGain;
+
+        Arrays.fill(this.used, false);
+        int packingBound = 0;
+        for (int w = 0; w < this.needy.length; w++) {
+            long word = this.needy[w];
+            while (word != 0) {
+                int file = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                boolean independent = true;
+                int available = 0;
+                for (int row : this.rowsOfFile[file]) {
+                    if (!this.excluded[row]) {
+                        available++;
+                        independent &= !this.used[row];
+                    }
+                }
+                if (available < this.demand[file]) {
+                    return INFEASIBLE;
+                }
+                if (independent) {
+                    packingBound += this.demand[file];
+                    for (int row : this.rowsOfFile[file]) {
+                        this.used[row] = true;
+                    }
+                }
+            }
+        }
+        return Math.max(sizeBound, packingBound);
+    }
+
+    /**
+     * Returns whether every bit set in a is also set in b.
+     *
+     * @param a a bitset
+     * @param b a bitset of the same length
+     * @return true if a is a subset of b; false otherwise
+     */
+    private static boolean isSubset(long[] a, long[] b) {
+        for (int w = 0; w < a.length; w++) {
+            if ((a[w] & ~b[w]) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
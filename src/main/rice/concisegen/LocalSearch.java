@@ -0,0 +1,271 @@
+package main.rice.concisegen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A time-bounded local search that shrinks a set cover over a CoverMatrix. Two kinds of
+ * moves are made, for as long as either one applies and time remains:
+ * <ul>
+ *     <li>Redundant-row elimination: a selected row whose files are all caught by other
+ *     selected rows is dropped.</li>
+ *     <li>2-for-1 swaps: two selected rows are replaced by a single unselected row that
+ *     catches every file that only those two rows catch.</li>
+ * </ul>
+ * The number of selected rows catching each file is kept up to date as moves are made,
+ * so evaluating a move only touches the files of the rows involved. Every move shrinks
+ * the cover by at least one row, so the result is never larger than the starting cover.
+ */
+class LocalSearch {
+
+    /**
+     * How many candidate moves are evaluated between checks of the clock.
+     */
+    private static final int CLOCK_INTERVAL = 64;
+
+    /**
+     * The instance being solved.
+     */
+    private final CoverMatrix matrix;
+
+    /**
+     * The value of System.nanoTime() after which the search gives up.
+     */
+    private final long deadline;
+
+    /**
+     * For each file, the rows that catch it.
+     */
+    private final int[][] rowsOfFile;
+
+    /**
+     * For each file, how many selected rows catch it.
+     */
+    private final int[] timesCaught;
+
+    /**
+     * Which rows are selected.
+     */
+    private final boolean[] selected;
+
+    /**
+     * The selected rows, in the order they were selected.
+     */
+    private final List<Integer> cover = new ArrayList<>();
+
+    /**
+     * The number of moves evaluated so far.
+     */
+    private long evaluated = 0;
+
+    /**
+     * Whether the search ran out of time.
+     */
+    private boolean timedOut = false;
+
+    /**
+     * Constructor for a LocalSearch, starting from the given cover.
+     *
+     * @param matrix           the instance being solved
+     * @param cover            the rows of a cover of matrix
+     * @param timeBudgetMillis the maximum time to spend searching, in milliseconds
+     */
+    LocalSearch(CoverMatrix matrix, int[] cover, long timeBudgetMillis) {
+        this.matrix = matrix;
+        this.deadline = System.nanoTime() + Math.max(0, timeBudgetMillis) * 1_000_000L;
+        this.rowsOfFile = matrix.rowsOfFile();
+        this.timesCaught = new int[matrix.getNumFiles()];
+        this.selected = new boolean[matrix.getNumRows()];
+        for (int row : cover) {
+            this.select(row);
+        }
+    }
+
+    /**
+     * Makes improving moves until none applies or the time budget runs out.
+     *
+     * @return the rows of the improved cover: those of the starting cover that remain
+     * (in their original order), followed by those swapped in (in the order they were)
+     */
+    int[] improve() {
+        this.dropRedundant();
+        while (!this.timedOut && this.swapTwoForOne()) {
+            this.dropRedundant();
+        }
+        return this.cover.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Returns whether improve() ran out of time before running out of moves.
+     *
+     * @return true if the search was cut short; false otherwise
+     */
+    boolean timedOut() {
+        return this.timedOut;
+    }
+
+    /**
+     * Drops every redundant row, considering the most recently selected rows first.
+     */
+    private void dropRedundant() {
+        for (int i = this.cover.size() - 1; i >= 0 && !this.tick(); i--) {
+            int row = this.cover.get(i);
+            if (this.isRedundant(row)) {
+                this.deselect(row);
+            }
+        }
+    }
+
+    /**
+     * Looks for a pair of selected rows that can be replaced by a single unselected row,
+     * and makes the first such swap found. Pairs are tried in selection order, and the
+     * lowest suitable replacement is used.
+     *
+     * @return true if a swap was made; false if none applies (or time ran out)
+     */
+    private boolean swapTwoForOne() {
+        for (int i = 0; i < this.cover.size(); i++) {
+            for (int j = i + 1; j < this.cover.size(); j++) {
+                if (this.tick()) {
+                    return false;
+                }
+                int a = this.cover.get(i);
+                int b = this.cover.get(j);
+                int replacement = this.findReplacement(a, b);
+                if (replacement >= 0) {
+                    this.deselect(a);
+                    this.deselect(b);
+                    this.select(replacement);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Finds an unselected row that catches every file that only the given selected rows
+     * catch. Only the rows that catch the rarest such file are candidates.
+     *
+     * @param a a selected row
+     * @param b another selected row
+     * @return the lowest suitable row, or -1 if there is none
+     */
+    private int findReplacement(int a, int b) {
+        long[] aWords = this.matrix.getRow(a);
+        long[] bWords = this.matrix.getRow(b);
+
+        // Collect the files that would be left uncaught without a and b
+        List<Integer> needed = new ArrayList<>();
+        this.matrix.forEachFile(a, file -> {
+            if (this.timesCaught[file] - (contains(bWords, file) ? 2 : 1) == 0) {
+                needed.add(file);
+            }
+        });
+        this.matrix.forEachFile(b, file -> {
+            if (!contains(aWords, file) && this.timesCaught[file] == 1) {
+                needed.add(file);
+            }
+        });
+        if (needed.isEmpty()) {
+            return -1;
+        }
+
+        int rarest = needed.get(0);
+        for (int file : needed) {
+            if (this.rowsOfFile[file].length < this.rowsOfFile[rarest].length) {
+                rarest = file;
+            }
+        }
+        for (int row : this.rowsOfFile[rarest]) {
+            if (!this.selected[row] && this.catchesAll(row, needed)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether every file caught by the given selected row is also caught by
+     * another selected row.
+     *
+     * @param row a selected row
+     * @return true if the row can be dropped; false otherwise
+     */
+    private boolean isRedundant(int row) {
+        long[] words = this.matrix.getRow(row);
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                if (this.timesCaught[(w << 6) + Long.numberOfTrailingZeros(word)] < 2) {
+                    return false;
+                }
+                word &= word - 1;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the given row catches all of the given files.
+     *
+     * @param row   the row
+     * @param files the files
+     * @return true if row catches every file in files; false otherwise
+     */
+    private boolean catchesAll(int row, List<Integer> files) {
+        long[] words = this.matrix.getRow(row);
+        for (int file : files) {
+            if (!contains(words, file)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds the given row to the cover.
+     *
+     * @param row the row to select
+     */
+    private void select(int row) {
+        this.selected[row] = true;
+        this.cover.add(row);
+        this.matrix.forEachFile(row, file -> this.timesCaught[file]++);
+    }
+
+    /**
+     * Removes the given row from the cover.
+     *
+     * @param row the row to deselect
+     */
+    private void deselect(int row) {
+        this.selected[row] = false;
+        this.cover.remove(Integer.valueOf(row));
+        this.matrix.forEachFile(row, file -> this.timesCaught[file]--);
+    }
+
+    /**
+     * Counts one evaluated move, checking the clock every so often.
+     *
+     * @return true if the time budget has run out; false otherwise
+     */
+    private boolean tick() {
+        if (!this.timedOut && ++this.evaluated % CLOCK_INTERVAL == 0
+                && System.nanoTime() > this.deadline) {
+            this.timedOut = true;
+        }
+        return this.timedOut;
+    }
+
+    /**
+     * Returns whether the given file is set in the given bitset.
+     *
+     * @param words a bitset
+     * @param file  the file
+     * @return true if file is in words; false otherwise
+     */
+    private static boolean contains(long[] words, int file) {
+        return (words[file >>> 6] & (1L << file)) != 0;
+    }
+}
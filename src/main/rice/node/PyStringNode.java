@@ -26,6 +26,15 @@ public class PyStringNode extends AIterablePyNode<PyStringObj, PyCharObj> {
         }
     }
 
+    /**
+     * Returns the domain of characters from which valid strings can be constructed.
+     *
+     * @return the character domain
+     */
+    public List<PyCharObj> getCharDomain() {
+        return this.charDomain;
+    }
+
     /**
      * Generates all valid PyStringObjs within the exhaustive domain; begins by generating
      * all valid characters, and then finds all permutations of them of valid length (as
@@ -0,0 +1,170 @@
+package main.rice.obj;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Stateless class for converting APyObjs to and from a compact, self-describing binary
+ * encoding. Each object is written as a one-byte type tag followed by its payload;
+ * compound objects write their size followed by each of their elements (or, for
+ * dictionaries, each key followed by its value).
+ */
+public class PyObjCodec {
+
+    /**
+     * Type tags; these are part of the on-disk format and must never be renumbered.
+     */
+    private static final byte INT = 1;
+    private static final byte FLOAT = 2;
+    private static final byte BOOL = 3;
+    private static final byte STR = 4;
+    private static final byte LIST = 5;
+    private static final byte TUPLE = 6;
+    private static final byte SET = 7;
+    private static final byte DICT = 8;
+
+    /**
+     * Writes the binary encoding of the given object to out.
+     *
+     * @param out the destination of the encoding
+     * @param obj the object to be encoded
+     * @throws IOException if writing to out fails
+     * @throws IllegalArgumentException if obj is not of a supported type
+     */
+    public static void write(DataOutput out, APyObj<?> obj) throws IOException {
+        if (obj instanceof PyIntObj intObj) {
+            out.writeByte(INT);
+            out.writeInt(intObj.getValue());
+        } else if (obj instanceof PyFloatObj floatObj) {
+            out.writeByte(FLOAT);
+            out.writeDouble(floatObj.getValue());
+        } else if (obj instanceof PyBoolObj boolObj) {
+            out.writeByte(BOOL);
+            out.writeBoolean(boolObj.getValue());
+        } else if (obj instanceof PyStringObj strObj) {
+            out.writeByte(STR);
+            out.writeInt(strObj.getValue().size());
+            for (PyCharObj character : strObj.getValue()) {
+                out.writeChar(character.getValue());
+            }
+        } else if (obj instanceof PyListObj<?> listObj) {
+            out.writeByte(LIST);
+            writeElems(out, listObj.getValue());
+        } else if (obj instanceof PyTupleObj<?> tupleObj) {
+            out.writeByte(TUPLE);
+            writeElems(out, tupleObj.getValue());
+        } else if (obj instanceof PySetObj<?> setObj) {
+            out.writeByte(SET);
+            writeElems(out, setObj.getValue());
+        } else if (obj instanceof PyDictObj<?, ?> dictObj) {
+            out.writeByte(DICT);
+            out.writeInt(dictObj.getValue().size());
+            for (Map.Entry<?, ?> entry : dictObj.getValue().entrySet()) {
+                write(out, (APyObj<?>) entry.getKey());
+                write(out, (APyObj<?>) entry.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("cannot encode " + obj);
+        }
+    }
+
+    /**
+     * Reads a single object from the binary encoding starting at the current position of
+     * in, advancing the position past the object.
+     *
+     * @param in the buffer to read from
+     * @return the decoded object
+     * @throws IOException if the encoding is malformed or truncated
+     */
+    public static APyObj<?> read(ByteBuffer in) throws IOException {
+        try {
+            byte tag = in.get();
+            switch (tag) {
+                case INT:
+                    return new PyIntObj(in.getInt());
+                case FLOAT:
+                    return new PyFloatObj(in.getDouble());
+                case BOOL:
+                    return new PyBoolObj(in.get() != 0);
+                case STR: {
+                    int length = readSize(in);
+                    List<PyCharObj> chars = new ArrayList<>(length);
+                    for (int i = 0; i < length; i++) {
+                        chars.add(new PyCharObj(in.getChar()));
+                    }
+                    return new PyStringObj(chars);
+                }
+                case LIST:
+                    return new PyListObj<>(readElems(in));
+                case TUPLE:
+                    return new PyTupleObj<>(readElems(in));
+                case SET:
+                    return new PySetObj<>(new HashSet<>(readElems(in)));
+                case DICT: {
+                    int size = readSize(in);
+                    Map<APyObj<?>, APyObj<?>> map = new HashMap<>();
+                    for (int i = 0; i < size; i++) {
+                        APyObj<?> key = read(in);
+                        map.put(key, read(in));
+                    }
+                    return new PyDictObj<>(map);
+                }
+                default:
+                    throw new IOException("unknown type tag " + tag);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IOException("truncated object encoding");
+        }
+    }
+
+    /**
+     * Helper function for writing the size of a collection followed by each of its
+     * elements.
+     *
+     * @param out   the destination of the encoding
+     * @param elems the elements to be encoded
+     * @throws IOException if writing to out fails
+     */
+    private static void writeElems(DataOutput out, Collection<? extends APyObj<?>> elems)
+            throws IOException {
+        out.writeInt(elems.size());
+        for (APyObj<?> elem : elems) {
+            write(out, elem);
+        }
+    }
+
+    /**
+     * Helper function for reading a size followed by that many elements.
+     *
+     * @param in the buffer to read from
+     * @return the decoded elements, in order
+     * @throws IOException if the encoding is malformed or truncated
+     */
+    private static List<APyObj<?>> readElems(ByteBuffer in) throws IOException {
+        int size = readSize(in);
+        List<APyObj<?>> elems = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            elems.add(read(in));
+        }
+        return elems;
+    }
+
+    /**
+     * Helper function for reading a collection size, rejecting sizes that cannot
+     * possibly fit in what remains of the buffer.
+     *
+     * @param in the buffer to read from
+     * @return the decoded size
+     * @throws IOException if the size is negative or larger than the remaining input
+     */
+    private static int readSize(ByteBuffer in) throws IOException {
+        int size = in.getInt();
+        if (size < 0 || size > in.remaining()) {
+            throw new IOException("invalid collection size " + size);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,126 @@
+package main.rice.obj;
+
+import org.json.JSONObject;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stateless class for converting APyObjs to JSON that a Python process can decode with
+ * json.loads() and the hook in DECODER, without eval(). Ints, bools, strings and lists
+ * map to the corresponding JSON values and floats to JSON numbers (always written with a
+ * decimal point or exponent, so Python decodes them as floats); the types JSON lacks
+ * are written as single-key objects:
+ * <ul>
+ *     <li>a tuple as {"t": [elements]}</li>
+ *     <li>a set as {"s": [elements]}</li>
+ *     <li>a dict as {"d": [[key, value], ...]}, since its keys need not be strings</li>
+ *     <li>a non-finite float as {"f": "inf"}, {"f": "-inf"} or {"f": "nan"}</li>
+ * </ul>
+ */
+public class PyObjJson {
+
+    /**
+     * The Python source of the object hook which decodes the single-key objects above.
+     * json.loads() applies it innermost first, so the elements of a tuple, set or dict
+     * have already been decoded by the time it builds the container.
+     */
+    public static final String DECODER = """
+            def _feat_decode(obj):
+                if "t" in obj:
+                    return tuple(obj["t"])
+                if "s" in obj:
+                    return set(obj["s"])
+                if "d" in obj:
+                    return dict(obj["d"])
+                return float(obj["f"])
+            """;
+
+    /**
+     * Encodes a list of arguments as a JSON array.
+     *
+     * @param args the arguments to be encoded
+     * @return the JSON encoding of args
+     * @throws IllegalArgumentException if an argument is not of a supported type
+     */
+    public static String encode(List<APyObj<?>> args) {
+        StringBuilder sb = new StringBuilder();
+        writeElems(sb, args);
+        return sb.toString();
+    }
+
+    /**
+     * Appends the JSON encoding of the given object to sb.
+     *
+     * @param sb  the destination of the encoding
+     * @param obj the object to be encoded
+     * @throws IllegalArgumentException if obj is not of a supported type
+     */
+    public static void write(StringBuilder sb, APyObj<?> obj) {
+        if (obj instanceof PyIntObj intObj) {
+            sb.append(intObj.getValue());
+        } else if (obj instanceof PyFloatObj floatObj) {
+            double value = floatObj.getValue();
+            if (Double.isNaN(value)) {
+                sb.append("{\"f\": \"nan\"}");
+            } else if (Double.isInfinite(value)) {
+                sb.append(value > 0 ? "{\"f\": \"inf\"}" : "{\"f\": \"-inf\"}");
+            } else {
+                // Double.toString() always includes a '.' or an 'E', and gives enough
+                // digits for Python to read back exactly the same double
+                sb.append(value);
+            }
+        } else if (obj instanceof PyBoolObj boolObj) {
+            sb.append(boolObj.getValue());
+        } else if (obj instanceof PyStringObj strObj) {
+            StringBuilder value = new StringBuilder();
+            for (PyCharObj character : strObj.getValue()) {
+                value.append(character.getValue());
+            }
+            sb.append(JSONObject.quote(value.toString()));
+        } else if (obj instanceof PyListObj<?> listObj) {
+            writeElems(sb, listObj.getValue());
+        } else if (obj instanceof PyTupleObj<?> tupleObj) {
+            sb.append("{\"t\": ");
+            writeElems(sb, tupleObj.getValue());
+            sb.append('}');
+        } else if (obj instanceof PySetObj<?> setObj) {
+            sb.append("{\"s\": ");
+            writeElems(sb, setObj.getValue());
+            sb.append('}');
+        } else if (obj instanceof PyDictObj<?, ?> dictObj) {
+            sb.append("{\"d\": [");
+            String separator = "";
+            for (Map.Entry<?, ?> entry : dictObj.getValue().entrySet()) {
+                sb.append(separator).append('[');
+                write(sb, (APyObj<?>) entry.getKey());
+                sb.append(", ");
+                write(sb, (APyObj<?>) entry.getValue());
+                sb.append(']');
+                separator = ", ";
+            }
+            sb.append("]}");
+        } else {
+            throw new IllegalArgumentException("cannot encode " + obj);
+        }
+    }
+
+    /**
+     * Helper function which appends a collection of objects as a JSON array.
+     *
+     * @param sb    the destination of the encoding
+     * @param elems the objects to be encoded
+     * @throws IllegalArgumentException if an object is not of a supported type
+     */
+    private static void writeElems(StringBuilder sb, Collection<? extends APyObj<?>> elems) {
+        sb.append('[');
+        String separator = "";
+        for (APyObj<?> elem : elems) {
+            sb.append(separator);
+            write(sb, elem);
+            separator = ", ";
+        }
+        sb.append(']');
+    }
+}
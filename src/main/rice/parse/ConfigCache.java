@@ -0,0 +1,87 @@
+package main.rice.parse;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stateless class for loading config files through an on-disk cache of compiled specs
+ * (see ConfigSpec). Each spec is stored in the cache directory under the SHA-256 hash of
+ * the config file's contents, so a config that has been parsed once is never parsed
+ * again, and editing a config simply results in a new entry. Cache entries that cannot
+ * be read (e.g. because they were written by an incompatible version) are replaced.
+ */
+public class ConfigCache {
+
+    /**
+     * The extension of cache entries.
+     */
+    private static final String EXTENSION = ".spec";
+
+    /**
+     * Loads the config file at configPath, using (and populating) the cache in cacheDir.
+     *
+     * @param configPath the path to the config file
+     * @param cacheDir   the path to the cache directory; created if it does not exist
+     * @return the parsed config, with freshly-constructed nodes
+     * @throws IOException            if the config file cannot be read or the cache
+     *                                cannot be written
+     * @throws InvalidConfigException if the config file is invalid
+     */
+    public static ConfigFile load(String configPath, String cacheDir)
+            throws IOException, InvalidConfigException {
+        byte[] contents = Files.readAllBytes(Path.of(configPath));
+        Path entry = Path.of(cacheDir, hash(contents) + EXTENSION);
+
+        // Use the cached spec, if there is a readable one
+        if (Files.isRegularFile(entry)) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(entry)))) {
+                return ConfigSpec.read(in).toConfigFile();
+            } catch (IOException e) {
+                // Fall through and replace it
+            }
+        }
+
+        // Otherwise, parse the config and cache its spec; writing to a temporary file
+        // first means concurrent runs never see a partially-written entry
+        ConfigSpec spec = ConfigSpec.compile(
+                ConfigFileParser.parse(new String(contents, StandardCharsets.UTF_8)));
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), "config", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                spec.write(out);
+            }
+            Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return spec.toConfigFile();
+    }
+
+    /**
+     * Computes the key under which a config file's spec is cached.
+     *
+     * @param contents the contents of the config file
+     * @return the SHA-256 hash of contents, in lowercase hexadecimal
+     */
+    static String hash(byte[] contents) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-256").digest(contents)) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
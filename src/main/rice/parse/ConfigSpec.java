@@ -0,0 +1,397 @@
+package main.rice.parse;
+
+import main.rice.node.*;
+import main.rice.obj.PyCharObj;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An immutable, compiled form of a ConfigFile: the function name, the number of random
+ * tests, and for each parameter a tree describing its type and its (already expanded)
+ * exhaustive and random domains. Unlike the APyNode trees of a ConfigFile, which are
+ * mutable and carry their own RNGs, a spec can be shared freely, written to disk, and
+ * turned back into fresh nodes without parsing the original config text again.
+ * <p>
+ * The binary format (all values big-endian) is:
+ * <pre>
+ *   int    magic ("FECS")
+ *   int    format version
+ *   UTF    function name
+ *   int    number of random tests
+ *   int    number of parameters
+ *   ...    each parameter's type tree, in pre-order; each node is its kind (a byte),
+ *          its exhaustive and random domains (each a count, or -1 if unset, followed by
+ *          that many ints, or doubles for floats), and for strings the character domain
+ *          (a count followed by that many chars)
+ * </pre>
+ */
+public class ConfigSpec {
+
+    /**
+     * The magic number at the start of every serialized spec ("FECS" in ASCII).
+     */
+    private static final int MAGIC = 0x46454353;
+
+    /**
+     * The current version of the serialized format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The kinds of node, in the order in which they are numbered in the binary format.
+     */
+    private enum Kind { INT, FLOAT, BOOL, STR, LIST, TUPLE, SET, DICT }
+
+    /**
+     * The name of the function under test.
+     */
+    private final String funcName;
+
+    /**
+     * The number of random tests to generate.
+     */
+    private final int numRand;
+
+    /**
+     * The type tree of each parameter.
+     */
+    private final List<NodeSpec> params;
+
+    /**
+     * Constructor for a ConfigSpec; initializes all fields.
+     *
+     * @param funcName the name of the function under test
+     * @param numRand  the number of random tests to generate
+     * @param params   the type tree of each parameter
+     */
+    private ConfigSpec(String funcName, int numRand, List<NodeSpec> params) {
+        this.funcName = funcName;
+        this.numRand = numRand;
+        this.params = Collections.unmodifiableList(params);
+    }
+
+    /**
+     * Compiles the given (parsed) config into a spec.
+     *
+     * @param config the parsed config
+     * @return the compiled spec
+     * @throws IllegalArgumentException if the config contains a kind of node that cannot
+     *                                  be compiled
+     */
+    public static ConfigSpec compile(ConfigFile config) {
+        List<NodeSpec> params = new ArrayList<>();
+        for (APyNode<?> node : config.getNodes()) {
+            params.add(NodeSpec.of(node));
+        }
+        return new ConfigSpec(config.getFuncName(), config.getNumRand(), params);
+    }
+
+    /**
+     * Builds a ConfigFile from this spec, with freshly-constructed nodes; each call
+     * returns new nodes, so the result may be used (and mutated) independently.
+     *
+     * @return a ConfigFile equivalent to the one this spec was compiled from
+     */
+    public ConfigFile toConfigFile() {
+        List<APyNode<?>> nodes = new ArrayList<>();
+        for (NodeSpec param : this.params) {
+            nodes.add(param.toNode());
+        }
+        return new ConfigFile(this.funcName, nodes, this.numRand);
+    }
+
+    /**
+     * Writes this spec to the given stream.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public void write(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(this.funcName);
+        out.writeInt(this.numRand);
+        out.writeInt(this.params.size());
+        for (NodeSpec param : this.params) {
+            param.write(out);
+        }
+    }
+
+    /**
+     * Reads a spec previously written by write().
+     *
+     * @param in the stream to read from
+     * @return the spec that was read
+     * @throws IOException if the stream cannot be read or does not hold a valid spec
+     */
+    public static ConfigSpec read(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a config spec");
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported config spec version " + version);
+        }
+        String funcName = in.readUTF();
+        int numRand = in.readInt();
+        int numParams = in.readInt();
+        if (numRand < 0 || numParams < 0) {
+            throw new IOException("corrupt config spec");
+        }
+        List<NodeSpec> params = new ArrayList<>();
+        for (int i = 0; i < numParams; i++) {
+            params.add(NodeSpec.read(in));
+        }
+        return new ConfigSpec(funcName, numRand, params);
+    }
+
+    /**
+     * The compiled form of a single node: its kind, its domains, and its children.
+     */
+    private static class NodeSpec {
+
+        /**
+         * The kind of node.
+         */
+        private final Kind kind;
+
+        /**
+         * The exhaustive domain, or null if unset.
+         */
+        private final List<Number> exDomain;
+
+        /**
+         * The random domain, or null if unset.
+         */
+        private final List<Number> ranDomain;
+
+        /**
+         * The character domain, for strings; null otherwise.
+         */
+        private final List<Character> chars;
+
+        /**
+         * The left child (the element or key type), or null for a leaf.
+         */
+        private final NodeSpec left;
+
+        /**
+         * The right child (the value type of a dict), or null.
+         */
+        private final NodeSpec right;
+
+        /**
+         * Constructor for a NodeSpec; initializes all fields.
+         *
+         * @param kind      the kind of node
+         * @param exDomain  the exhaustive domain, or null
+         * @param ranDomain the random domain, or null
+         * @param chars     the character domain, or null
+         * @param left      the left child, or null
+         * @param right     the right child, or null
+         */
+        private NodeSpec(Kind kind, List<Number> exDomain, List<Number> ranDomain,
+                         List<Character> chars, NodeSpec left, NodeSpec right) {
+            this.kind = kind;
+            this.exDomain = exDomain;
+            this.ranDomain = ranDomain;
+            this.chars = chars;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Compiles the given node (and its children).
+         *
+         * @param node the node to compile
+         * @return the compiled node
+         */
+        private static NodeSpec of(APyNode<?> node) {
+            Kind kind;
+            List<Character> chars = null;
+            if (node instanceof PyIntNode) {
+                kind = Kind.INT;
+            } else if (node instanceof PyFloatNode) {
+                kind = Kind.FLOAT;
+            } else if (node instanceof PyBoolNode) {
+                kind = Kind.BOOL;
+            } else if (node instanceof PyStringNode) {
+                kind = Kind.STR;
+                chars = new ArrayList<>();
+                for (PyCharObj c : ((PyStringNode) node).getCharDomain()) {
+                    chars.add(c.getValue());
+                }
+            } else if (node instanceof PyListNode) {
+                kind = Kind.LIST;
+            } else if (node instanceof PyTupleNode) {
+                kind = Kind.TUPLE;
+            } else if (node instanceof PySetNode) {
+                kind = Kind.SET;
+            } else if (node instanceof PyDictNode) {
+                kind = Kind.DICT;
+            } else {
+                throw new IllegalArgumentException("cannot compile "
+                        + node.getClass().getSimpleName());
+            }
+
+            // Strings generate their own elements, so have no child to compile
+            NodeSpec left = (kind == Kind.STR || node.getLeftChild() == null)
+                    ? null : of(node.getLeftChild());
+            NodeSpec right = (node.getRightChild() == null) ? null : of(node.getRightChild());
+            return new NodeSpec(kind, copy(node.getExDomain()), copy(node.getRanDomain()),
+                    chars, left, right);
+        }
+
+        /**
+         * Builds a fresh node (and children) from this spec.
+         *
+         * @return the new node
+         */
+        private APyNode<?> toNode() {
+            APyNode<?> node = switch (this.kind) {
+                case INT -> new PyIntNode();
+                case FLOAT -> new PyFloatNode();
+                case BOOL -> new PyBoolNode();
+                case STR -> new PyStringNode(new LinkedHashSet<>(this.chars));
+                case LIST -> new PyListNode<>(this.left.toNode());
+                case TUPLE -> new PyTupleNode<>(this.left.toNode());
+                case SET -> new PySetNode<>(this.left.toNode());
+                case DICT -> new PyDictNode<>(this.left.toNode(), this.right.toNode());
+            };
+            node.setExDomain(copy(this.exDomain));
+            node.setRanDomain(copy(this.ranDomain));
+            return node;
+        }
+
+        /**
+         * Writes this node (and its children) in pre-order.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the stream cannot be written
+         */
+        private void write(DataOutputStream out) throws IOException {
+            out.writeByte(this.kind.ordinal());
+            this.writeDomain(out, this.exDomain);
+            this.writeDomain(out, this.ranDomain);
+            if (this.kind == Kind.STR) {
+                out.writeInt(this.chars.size());
+                for (char c : this.chars) {
+                    out.writeChar(c);
+                }
+            }
+            if (this.left != null) {
+                this.left.write(out);
+            }
+            if (this.right != null) {
+                this.right.write(out);
+            }
+        }
+
+        /**
+         * Reads a node (and its children) written by write().
+         *
+         * @param in the stream to read from
+         * @return the node that was read
+         * @throws IOException if the stream cannot be read or is corrupt
+         */
+        private static NodeSpec read(DataInputStream in) throws IOException {
+            int ordinal = in.readByte();
+            if (ordinal < 0 || ordinal >= Kind.values().length) {
+                throw new IOException("corrupt config spec: unknown node kind " + ordinal);
+            }
+            Kind kind = Kind.values()[ordinal];
+            List<Number> exDomain = readDomain(in, kind);
+            List<Number> ranDomain = readDomain(in, kind);
+            List<Character> chars = null;
+            if (kind == Kind.STR) {
+                int numChars = checkCount(in.readInt());
+                chars = new ArrayList<>();
+                for (int i = 0; i < numChars; i++) {
+                    chars.add(in.readChar());
+                }
+            }
+            NodeSpec left = switch (kind) {
+                case LIST, TUPLE, SET, DICT -> read(in);
+                default -> null;
+            };
+            NodeSpec right = (kind == Kind.DICT) ? read(in) : null;
+            return new NodeSpec(kind, exDomain, ranDomain, chars, left, right);
+        }
+
+        /**
+         * Writes a domain of this node's kind.
+         *
+         * @param out    the stream to write to
+         * @param domain the domain, or null
+         * @throws IOException if the stream cannot be written
+         */
+        private void writeDomain(DataOutputStream out, List<Number> domain)
+                throws IOException {
+            if (domain == null) {
+                out.writeInt(-1);
+                return;
+            }
+            out.writeInt(domain.size());
+            for (Number value : domain) {
+                if (this.kind == Kind.FLOAT) {
+                    out.writeDouble(value.doubleValue());
+                } else {
+                    out.writeInt(value.intValue());
+                }
+            }
+        }
+
+        /**
+         * Reads a domain written by writeDomain().
+         *
+         * @param in   the stream to read from
+         * @param kind the kind of node the domain belongs to
+         * @return the domain, or null if it was unset
+         * @throws IOException if the stream cannot be read or is corrupt
+         */
+        private static List<Number> readDomain(DataInputStream in, Kind kind)
+                throws IOException {
+            int size = in.readInt();
+            if (size == -1) {
+                return null;
+            }
+            List<Number> domain = new ArrayList<>();
+            for (int i = checkCount(size); i > 0; i--) {
+                domain.add(kind == Kind.FLOAT ? (Number) in.readDouble() : in.readInt());
+            }
+            return domain;
+        }
+
+        /**
+         * Helper function which rejects a negative count read from a stream.
+         *
+         * @param count the count that was read
+         * @return count, if it is not negative
+         * @throws IOException if count is negative
+         */
+        private static int checkCount(int count) throws IOException {
+            if (count < 0) {
+                throw new IOException("corrupt config spec: negative count");
+            }
+            return count;
+        }
+
+        /**
+         * Helper function which copies a domain, so that specs and nodes never share
+         * mutable lists.
+         *
+         * @param domain the domain to copy, or null
+         * @return a copy of domain, or null if it was null
+         */
+        private static List<Number> copy(List<? extends Number> domain) {
+            return (domain == null) ? null : new ArrayList<>(domain);
+        }
+    }
+}
@@ -5,6 +5,12 @@ package main.rice.parse;
  */
 public class InvalidConfigException extends Exception {
 
+    /**
+     * The offset (within the type or domain string being parsed) at which the error was
+     * detected, or -1 if unknown.
+     */
+    private final int offset;
+
     /**
      * Constructor for an InvalidConfigException; takes as its input a single String
      * containing more details about the error that occurred.
@@ -12,6 +18,28 @@ public class InvalidConfigException extends Exception {
      * @param msg the error message
      */
     public InvalidConfigException(String msg) {
+        this(msg, -1);
+    }
+
+    /**
+     * Constructor for an InvalidConfigException that was detected at a known offset
+     * within a type or domain string.
+     *
+     * @param msg    the error message
+     * @param offset the offset at which the error was detected
+     */
+    public InvalidConfigException(String msg, int offset) {
         super(msg);
+        this.offset = offset;
+    }
+
+    /**
+     * Returns the offset (within the type or domain string being parsed) at which the
+     * error was detected.
+     *
+     * @return the offset, or -1 if unknown
+     */
+    public int getOffset() {
+        return this.offset;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,413 @@
+package main.rice.parse;
+
+import main.rice.node.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A single-pass, recursive-descent parser for the type and domain strings of a config
+ * file. Each string is scanned once from left to right, building nodes (or setting their
+ * domains) as it goes, so parsing takes time linear in the length of the string (plus
+ * the size of any expanded ranges), however deeply the types are nested. Errors are
+ * reported with the offset in the string at which they were detected.
+ * <p>
+ * The grammar is as follows, where whitespace may appear between any two tokens, and
+ * square brackets (along with any quotes directly next to them) are ignored:
+ * <pre>
+ *   type       := "int" | "float" | "bool" | "str" "(" chars
+ *               | ("list" | "tuple" | "set") "(" type | "dict" "(" keyType ":" type
+ *   domain     := values                          (for int, float and bool)
+ *               | lengths                         (for str)
+ *               | lengths "(" domain              (for list, tuple and set)
+ *               | lengths "(" keyDomain ":" domain (for dict)
+ *   values     := number "~" number | number ("," number)*
+ *   lengths    := the same as values, but with non-negative integers only
+ * </pre>
+ * The key of a dict (and anything nested within it) ends at the first colon, so the
+ * characters of a string key cannot include one; elsewhere, the characters of a string
+ * run to the end of the type.
+ */
+class TypeDomainParser {
+
+    /**
+     * The string being parsed.
+     */
+    private final String text;
+
+    /**
+     * The offset of the next character to be scanned.
+     */
+    private int pos = 0;
+
+    /**
+     * Whether domains being parsed are exhaustive (rather than random) domains.
+     */
+    private final boolean exhaustive;
+
+    /**
+     * Constructor for a TypeDomainParser; initializes all fields.
+     *
+     * @param text       the string to be parsed
+     * @param exhaustive whether domains being parsed are exhaustive domains
+     */
+    private TypeDomainParser(String text, boolean exhaustive) {
+        this.text = text;
+        this.exhaustive = exhaustive;
+    }
+
+    /**
+     * Parses a type string into a tree of nodes (without domains).
+     *
+     * @param text the type string
+     * @return the root of the tree
+     * @throws InvalidConfigException if the string is not a valid type
+     */
+    static APyNode<?> parseType(String text) throws InvalidConfigException {
+        TypeDomainParser parser = new TypeDomainParser(text, true);
+        APyNode<?> node = parser.type(false);
+        parser.expectEnd();
+        return node;
+    }
+
+    /**
+     * Parses a domain string and sets the domains of the given tree of nodes.
+     *
+     * @param node       the root of the tree, as returned by parseType()
+     * @param text       the domain string
+     * @param exhaustive true if the string is an exhaustive domain; false if it is a
+     *                   random domain
+     * @throws InvalidConfigException if the string is not a valid domain for the tree
+     */
+    static void parseDomain(APyNode<?> node, String text, boolean exhaustive)
+            throws InvalidConfigException {
+        TypeDomainParser parser = new TypeDomainParser(text, exhaustive);
+        parser.domain(node);
+        parser.expectEnd();
+    }
+
+    /**
+     * Parses a type.
+     *
+     * @param inKey whether the type is (part of) the key type of a dict, in which case it
+     *              ends at the first colon
+     * @return the root of the parsed tree
+     * @throws InvalidConfigException if no valid type starts here
+     */
+    private APyNode<?> type(boolean inKey) throws InvalidConfigException {
+        this.skipIgnored();
+        int start = this.pos;
+        while (this.pos < this.text.length() && Character.isLetter(this.text.charAt(this.pos))) {
+            this.pos++;
+        }
+        String name = this.text.substring(start, this.pos);
+        switch (name) {
+            case "int":
+                return new PyIntNode();
+            case "float":
+                return new PyFloatNode();
+            case "bool":
+                return new PyBoolNode();
+            case "str":
+                this.expect('(');
+                return new PyStringNode(this.chars(inKey));
+            case "list":
+                this.expect('(');
+                return new PyListNode<>(this.type(inKey));
+            case "tuple":
+                this.expect('(');
+                return new PyTupleNode<>(this.type(inKey));
+            case "set":
+                this.expect('(');
+                return new PySetNode<>(this.type(inKey));
+            case "dict":
+                this.expect('(');
+                APyNode<?> keyType = this.type(true);
+                this.expect(':');
+                return new PyDictNode<>(keyType, this.type(inKey));
+            default:
+                throw this.error(name.isEmpty() ? "Expected a type" : "Unknown type " + name,
+                        start);
+        }
+    }
+
+    /**
+     * Parses the characters of a string type: everything up to the end of the type,
+     * except leading and trailing whitespace.
+     *
+     * @param inKey whether the string is part of the key type of a dict
+     * @return the characters, in the order they first appear
+     */
+    private Set<Character> chars(boolean inKey) {
+        this.skipIgnored();
+        StringBuilder chars = new StringBuilder();
+        while (this.pos < this.text.length() && !(inKey && this.text.charAt(this.pos) == ':')) {
+            if (this.isIgnored(this.pos)) {
+                this.pos++;
+                continue;
+            }
+            chars.append(this.text.charAt(this.pos++));
+        }
+        Set<Character> charDomain = new LinkedHashSet<>();
+        for (char c : chars.toString().trim().toCharArray()) {
+            charDomain.add(c);
+        }
+        return charDomain;
+    }
+
+    /**
+     * Parses the domain of the given node (and its children), and sets them.
+     *
+     * @param node the node whose domain is being parsed
+     * @throws InvalidConfigException if no valid domain for node starts here
+     */
+    private void domain(APyNode<?> node) throws InvalidConfigException {
+        Set<? extends Number> domain;
+        if (node instanceof PyIntNode) {
+            domain = this.intValues(Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } else if (node instanceof PyBoolNode) {
+            domain = this.intValues(0, 1);
+        } else if (node instanceof PyFloatNode) {
+            domain = this.floatValues();
+        } else if (node instanceof PyStringNode) {
+            domain = this.intValues(0, Integer.MAX_VALUE);
+        } else if (node instanceof PyDictNode<?, ?>) {
+            domain = this.intValues(0, Integer.MAX_VALUE);
+            this.expect('(');
+            this.domain(node.getLeftChild());
+            this.expect(':');
+            this.domain(node.getRightChild());
+        } else {
+            domain = this.intValues(0, Integer.MAX_VALUE);
+            this.expect('(');
+            this.domain(node.getLeftChild());
+        }
+        if (this.exhaustive) {
+            node.setExDomain(new ArrayList<>(domain));
+        } else {
+            node.setRanDomain(new ArrayList<>(domain));
+        }
+    }
+
+    /**
+     * Parses a domain of integers: either an inclusive range ("a~b", where a <= b) or a
+     * comma-separated list.
+     *
+     * @param min the smallest allowed value
+     * @param max the largest allowed value
+     * @return the values in the domain
+     * @throws InvalidConfigException if no valid domain starts here
+     */
+    private Set<Integer> intValues(int min, int max) throws InvalidConfigException {
+        Set<Integer> values = new HashSet<>();
+        int start = this.pos;
+        int first = this.intValue(min, max);
+        if (this.accept('~')) {
+            int last = this.intValue(min, max);
+            if (first > last) {
+                throw this.error("Empty range in domain", start);
+            }
+            for (int value = first; value <= last; value++) {
+                values.add(value);
+            }
+            return values;
+        }
+        values.add(first);
+        while (this.accept(',')) {
+            values.add(this.intValue(min, max));
+        }
+        return values;
+    }
+
+    /**
+     * Parses a domain of floats: either a range of integers ("a~b", where a < b), which
+     * stands for every integer in it, or a comma-separated list of floats.
+     *
+     * @return the values in the domain
+     * @throws InvalidConfigException if no valid domain starts here
+     */
+    private Set<Double> floatValues() throws InvalidConfigException {
+        Set<Double> values = new HashSet<>();
+        int start = this.pos;
+        String first = this.number();
+        if (this.accept('~')) {
+            int last = this.intValue(Integer.MIN_VALUE, Integer.MAX_VALUE);
+            int firstInt;
+            try {
+                firstInt = Integer.parseInt(first);
+            } catch (NumberFormatException e) {
+                throw this.error("Invalid bound " + first, start);
+            }
+            if (firstInt >= last) {
+                throw this.error("Empty range in domain", start);
+            }
+            for (int value = firstInt; value <= last; value++) {
+                values.add((double) value);
+            }
+            return values;
+        }
+        values.add(this.parseDouble(first, start));
+        while (this.accept(',')) {
+            this.skipIgnored();
+            int offset = this.pos;
+            values.add(this.parseDouble(this.number(), offset));
+        }
+        return values;
+    }
+
+    /**
+     * Parses a single integer.
+     *
+     * @param min the smallest allowed value
+     * @param max the largest allowed value
+     * @return the value
+     * @throws InvalidConfigException if no integer in [min, max] starts here
+     */
+    private int intValue(int min, int max) throws InvalidConfigException {
+        this.skipIgnored();
+        int start = this.pos;
+        String number = this.number();
+        int value;
+        try {
+            value = Integer.parseInt(number);
+        } catch (NumberFormatException e) {
+            throw this.error("Expected an integer but found " + describe(number), start);
+        }
+        if (value < min || value > max) {
+            throw this.error("Value " + value + " out of range [" + min + ", " + max + "]",
+                    start);
+        }
+        return value;
+    }
+
+    /**
+     * Parses a float that has already been scanned.
+     *
+     * @param number the scanned token
+     * @param start  the offset at which the token starts
+     * @return the value
+     * @throws InvalidConfigException if the token is not a float
+     */
+    private double parseDouble(String number, int start) throws InvalidConfigException {
+        try {
+            return Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            throw this.error("Expected a float but found " + describe(number), start);
+        }
+    }
+
+    /**
+     * Scans a number token: the longest run of characters that cannot separate tokens.
+     *
+     * @return the token (possibly empty)
+     */
+    private String number() {
+        this.skipIgnored();
+        int start = this.pos;
+        while (this.pos < this.text.length() && !this.isIgnored(this.pos)
+                && "~,(:\"".indexOf(this.text.charAt(this.pos)) < 0
+                && this.text.charAt(this.pos) > ' ') {
+            this.pos++;
+        }
+        return this.text.substring(start, this.pos);
+    }
+
+    /**
+     * Consumes the given character if it is the next token.
+     *
+     * @param c the character
+     * @return true if it was consumed; false otherwise
+     */
+    private boolean accept(char c) {
+        this.skipIgnored();
+        if (this.pos < this.text.length() && this.text.charAt(this.pos) == c) {
+            this.pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the given character, which must be the next token.
+     *
+     * @param c the character
+     * @throws InvalidConfigException if the next token is something else
+     */
+    private void expect(char c) throws InvalidConfigException {
+        if (!this.accept(c)) {
+            throw this.error("Expected '" + c + "'", this.pos);
+        }
+    }
+
+    /**
+     * Checks that nothing but whitespace (and ignored characters) remains.
+     *
+     * @throws InvalidConfigException if anything else remains
+     */
+    private void expectEnd() throws InvalidConfigException {
+        this.skipIgnored();
+        if (this.pos < this.text.length()) {
+            throw this.error("Unexpected '" + this.text.charAt(this.pos) + "'", this.pos);
+        }
+    }
+
+    /**
+     * Skips over whitespace and ignored characters.
+     */
+    private void skipIgnored() {
+        while (this.pos < this.text.length()
+                && (this.text.charAt(this.pos) <= ' ' || this.isIgnored(this.pos))) {
+            this.pos++;
+        }
+    }
+
+    /**
+     * Returns whether the character at the given offset is ignored: a square bracket, or
+     * a quote directly next to one.
+     *
+     * @param offset the offset
+     * @return true if the character is ignored; false otherwise
+     */
+    private boolean isIgnored(int offset) {
+        char c = this.text.charAt(offset);
+        if (c == '[' || c == ']') {
+            return true;
+        }
+        return c == '"' && (isBracket(offset - 1) || isBracket(offset + 1));
+    }
+
+    /**
+     * Returns whether there is a square bracket at the given offset.
+     *
+     * @param offset the offset, which may be out of bounds
+     * @return true if there is a bracket at offset; false otherwise
+     */
+    private boolean isBracket(int offset) {
+        return offset >= 0 && offset < this.text.length()
+                && (this.text.charAt(offset) == '[' || this.text.charAt(offset) == ']');
+    }
+
+    /**
+     * Builds an exception for an error detected at the given offset.
+     *
+     * @param msg    a description of the error
+     * @param offset the offset in the string at which it was detected
+     * @return the exception
+     */
+    private InvalidConfigException error(String msg, int offset) {
+        return new InvalidConfigException(msg + " at offset " + offset + " of \""
+                + this.text + "\"", offset);
+    }
+
+    /**
+     * Describes a scanned token for use in an error message.
+     *
+     * @param token the token
+     * @return the quoted token, or "nothing" if it is empty
+     */
+    private static String describe(String token) {
+        return token.isEmpty() ? "nothing" : "\"" + token + "\"";
+    }
+}
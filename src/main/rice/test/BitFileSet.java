@@ -0,0 +1,156 @@
+package main.rice.test;
+
+import java.nio.LongBuffer;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only set of file indices backed by a run of 64-bit words, where file j is in
+ * the set iff bit j is set. Used to expose a row of a BitMatrix (or any other bitset)
+ * through the Set interface without copying or boxing the underlying data.
+ */
+public class BitFileSet extends AbstractSet<Integer> {
+
+    /**
+     * The buffer containing the words of this set.
+     */
+    private final LongBuffer words;
+
+    /**
+     * The index of the first word of this set within the buffer.
+     */
+    private final int offset;
+
+    /**
+     * The number of words belonging to this set.
+     */
+    private final int numWords;
+
+    /**
+     * Constructor for a BitFileSet viewing numWords words of the given buffer, starting
+     * at offset.
+     *
+     * @param words    the buffer containing the words of this set
+     * @param offset   the index of the first word of this set within the buffer
+     * @param numWords the number of words belonging to this set
+     */
+    public BitFileSet(LongBuffer words, int offset, int numWords) {
+        this.words = words;
+        this.offset = offset;
+        this.numWords = numWords;
+    }
+
+    /**
+     * Constructor for a BitFileSet viewing the given array of words.
+     *
+     * @param words the words of this set
+     */
+    public BitFileSet(long[] words) {
+        this(LongBuffer.wrap(words), 0, words.length);
+    }
+
+    /**
+     * Returns the number of words backing this set.
+     *
+     * @return the number of words backing this set
+     */
+    public int getNumWords() {
+        return this.numWords;
+    }
+
+    /**
+     * Returns the wordIndex-th word of this set.
+     *
+     * @param wordIndex the index of the word
+     * @return the requested word
+     */
+    public long getWord(int wordIndex) {
+        return this.words.get(this.offset + wordIndex);
+    }
+
+    /**
+     * Returns whether the given file index is in this set, without boxing.
+     *
+     * @param file the file index
+     * @return true if file is in this set; false otherwise
+     */
+    public boolean containsFile(int file) {
+        if (file < 0 || (file >>> 6) >= this.numWords) {
+            return false;
+        }
+        return (this.getWord(file >>> 6) & (1L << file)) != 0;
+    }
+
+    /**
+     * Returns whether the given object is a file index in this set.
+     *
+     * @param obj the object to look for
+     * @return true if obj is an Integer contained in this set; false otherwise
+     */
+    @Override
+    public boolean contains(Object obj) {
+        return (obj instanceof Integer file) && this.containsFile(file);
+    }
+
+    /**
+     * Returns the number of files in this set.
+     *
+     * @return the number of files in this set
+     */
+    @Override
+    public int size() {
+        int count = 0;
+        for (int w = 0; w < this.numWords; w++) {
+            count += Long.bitCount(this.getWord(w));
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether this set is empty; stops at the first non-zero word.
+     *
+     * @return true if this set contains no files; false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        for (int w = 0; w < this.numWords; w++) {
+            if (this.getWord(w) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an iterator over the files in this set, in ascending order.
+     *
+     * @return an iterator over the files in this set
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int wordIndex = -1;
+            private long remaining = 0;
+
+            @Override
+            public boolean hasNext() {
+                while (this.remaining == 0 && this.wordIndex + 1 < numWords) {
+                    this.wordIndex++;
+                    this.remaining = getWord(this.wordIndex);
+                }
+                return this.remaining != 0;
+            }
+
+            @Override
+            public Integer next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                int bit = Long.numberOfTrailingZeros(this.remaining);
+                this.remaining &= this.remaining - 1;
+                return (this.wordIndex << 6) + bit;
+            }
+        };
+    }
+}
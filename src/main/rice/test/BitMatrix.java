@@ -0,0 +1,227 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+/**
+ * A bit-packed boolean matrix in which row i is a test case and column j is a file; bit
+ * (i, j) is set iff the i-th test case caught the j-th file. Each row occupies a whole
+ * number of 64-bit words so that rows can be operated on a word at a time. The words
+ * live in a LongBuffer, which may either be on the heap or a view of a memory-mapped
+ * file.
+ */
+public class BitMatrix {
+
+    /**
+     * The number of rows (test cases) in this matrix.
+     */
+    private final int numRows;
+
+    /**
+     * The number of columns (files) in this matrix.
+     */
+    private final int numCols;
+
+    /**
+     * The number of 64-bit words used to store each row.
+     */
+    private final int wordsPerRow;
+
+    /**
+     * The backing words, stored in row-major order.
+     */
+    private final LongBuffer words;
+
+    /**
+     * Constructor for a BitMatrix backed by a newly-allocated heap buffer in which every
+     * bit is clear.
+     *
+     * @param numRows the number of rows (test cases)
+     * @param numCols the number of columns (files)
+     */
+    public BitMatrix(int numRows, int numCols) {
+        this(numRows, numCols, LongBuffer.allocate(checkedSize(numRows, numCols)));
+    }
+
+    /**
+     * Constructor for a BitMatrix backed by an existing buffer (for example, a view of a
+     * memory-mapped file). The buffer is used as-is, starting from its index 0.
+     *
+     * @param numRows the number of rows (test cases)
+     * @param numCols the number of columns (files)
+     * @param words   the backing words, in row-major order
+     * @throws IllegalArgumentException if the buffer is too small to hold the matrix
+     */
+    public BitMatrix(int numRows, int numCols, LongBuffer words) {
+        if (words.capacity() < checkedSize(numRows, numCols)) {
+            throw new IllegalArgumentException("buffer too small for a " + numRows + "x"
+                    + numCols + " matrix");
+        }
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.wordsPerRow = wordsFor(numCols);
+        this.words = words;
+    }
+
+    /**
+     * Creates a BitMatrix in which every bit is clear, backed by a memory-mapped file at
+     * the given path rather than by the heap; the file is created (or truncated) as
+     * needed. Because the operating system pages the matrix in and out on demand, the
+     * heap footprint of the returned matrix does not depend on its dimensions.
+     *
+     * @param path    the path of the backing file
+     * @param numRows the number of rows (test cases)
+     * @param numCols the number of columns (files)
+     * @return a new, empty matrix backed by the file at path
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public static BitMatrix map(String path, int numRows, int numCols) throws IOException {
+        long numBytes = (long) checkedSize(numRows, numCols) * Long.BYTES;
+        if (numBytes > Integer.MAX_VALUE) {
+            throw new IOException("matrix too large to map: " + numRows + "x" + numCols);
+        }
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            LongBuffer words =
+                    channel.map(FileChannel.MapMode.READ_WRITE, 0, numBytes).asLongBuffer();
+            return new BitMatrix(numRows, numCols, words);
+        }
+    }
+
+    /**
+     * Returns the number of 64-bit words needed to store the given number of bits.
+     *
+     * @param numBits the number of bits
+     * @return the number of words needed to store numBits bits
+     */
+    public static int wordsFor(int numBits) {
+        return (numBits + 63) >>> 6;
+    }
+
+    /**
+     * Returns the total number of words needed for a matrix of the given dimensions.
+     *
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @return the number of words needed to store the matrix
+     * @throws IllegalArgumentException if the dimensions are negative or too large
+     */
+    private static int checkedSize(int numRows, int numCols) {
+        if (numRows < 0 || numCols < 0) {
+            throw new IllegalArgumentException("negative matrix dimensions");
+        }
+        long size = (long) numRows * wordsFor(numCols);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("matrix too large: " + numRows + "x" + numCols);
+        }
+        return (int) size;
+    }
+
+    /**
+     * Returns the number of rows (test cases) in this matrix.
+     *
+     * @return the number of rows
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * Returns the number of columns (files) in this matrix.
+     *
+     * @return the number of columns
+     */
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    /**
+     * Returns the number of 64-bit words used to store each row.
+     *
+     * @return the number of words per row
+     */
+    public int getWordsPerRow() {
+        return this.wordsPerRow;
+    }
+
+    /**
+     * Returns the wordIndex-th word of the given row.
+     *
+     * @param row       the row index
+     * @param wordIndex the index of the word within the row
+     * @return the requested word
+     */
+    public long getWord(int row, int wordIndex) {
+        return this.words.get(row * this.wordsPerRow + wordIndex);
+    }
+
+    /**
+     * Returns whether bit (row, col) is set.
+     *
+     * @param row the row index
+     * @param col the column index
+     * @return true if the row-th test case caught the col-th file; false otherwise
+     */
+    public boolean get(int row, int col) {
+        return (this.getWord(row, col >>> 6) & (1L << col)) != 0;
+    }
+
+    /**
+     * Sets bit (row, col).
+     *
+     * @param row the row index
+     * @param col the column index
+     */
+    public void set(int row, int col) {
+        int index = row * this.wordsPerRow + (col >>> 6);
+        this.words.put(index, this.words.get(index) | (1L << col));
+    }
+
+    /**
+     * Counts the number of set bits in the given row.
+     *
+     * @param row the row index
+     * @return the number of files caught by the row-th test case
+     */
+    public int rowCardinality(int row) {
+        int count = 0;
+        int base = row * this.wordsPerRow;
+        for (int w = 0; w < this.wordsPerRow; w++) {
+            count += Long.bitCount(this.words.get(base + w));
+        }
+        return count;
+    }
+
+    /**
+     * ORs every row of this matrix together into a new array of words, i.e. computes the
+     * set of files caught by at least one test case.
+     *
+     * @return the union of all rows, as an array of wordsPerRow words
+     */
+    public long[] unionOfRows() {
+        long[] union = new long[this.wordsPerRow];
+        for (int row = 0; row < this.numRows; row++) {
+            int base = row * this.wordsPerRow;
+            for (int w = 0; w < this.wordsPerRow; w++) {
+                union[w] |= this.words.get(base + w);
+            }
+        }
+        return union;
+    }
+
+    /**
+     * Returns a read-only Set view of the given row; changes to the matrix are visible
+     * through the view.
+     *
+     * @param row the row index
+     * @return the set of files caught by the row-th test case
+     */
+    public Set<Integer> rowView(int row) {
+        return new BitFileSet(this.words, row * this.wordsPerRow, this.wordsPerRow);
+    }
+}
@@ -0,0 +1,1088 @@
+package main.rice.test;
+
+import java.util.*;
+
+/**
+ * A compressed set of file indices, in the style of a roaring bitmap. The space of
+ * non-negative ints is split into chunks of 2^16 values keyed by their high 16 bits, and
+ * each non-empty chunk is stored in whichever of three containers is smallest for its
+ * contents:
+ * <ul>
+ *     <li>an array container: a sorted array of the low 16 bits of each element, for
+ *     sparse chunks (e.g. a test case that catches almost no files);</li>
+ *     <li>a bitmap container: 2^16 bits, for dense chunks with no long runs;</li>
+ *     <li>a run container: a sorted list of [start, end] intervals, for chunks made up of
+ *     a few long runs (e.g. a test case that catches almost every file).</li>
+ * </ul>
+ * Intersection, difference, union and their cardinalities are computed container by
+ * container, without materializing the elements. Elements can be added (which is
+ * cheapest in ascending order), but not removed; sets produced by the binary operations
+ * are new objects, and never share state with their operands.
+ */
+public class CompressedFileSet extends AbstractSet<Integer> {
+
+    /**
+     * The largest number of elements held in an array container; any more, and a bitmap
+     * container is never larger.
+     */
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    /**
+     * The number of 64-bit words in a bitmap container.
+     */
+    private static final int BITMAP_WORDS = 1024;
+
+    /**
+     * The high 16 bits shared by the elements of each container, in ascending order.
+     */
+    private char[] keys = new char[4];
+
+    /**
+     * The containers, parallel to keys.
+     */
+    private Container[] containers = new Container[4];
+
+    /**
+     * The number of valid entries in keys and containers.
+     */
+    private int numContainers = 0;
+
+    /**
+     * Constructor for an empty CompressedFileSet.
+     */
+    public CompressedFileSet() {
+    }
+
+    /**
+     * Returns a CompressedFileSet containing the same files as the input set. If files is
+     * already a CompressedFileSet it is returned as-is, since none of the operations used
+     * on the result mutate it.
+     *
+     * @param files the set of files
+     * @return a CompressedFileSet equal to files
+     */
+    public static CompressedFileSet of(Set<Integer> files) {
+        if (files instanceof CompressedFileSet compressed) {
+            return compressed;
+        }
+
+        // Adding in ascending order always appends, which is cheapest
+        int[] sorted = new int[files.size()];
+        int i = 0;
+        for (int file : files) {
+            sorted[i++] = file;
+        }
+        Arrays.sort(sorted);
+        CompressedFileSet set = new CompressedFileSet();
+        for (int file : sorted) {
+            set.addFile(file);
+        }
+        set.runOptimize();
+        return set;
+    }
+
+    /**
+     * Adds the given file index to this set, without boxing.
+     *
+     * @param file the (non-negative) file index
+     * @return true if the file was not already in this set; false otherwise
+     * @throws IllegalArgumentException if file is negative
+     */
+    public boolean addFile(int file) {
+        if (file < 0) {
+            throw new IllegalArgumentException("negative file index " + file);
+        }
+        char key = (char) (file >>> 16);
+        char low = (char) file;
+        int index = this.findKey(key);
+        if (index < 0) {
+            index = -index - 1;
+            this.insertContainer(index, key, new ArrayContainer());
+        }
+        Container container = this.containers[index];
+        int before = container.cardinality();
+        this.containers[index] = container.add(low);
+        return this.containers[index].cardinality() != before;
+    }
+
+    /**
+     * Adds the given file index to this set.
+     *
+     * @param file the file index
+     * @return true if the file was not already in this set; false otherwise
+     */
+    @Override
+    public boolean add(Integer file) {
+        return this.addFile(file);
+    }
+
+    /**
+     * Returns whether the given file index is in this set, without boxing.
+     *
+     * @param file the file index
+     * @return true if file is in this set; false otherwise
+     */
+    public boolean containsFile(int file) {
+        if (file < 0) {
+            return false;
+        }
+        int index = this.findKey((char) (file >>> 16));
+        return index >= 0 && this.containers[index].contains((char) file);
+    }
+
+    /**
+     * Returns whether the given object is a file index in this set.
+     *
+     * @param obj the object to look for
+     * @return true if obj is an Integer contained in this set; false otherwise
+     */
+    @Override
+    public boolean contains(Object obj) {
+        return (obj instanceof Integer file) && this.containsFile(file);
+    }
+
+    /**
+     * Returns the number of files in this set.
+     *
+     * @return the number of files in this set
+     */
+    @Override
+    public int size() {
+        int count = 0;
+        for (int i = 0; i < this.numContainers; i++) {
+            count += this.containers[i].cardinality();
+        }
+        return count;
+    }
+
+    /**
+     * Returns whether this set is empty.
+     *
+     * @return true if this set contains no files; false otherwise
+     */
+    @Override
+    public boolean isEmpty() {
+        return this.numContainers == 0;
+    }
+
+    /**
+     * Returns an iterator over the files in this set, in ascending order.
+     *
+     * @return an iterator over the files in this set
+     */
+    @Override
+    public Iterator<Integer> iterator() {
+        return new Iterator<>() {
+            private int containerIndex = 0;
+            private PrimitiveIterator.OfInt current = numContainers > 0
+                    ? containers[0].iterator() : null;
+
+            @Override
+            public boolean hasNext() {
+                while (this.current != null && !this.current.hasNext()) {
+                    this.containerIndex++;
+                    this.current = (this.containerIndex < numContainers)
+                            ? containers[this.containerIndex].iterator() : null;
+                }
+                return this.current != null;
+            }
+
+            @Override
+            public Integer next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return (keys[this.containerIndex] << 16) | this.current.nextInt();
+            }
+        };
+    }
+
+    /**
+     * Converts each container to whichever representation is smallest for its contents;
+     * in particular, long runs of consecutive files become run containers. Sets built
+     * element-by-element should be optimized once they are complete.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < this.numContainers; i++) {
+            this.containers[i] = this.containers[i].optimize();
+        }
+    }
+
+    /**
+     * Computes the intersection of this set and other.
+     *
+     * @param other the other set
+     * @return a new set containing the files in both this and other
+     */
+    public CompressedFileSet and(CompressedFileSet other) {
+        CompressedFileSet result = new CompressedFileSet();
+        int i = 0;
+        int j = 0;
+        while (i < this.numContainers && j < other.numContainers) {
+            if (this.keys[i] < other.keys[j]) {
+                i++;
+            } else if (this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendIfNonEmpty(this.keys[i],
+                        this.containers[i].and(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the difference of this set and other.
+     *
+     * @param other the other set
+     * @return a new set containing the files in this but not in other
+     */
+    public CompressedFileSet andNot(CompressedFileSet other) {
+        CompressedFileSet result = new CompressedFileSet();
+        int j = 0;
+        for (int i = 0; i < this.numContainers; i++) {
+            while (j < other.numContainers && other.keys[j] < this.keys[i]) {
+                j++;
+            }
+            if (j < other.numContainers && other.keys[j] == this.keys[i]) {
+                result.appendIfNonEmpty(this.keys[i],
+                        this.containers[i].andNot(other.containers[j]));
+            } else {
+                result.appendIfNonEmpty(this.keys[i], this.containers[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the union of this set and other.
+     *
+     * @param other the other set
+     * @return a new set containing the files in either this or other
+     */
+    public CompressedFileSet or(CompressedFileSet other) {
+        CompressedFileSet result = new CompressedFileSet();
+        int i = 0;
+        int j = 0;
+        while (i < this.numContainers || j < other.numContainers) {
+            if (j >= other.numContainers
+                    || (i < this.numContainers && this.keys[i] < other.keys[j])) {
+                result.appendIfNonEmpty(this.keys[i], this.containers[i].copy());
+                i++;
+            } else if (i >= this.numContainers || this.keys[i] > other.keys[j]) {
+                result.appendIfNonEmpty(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendIfNonEmpty(this.keys[i],
+                        this.containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Computes the size of the intersection of this set and other, without building it.
+     *
+     * @param other the other set
+     * @return the number of files in both this and other
+     */
+    public int andCardinality(CompressedFileSet other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < this.numContainers && j < other.numContainers) {
+            if (this.keys[i] < other.keys[j]) {
+                i++;
+            } else if (this.keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                count += this.containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Binary searches keys for the given key.
+     *
+     * @param key the key to look for
+     * @return the index of key, if present; otherwise (-(insertion point) - 1)
+     */
+    private int findKey(char key) {
+        // Fast path for appending in ascending order
+        if (this.numContainers > 0 && this.keys[this.numContainers - 1] == key) {
+            return this.numContainers - 1;
+        }
+        return Arrays.binarySearch(this.keys, 0, this.numContainers, key);
+    }
+
+    /**
+     * Inserts a container at the given index, shifting later containers up.
+     *
+     * @param index     the index at which to insert
+     * @param key       the key of the new container
+     * @param container the new container
+     */
+    private void insertContainer(int index, char key, Container container) {
+        if (this.numContainers == this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, this.numContainers * 2);
+            this.containers = Arrays.copyOf(this.containers, this.numContainers * 2);
+        }
+        System.arraycopy(this.keys, index, this.keys, index + 1, this.numContainers - index);
+        System.arraycopy(this.containers, index, this.containers, index + 1,
+                this.numContainers - index);
+        this.keys[index] = key;
+        this.containers[index] = container;
+        this.numContainers++;
+    }
+
+    /**
+     * Helper function for the binary operations, which build their results in ascending
+     * key order; appends the given container unless it is empty.
+     *
+     * @param key       the key of the container
+     * @param container the container to append
+     */
+    private void appendIfNonEmpty(char key, Container container) {
+        if (container.cardinality() > 0) {
+            this.insertContainer(this.numContainers, key, container.optimize());
+        }
+    }
+
+    /**
+     * A set of 16-bit values; the low bits of the elements of one chunk.
+     */
+    private abstract static class Container {
+
+        /**
+         * Returns the number of values in this container.
+         *
+         * @return the number of values in this container
+         */
+        abstract int cardinality();
+
+        /**
+         * Returns whether the given value is in this container.
+         *
+         * @param value the value to look for
+         * @return true if value is in this container; false otherwise
+         */
+        abstract boolean contains(char value);
+
+        /**
+         * Adds the given value to this container, converting the container to another
+         * representation if that is necessary.
+         *
+         * @param value the value to add
+         * @return the container holding the result; either this or a replacement
+         */
+        abstract Container add(char value);
+
+        /**
+         * Returns an iterator over the values in this container, in ascending order.
+         *
+         * @return an iterator over the values in this container
+         */
+        abstract PrimitiveIterator.OfInt iterator();
+
+        /**
+         * Returns an independent copy of this container.
+         *
+         * @return a copy of this container
+         */
+        abstract Container copy();
+
+        /**
+         * Returns the number of bytes needed to store this container's values.
+         *
+         * @return the storage size of this container, in bytes
+         */
+        abstract int sizeInBytes();
+
+        /**
+         * ORs the values in this container into a bitmap of BITMAP_WORDS words.
+         *
+         * @param words the bitmap to be updated
+         */
+        void orInto(long[] words) {
+            PrimitiveIterator.OfInt values = this.iterator();
+            while (values.hasNext()) {
+                int value = values.nextInt();
+                words[value >>> 6] |= 1L << value;
+            }
+        }
+
+        /**
+         * Returns the number of runs of consecutive values in this container.
+         *
+         * @return the number of runs in this container
+         */
+        int numRuns() {
+            int runs = 0;
+            int prev = -2;
+            PrimitiveIterator.OfInt values = this.iterator();
+            while (values.hasNext()) {
+                int value = values.nextInt();
+                if (value != prev + 1) {
+                    runs++;
+                }
+                prev = value;
+            }
+            return runs;
+        }
+
+        /**
+         * Returns the smallest representation of this container's values.
+         *
+         * @return a container with the same values; possibly this
+         */
+        Container optimize() {
+            int card = this.cardinality();
+            int runBytes = RunContainer.sizeInBytes(this.numRuns());
+            int arrayBytes = (card <= MAX_ARRAY_SIZE) ? ArrayContainer.sizeInBytes(card)
+                    : Integer.MAX_VALUE;
+            int best = Math.min(runBytes, Math.min(arrayBytes, BitmapContainer.SIZE_IN_BYTES));
+            if (best == this.sizeInBytes()) {
+                return this;
+            } else if (best == runBytes) {
+                return RunContainer.fromContainer(this);
+            } else if (best == arrayBytes) {
+                return ArrayContainer.fromContainer(this);
+            }
+            return BitmapContainer.fromContainer(this);
+        }
+
+        /**
+         * Computes the intersection of this and other.
+         *
+         * @param other the other container
+         * @return a new container holding the values in both this and other
+         */
+        Container and(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, true);
+            } else if (other instanceof ArrayContainer array) {
+                return array.filter(this, true);
+            }
+            long[] words = new long[BITMAP_WORDS];
+            this.orInto(words);
+            long[] otherWords = BitmapContainer.wordsOf(other);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= otherWords[w];
+            }
+            return BitmapContainer.fromWords(words);
+        }
+
+        /**
+         * Computes the difference of this and other.
+         *
+         * @param other the other container
+         * @return a new container holding the values in this but not in other
+         */
+        Container andNot(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.filter(other, false);
+            }
+            long[] words = new long[BITMAP_WORDS];
+            this.orInto(words);
+            long[] otherWords = BitmapContainer.wordsOf(other);
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] &= ~otherWords[w];
+            }
+            return BitmapContainer.fromWords(words);
+        }
+
+        /**
+         * Computes the union of this and other.
+         *
+         * @param other the other container
+         * @return a new container holding the values in either this or other
+         */
+        Container or(Container other) {
+            long[] words = new long[BITMAP_WORDS];
+            this.orInto(words);
+            other.orInto(words);
+            return BitmapContainer.fromWords(words);
+        }
+
+        /**
+         * Computes the size of the intersection of this and other, without building it.
+         *
+         * @param other the other container
+         * @return the number of values in both this and other
+         */
+        int andCardinality(Container other) {
+            if (this instanceof ArrayContainer array) {
+                return array.countIn(other);
+            } else if (other instanceof ArrayContainer array) {
+                return array.countIn(this);
+            } else if (this instanceof RunContainer runs) {
+                return runs.countIn(other);
+            } else if (other instanceof RunContainer runs) {
+                return runs.countIn(this);
+            }
+            long[] words = ((BitmapContainer) this).words;
+            long[] otherWords = ((BitmapContainer) other).words;
+            int count = 0;
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                count += Long.bitCount(words[w] & otherWords[w]);
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A container storing its values in a sorted array.
+     */
+    private static class ArrayContainer extends Container {
+
+        /**
+         * The values, in ascending order.
+         */
+        private char[] values;
+
+        /**
+         * The number of valid entries in values.
+         */
+        private int card;
+
+        /**
+         * Constructor for an empty ArrayContainer.
+         */
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        /**
+         * Constructor for an ArrayContainer holding the first card entries of values.
+         *
+         * @param values the values, in ascending order
+         * @param card   the number of valid entries in values
+         */
+        ArrayContainer(char[] values, int card) {
+            this.values = values;
+            this.card = card;
+        }
+
+        /**
+         * Returns the number of bytes needed to store an array container.
+         *
+         * @param card the number of values in the container
+         * @return the storage size of the container, in bytes
+         */
+        static int sizeInBytes(int card) {
+            return 2 * card;
+        }
+
+        /**
+         * Copies the values of any container into a new ArrayContainer.
+         *
+         * @param container the container to copy
+         * @return an ArrayContainer with the same values
+         */
+        static ArrayContainer fromContainer(Container container) {
+            char[] values = new char[Math.max(container.cardinality(), 1)];
+            int card = 0;
+            PrimitiveIterator.OfInt iter = container.iterator();
+            while (iter.hasNext()) {
+                values[card++] = (char) iter.nextInt();
+            }
+            return new ArrayContainer(values, card);
+        }
+
+        @Override
+        int cardinality() {
+            return this.card;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return sizeInBytes(this.card);
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(this.values, 0, this.card, value) >= 0;
+        }
+
+        @Override
+        Container add(char value) {
+            // Fast path for appending in ascending order
+            int index;
+            if (this.card == 0 || this.values[this.card - 1] < value) {
+                index = this.card;
+            } else {
+                index = Arrays.binarySearch(this.values, 0, this.card, value);
+                if (index >= 0) {
+                    return this;
+                }
+                index = -index - 1;
+            }
+
+            if (this.card == MAX_ARRAY_SIZE) {
+                return BitmapContainer.fromContainer(this).add(value);
+            }
+            if (this.card == this.values.length) {
+                this.values = Arrays.copyOf(this.values,
+                        Math.min(MAX_ARRAY_SIZE, this.values.length * 2));
+            }
+            System.arraycopy(this.values, index, this.values, index + 1, this.card - index);
+            this.values[index] = value;
+            this.card++;
+            return this;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int index = 0;
+
+                @Override
+                public boolean hasNext() {
+                    return this.index < card;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return values[this.index++];
+                }
+            };
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(this.values, this.card), this.card);
+        }
+
+        @Override
+        int numRuns() {
+            int runs = 0;
+            for (int i = 0; i < this.card; i++) {
+                if (i == 0 || this.values[i] != this.values[i - 1] + 1) {
+                    runs++;
+                }
+            }
+            return runs;
+        }
+
+        /**
+         * Keeps the values of this container that are (or are not) in other.
+         *
+         * @param other the container to filter by
+         * @param keep  true to keep the values in other; false to keep the others
+         * @return a new ArrayContainer holding the filtered values
+         */
+        ArrayContainer filter(Container other, boolean keep) {
+            char[] result = new char[Math.max(this.card, 1)];
+            int count = 0;
+            for (int i = 0; i < this.card; i++) {
+                if (other.contains(this.values[i]) == keep) {
+                    result[count++] = this.values[i];
+                }
+            }
+            return new ArrayContainer(result, count);
+        }
+
+        /**
+         * Counts the values of this container that are in other.
+         *
+         * @param other the other container
+         * @return the number of values in both this and other
+         */
+        int countIn(Container other) {
+            int count = 0;
+            for (int i = 0; i < this.card; i++) {
+                if (other.contains(this.values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * A container storing its values as a bitmap of 2^16 bits.
+     */
+    private static class BitmapContainer extends Container {
+
+        /**
+         * The number of bytes needed to store a bitmap container.
+         */
+        static final int SIZE_IN_BYTES = BITMAP_WORDS * Long.BYTES;
+
+        /**
+         * The bitmap; value v is present iff bit v is set.
+         */
+        private final long[] words;
+
+        /**
+         * The number of set bits in words.
+         */
+        private int card;
+
+        /**
+         * Constructor for a BitmapContainer with the given bitmap and cardinality.
+         *
+         * @param words the bitmap
+         * @param card  the number of set bits in words
+         */
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        /**
+         * Creates a BitmapContainer from the given bitmap, counting its bits.
+         *
+         * @param words the bitmap
+         * @return a BitmapContainer wrapping words
+         */
+        static BitmapContainer fromWords(long[] words) {
+            int card = 0;
+            for (long word : words) {
+                card += Long.bitCount(word);
+            }
+            return new BitmapContainer(words, card);
+        }
+
+        /**
+         * Copies the values of any container into a new BitmapContainer.
+         *
+         * @param container the container to copy
+         * @return a BitmapContainer with the same values
+         */
+        static BitmapContainer fromContainer(Container container) {
+            long[] words = new long[BITMAP_WORDS];
+            container.orInto(words);
+            return new BitmapContainer(words, container.cardinality());
+        }
+
+        /**
+         * Returns the bitmap of the given container, building one if necessary.
+         *
+         * @param container the container
+         * @return a bitmap holding the container's values; must not be modified
+         */
+        static long[] wordsOf(Container container) {
+            if (container instanceof BitmapContainer bitmap) {
+                return bitmap.words;
+            }
+            long[] words = new long[BITMAP_WORDS];
+            container.orInto(words);
+            return words;
+        }
+
+        @Override
+        int cardinality() {
+            return this.card;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return SIZE_IN_BYTES;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (this.words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        Container add(char value) {
+            if (!this.contains(value)) {
+                this.words[value >>> 6] |= 1L << value;
+                this.card++;
+            }
+            return this;
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int wordIndex = -1;
+                private long remaining = 0;
+
+                @Override
+                public boolean hasNext() {
+                    while (this.remaining == 0 && this.wordIndex + 1 < BITMAP_WORDS) {
+                        this.wordIndex++;
+                        this.remaining = words[this.wordIndex];
+                    }
+                    return this.remaining != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int bit = Long.numberOfTrailingZeros(this.remaining);
+                    this.remaining &= this.remaining - 1;
+                    return (this.wordIndex << 6) + bit;
+                }
+            };
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(this.words.clone(), this.card);
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int w = 0; w < BITMAP_WORDS; w++) {
+                words[w] |= this.words[w];
+            }
+        }
+
+        @Override
+        int numRuns() {
+            // A run starts wherever a set bit is not preceded by a set bit
+            int runs = 0;
+            long carry = 0;
+            for (long word : this.words) {
+                runs += Long.bitCount(word & ~((word << 1) | carry));
+                carry = word >>> 63;
+            }
+            return runs;
+        }
+
+        /**
+         * Counts the set bits in the inclusive range [start, end].
+         *
+         * @param start the first value of the range
+         * @param end   the last value of the range
+         * @return the number of values of this container within the range
+         */
+        int rangeCardinality(int start, int end) {
+            int firstWord = start >>> 6;
+            int lastWord = end >>> 6;
+            long firstMask = -1L << start;
+            long lastMask = -1L >>> (63 - (end & 63));
+            if (firstWord == lastWord) {
+                return Long.bitCount(this.words[firstWord] & firstMask & lastMask);
+            }
+            int count = Long.bitCount(this.words[firstWord] & firstMask);
+            for (int w = firstWord + 1; w < lastWord; w++) {
+                count += Long.bitCount(this.words[w]);
+            }
+            return count + Long.bitCount(this.words[lastWord] & lastMask);
+        }
+    }
+
+    /**
+     * A container storing its values as a sorted list of disjoint, non-adjacent inclusive
+     * intervals.
+     */
+    private static class RunContainer extends Container {
+
+        /**
+         * The first value of each run, in ascending order.
+         */
+        private final char[] starts;
+
+        /**
+         * The last value of each run, parallel to starts.
+         */
+        private final char[] ends;
+
+        /**
+         * The number of runs.
+         */
+        private final int numRuns;
+
+        /**
+         * The total number of values covered by the runs.
+         */
+        private final int card;
+
+        /**
+         * Constructor for a RunContainer holding the given runs.
+         *
+         * @param starts  the first value of each run, in ascending order
+         * @param ends    the last value of each run
+         * @param numRuns the number of valid entries in starts and ends
+         */
+        RunContainer(char[] starts, char[] ends, int numRuns) {
+            this.starts = starts;
+            this.ends = ends;
+            this.numRuns = numRuns;
+            int card = 0;
+            for (int i = 0; i < numRuns; i++) {
+                card += ends[i] - starts[i] + 1;
+            }
+            this.card = card;
+        }
+
+        /**
+         * Returns the number of bytes needed to store a run container.
+         *
+         * @param numRuns the number of runs in the container
+         * @return the storage size of the container, in bytes
+         */
+        static int sizeInBytes(int numRuns) {
+            return 2 + 4 * numRuns;
+        }
+
+        /**
+         * Copies the values of any container into a new RunContainer.
+         *
+         * @param container the container to copy
+         * @return a RunContainer with the same values
+         */
+        static RunContainer fromContainer(Container container) {
+            int numRuns = container.numRuns();
+            char[] starts = new char[numRuns];
+            char[] ends = new char[numRuns];
+            int run = -1;
+            int prev = -2;
+            PrimitiveIterator.OfInt values = container.iterator();
+            while (values.hasNext()) {
+                int value = values.nextInt();
+                if (value != prev + 1) {
+                    run++;
+                    starts[run] = (char) value;
+                }
+                ends[run] = (char) value;
+                prev = value;
+            }
+            return new RunContainer(starts, ends, numRuns);
+        }
+
+        @Override
+        int cardinality() {
+            return this.card;
+        }
+
+        @Override
+        int sizeInBytes() {
+            return sizeInBytes(this.numRuns);
+        }
+
+        @Override
+        int numRuns() {
+            return this.numRuns;
+        }
+
+        @Override
+        boolean contains(char value) {
+            // Find the last run starting at or before value
+            int index = Arrays.binarySearch(this.starts, 0, this.numRuns, value);
+            if (index >= 0) {
+                return true;
+            }
+            index = -index - 2;
+            return index >= 0 && value <= this.ends[index];
+        }
+
+        @Override
+        Container add(char value) {
+            if (this.contains(value)) {
+                return this;
+            }
+            return ((this.card < MAX_ARRAY_SIZE) ? ArrayContainer.fromContainer(this)
+                    : BitmapContainer.fromContainer(this)).add(value);
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                private int run = 0;
+                private int next = numRuns > 0 ? starts[0] : 0;
+
+                @Override
+                public boolean hasNext() {
+                    return this.run < numRuns;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!this.hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    int value = this.next;
+                    if (value == ends[this.run]) {
+                        this.run++;
+                        if (this.run < numRuns) {
+                            this.next = starts[this.run];
+                        }
+                    } else {
+                        this.next++;
+                    }
+                    return value;
+                }
+            };
+        }
+
+        @Override
+        Container copy() {
+            // Runs are never modified in place, so they can be shared
+            return this;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < this.numRuns; i++) {
+                int start = this.starts[i];
+                int end = this.ends[i];
+                int firstWord = start >>> 6;
+                int lastWord = end >>> 6;
+                long firstMask = -1L << start;
+                long lastMask = -1L >>> (63 - (end & 63));
+                if (firstWord == lastWord) {
+                    words[firstWord] |= firstMask & lastMask;
+                } else {
+                    words[firstWord] |= firstMask;
+                    for (int w = firstWord + 1; w < lastWord; w++) {
+                        words[w] = -1L;
+                    }
+                    words[lastWord] |= lastMask;
+                }
+            }
+        }
+
+        /**
+         * Counts the values of this container that are in other, which must not be an
+         * ArrayContainer.
+         *
+         * @param other the other container
+         * @return the number of values in both this and other
+         */
+        int countIn(Container other) {
+            int count = 0;
+            if (other instanceof BitmapContainer bitmap) {
+                for (int i = 0; i < this.numRuns; i++) {
+                    count += bitmap.rangeCardinality(this.starts[i], this.ends[i]);
+                }
+                return count;
+            }
+
+            // Both are runs: sum the overlaps of the two sorted interval lists
+            RunContainer runs = (RunContainer) other;
+            int i = 0;
+            int j = 0;
+            while (i < this.numRuns && j < runs.numRuns) {
+                int start = Math.max(this.starts[i], runs.starts[j]);
+                int end = Math.min(this.ends[i], runs.ends[j]);
+                if (start <= end) {
+                    count += end - start + 1;
+                }
+                if (this.ends[i] < runs.ends[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return count;
+        }
+    }
+}
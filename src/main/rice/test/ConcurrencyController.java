@@ -0,0 +1,339 @@
+package main.rice.test;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * A limit on the number of processes that may run at once, which adapts itself between
+ * fixed bounds to the host it is running on. Completions are counted in windows; at the
+ * end of each window the limit is adjusted AIMD-style (as in TCP congestion control):
+ * <ul>
+ *     <li>if the host is overloaded (its load average per core is too high, or its
+ *     available memory too low) or throughput fell noticeably since the last window,
+ *     the limit is cut multiplicatively</li>
+ *     <li>otherwise it is raised: doubled until the first cut ("slow start"), so that a
+ *     large bound is reached quickly, and by one thereafter</li>
+ * </ul>
+ * A controller whose bounds are equal never adjusts, and so acts as a plain semaphore.
+ */
+public class ConcurrencyController {
+
+    /**
+     * The readings of the host that the controller adapts to.
+     */
+    public interface Host {
+
+        /**
+         * Returns the current time, for measuring throughput.
+         *
+         * @return the time in nanoseconds, relative to an arbitrary origin
+         */
+        long nanoTime();
+
+        /**
+         * Returns the recent load average of the host, divided by its number of cores.
+         *
+         * @return the load per core, or a negative number if it is unavailable
+         */
+        double loadPerCore();
+
+        /**
+         * Returns the fraction of the host's physical memory that is available to new
+         * processes, including memory that could be reclaimed from caches.
+         *
+         * @return the available fraction, or a negative number if it is unavailable
+         */
+        double freeMemoryFraction();
+    }
+
+    /**
+     * The minimum length of a window, in nanoseconds.
+     */
+    private static final long WINDOW_NANOS = 500_000_000L;
+
+    /**
+     * The load per core above which the host is considered overloaded.
+     */
+    private static final double MAX_LOAD_PER_CORE = 2.0;
+
+    /**
+     * The fraction of available memory below which the host is considered overloaded.
+     */
+    private static final double MIN_FREE_MEMORY = 0.1;
+
+    /**
+     * The fraction of the last window's throughput below which throughput is considered
+     * to have fallen.
+     */
+    private static final double THROUGHPUT_TOLERANCE = 0.9;
+
+    /**
+     * The factor by which the limit is cut.
+     */
+    private static final double DECREASE_FACTOR = 0.7;
+
+    /**
+     * The lowest the limit may go.
+     */
+    private final int min;
+
+    /**
+     * The highest the limit may go.
+     */
+    private final int max;
+
+    /**
+     * The host whose readings are used.
+     */
+    private final Host host;
+
+    /**
+     * The current limit.
+     */
+    private int limit;
+
+    /**
+     * The number of processes currently running.
+     */
+    private int running;
+
+    /**
+     * Whether the limit has not yet been cut, so is still being doubled.
+     */
+    private boolean slowStart = true;
+
+    /**
+     * The time at which the current window started.
+     */
+    private long windowStart;
+
+    /**
+     * The number of processes completed in the current window.
+     */
+    private int windowCompleted;
+
+    /**
+     * The throughput of the last window, in completions per second, or -1 if there is no
+     * window to compare against (at the start, or just after a cut).
+     */
+    private double lastThroughput = -1;
+
+    /**
+     * Constructor for a ConcurrencyController which adapts to the machine it runs on.
+     *
+     * @param min the lowest the limit may go
+     * @param max the highest the limit may go
+     * @throws IllegalArgumentException if min is less than 1 or greater than max
+     */
+    public ConcurrencyController(int min, int max) {
+        this(min, max, new SystemHost());
+    }
+
+    /**
+     * Constructor for a ConcurrencyController which adapts to the given host. The limit
+     * starts at min.
+     *
+     * @param min  the lowest the limit may go
+     * @param max  the highest the limit may go
+     * @param host the host whose readings are used
+     * @throws IllegalArgumentException if min is less than 1 or greater than max
+     */
+    public ConcurrencyController(int min, int max, Host host) {
+        if (min < 1 || min > max) {
+            throw new IllegalArgumentException("invalid concurrency bounds " + min + ".."
+                    + max);
+        }
+        this.min = min;
+        this.max = max;
+        this.host = host;
+        this.limit = min;
+        this.windowStart = host.nanoTime();
+    }
+
+    /**
+     * Returns the highest the limit may go.
+     *
+     * @return the upper bound on the limit
+     */
+    public int getMax() {
+        return this.max;
+    }
+
+    /**
+     * Returns the current limit on the number of processes.
+     *
+     * @return the current limit
+     */
+    public synchronized int getLimit() {
+        return this.limit;
+    }
+
+    /**
+     * Waits until fewer processes than the current limit are running, then claims a
+     * slot for one more.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (this.running >= this.limit) {
+            this.wait();
+        }
+        this.running++;
+    }
+
+    /**
+     * Releases a slot claimed by acquire() once its process has completed, adjusting the
+     * limit if a window has ended.
+     */
+    public synchronized void release() {
+        this.running--;
+        this.windowCompleted++;
+        if (this.min < this.max) {
+            this.maybeAdjust();
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * Helper function which adjusts the limit if the current window has ended. A window
+     * ends once it has lasted long enough and enough processes (one per slot) have
+     * completed in it for its throughput to be meaningful.
+     */
+    private void maybeAdjust() {
+        long now = this.host.nanoTime();
+        long elapsed = now - this.windowStart;
+        if (elapsed < WINDOW_NANOS || this.windowCompleted < this.limit) {
+            return;
+        }
+        double throughput = this.windowCompleted * 1e9 / elapsed;
+
+        double load = this.host.loadPerCore();
+        double freeMemory = this.host.freeMemoryFraction();
+        boolean overloaded = load > MAX_LOAD_PER_CORE
+                || (freeMemory >= 0 && freeMemory < MIN_FREE_MEMORY);
+        boolean slower = this.lastThroughput >= 0
+                && throughput < this.lastThroughput * THROUGHPUT_TOLERANCE;
+        if (overloaded || slower) {
+            // A cut lowers throughput by itself, so the window after it must not be
+            // compared to the one before it
+            this.limit = Math.max(this.min, (int) (this.limit * DECREASE_FACTOR));
+            this.slowStart = false;
+            this.lastThroughput = -1;
+        } else {
+            this.limit = Math.min(this.max, this.slowStart ? this.limit * 2 : this.limit + 1);
+            this.lastThroughput = throughput;
+        }
+
+        this.windowStart = now;
+        this.windowCompleted = 0;
+    }
+
+    /**
+     * The readings of the machine this JVM is running on.
+     */
+    public static class SystemHost implements Host {
+
+        /**
+         * The operating system's management interface.
+         */
+        private final OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+
+        /**
+         * The file from which the kernel's estimate of available memory is read (on
+         * Linux, /proc/meminfo).
+         */
+        private final Path meminfo;
+
+        /**
+         * Constructor for a SystemHost which reads available memory from /proc/meminfo,
+         * where it exists.
+         */
+        public SystemHost() {
+            this(Path.of("/proc/meminfo"));
+        }
+
+        /**
+         * Constructor for a SystemHost which reads available memory from the given file,
+         * in the format of /proc/meminfo.
+         *
+         * @param meminfo the file to read
+         */
+        public SystemHost(Path meminfo) {
+            this.meminfo = meminfo;
+        }
+
+        /**
+         * Returns the current time, from System.nanoTime().
+         *
+         * @return the time in nanoseconds
+         */
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        /**
+         * Returns the system load average divided by the number of available cores.
+         *
+         * @return the load per core, or -1 if the load average is unavailable
+         */
+        @Override
+        public double loadPerCore() {
+            double load = this.os.getSystemLoadAverage();
+            return (load < 0) ? -1 : load / this.os.getAvailableProcessors();
+        }
+
+        /**
+         * Returns the fraction of physical memory that is available: MemAvailable over
+         * MemTotal from the meminfo file where it exists, since the free memory the
+         * platform reports (MemFree on Linux) excludes the page cache, and so stays low
+         * on a busy host however much memory could be reclaimed; otherwise the free
+         * memory the platform reports, if any.
+         *
+         * @return the available fraction, or -1 if it is unavailable
+         */
+        @Override
+        public double freeMemoryFraction() {
+            double available = readMeminfo();
+            if (available >= 0) {
+                return available;
+            }
+            if (this.os instanceof com.sun.management.OperatingSystemMXBean) {
+                var sunOs = (com.sun.management.OperatingSystemMXBean) this.os;
+                long total = sunOs.getTotalMemorySize();
+                return (total <= 0) ? -1 : (double) sunOs.getFreeMemorySize() / total;
+            }
+            return -1;
+        }
+
+        /**
+         * Helper function which reads MemAvailable over MemTotal from the meminfo file.
+         *
+         * @return the available fraction, or -1 if the file cannot be read or lacks
+         *         either field (as before Linux 3.14)
+         */
+        private double readMeminfo() {
+            long total = -1;
+            long available = -1;
+            try {
+                for (String line : Files.readAllLines(this.meminfo)) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (fields.length < 2) {
+                        continue;
+                    }
+                    if (fields[0].equals("MemTotal:")) {
+                        total = Long.parseLong(fields[1]);
+                    } else if (fields[0].equals("MemAvailable:")) {
+                        available = Long.parseLong(fields[1]);
+                    }
+                }
+            } catch (IOException | NumberFormatException e) {
+                return -1;
+            }
+            return (total <= 0 || available < 0) ? -1 : (double) available / total;
+        }
+    }
+}
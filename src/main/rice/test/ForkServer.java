@@ -0,0 +1,222 @@
+package main.rice.test;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A pre-warmed Python process which launches Python scripts by forking, rather than by
+ * starting a new interpreter for each one. The server starts an interpreter once and
+ * imports the modules the test harness uses; each launch then forks a child from it,
+ * which shares the server's memory copy-on-write and so skips interpreter startup
+ * entirely. A child runs its script exactly as "python3 script args..." would: as
+ * __main__, with the given args in sys.argv, the script's directory first on sys.path
+ * and the given input on standard input. Its standard output is sent back over the
+ * connection that requested it.
+ * <p>
+ * The server listens on a Unix domain socket, and so needs a platform with both fork()
+ * and Unix domain sockets; start() throws an IOException where either is missing, so
+ * that callers can fall back to starting an interpreter per script. Launches may be
+ * requested concurrently, from any number of threads.
+ */
+public class ForkServer implements Closeable {
+
+    /**
+     * The Python source of the server, which is given the path of the socket to listen
+     * on as its only argument. It reports that it is ready by printing a line, and exits
+     * once its standard input is closed, so it never outlives the JVM that started it.
+     * Each child runs its script with ResourceLimits.RUNNER, and is killed by SIGALRM a
+     * second after its limit on wall-clock time, if any, in case the caller that stops
+     * reading it at the limit cannot kill it first.
+     */
+    private static final String SERVER = ResourceLimits.RUNNER + """
+            import select, socket
+            import ast, struct
+
+            def _run_child(conn, listener):
+                listener.close()
+                signal.signal(signal.SIGCHLD, signal.SIG_DFL)
+                with conn.makefile("r", encoding="utf-8") as requests:
+                    request = json.loads(requests.readline())
+                if request["wall"] > 0:
+                    signal.alarm(request["wall"] + 1)
+                os.dup2(conn.fileno(), 1)
+                conn.close()
+                _feat_run(request["argv"], request["limits"], io.StringIO(request["input"]))
+
+            def _serve(path):
+                signal.signal(signal.SIGCHLD, signal.SIG_IGN)
+                listener = socket.socket(socket.AF_UNIX, socket.SOCK_STREAM)
+                listener.bind(path)
+                listener.listen(128)
+                print("ready", flush=True)
+                while True:
+                    readable, _, _ = select.select([listener, sys.stdin], [], [])
+                    if sys.stdin in readable:
+                        return
+                    conn, _ = listener.accept()
+                    if os.fork() == 0:
+                        _run_child(conn, listener)
+                    conn.close()
+
+            _serve(sys.argv[1])
+            """;
+
+    /**
+     * The server process.
+     */
+    private final Process process;
+
+    /**
+     * The directory holding the server's socket.
+     */
+    private final Path socketDir;
+
+    /**
+     * The address of the server's socket.
+     */
+    private final UnixDomainSocketAddress address;
+
+    /**
+     * Constructor for a ForkServer, which takes ownership of a server that is ready to
+     * accept launches.
+     *
+     * @param process   the server process
+     * @param socketDir the directory holding the server's socket
+     */
+    private ForkServer(Process process, Path socketDir) {
+        this.process = process;
+        this.socketDir = socketDir;
+        this.address = UnixDomainSocketAddress.of(socketDir.resolve("server.sock"));
+    }
+
+    /**
+     * Starts a server, waiting until it is ready to accept launches.
+     *
+     * @param environment variables to add to the server's environment, which all of the
+     *                    scripts it launches inherit
+     * @return the running server
+     * @throws IOException if the server cannot be started, e.g. because the platform
+     *                     lacks fork() or Unix domain sockets
+     * @throws InterruptedException if the process is interrupted
+     */
+    public static ForkServer start(Map<String, String> environment)
+            throws IOException, InterruptedException {
+        Path socketDir = Files.createTempDirectory("forkserver");
+        Path socket = socketDir.resolve("server.sock");
+        Process process = null;
+        try {
+            ProcessBuilder pb = new ProcessBuilder("python3", "-c", SERVER, socket.toString());
+            pb.environment().putAll(environment);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            process = pb.start();
+
+            // The server exits without reporting that it is ready if it cannot serve
+            var reader = new BufferedReader(new InputStreamReader(process.getInputStream(),
+                    StandardCharsets.UTF_8));
+            if (!"ready".equals(reader.readLine())) {
+                throw new IOException("fork server exited with status " + process.waitFor());
+            }
+            return new ForkServer(process, socketDir);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            if (process != null) {
+                process.destroyForcibly();
+            }
+            Files.deleteIfExists(socket);
+            Files.deleteIfExists(socketDir);
+            throw e;
+        }
+    }
+
+    /**
+     * Launches a Python script in a child forked from the server.
+     *
+     * @param args  the path of the script to run, followed by its command-line args
+     * @param input the text to give the script on its standard input
+     * @return a stream of the script's standard output, which ends when the script exits;
+     * closing it closes the connection to the script
+     * @throws IOException if the server cannot be reached, e.g. because it has been
+     *                     closed or has died
+     */
+    public InputStream launch(List<String> args, String input) throws IOException {
+        return this.launch(args, input, null);
+    }
+
+    /**
+     * Launches a Python script in a child forked from the server, with rlimits set on
+     * the child before it runs the script (see ResourceLimits).
+     *
+     * @param args   the path of the script to run, followed by its command-line args
+     * @param input  the text to give the script on its standard input
+     * @param limits the limits to set on the child, or null for none; the limits on
+     *               output and wall-clock time, if any, are left to the caller to
+     *               enforce
+     * @return a stream of the script's standard output, which ends when the script exits;
+     * closing it closes the connection to the script
+     * @throws IOException if the server cannot be reached, e.g. because it has been
+     *                     closed or has died
+     */
+    public InputStream launch(List<String> args, String input, ResourceLimits limits)
+            throws IOException {
+        SocketChannel channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        try {
+            channel.connect(this.address);
+            JSONObject rlimits = new JSONObject(limits == null ? "{}" : limits.toJson());
+            String request = new JSONObject().put("argv", new JSONArray(args))
+                    .put("input", input).put("limits", rlimits)
+                    .put("wall", limits == null ? 0 : limits.getWallSeconds()) + "\n";
+            OutputStream out = Channels.newOutputStream(channel);
+            out.write(request.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            return Channels.newInputStream(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether the server is still running.
+     *
+     * @return true if the server process is alive, and false otherwise
+     */
+    public boolean isAlive() {
+        return this.process.isAlive();
+    }
+
+    /**
+     * Shuts the server down. Scripts that are still running are left to finish.
+     *
+     * @throws IOException if the server's socket cannot be removed
+     */
+    @Override
+    public void close() throws IOException {
+        // Closing its standard input tells the server to exit
+        try {
+            this.process.getOutputStream().close();
+        } catch (IOException e) {
+            // The server has already exited
+        }
+        try {
+            if (!this.process.waitFor(1, TimeUnit.SECONDS)) {
+                this.process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            this.process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        Files.deleteIfExists(this.socketDir.resolve("server.sock"));
+        Files.deleteIfExists(this.socketDir);
+    }
+}
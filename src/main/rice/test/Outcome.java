@@ -0,0 +1,54 @@
+package main.rice.test;
+
+/**
+ * The outcome of running a single test case on a single file. Every outcome but PASS
+ * means the test case caught the file; the others record how.
+ */
+public enum Outcome {
+
+    /**
+     * The file returned the expected result.
+     */
+    PASS,
+
+    /**
+     * The file returned a result other than the expected one.
+     */
+    FAIL,
+
+    /**
+     * The file did not return a result at all: it raised an exception, or its process
+     * produced no result for any other reason (e.g. it was killed).
+     */
+    CRASH,
+
+    /**
+     * The file's process used more CPU time than its limit allowed.
+     */
+    TIMEOUT,
+
+    /**
+     * The file's process tried to use more of some other resource (memory, file size,
+     * processes or output) than its limit allowed.
+     */
+    RESOURCE;
+
+    /**
+     * Classifies the result printed by the wrapper (the last line of its output).
+     *
+     * @param result the result of running a test case on a file
+     * @return the outcome the result represents
+     */
+    public static Outcome of(String result) {
+        if (result.equals("True")) {
+            return PASS;
+        } else if (result.equals("False")) {
+            return FAIL;
+        }
+        ResourceLimits.Violation violation = ResourceLimits.parseViolation(result);
+        if (violation == null) {
+            return CRASH;
+        }
+        return (violation == ResourceLimits.Violation.CPU) ? TIMEOUT : RESOURCE;
+    }
+}
@@ -0,0 +1,287 @@
+package main.rice.test;
+
+import java.nio.LongBuffer;
+
+/**
+ * A matrix recording how each test case (row) caught each file (column), packed into
+ * three bits per cell; whether a test case caught a file at all is recorded separately
+ * (e.g. by a BitMatrix), so only the catching outcomes need codes. A pair that exceeded
+ * a resource limit records which limit (see ResourceLimits.Violation), so the cell codes
+ * are:
+ * <ul>
+ *     <li>0: FAIL</li>
+ *     <li>1: CRASH</li>
+ *     <li>2: TIMEOUT, i.e. the CPU limit was exceeded</li>
+ *     <li>3: RESOURCE, exceeding a limit that was not recorded</li>
+ *     <li>4 to 7: RESOURCE, exceeding the MEMORY, FILE_SIZE, PROCESSES or OUTPUT limit</li>
+ * </ul>
+ * Code 0 is FAIL, the most common way to be caught, so a matrix in which nothing was
+ * caught any other way allocates no words at all. As in BitMatrix, each row occupies a
+ * whole number of 64-bit words, held in a LongBuffer which may be on the heap or a view
+ * of a memory-mapped file. Each word holds 21 cells in its low 63 bits, and its top bit
+ * is unused, so that no cell straddles two words.
+ */
+public class OutcomeMatrix {
+
+    /**
+     * The number of bits in each cell.
+     */
+    private static final int BITS_PER_CELL = 3;
+
+    /**
+     * The number of cells packed into each 64-bit word (rounded down, so the top bit is
+     * left unused).
+     */
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+
+    /**
+     * The mask selecting a single cell's code from the bottom of a word.
+     */
+    private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+
+    /**
+     * The code of a RESOURCE cell whose limit was not recorded.
+     */
+    private static final int UNKNOWN_RESOURCE = 3;
+
+    /**
+     * The code of the first violation after CPU (MEMORY); the others follow in the order
+     * of ResourceLimits.Violation.
+     */
+    private static final int FIRST_RESOURCE = 4;
+
+    /**
+     * The number of rows (test cases) in this matrix.
+     */
+    private final int numRows;
+
+    /**
+     * The number of columns (files) in this matrix.
+     */
+    private final int numCols;
+
+    /**
+     * The number of 64-bit words used to store each row.
+     */
+    private final int wordsPerRow;
+
+    /**
+     * The backing words, stored in row-major order, or null while every cell is FAIL.
+     */
+    private LongBuffer words;
+
+    /**
+     * Constructor for an OutcomeMatrix in which every cell is FAIL; words are allocated
+     * on the heap when the first cell is set to any other outcome.
+     *
+     * @param numRows the number of rows (test cases)
+     * @param numCols the number of columns (files)
+     * @throws IllegalArgumentException if the matrix would be too large to store
+     */
+    public OutcomeMatrix(int numRows, int numCols) {
+        checkedSize(numRows, numCols);
+        this.numRows = numRows;
+        this.numCols = numCols;
+        this.wordsPerRow = wordsFor(numCols);
+    }
+
+    /**
+     * Constructor for an OutcomeMatrix backed by an existing buffer (for example, a view
+     * of a memory-mapped file). The buffer is used as-is, starting from its index 0.
+     *
+     * @param numRows the number of rows (test cases)
+     * @param numCols the number of columns (files)
+     * @param words   the backing words, in row-major order
+     * @throws IllegalArgumentException if the buffer is too small to hold the matrix
+     */
+    public OutcomeMatrix(int numRows, int numCols, LongBuffer words) {
+        this(numRows, numCols);
+        if (words.capacity() < checkedSize(numRows, numCols)) {
+            throw new IllegalArgumentException("buffer too small for a " + numRows + "x"
+                    + numCols + " matrix");
+        }
+        this.words = words;
+    }
+
+    /**
+     * Computes the number of 64-bit words needed to store the given number of cells.
+     *
+     * @param numCells the number of cells
+     * @return the number of words needed to store numCells cells
+     */
+    public static int wordsFor(int numCells) {
+        return (int) (((long) numCells + CELLS_PER_WORD - 1) / CELLS_PER_WORD);
+    }
+
+    /**
+     * Helper function which computes the total number of words needed for a matrix,
+     * rejecting dimensions that cannot be stored.
+     *
+     * @param numRows the number of rows
+     * @param numCols the number of columns
+     * @return the total number of words
+     * @throws IllegalArgumentException if the dimensions are negative or too large
+     */
+    private static int checkedSize(int numRows, int numCols) {
+        if (numRows < 0 || numCols < 0) {
+            throw new IllegalArgumentException("dimensions must be non-negative");
+        }
+        long size = (long) numRows * wordsFor(numCols);
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("matrix too large: " + numRows + "x"
+                    + numCols);
+        }
+        return (int) size;
+    }
+
+    /**
+     * Returns the number of rows (test cases) in this matrix.
+     *
+     * @return the number of rows
+     */
+    public int getNumRows() {
+        return this.numRows;
+    }
+
+    /**
+     * Returns the number of columns (files) in this matrix.
+     *
+     * @return the number of columns
+     */
+    public int getNumCols() {
+        return this.numCols;
+    }
+
+    /**
+     * Returns the number of 64-bit words used to store each row.
+     *
+     * @return the number of words per row
+     */
+    public int getWordsPerRow() {
+        return this.wordsPerRow;
+    }
+
+    /**
+     * Returns whether any cell holds an outcome other than FAIL, i.e. whether any words
+     * have been allocated.
+     *
+     * @return true if any cell has been set to an outcome other than FAIL
+     */
+    public boolean hasWords() {
+        return this.words != null;
+    }
+
+    /**
+     * Returns a single 64-bit word of a row.
+     *
+     * @param row       the index of the row
+     * @param wordIndex the index of the word within the row
+     * @return the word, or 0 (every cell FAIL) if no words have been allocated
+     */
+    public long getWord(int row, int wordIndex) {
+        return (this.words == null) ? 0 : this.words.get(row * this.wordsPerRow + wordIndex);
+    }
+
+    /**
+     * Returns how the test case in the given row caught the file in the given column,
+     * assuming it did.
+     *
+     * @param row the index of the row (test case)
+     * @param col the index of the column (file)
+     * @return the outcome of the cell; never PASS
+     */
+    public Outcome get(int row, int col) {
+        int code = this.getCode(row, col);
+        return (code < UNKNOWN_RESOURCE) ? Outcome.values()[code + 1] : Outcome.RESOURCE;
+    }
+
+    /**
+     * Returns the limit, if any, that the process running the test case in the given row
+     * on the file in the given column exceeded.
+     *
+     * @param row the index of the row (test case)
+     * @param col the index of the column (file)
+     * @return the limit exceeded, or null if none was (or, for a RESOURCE cell set by
+     * set(), if it was not recorded)
+     */
+    public ResourceLimits.Violation getViolation(int row, int col) {
+        int code = this.getCode(row, col);
+        if (code == Outcome.TIMEOUT.ordinal() - 1) {
+            return ResourceLimits.Violation.CPU;
+        }
+        if (code < FIRST_RESOURCE) {
+            return null;
+        }
+        return ResourceLimits.Violation.values()[code - FIRST_RESOURCE + 1];
+    }
+
+    /**
+     * Helper function which extracts the code of a single cell.
+     *
+     * @param row the index of the row
+     * @param col the index of the column
+     * @return the code of the cell
+     */
+    private int getCode(int row, int col) {
+        long word = this.getWord(row, col / CELLS_PER_WORD);
+        return (int) ((word >>> ((col % CELLS_PER_WORD) * BITS_PER_CELL)) & CELL_MASK);
+    }
+
+    /**
+     * Records how the test case in the given row caught the file in the given column.
+     * May be called from several threads at once, e.g. by files tested concurrently;
+     * cells should be read only once every write has finished. A pair that exceeded a
+     * limit should be recorded with setViolation() instead, so that the limit is kept; a
+     * TIMEOUT is recorded as exceeding the CPU limit, and a RESOURCE as exceeding a limit
+     * that is not known.
+     *
+     * @param row     the index of the row (test case)
+     * @param col     the index of the column (file)
+     * @param outcome how the test case caught the file
+     * @throws IllegalArgumentException if outcome is PASS
+     */
+    public void set(int row, int col, Outcome outcome) {
+        if (outcome == Outcome.PASS) {
+            throw new IllegalArgumentException("a cell records how a file was caught");
+        }
+        this.setCode(row, col, outcome.ordinal() - 1);
+    }
+
+    /**
+     * Records that the process running the test case in the given row on the file in the
+     * given column exceeded a limit, and so caught it. May be called concurrently, as
+     * set() may.
+     *
+     * @param row       the index of the row (test case)
+     * @param col       the index of the column (file)
+     * @param violation the limit the process exceeded
+     */
+    public void setViolation(int row, int col, ResourceLimits.Violation violation) {
+        if (violation == ResourceLimits.Violation.CPU) {
+            this.set(row, col, Outcome.TIMEOUT);
+        } else {
+            this.setCode(row, col, FIRST_RESOURCE + violation.ordinal() - 1);
+        }
+    }
+
+    /**
+     * Helper function which stores the code of a single cell, allocating the words if
+     * this is the first cell with a code other than FAIL's.
+     *
+     * @param row  the index of the row
+     * @param col  the index of the column
+     * @param code the code of the cell
+     */
+    private synchronized void setCode(int row, int col, long code) {
+        if (this.words == null) {
+            if (code == 0) {
+                return;
+            }
+            this.words = LongBuffer.allocate(checkedSize(this.numRows, this.numCols));
+        }
+        int index = row * this.wordsPerRow + col / CELLS_PER_WORD;
+        int shift = (col % CELLS_PER_WORD) * BITS_PER_CELL;
+        this.words.put(index, (this.words.get(index) & ~(CELL_MASK << shift))
+                | (code << shift));
+    }
+}
@@ -0,0 +1,262 @@
+package main.rice.test;
+
+import org.json.JSONObject;
+
+/**
+ * Limits on the resources that a single Python process may use while running a test
+ * case on an implementation, so that one implementation that allocates without bound,
+ * spins forever or floods its output cannot degrade every other process on the host. A
+ * limit of 0 means that resource is unlimited.
+ * <p>
+ * The limits on memory, CPU time, file size and processes are enforced by the kernel,
+ * as rlimits that the launcher in LAUNCHER (or a fork server's child; see ForkServer)
+ * sets before running its script. The launcher reports a process that exceeds one with
+ * a final line of output made of MARKER followed by the name of the Violation, which
+ * parseViolation() recognizes. The limits on output and wall-clock time are enforced by
+ * the reader of the output, which stops reading (and kills the process) once either is
+ * exceeded; a process that runs out of wall-clock time, e.g. because it is blocked
+ * rather than computing, is reported as exceeding its CPU time. Setting rlimits needs a
+ * POSIX platform.
+ */
+public class ResourceLimits {
+
+    /**
+     * The kinds of limits a process can exceed.
+     */
+    public enum Violation {
+
+        /**
+         * The process used more CPU time than allowed.
+         */
+        CPU,
+
+        /**
+         * The process tried to use more memory (address space) than allowed.
+         */
+        MEMORY,
+
+        /**
+         * The process tried to write a file larger than allowed.
+         */
+        FILE_SIZE,
+
+        /**
+         * The process tried to start a process beyond the limit on processes.
+         */
+        PROCESSES,
+
+        /**
+         * The process wrote more output than allowed.
+         */
+        OUTPUT
+    }
+
+    /**
+     * The prefix of the line with which a process reports that it exceeded a limit;
+     * chosen so that no script is likely to print it by accident.
+     */
+    public static final String MARKER = "__feat_limit_exceeded__ ";
+
+    /**
+     * The Python source of the function _feat_run(argv, limits, stdin), which sets the
+     * given rlimits (a dict from names in the resource module to values) and then runs
+     * the script argv[0] exactly as "python3 script args..." would: as __main__, with
+     * argv as sys.argv, the script's directory first on sys.path and stdin as its
+     * standard input. It never returns, and reports any limit the script exceeds.
+     * <p>
+     * The soft limit on CPU time raises SIGXCPU, which is caught and reported; the hard
+     * limit, a second later, kills a script stuck where the handler cannot run. A limit
+     * above the current hard limit (which only a privileged process could raise) is
+     * lowered to it.
+     */
+    public static final String RUNNER = """
+            import errno, importlib, io, json, os, resource, runpy, signal, sys, traceback
+
+            def _feat_exceeded(violation):
+                try:
+                    sys.stdout.write("\\n" + "%s" + violation + "\\n")
+                    sys.stdout.flush()
+                finally:
+                    os._exit(1)
+
+            def _feat_run(argv, limits, stdin):
+                for name, value in limits.items():
+                    which = getattr(resource, name)
+                    hard = value + 1 if name == "RLIMIT_CPU" else value
+                    current = resource.getrlimit(which)[1]
+                    if current != resource.RLIM_INFINITY:
+                        value, hard = min(value, current), min(hard, current)
+                    resource.setrlimit(which, (value, hard))
+                signal.signal(signal.SIGXCPU, lambda signum, frame: _feat_exceeded("CPU"))
+                sys.argv = argv
+                sys.path[0] = os.path.dirname(os.path.abspath(argv[0]))
+                sys.stdin = stdin
+                importlib.invalidate_caches()
+                try:
+                    runpy.run_path(argv[0], run_name="__main__")
+                except SystemExit:
+                    pass
+                except MemoryError:
+                    _feat_exceeded("MEMORY")
+                except OSError as e:
+                    if e.errno == errno.EFBIG:
+                        _feat_exceeded("FILE_SIZE")
+                    if e.errno == errno.EAGAIN and "RLIMIT_NPROC" in limits:
+                        _feat_exceeded("PROCESSES")
+                    traceback.print_exc()
+                except BaseException:
+                    traceback.print_exc()
+                finally:
+                    try:
+                        sys.stdout.flush()
+                        sys.stderr.flush()
+                    finally:
+                        os._exit(0)
+            """.formatted(MARKER);
+
+    /**
+     * The Python source of the launcher, which is given the JSON encoding of the rlimits
+     * (see toJson()) followed by the script to run and its args.
+     */
+    public static final String LAUNCHER = RUNNER
+            + "\n_feat_run(sys.argv[2:], json.loads(sys.argv[1]), sys.stdin)\n";
+
+    /**
+     * The maximum address space, in bytes.
+     */
+    private final long memoryBytes;
+
+    /**
+     * The maximum CPU time, in seconds.
+     */
+    private final long cpuSeconds;
+
+    /**
+     * The maximum wall-clock time, in seconds.
+     */
+    private final long wallSeconds;
+
+    /**
+     * The maximum size of any file written, in bytes.
+     */
+    private final long fileSizeBytes;
+
+    /**
+     * The maximum number of processes. The kernel counts every process of the user
+     * running the tests, not just those of one test, so this must leave room for the
+     * processes running concurrently (and is not enforced at all for root).
+     */
+    private final long processes;
+
+    /**
+     * The maximum size of the output, in bytes.
+     */
+    private final long outputBytes;
+
+    /**
+     * Constructor for a ResourceLimits, which initializes all of the fields using the
+     * given inputs.
+     *
+     * @param memoryBytes   the maximum address space, in bytes, or 0 for no limit
+     * @param cpuSeconds    the maximum CPU time, in seconds, or 0 for no limit
+     * @param wallSeconds   the maximum wall-clock time, in seconds, or 0 for no limit
+     * @param fileSizeBytes the maximum size of any file written, in bytes, or 0 for no
+     *                      limit
+     * @param processes     the maximum number of processes of the user, or 0 for no limit
+     * @param outputBytes   the maximum size of the output, in bytes, or 0 for no limit
+     * @throws IllegalArgumentException if any limit is negative
+     */
+    public ResourceLimits(long memoryBytes, long cpuSeconds, long wallSeconds,
+                          long fileSizeBytes, long processes, long outputBytes) {
+        if (memoryBytes < 0 || cpuSeconds < 0 || wallSeconds < 0 || fileSizeBytes < 0
+                || processes < 0 || outputBytes < 0) {
+            throw new IllegalArgumentException("limits must not be negative");
+        }
+        this.memoryBytes = memoryBytes;
+        this.cpuSeconds = cpuSeconds;
+        this.wallSeconds = wallSeconds;
+        this.fileSizeBytes = fileSizeBytes;
+        this.processes = processes;
+        this.outputBytes = outputBytes;
+    }
+
+    /**
+     * Returns whether any rlimit is set, in which case scripts must be run through the
+     * launcher (or a fork server) rather than directly.
+     *
+     * @return true if any limit other than the limits on output and wall-clock time is
+     * set, and false otherwise
+     */
+    public boolean hasRlimits() {
+        return this.memoryBytes > 0 || this.cpuSeconds > 0 || this.fileSizeBytes > 0
+                || this.processes > 0;
+    }
+
+    /**
+     * Returns the maximum size of the output.
+     *
+     * @return the maximum size of the output, in bytes, or 0 if there is no limit
+     */
+    public long getOutputBytes() {
+        return this.outputBytes;
+    }
+
+    /**
+     * Returns the maximum wall-clock time.
+     *
+     * @return the maximum wall-clock time, in seconds, or 0 if there is no limit
+     */
+    public long getWallSeconds() {
+        return this.wallSeconds;
+    }
+
+    /**
+     * Encodes the rlimits as a JSON object mapping the names of limits in Python's
+     * resource module to their values, omitting those that are not set.
+     *
+     * @return the JSON encoding of the rlimits
+     */
+    public String toJson() {
+        JSONObject json = new JSONObject();
+        if (this.memoryBytes > 0) {
+            json.put("RLIMIT_AS", this.memoryBytes);
+        }
+        if (this.cpuSeconds > 0) {
+            json.put("RLIMIT_CPU", this.cpuSeconds);
+        }
+        if (this.fileSizeBytes > 0) {
+            json.put("RLIMIT_FSIZE", this.fileSizeBytes);
+        }
+        if (this.processes > 0) {
+            json.put("RLIMIT_NPROC", this.processes);
+        }
+        return json.toString();
+    }
+
+    /**
+     * Builds the line with which a process reports that it exceeded a limit.
+     *
+     * @param violation the limit the process exceeded
+     * @return the report of the violation, as parseViolation() recognizes it
+     */
+    public static String report(Violation violation) {
+        return MARKER + violation.name();
+    }
+
+    /**
+     * Recognizes the line with which a process reports that it exceeded a limit.
+     *
+     * @param line the last line of a process's output
+     * @return the limit the process exceeded, or null if line does not report one
+     */
+    public static Violation parseViolation(String line) {
+        if (!line.startsWith(MARKER)) {
+            return null;
+        }
+        try {
+            return Violation.valueOf(line.substring(MARKER.length()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
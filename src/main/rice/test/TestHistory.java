@@ -0,0 +1,333 @@
+package main.rice.test;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A record, kept across runs, of how often each test case has caught incorrect
+ * implementations of each function. Tester uses it to run the cases that have caught the
+ * most files in earlier runs first, so that early feedback (and early stopping) find
+ * bugs sooner. Cases are identified by the function under test and their arguments, so
+ * one history may be shared by several configs.
+ * <p>
+ * To keep the file compact, functions and cases are stored under fixed-width hashes of
+ * their names and arguments rather than the arguments themselves, and each function
+ * counts the runs saved for it: a case that has not been run in the last MAX_IDLE_RUNS
+ * of them (e.g. a random case that was never generated again) is dropped.
+ * <p>
+ * Several runs (e.g. the jobs of a batch, or of separate processes) may share one file:
+ * save() locks it, and adds the outcomes recorded since this history was loaded or last
+ * saved to whatever the file holds by then, so no run's outcomes are lost.
+ * <p>
+ * The file format (all values big-endian) is:
+ * <pre>
+ *   int    magic ("FETH")
+ *   int    format version
+ *   int    number of functions
+ *   ...    each function: the hash of its name as a long, the number of runs saved for
+ *          it and the number of its cases, as ints, then each case: the hash of its
+ *          arguments as a long, then the number of files it was run on, the number of
+ *          those it caught and the run in which it was last run, as ints
+ * </pre>
+ */
+public class TestHistory {
+
+    /**
+     * The magic number at the start of every history file ("FETH" in ASCII).
+     */
+    private static final int MAGIC = 0x46455448;
+
+    /**
+     * The current version of the file format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * The number of runs of a function after which a case that has not been run in any
+     * of them is dropped from its history.
+     */
+    static final int MAX_IDLE_RUNS = 10;
+
+    /**
+     * Held while saving, so that two histories in this process never lock the same file
+     * at once (file locks are held on behalf of the whole process).
+     */
+    private static final Object SAVE_LOCK = new Object();
+
+    /**
+     * The history of each function, by the hash of its name. Each case's entry holds the
+     * number of files it was run on, the number of those it caught and the run in which
+     * it was last run, in that order.
+     */
+    private final Map<Long, FunctionHistory> functions = new HashMap<>();
+
+    /**
+     * The outcomes recorded since this history was loaded or last saved, by the hash of
+     * the function's name and then of the case's arguments, which save() adds to the
+     * file. Each entry holds the number of files the case was run on and the number of
+     * those it caught.
+     */
+    private final Map<Long, Map<Long, int[]>> unsaved = new HashMap<>();
+
+    /**
+     * The history of one function.
+     */
+    private static class FunctionHistory {
+
+        /**
+         * The number of runs saved for the function.
+         */
+        private int runs;
+
+        /**
+         * The entry of each case, by the hash of its arguments.
+         */
+        private final Map<Long, int[]> cases = new HashMap<>();
+    }
+
+    /**
+     * Loads the history stored in the file at path.
+     *
+     * @param path the path of the file to read
+     * @return the history stored in the file, or an empty history if there is no file
+     * @throws IOException if the file cannot be read or is not a valid history file
+     */
+    public static TestHistory load(String path) throws IOException {
+        TestHistory history = new TestHistory();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(Path.of(path))))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a history file: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported history file version " + version);
+            }
+            int numFunctions = in.readInt();
+            if (numFunctions < 0) {
+                throw new IOException("corrupt history file: " + path);
+            }
+            for (int i = 0; i < numFunctions; i++) {
+                FunctionHistory function = new FunctionHistory();
+                history.functions.put(in.readLong(), function);
+                function.runs = in.readInt();
+                int numCases = in.readInt();
+                if (function.runs < 0 || numCases < 0) {
+                    throw new IOException("corrupt history file: " + path);
+                }
+                for (int j = 0; j < numCases; j++) {
+                    long caseHash = in.readLong();
+                    int trials = in.readInt();
+                    int catches = in.readInt();
+                    int lastRun = in.readInt();
+                    if (trials < 0 || catches < 0 || catches > trials || lastRun < 0
+                            || lastRun > function.runs) {
+                        throw new IOException("corrupt history file: " + path);
+                    }
+                    function.cases.put(caseHash, new int[]{trials, catches, lastRun});
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // Nothing has been recorded yet
+        } catch (EOFException e) {
+            throw new IOException("corrupt history file: " + path);
+        }
+        return history;
+    }
+
+    /**
+     * Adds the outcomes recorded since this history was loaded or last saved to the
+     * history stored in the file at path (creating it if it does not exist), which then
+     * becomes this history. Each function with new outcomes counts one more run, and
+     * drops the cases that have not been run in its last MAX_IDLE_RUNS runs.
+     * <p>
+     * The file is locked while it is read and written (through a lock file beside it,
+     * with the suffix ".lock"), and is written to a temporary file first, so an
+     * interrupted save never leaves a partially-written history behind.
+     *
+     * @param path the path of the file to update
+     * @throws IOException if the file cannot be read or written, or is not a valid
+     *                     history file
+     */
+    public synchronized void save(String path) throws IOException {
+        Path target = Path.of(path).toAbsolutePath();
+        Path lockPath = target.resolveSibling(target.getFileName() + ".lock");
+        synchronized (SAVE_LOCK) {
+            try (FileChannel lockFile = FileChannel.open(lockPath, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = lockFile.lock();
+                try {
+                    TestHistory merged = load(path);
+                    for (Map.Entry<Long, Map<Long, int[]>> entry : this.unsaved.entrySet()) {
+                        merged.addRun(entry.getKey(), entry.getValue());
+                    }
+                    merged.write(target);
+                    this.functions.clear();
+                    this.functions.putAll(merged.functions);
+                    this.unsaved.clear();
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the outcome of running a test case in one run to its history.
+     *
+     * @param funcName the name of the function under test
+     * @param testCase the test case
+     * @param trials   the number of files the case was run on
+     * @param catches  the number of those files it caught
+     * @throws IllegalArgumentException if catches is negative or greater than trials
+     */
+    public synchronized void record(String funcName, TestCase testCase, int trials,
+                                    int catches) {
+        if (catches < 0 || catches > trials) {
+            throw new IllegalArgumentException("invalid outcome: " + catches + " of "
+                    + trials);
+        }
+        long funcHash = hash(funcName);
+        long caseHash = hash(testCase.toString());
+        add(this.functions.computeIfAbsent(funcHash, hash -> new FunctionHistory())
+                .cases.computeIfAbsent(caseHash, hash -> new int[3]), trials, catches);
+        add(this.unsaved.computeIfAbsent(funcHash, hash -> new HashMap<>())
+                .computeIfAbsent(caseHash, hash -> new int[2]), trials, catches);
+    }
+
+    /**
+     * Estimates the fraction of files the given test case will catch, from its history.
+     * The estimate is smoothed (as if every case had been run on two more files and
+     * caught one of them), so that a case with no history estimates 1/2: below cases
+     * that have reliably caught files, but above cases that have reliably not.
+     *
+     * @param funcName the name of the function under test
+     * @param testCase the test case
+     * @return the estimated fraction of files caught, strictly between 0 and 1
+     */
+    public synchronized double getYield(String funcName, TestCase testCase) {
+        FunctionHistory function = this.functions.get(hash(funcName));
+        int[] entry = (function == null) ? null
+                : function.cases.get(hash(testCase.toString()));
+        if (entry == null) {
+            return 0.5;
+        }
+        return (entry[1] + 1.0) / (entry[0] + 2.0);
+    }
+
+    /**
+     * Returns the number of test cases with a history.
+     *
+     * @return the number of entries in this history
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (FunctionHistory function : this.functions.values()) {
+            size += function.cases.size();
+        }
+        return size;
+    }
+
+    /**
+     * Helper function which adds one run of a function to this history.
+     *
+     * @param funcHash the hash of the function's name
+     * @param outcomes the outcome of each case run, by the hash of its arguments
+     */
+    private void addRun(long funcHash, Map<Long, int[]> outcomes) {
+        FunctionHistory function = this.functions.computeIfAbsent(funcHash,
+                hash -> new FunctionHistory());
+        function.runs++;
+        for (Map.Entry<Long, int[]> outcome : outcomes.entrySet()) {
+            int[] entry = function.cases.computeIfAbsent(outcome.getKey(),
+                    hash -> new int[3]);
+            add(entry, outcome.getValue()[0], outcome.getValue()[1]);
+            entry[2] = function.runs;
+        }
+        function.cases.values().removeIf(entry -> function.runs - entry[2] >= MAX_IDLE_RUNS);
+    }
+
+    /**
+     * Helper function which writes this history to the file at target, replacing it if
+     * it already exists.
+     *
+     * @param target the path of the file to write
+     * @throws IOException if the file cannot be written
+     */
+    private void write(Path target) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), "history", ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(this.functions.size());
+                for (Map.Entry<Long, FunctionHistory> function : this.functions.entrySet()) {
+                    out.writeLong(function.getKey());
+                    out.writeInt(function.getValue().runs);
+                    out.writeInt(function.getValue().cases.size());
+                    for (Map.Entry<Long, int[]> entry
+                            : function.getValue().cases.entrySet()) {
+                        out.writeLong(entry.getKey());
+                        out.writeInt(entry.getValue()[0]);
+                        out.writeInt(entry.getValue()[1]);
+                        out.writeInt(entry.getValue()[2]);
+                    }
+                }
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Helper function which adds an outcome to an entry, saturating rather than
+     * overflowing by scaling both counts so the rate is preserved.
+     *
+     * @param entry   the entry, starting with the number of files run on and caught
+     * @param trials  the number of files the case was run on
+     * @param catches the number of those files it caught
+     */
+    private static void add(int[] entry, int trials, int catches) {
+        while ((long) entry[0] + trials > Integer.MAX_VALUE) {
+            entry[0] /= 2;
+            entry[1] /= 2;
+            trials /= 2;
+            catches /= 2;
+        }
+        entry[0] += trials;
+        entry[1] += catches;
+    }
+
+    /**
+     * Helper function which computes the fixed-width hash under which a function or a
+     * test case is stored: the first 64 bits of the SHA-256 hash of its name or of its
+     * arguments.
+     *
+     * @param key the function's name or the test case's arguments
+     * @return the hash of key
+     */
+    private static long hash(String key) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256")
+                    .digest(key.getBytes(StandardCharsets.UTF_8))).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
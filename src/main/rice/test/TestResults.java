@@ -1,6 +1,9 @@
 package main.rice.test;
 
+import java.util.AbstractList;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -27,6 +30,32 @@ public class TestResults {
      */
     private final Set<Integer> wrongSet;
 
+    /**
+     * The bit-packed case-by-file matrix backing caseToFiles, or null if caseToFiles was
+     * supplied directly as a list of sets.
+     */
+    private final BitMatrix matrix;
+
+    /**
+     * The number of files that were tested, or -1 if it was not supplied and must be
+     * derived from caseToFiles and wrongSet.
+     */
+    private final int numFiles;
+
+    /**
+     * The time, in nanoseconds, that each test case in allCases took to run on the
+     * reference solution (-1 for a case whose runtime was not measured), or null if no
+     * runtimes were measured.
+     */
+    private long[] caseRuntimes;
+
+    /**
+     * How each test case caught each file it caught, including the limit exceeded by each
+     * pair whose process exceeded one, or null if every catch was a FAIL (e.g. because
+     * the outcomes were not recorded).
+     */
+    private OutcomeMatrix outcomes;
+
     /**
      * Constructor for a TestResults object; initializes all fields.
      *
@@ -37,9 +66,64 @@ public class TestResults {
      */
     public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
                        Set<Integer> wrongSet) {
+        this(allCases, caseToFiles, wrongSet, -1);
+    }
+
+    /**
+     * Constructor for a TestResults object for callers that know how many files were
+     * tested, including any trailing files that were never caught.
+     *
+     * @param allCases    all test cases that were executed
+     * @param caseToFiles a list where the i-th element is a set of integers representing
+     *                    the files that were caught by the i-th test case in allCases
+     * @param wrongSet    the set of all files that failed one or more tests in allCases
+     * @param numFiles    the number of files that were tested
+     */
+    public TestResults(List<TestCase> allCases, List<Set<Integer>> caseToFiles,
+                       Set<Integer> wrongSet, int numFiles) {
         this.allCases = allCases;
         this.caseToFiles = caseToFiles;
         this.wrongSet = wrongSet;
+        this.matrix = null;
+        this.numFiles = numFiles;
+    }
+
+    /**
+     * Constructor for a TestResults object backed by a bit-packed matrix, where row i
+     * holds the files caught by the i-th test case in allCases. caseToFiles is exposed as
+     * a list of read-only views of the rows, and wrongSet is the union of the rows.
+     *
+     * @param allCases all test cases that were executed
+     * @param matrix   the case-by-file matrix of results
+     */
+    public TestResults(List<TestCase> allCases, BitMatrix matrix) {
+        this(allCases, matrix, new BitFileSet(matrix.unionOfRows()));
+    }
+
+    /**
+     * Constructor for a TestResults object backed by a bit-packed matrix, for callers
+     * that already know the union of the rows (and so can avoid scanning the matrix).
+     *
+     * @param allCases all test cases that were executed
+     * @param matrix   the case-by-file matrix of results
+     * @param wrongSet the set of all files that failed one or more tests in allCases
+     */
+    public TestResults(List<TestCase> allCases, BitMatrix matrix, Set<Integer> wrongSet) {
+        this.allCases = allCases;
+        this.matrix = matrix;
+        this.caseToFiles = new AbstractList<>() {
+            @Override
+            public Set<Integer> get(int index) {
+                return matrix.rowView(index);
+            }
+
+            @Override
+            public int size() {
+                return matrix.getNumRows();
+            }
+        };
+        this.wrongSet = wrongSet;
+        this.numFiles = matrix.getNumCols();
     }
 
     /**
@@ -57,6 +141,15 @@ public class TestResults {
         return this.allCases.get(index);
     }
 
+    /**
+     * Returns all test cases that were executed, in order.
+     *
+     * @return all test cases that were executed
+     */
+    public List<TestCase> getAllCases() {
+        return this.allCases;
+    }
+
     /**
      * Returns the set of files that failed one or more test cases, where files are
      * represented by their indices.
@@ -76,4 +169,167 @@ public class TestResults {
     public List<Set<Integer>> getCaseToFiles() {
         return this.caseToFiles;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the bit-packed matrix backing these results, if there is one.
+     *
+     * @return the case-by-file matrix of results, or null if these results were
+     * constructed from a list of sets
+     */
+    public BitMatrix getMatrix() {
+        return this.matrix;
+    }
+
+    /**
+     * Returns the time that each test case took to run on the reference solution.
+     *
+     * @return an array where the i-th element is the runtime, in nanoseconds, of the
+     * i-th test case in allCases, or -1 if it was not measured; null if no runtimes were
+     * measured
+     */
+    public long[] getCaseRuntimes() {
+        return this.caseRuntimes;
+    }
+
+    /**
+     * Records the time that each test case took to run on the reference solution.
+     *
+     * @param caseRuntimes an array where the i-th element is the runtime, in
+     *                     nanoseconds, of the i-th test case in allCases, or -1 if it
+     *                     was not measured; or null
+     * @throws IllegalArgumentException if caseRuntimes has the wrong length
+     */
+    public void setCaseRuntimes(long[] caseRuntimes) {
+        if (caseRuntimes != null && caseRuntimes.length != this.allCases.size()) {
+            throw new IllegalArgumentException("expected " + this.allCases.size()
+                    + " runtimes but got " + caseRuntimes.length);
+        }
+        this.caseRuntimes = caseRuntimes;
+    }
+
+    /**
+     * Returns the limit, if any, that the process running a test case on a file exceeded,
+     * as recorded in the outcomes (see OutcomeMatrix.getViolation()).
+     *
+     * @param testIndex the index of the test case
+     * @param fileIndex the index of the file
+     * @return the limit the process exceeded, or null if it exceeded none
+     */
+    public ResourceLimits.Violation getViolation(int testIndex, int fileIndex) {
+        if (this.outcomes == null || !this.caseToFiles.get(testIndex).contains(fileIndex)) {
+            return null;
+        }
+        return this.outcomes.getViolation(testIndex, fileIndex);
+    }
+
+    /**
+     * Counts the (test case, file) pairs whose process exceeded each kind of limit.
+     *
+     * @return a map from each kind of limit to the number of pairs that exceeded it,
+     * omitting kinds that no pair exceeded
+     */
+    public Map<ResourceLimits.Violation, Integer> getViolationCounts() {
+        Map<ResourceLimits.Violation, Integer> counts =
+                new EnumMap<>(ResourceLimits.Violation.class);
+        if (this.outcomes == null) {
+            return counts;
+        }
+        for (int testIndex = 0; testIndex < this.caseToFiles.size(); testIndex++) {
+            for (int fileIndex : this.caseToFiles.get(testIndex)) {
+                ResourceLimits.Violation violation =
+                        this.outcomes.getViolation(testIndex, fileIndex);
+                if (violation != null) {
+                    counts.merge(violation, 1, Integer::sum);
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the outcome of running a test case on a file.
+     *
+     * @param testIndex the index of the test case
+     * @param fileIndex the index of the file
+     * @return PASS if the test case did not catch the file (or, when testing stopped
+     * early, was not run on it), and otherwise how it caught the file
+     */
+    public Outcome getOutcome(int testIndex, int fileIndex) {
+        if (!this.caseToFiles.get(testIndex).contains(fileIndex)) {
+            return Outcome.PASS;
+        }
+        return (this.outcomes == null) ? Outcome.FAIL : this.outcomes.get(testIndex, fileIndex);
+    }
+
+    /**
+     * Counts the (test case, file) pairs with each outcome.
+     *
+     * @return a map from every outcome to the number of pairs with that outcome, where
+     * PASS counts every pair that was not caught
+     */
+    public Map<Outcome, Long> getOutcomeCounts() {
+        Map<Outcome, Long> counts = new EnumMap<>(Outcome.class);
+        for (Outcome outcome : Outcome.values()) {
+            counts.put(outcome, 0L);
+        }
+        long caught = 0;
+        for (int testIndex = 0; testIndex < this.caseToFiles.size(); testIndex++) {
+            for (int fileIndex : this.caseToFiles.get(testIndex)) {
+                Outcome outcome = (this.outcomes == null)
+                        ? Outcome.FAIL : this.outcomes.get(testIndex, fileIndex);
+                counts.merge(outcome, 1L, Long::sum);
+                caught++;
+            }
+        }
+        counts.put(Outcome.PASS, (long) this.caseToFiles.size() * this.getNumFiles() - caught);
+        return counts;
+    }
+
+    /**
+     * Returns the matrix recording how each test case caught each file it caught.
+     *
+     * @return the outcomes of the caught pairs, or null if every catch was a FAIL
+     */
+    public OutcomeMatrix getOutcomes() {
+        return this.outcomes;
+    }
+
+    /**
+     * Records how each test case caught each file it caught.
+     *
+     * @param outcomes the outcomes of the caught pairs, with one row per test case; or
+     *                 null if every catch was a FAIL
+     * @throws IllegalArgumentException if outcomes has the wrong number of rows
+     */
+    public void setOutcomes(OutcomeMatrix outcomes) {
+        if (outcomes != null && outcomes.getNumRows() != this.allCases.size()) {
+            throw new IllegalArgumentException("expected " + this.allCases.size()
+                    + " rows of outcomes but got " + outcomes.getNumRows());
+        }
+        this.outcomes = outcomes;
+    }
+
+    /**
+     * Returns the number of files that were tested. For results that were constructed
+     * from a list of sets without a file count, files that were never caught are not
+     * recorded, so this is one more than the largest file index that appears in the
+     * results.
+     *
+     * @return the number of files that were tested
+     */
+    public int getNumFiles() {
+        if (this.numFiles >= 0) {
+            return this.numFiles;
+        }
+        int maxFile = -1;
+        for (int file : this.wrongSet) {
+            maxFile = Math.max(maxFile, file);
+        }
+        for (Set<Integer> files : this.caseToFiles) {
+            for (int file : files) {
+                maxFile = Math.max(maxFile, file);
+            }
+        }
+        return maxFile + 1;
+    }
+}
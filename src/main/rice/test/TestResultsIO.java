@@ -0,0 +1,239 @@
+package main.rice.test;
+
+import main.rice.obj.APyObj;
+import main.rice.obj.PyObjCodec;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stateless class for saving TestResults to disk and loading them back, so that the
+ * results of an expensive testing run can be reused (e.g. with a different cover
+ * strategy) without re-running every submission.
+ * <p>
+ * The file format (all values big-endian) is:
+ * <pre>
+ *   int    magic ("FEAT")
+ *   int    format version
+ *   int    number of test cases (rows)
+ *   int    number of files (columns)
+ *   long   byte offset of the matrix; always a multiple of 8
+ *   ...    the test-case table: for each case, its number of arguments followed by
+ *          each argument as encoded by PyObjCodec
+ *   ...    zero padding up to the matrix offset
+ *   long[] the case-by-file bit matrix in row-major order, as stored by BitMatrix
+ *   long[] the wrong set (the union of the rows of the matrix), as a single row
+ *   long[] (since version 2) the runtime of each test case on the reference solution,
+ *          in nanoseconds, or -1 if it was not measured (so for every case, if no
+ *          runtimes were)
+ *   long   (since version 3) 1 if the outcome matrix follows, or 0 if every catch was a
+ *          FAIL and it is omitted
+ *   long[] (since version 3) the case-by-file outcome matrix in row-major order, as
+ *          stored by OutcomeMatrix, which records the limit (if any) each pair
+ *          exceeded
+ * </pre>
+ * Because the matrix is stored exactly as BitMatrix lays it out in memory, loading maps
+ * it straight from the file instead of reading it, and the stored wrong set means the
+ * matrix never has to be scanned, so load time is dominated by the (comparatively tiny)
+ * test-case table.
+ */
+public class TestResultsIO {
+
+    /**
+     * The magic number at the start of every results file ("FEAT" in ASCII).
+     */
+    private static final int MAGIC = 0x46454154;
+
+    /**
+     * The current version of the file format.
+     */
+    private static final int VERSION = 3;
+
+    /**
+     * The size of the fixed header, in bytes.
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * Writes the given results to the file at path, replacing it if it already exists.
+     *
+     * @param results the results to be written
+     * @param path    the path of the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(TestResults results, String path) throws IOException {
+        List<Set<Integer>> caseToFiles = results.getCaseToFiles();
+        int numCases = caseToFiles.size();
+        int numFiles = results.getNumFiles();
+
+        // Encode the test-case table first, so that we know where the matrix begins
+        var tableBytes = new ByteArrayOutputStream();
+        var table = new DataOutputStream(tableBytes);
+        for (int i = 0; i < numCases; i++) {
+            List<APyObj<?>> args = results.getTestCase(i).getArgs();
+            table.writeInt(args.size());
+            for (APyObj<?> arg : args) {
+                PyObjCodec.write(table, arg);
+            }
+        }
+        table.flush();
+        long matrixOffset = align(HEADER_SIZE + tableBytes.size());
+
+        try (var out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(path)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(numCases);
+            out.writeInt(numFiles);
+            out.writeLong(matrixOffset);
+            tableBytes.writeTo(out);
+            for (long pad = HEADER_SIZE + tableBytes.size(); pad < matrixOffset; pad++) {
+                out.writeByte(0);
+            }
+
+            // Write the matrix one row at a time; copy words directly if the results
+            // are already bit-packed, otherwise pack each set
+            BitMatrix matrix = results.getMatrix();
+            int wordsPerRow = BitMatrix.wordsFor(numFiles);
+            long[] row = new long[wordsPerRow];
+            long[] union = new long[wordsPerRow];
+            for (int i = 0; i < numCases; i++) {
+                if (matrix != null) {
+                    for (int w = 0; w < wordsPerRow; w++) {
+                        row[w] = matrix.getWord(i, w);
+                    }
+                } else {
+                    Arrays.fill(row, 0L);
+                    for (int file : caseToFiles.get(i)) {
+                        row[file >>> 6] |= 1L << file;
+                    }
+                }
+                for (int w = 0; w < wordsPerRow; w++) {
+                    out.writeLong(row[w]);
+                    union[w] |= row[w];
+                }
+            }
+            for (long word : union) {
+                out.writeLong(word);
+            }
+
+            long[] runtimes = results.getCaseRuntimes();
+            for (int i = 0; i < numCases; i++) {
+                out.writeLong(runtimes == null ? -1 : runtimes[i]);
+            }
+
+            OutcomeMatrix outcomes = results.getOutcomes();
+            out.writeLong(outcomes == null ? 0 : 1);
+            if (outcomes != null) {
+                for (int i = 0; i < numCases; i++) {
+                    for (int w = 0; w < outcomes.getWordsPerRow(); w++) {
+                        out.writeLong(outcomes.getWord(i, w));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads results from the file at path. The matrix is memory-mapped rather than read
+     * onto the heap, so the returned results remain valid (and backed by the file) after
+     * this method returns.
+     *
+     * @param path the path of the file to read
+     * @return the results stored in the file
+     * @throws IOException if the file cannot be read or is not a valid results file
+     */
+    public static TestResults read(String path) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Path.of(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("results file too large to map: " + path);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("not a results file: " + path);
+            }
+            int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("unsupported results file version " + version);
+            }
+            int numCases = buffer.getInt();
+            int numFiles = buffer.getInt();
+            long matrixOffset = buffer.getLong();
+            int wordsPerRow = BitMatrix.wordsFor(numFiles);
+            long matrixBytes = ((long) numCases + 1) * wordsPerRow * Long.BYTES
+                    + (version >= 2 ? (long) numCases * Long.BYTES : 0)
+                    + (version >= 3 ? Long.BYTES : 0);
+            if (numCases < 0 || numFiles < 0 || matrixOffset % Long.BYTES != 0
+                    || matrixOffset + matrixBytes > buffer.capacity()) {
+                throw new IOException("corrupt results file header: " + path);
+            }
+
+            // Decode the test-case table
+            List<TestCase> allCases = new ArrayList<>(numCases);
+            for (int i = 0; i < numCases; i++) {
+                int numArgs = buffer.getInt();
+                if (numArgs < 0 || numArgs > buffer.remaining()) {
+                    throw new IOException("corrupt test case table: " + path);
+                }
+                List<APyObj<?>> args = new ArrayList<>(numArgs);
+                for (int j = 0; j < numArgs; j++) {
+                    args.add(PyObjCodec.read(buffer));
+                }
+                allCases.add(new TestCase(args));
+            }
+            if (buffer.position() > matrixOffset) {
+                throw new IOException("corrupt test case table: " + path);
+            }
+
+            // View the matrix and the wrong set (its final row) in place
+            LongBuffer words = buffer.position((int) matrixOffset).slice().asLongBuffer();
+            BitMatrix matrix = new BitMatrix(numCases, numFiles, words);
+            Set<Integer> wrongSet = new BitFileSet(words, numCases * wordsPerRow, wordsPerRow);
+            TestResults results = new TestResults(allCases, matrix, wrongSet);
+
+            // Read the runtimes, if they were stored and measured
+            if (version >= 2 && numCases > 0) {
+                long[] runtimes = new long[numCases];
+                words.position((numCases + 1) * wordsPerRow).get(runtimes);
+                if (Arrays.stream(runtimes).anyMatch(runtime -> runtime >= 0)) {
+                    results.setCaseRuntimes(runtimes);
+                }
+            }
+
+            // View the outcome matrix in place, if it was stored
+            if (version >= 3) {
+                int outcomesStart = (numCases + 1) * wordsPerRow + numCases;
+                if (words.get(outcomesStart) == 1) {
+                    LongBuffer outcomeWords = words.position(outcomesStart + 1).slice();
+                    results.setOutcomes(new OutcomeMatrix(numCases, numFiles, outcomeWords));
+                }
+            }
+            return results;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("corrupt results file: " + path);
+        }
+    }
+
+    /**
+     * Rounds the input up to the nearest multiple of 8.
+     *
+     * @param offset the offset to be aligned
+     * @return the smallest multiple of 8 that is at least offset
+     */
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+}
@@ -1,8 +1,20 @@
 package main.rice.test;
 
-import main.rice.obj.APyObj;
+import main.rice.obj.PyObjJson;
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
 
 /**
  * A class for running a test suite. Encapsulates the ability to run the test suite on a
@@ -34,6 +46,151 @@ public class Tester {
      */
     private final List<TestCase> tests;
 
+    /**
+     * The path of the file used to back the matrix of results, or null if the matrix
+     * should live on the heap.
+     */
+    private String matrixPath;
+
+    /**
+     * The time, in nanoseconds, that each test case took to run on the reference
+     * solution, as measured by computeExpectedResults(), or -1 for a case whose runtime
+     * was not reported (e.g. because the solution raised); null until then.
+     */
+    private long[] caseRuntimes;
+
+    /**
+     * The prefix of the line with which the solution's footer reports how long the call
+     * to the function under test took, in nanoseconds, just before printing its result.
+     */
+    private static final String RUNTIME_MARKER = "__feat_runtime_ns__ ";
+
+    /**
+     * The callback to which progress messages are reported while testing; by default,
+     * messages are discarded.
+     */
+    private Consumer<String> progress = message -> { };
+
+    /**
+     * The limit on the number of Python processes that may be alive at once; if it can
+     * never exceed 1 (the default), the files are tested one after another on the
+     * calling thread.
+     */
+    private ConcurrencyController processSlots = new ConcurrencyController(1, 1);
+
+    /**
+     * Whether to stop testing each file as soon as one test case catches it.
+     */
+    private boolean earlyStop;
+
+    /**
+     * The number of files each test case has caught so far in the current run, used to
+     * order the test cases when stopping early; null until runTests() is called.
+     */
+    private AtomicIntegerArray caseCatches;
+
+    /**
+     * The JSON encoding (see PyObjJson) of each test case's arguments, which is written to
+     * the standard input of every process that runs the case; null until first needed.
+     */
+    private String[] caseInputs;
+
+    /**
+     * Whether computeExpectedResults() has written the indexed results file (see
+     * outputExpectedResults()), which the wrapper then reads its one expected result
+     * from; otherwise the wrapper imports every result from an expected.py written
+     * beforehand.
+     */
+    private boolean expectedIndexed;
+
+    /**
+     * The directory in which each run's workspace is created, or null if runs work in
+     * the given solution file and implementation directory directly.
+     */
+    private Path workspaceParent;
+
+    /**
+     * The workspace of the current run, or null if there is none.
+     */
+    private Path workspace;
+
+    /**
+     * The directory in which Python caches the bytecode it compiles, or null to use (and
+     * afterwards delete) a __pycache__ directory alongside the sources.
+     */
+    private Path bytecodeCache;
+
+    /**
+     * The Python program which compiles the files named on its standard input, one per
+     * line, into the bytecode cache; checked-hash pycs are validated against a hash of
+     * their source on every import, rather than its modification time, so they are never
+     * stale. The paths are not passed as arguments, which would fail once there are
+     * enough of them to exceed the system's limit on the size of a command line.
+     */
+    private static final String PRECOMPILE = "import sys, py_compile\n"
+            + "for path in sys.stdin.read().splitlines():\n"
+            + "    py_compile.compile(path, invalidation_mode="
+            + "py_compile.PycInvalidationMode.CHECKED_HASH)\n";
+
+    /**
+     * Whether to launch Python scripts from a fork server (see setForkServer()).
+     */
+    private boolean forkServer;
+
+    /**
+     * The fork server launching this run's scripts, or null if each script starts an
+     * interpreter of its own.
+     */
+    private volatile ForkServer launcher;
+
+    /**
+     * The resources shared with other Testers (see setPool()), or null if there are none.
+     */
+    private TesterPool pool;
+
+    /**
+     * The limits on each process that runs a test case on an implementation, or null if
+     * there are none.
+     */
+    private ResourceLimits limits;
+
+    /**
+     * How each test case caught each file it caught in the current run, including the
+     * limit exceeded by each pair that exceeded one; null until runTests() is called.
+     */
+    private OutcomeMatrix outcomes;
+
+    /**
+     * The number of files each test case has been run on so far in the current run;
+     * null until runTests() is called.
+     */
+    private AtomicIntegerArray caseTrials;
+
+    /**
+     * The history used to order the test cases and updated with the results of each
+     * run, or null if none is kept.
+     */
+    private TestHistory history;
+
+    /**
+     * Whether the test cases are tried on each file in order of the files they have
+     * caught so far in this run (see priorityOrder()), which is only done when files are
+     * tested one at a time; otherwise they are tried in rank order alone.
+     */
+    private boolean orderByCatches;
+
+    /**
+     * The test case indices in order of their yield in the history (highest first, then
+     * by index), which breaks ties in the priority order; null until runTests() is
+     * called.
+     */
+    private int[] byRank;
+
+    /**
+     * The inverse of byRank: the rank of each test case.
+     */
+    private int[] rankOf;
+
     /**
      * Constructor for a Tester, which initializes all of the fields using the given
      * inputs.
@@ -53,10 +210,183 @@ public class Tester {
         this.tests = tests;
     }
 
+    /**
+     * Sets the path of a file used to back the case-by-file matrix of results produced by
+     * runTests(). The matrix is then memory-mapped rather than stored on the heap, so that
+     * very large runs do not need a heap proportional to the number of submissions. If
+     * the path is null (the default), the matrix is stored on the heap.
+     *
+     * @param matrixPath the path of the backing file, or null to use the heap
+     */
+    public void setMatrixPath(String matrixPath) {
+        this.matrixPath = matrixPath;
+    }
+
+    /**
+     * Sets the callback to which progress messages (e.g. "tested 3 of 40 files") are
+     * reported while running tests, so that callers such as GenerationServer can report
+     * on long runs as they happen.
+     *
+     * @param progress the callback to report progress to
+     */
+    public void setProgressListener(Consumer<String> progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Sets the maximum number of Python processes that runTests() may have alive at
+     * once. With more than one, each file is tested on its own (virtual, where the
+     * platform supports them) thread, and those threads share the given number of
+     * process slots; since the threads spend nearly all their time blocked on a process,
+     * there is no pool to tune beyond this one limit. The results are the same whatever
+     * the limit.
+     *
+     * @param maxProcesses the maximum number of live processes
+     * @throws IllegalArgumentException if maxProcesses is less than 1
+     */
+    public void setMaxProcesses(int maxProcesses) {
+        if (maxProcesses < 1) {
+            throw new IllegalArgumentException("maxProcesses must be at least 1");
+        }
+        this.processSlots = new ConcurrencyController(maxProcesses, maxProcesses);
+    }
+
+    /**
+     * Lets the number of Python processes that runTests() may have alive at once adapt,
+     * between the given bounds, to the observed throughput, load average and free memory
+     * of the machine (see ConcurrencyController), rather than fixing it as
+     * setMaxProcesses() does. The results are the same whatever the limit.
+     *
+     * @param minProcesses the lowest the limit may go
+     * @param maxProcesses the highest the limit may go
+     * @throws IllegalArgumentException if minProcesses is less than 1 or greater than
+     *                                  maxProcesses
+     */
+    public void setAdaptiveProcesses(int minProcesses, int maxProcesses) {
+        this.processSlots = new ConcurrencyController(minProcesses, maxProcesses);
+    }
+
+    /**
+     * Sets whether runTests() stops testing each file as soon as one test case catches
+     * it. The test cases are then tried on each file in priority order: those that have
+     * caught the most files so far first (and otherwise by their history, if any, then
+     * in index order), so that a buggy file is usually caught by one of the first few
+     * cases. This skips most executions, at the price of a partial TestResults: each
+     * incorrect file is recorded as caught by exactly one test case, which is enough for
+     * setCover() (and the other selections that need each file caught only once) to
+     * select a suite that catches every incorrect file, but not for k-coverage. When
+     * files are tested concurrently, the catches so far would depend on how their tests
+     * interleave, so they are ignored: the cases are tried by their history alone (or in
+     * index order), and the same case is recorded for each file on every run.
+     *
+     * @param earlyStop true to stop testing each file once it is caught; false (the
+     *                  default) to run every test case on every file
+     */
+    public void setEarlyStop(boolean earlyStop) {
+        this.earlyStop = earlyStop;
+    }
+
+    /**
+     * Sets the history with which runTests() orders the test cases. Cases that have
+     * caught the most files in earlier runs (see TestHistory.getYield()) are then run
+     * first, which also makes setEarlyStop() stop sooner; once cases start catching files
+     * in this run, those catches take precedence. The history is updated with the outcome
+     * of every case at the end of runTests(), but it is up to the caller to save it.
+     *
+     * @param history the history to use and update, or null (the default) to keep none
+     */
+    public void setHistory(TestHistory history) {
+        this.history = history;
+    }
+
+    /**
+     * Sets the directory in which each run stages its files, so that runs never modify
+     * the solution file or the implementation directory, and any number of runs can test
+     * the same files at once. The first of computeExpectedResults() and runTests() then
+     * creates a fresh workspace inside parentDir, holding a copy of the solution (to
+     * which the footer is added) and a copy of each implementation, so that a test that
+     * writes to its own file (or a sibling's) changes only the copy; the wrapper, the
+     * expected results and the pycache are all written there, and the whole workspace is
+     * deleted when runTests() finishes.
+     *
+     * @param parentDir the directory in which to create workspaces, or null (the
+     *                  default) to work in place
+     */
+    public void setWorkspaceDir(String parentDir) {
+        this.workspaceParent = (parentDir == null) ? null : Path.of(parentDir);
+    }
+
+    /**
+     * Sets the directory in which Python caches compiled bytecode, so that each imported
+     * file (each implementation) is compiled once, rather than once per process, and
+     * repeat runs on the same files compile nothing at all. The cache is kept outside the
+     * implementation directory (via PYTHONPYCACHEPREFIX), so there is no __pycache__ to
+     * delete after a run. Every file is compiled up front into a pyc that is checked
+     * against a hash of its source whenever it is imported, so a file rewritten in place
+     * (as an implementation may be between runs) is never run from stale bytecode,
+     * however quickly it was rewritten.
+     *
+     * @param cacheDir the directory to cache bytecode in, or null (the default) to let
+     *                 each run compile into, and then delete, a __pycache__ of its own
+     */
+    public void setBytecodeCache(String cacheDir) {
+        this.bytecodeCache = (cacheDir == null) ? null : Path.of(cacheDir).toAbsolutePath();
+    }
+
+    /**
+     * Sets whether to launch the solution and the wrapper from a fork server (see
+     * ForkServer), which starts one interpreter for each of computeExpectedResults() and
+     * runTests() and forks every process they run from it, rather than starting a new
+     * interpreter per process. Where the platform cannot run a fork server, or the server
+     * dies mid-run, processes are started as usual instead; the results are the same
+     * either way.
+     *
+     * @param forkServer true to launch processes from a fork server, and false (the
+     *                   default) to start an interpreter per process
+     */
+    public void setForkServer(boolean forkServer) {
+        this.forkServer = forkServer;
+    }
+
+    /**
+     * Shares the given pool's resources with the other Testers using it: its process
+     * slots replace those set by setMaxProcesses() or setAdaptiveProcesses(), so that the
+     * limit applies to the live processes of every Tester in the pool together; files are
+     * tested concurrently on its executor; and, if setForkServer() is set, processes are
+     * launched from its fork server (where its bytecode cache is the same as this
+     * Tester's) rather than from one started for each run.
+     *
+     * @param pool the pool to share, or null (the default) to use resources of this
+     *             Tester's own
+     */
+    public void setPool(TesterPool pool) {
+        this.pool = pool;
+        if (pool != null) {
+            this.processSlots = pool.getProcessSlots();
+        }
+    }
+
+    /**
+     * Sets the limits on the resources (memory, CPU time, file size, processes and output)
+     * each process may use while running a test case on an implementation; the solution
+     * is trusted, and is run without limits. A pair whose process exceeds a limit counts
+     * as caught, and the limit it exceeded is recorded in the results of runTests() (see
+     * TestResults.getViolation()).
+     *
+     * @param limits the limits on each process, or null (the default) for none
+     */
+    public void setResourceLimits(ResourceLimits limits) {
+        this.limits = limits;
+    }
+
     /**
      * Computes the expected results by running each test case on the solution file.
      * Stores the results in a list (which is returned) and also creates a .py file
-     * containing an equivalent list of the results.
+     * containing an equivalent list of the results. The time each test case takes is
+     * also recorded, and attached to the TestResults later returned by runTests(); it is
+     * the time the solution's footer measures around the call to the function under test,
+     * so it excludes starting the process and loading the solution, which take much the
+     * same time for every case.
      *
      * @return a list where the i-th element is the result (a string) of running the i-th
      * test case on the reference solution
@@ -64,19 +394,36 @@ public class Tester {
      * @throws InterruptedException if the process is interrupted
      */
     public List<String> computeExpectedResults() throws IOException, InterruptedException {
+        // Stage the files into a workspace, if requested
+        this.stageWorkspace();
+
         // Write an appropriate footer to the solution file to make it executable from
         // the command-line, if the footer doesn't exist already
         this.appendToSolution();
 
-        // Run each test case on the solution file and gather the results in a map
+        // Run each test case on the solution file and gather the results in a map,
+        // along with the runtime the footer reports just before each result, so that slow
+        // cases can be avoided when selecting a suite
         List<String> results = new ArrayList<>();
-        for (int i = 0; i < this.tests.size(); i++) {
-            List<String> args = this.getExpTestArgs(i);
-            String result = this.runTestHelper(args);
-            results.add(result);
+        long[] runtimes = new long[this.tests.size()];
+        Arrays.fill(runtimes, -1);
+        this.startLauncher();
+        try {
+            for (int i = 0; i < this.tests.size(); i++) {
+                List<String> lines = this.runTestHelper(this.getExpTestArgs(),
+                        this.getTestInput(i), null, 2);
+                results.add(lines.isEmpty() ? "" : lines.get(lines.size() - 1));
+                if (lines.size() == 2 && lines.get(0).startsWith(RUNTIME_MARKER)) {
+                    runtimes[i] = Long.parseLong(
+                            lines.get(0).substring(RUNTIME_MARKER.length()));
+                }
+            }
+        } finally {
+            this.stopLauncher();
         }
+        this.caseRuntimes = runtimes;
 
-        // Write the expected results to a .py file, so that they can be accessed via
+        // Write the expected results to an indexed file, so that they can be accessed via
         // the wrapper. These cached results allow us to only run the solution once per
         // test rather than having to run it once per test per buggy implementation.
         this.outputExpectedResults(results);
@@ -88,7 +435,9 @@ public class Tester {
     /**
      * Runs all tests on all files in the directory of buggy implementations, comparing
      * the outputs to the pre-generated expected results and returning the results in the
-     * form of a TestResults object.
+     * form of a TestResults object. Along with which test cases caught which files, the
+     * results record how each did (see Outcome): with a wrong answer, a crash, or by
+     * exceeding a resource limit.
      *
      * @return the results of testing
      * @throws IOException if the path to the directory of buggy implementations is
@@ -96,86 +445,379 @@ public class Tester {
      * @throws InterruptedException if the process is interrupted
      */
     public TestResults runTests() throws IOException, InterruptedException {
+        // Stage the files into a workspace, if requested, and remove it once done
+        this.stageWorkspace();
+        try {
+            return this.collectResults();
+        } finally {
+            this.removeWorkspace();
+        }
+    }
+
+    /**
+     * Helper function for runTests() which runs all tests on all files and collects the
+     * results.
+     *
+     * @return the results of testing
+     * @throws IOException if the path to the directory of buggy implementations is
+     *                     invalid
+     * @throws InterruptedException if the process is interrupted
+     */
+    private TestResults collectResults() throws IOException, InterruptedException {
         // Create the wrapper file
         this.createWrapperFile();
 
-        // Initialize the outputs
-        List<Set<Integer>> caseToFiles = new ArrayList<>();
-        for (int i = 0; i < this.tests.size(); i++) {
-            caseToFiles.add(new HashSet<>());
-        }
-        Set<Integer> wrongSet = new HashSet<>();
-
         // Get the list of all files in the input directory
-        var dir = new File(this.implDirPath);
+        var dir = new File(this.implDir());
         String[] filenames = dir.list();
         if (filenames == null) {
             throw new IOException("Error: implDir is empty");
         }
         Arrays.sort(filenames);
 
-        // If implDirPath didn't actually point to a directory, files would be null
-        int trueIndex = 0;
+        // Keep only the implementations; a file's index is its position in this list
+        List<String> implFilenames = new ArrayList<>();
+        for (String filename : filenames) {
+            if (filename.endsWith(".py") && !filename.equals("wrapper.py")
+                    && !filename.equals("expected.py")) {
+                implFilenames.add(filename);
+            }
+        }
 
-        // Test each individual file using all tests in the base test set
+        // Compile everything the wrapper will import, if bytecode is being cached; the
+        // wrapper itself is run as a script, which Python always compiles afresh
+        List<String> imported = new ArrayList<>();
         for (String filename : filenames) {
-            if (!filename.endsWith(".py") || filename.equals("wrapper.py")
-                    || filename.equals("expected.py")) {
-                continue;
+            if (filename.endsWith(".py") && !filename.equals("wrapper.py")) {
+                imported.add(this.implDir() + "/" + filename);
+            }
+        }
+        this.precompile(imported);
+
+        // Start the fork server (if requested) once the files it will run are in place
+        this.startLauncher();
+        try {
+            return this.recordResults(implFilenames);
+        } finally {
+            this.stopLauncher();
+        }
+    }
+
+    /**
+     * Helper function for collectResults() which runs all tests on the given files and
+     * records the results.
+     *
+     * @param implFilenames the names of the implementations, in index order
+     * @return the results of testing
+     * @throws IOException if an implementation cannot be run
+     * @throws InterruptedException if the process is interrupted
+     */
+    private TestResults recordResults(List<String> implFilenames)
+            throws IOException, InterruptedException {
+        // If a backing file was requested, record the results in a memory-mapped matrix
+        if (this.matrixPath != null) {
+            BitMatrix caseToFiles =
+                    BitMatrix.map(this.matrixPath, this.tests.size(), implFilenames.size());
+            this.runAllTests(implFilenames, caseToFiles::set);
+            return this.annotate(new TestResults(this.tests, caseToFiles));
+        }
+
+        // Otherwise, record them in one compressed set per test case, which stays small
+        // whether a case catches almost none or almost all of the files
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
+            caseToFiles.add(new CompressedFileSet());
+        }
+        CompressedFileSet wrongSet = new CompressedFileSet();
+        this.runAllTests(implFilenames, (testIndex, fileIndex) -> {
+            ((CompressedFileSet) caseToFiles.get(testIndex)).addFile(fileIndex);
+            wrongSet.addFile(fileIndex);
+        });
+        for (Set<Integer> files : caseToFiles) {
+            ((CompressedFileSet) files).runOptimize();
+        }
+        wrongSet.runOptimize();
+        return this.annotate(
+                new TestResults(this.tests, caseToFiles, wrongSet, implFilenames.size()));
+    }
+
+    /**
+     * Helper function for recordResults() which attaches what was measured while testing,
+     * beyond which pairs failed, to the results.
+     *
+     * @param results the results of testing
+     * @return results, with the runtimes of the test cases and how each pair was caught
+     */
+    private TestResults annotate(TestResults results) {
+        results.setCaseRuntimes(this.caseRuntimes);
+        results.setOutcomes(this.outcomes.hasWords() ? this.outcomes : null);
+        return results;
+    }
+
+    /**
+     * Helper function for runTests() which runs every test case on every implementation,
+     * reporting each (test case, file) pair that fails. Failures are always reported on
+     * the calling thread with files in index order, so the file indices reported for any
+     * one test case are ascending, even when files are tested concurrently.
+     *
+     * @param implFilenames the names of the implementations, in index order
+     * @param failures      the callback to invoke with the indices of each failing pair
+     * @throws IOException if an implementation cannot be run
+     * @throws InterruptedException if the process is interrupted
+     */
+    private void runAllTests(List<String> implFilenames, FailureSink failures)
+            throws IOException, InterruptedException {
+        this.outcomes = new OutcomeMatrix(this.tests.size(), implFilenames.size());
+        this.caseCatches = new AtomicIntegerArray(this.tests.size());
+        this.caseTrials = new AtomicIntegerArray(this.tests.size());
+        this.rankTests();
+        this.orderByCatches = (this.processSlots.getMax() == 1);
+        if (this.processSlots.getMax() == 1) {
+            // Test each individual file using all tests in the base test set
+            for (int fileIndex = 0; fileIndex < implFilenames.size(); fileIndex++) {
+                this.reportFile(fileIndex, implFilenames.size(),
+                        this.testFile(fileIndex, implFilenames.get(fileIndex)), failures);
             }
+        } else {
+            // Test each file on its own thread; the process slots, not the number of
+            // threads, bound how much work is actually in flight
+            ExecutorService orchestrator = (this.pool != null) ? this.pool.getExecutor()
+                    : newOrchestrator(this.processSlots.getMax());
+            List<Future<BitSet>> caught = new ArrayList<>();
+            try {
+                for (int fileIndex = 0; fileIndex < implFilenames.size(); fileIndex++) {
+                    int index = fileIndex;
+                    caught.add(orchestrator.submit(
+                            () -> this.testFile(index, implFilenames.get(index))));
+                }
+                for (int fileIndex = 0; fileIndex < implFilenames.size(); fileIndex++) {
+                    this.reportFile(fileIndex, implFilenames.size(),
+                            getResult(caught.get(fileIndex)), failures);
+                }
+            } finally {
+                if (this.pool != null) {
+                    // Leave the shared executor running, stopping only this run's files
+                    for (Future<BitSet> future : caught) {
+                        future.cancel(true);
+                    }
+                } else {
+                    orchestrator.shutdownNow();
+                }
+            }
+        }
 
-            // Run each test case on this file, keeping track of which ones caught
-            // errors
-            HashSet<Integer> caughtBy = new HashSet<>();
+        // Clean up the pycache that was created
+        if (this.bytecodeCache == null) {
+            this.deletePyCache();
+        }
+
+        // Add the outcome of this run to the history
+        if (this.history != null) {
             for (int testIndex = 0; testIndex < this.tests.size(); testIndex++) {
-                List<String> args = this.getTestArgs(testIndex, filename);
-                String result = this.runTestHelper(args);
-                if (!result.equals("True")) {
-                    caseToFiles.get(testIndex).add(trueIndex);
-                    caughtBy.add(testIndex);
+                this.history.record(this.funcName, this.tests.get(testIndex),
+                        this.caseTrials.get(testIndex), this.caseCatches.get(testIndex));
+            }
+        }
+    }
+
+    /**
+     * Helper function for runAllTests() which ranks the test cases by their yield in the
+     * history, highest first, breaking ties (and ranking every case, if there is no
+     * history) by index.
+     */
+    private void rankTests() {
+        Integer[] ranked = new Integer[this.tests.size()];
+        for (int testIndex = 0; testIndex < ranked.length; testIndex++) {
+            ranked[testIndex] = testIndex;
+        }
+        if (this.history != null) {
+            double[] yields = new double[ranked.length];
+            for (int testIndex = 0; testIndex < ranked.length; testIndex++) {
+                yields[testIndex] = this.history.getYield(this.funcName,
+                        this.tests.get(testIndex));
+            }
+            // Arrays.sort() is stable, so equal yields stay in index order
+            Arrays.sort(ranked, (a, b) -> Double.compare(yields[b], yields[a]));
+        }
+        this.byRank = new int[ranked.length];
+        this.rankOf = new int[ranked.length];
+        for (int rank = 0; rank < ranked.length; rank++) {
+            this.byRank[rank] = ranked[rank];
+            this.rankOf[ranked[rank]] = rank;
+        }
+    }
+
+    /**
+     * Helper function for runAllTests() which runs every test case on a single
+     * implementation, or, when stopping early, runs test cases in priority order until
+     * one catches it.
+     *
+     * @param fileIndex the index of the implementation
+     * @param filename  the name of the implementation
+     * @return the indices of the test cases that caught the implementation
+     * @throws IOException if the implementation cannot be run
+     * @throws InterruptedException if the process is interrupted
+     */
+    private BitSet testFile(int fileIndex, String filename)
+            throws IOException, InterruptedException {
+        // Run each test case on this file, keeping track of which ones caught errors
+        BitSet caught = new BitSet(this.tests.size());
+        int[] order = this.indexOrder();
+        if (this.earlyStop || this.history != null) {
+            order = this.orderByCatches ? this.priorityOrder() : this.byRank;
+        }
+        for (int testIndex : order) {
+            String result = this.runTestHelper(this.getTestArgs(testIndex, filename),
+                    this.getTestInput(testIndex), this.limits);
+            this.caseTrials.incrementAndGet(testIndex);
+            if (!result.equals("True")) {
+                ResourceLimits.Violation violation = ResourceLimits.parseViolation(result);
+                if (violation != null) {
+                    this.outcomes.setViolation(testIndex, fileIndex, violation);
+                } else {
+                    this.outcomes.set(testIndex, fileIndex, Outcome.of(result));
+                }
+                caught.set(testIndex);
+                this.caseCatches.incrementAndGet(testIndex);
+                if (this.earlyStop) {
+                    break;
                 }
             }
+        }
+        return caught;
+    }
+
+    /**
+     * Helper function for testFile() which lists the test cases in index order.
+     *
+     * @return the indices of all of the test cases, in ascending order
+     */
+    private int[] indexOrder() {
+        int[] order = new int[this.tests.size()];
+        for (int testIndex = 0; testIndex < order.length; testIndex++) {
+            order[testIndex] = testIndex;
+        }
+        return order;
+    }
+
+    /**
+     * Helper function for testFile() which lists the test cases in priority order: by
+     * the number of files each has caught so far in this run, most first, with ties
+     * broken by rank (see rankTests()).
+     *
+     * @return the indices of all of the test cases, in priority order
+     */
+    private int[] priorityOrder() {
+        // Pack each case's (negated) count above its rank, so that one sort of
+        // primitives orders by count and then by rank
+        long[] keys = new long[this.tests.size()];
+        for (int testIndex = 0; testIndex < keys.length; testIndex++) {
+            keys[testIndex] = ((long) (Integer.MAX_VALUE - this.caseCatches.get(testIndex))
+                    << 32) | this.rankOf[testIndex];
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = this.byRank[(int) keys[i]];
+        }
+        return order;
+    }
 
-            // Add to wrongSet if applicable
-            if (caughtBy.size() > 0) {
-                wrongSet.add(trueIndex);
+    /**
+     * Helper function for runAllTests() which reports the test cases that caught a single
+     * implementation, along with the progress made so far.
+     *
+     * @param fileIndex the index of the implementation
+     * @param numFiles  the total number of implementations
+     * @param caught    the indices of the test cases that caught the implementation
+     * @param failures  the callback to invoke with the indices of each failing pair
+     */
+    private void reportFile(int fileIndex, int numFiles, BitSet caught, FailureSink failures) {
+        for (int testIndex = caught.nextSetBit(0); testIndex >= 0;
+             testIndex = caught.nextSetBit(testIndex + 1)) {
+            failures.fail(testIndex, fileIndex);
+        }
+        this.progress.accept("tested " + (fileIndex + 1) + " of " + numFiles + " files");
+    }
+
+    /**
+     * Helper function which creates the executor on which files are tested concurrently:
+     * one virtual thread per file where the platform supports them (looked up
+     * reflectively, so that this still runs on platforms without them), or otherwise a
+     * pool with one platform thread per process slot.
+     *
+     * @param maxProcesses the maximum number of live processes
+     * @return the executor
+     */
+    static ExecutorService newOrchestrator(int maxProcesses) {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(maxProcesses);
+        }
+    }
+
+    /**
+     * Helper function which waits for a file's results, rethrowing any exception thrown
+     * while testing it.
+     *
+     * @param future the pending results of testing the file
+     * @return the indices of the test cases that caught the file
+     * @throws IOException if the file cannot be run
+     * @throws InterruptedException if the process is interrupted
+     */
+    private static BitSet getResult(Future<BitSet> future)
+            throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof InterruptedException) {
+                throw (InterruptedException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
-            trueIndex++;
+            throw new IllegalStateException(cause);
         }
+    }
 
-        // Clean up the pycache that was created
-        this.deletePyCache();
+    /**
+     * A destination for the failing (test case, file) pairs found by runAllTests().
+     */
+    private interface FailureSink {
 
-        // Return the results
-        return new TestResults(this.tests, caseToFiles, wrongSet);
+        /**
+         * Records that the given test case caught the given file.
+         *
+         * @param testIndex the index of the test case
+         * @param fileIndex the index of the file
+         */
+        void fail(int testIndex, int fileIndex);
     }
 
     /**
      * Builds the list of command-line arguments for executing the solution in order to
-     * get the expected results on a single test case.
+     * get the expected results on a single test case; the test case itself is given on
+     * standard input (see getTestInput()).
      *
-     * @param testIndex the index of the test case to be run
-     * @return the command-line args for running the given test case through the solution
+     * @return the command-line args for running a test case through the solution
      */
-    private List<String> getExpTestArgs(int testIndex) {
+    private List<String> getExpTestArgs() {
         List<String> args = new ArrayList<>();
 
         // The solution must be a python3 file
         args.add("python3");
-        args.add(this.solutionPath);
-
-        // Add each argument as a string; the footer will take care of converting these to
-        // Python objects before invoking the function under test
-        TestCase test = this.tests.get(testIndex);
-        for (APyObj<?> arg : test.getArgs()) {
-            args.add(arg.toString());
-        }
+        args.add(this.solution());
         return args;
     }
 
     /**
      * Builds the list of command-line arguments for executing a buggy implementation in
-     * order to get the actual results on a single test case.
+     * order to get the actual results on a single test case; the test case's arguments
+     * are given on standard input (see getTestInput()).
      *
      * @param testIndex the index of the test case to be run
      * @param filename  the name of the implementation being tested
@@ -188,7 +830,7 @@ public class Tester {
         args.add("python3");
 
         // Directly invoking the wrapper, which will dynamically load the file under test
-        args.add(this.implDirPath + "/wrapper.py");
+        args.add(this.implDir() + "/wrapper.py");
 
         // Need to include the index of the test case so that we can look up the expected
         // results to determine whether the test passes or fails
@@ -198,14 +840,27 @@ public class Tester {
         // the file under test
         args.add(filename);
         args.add(this.funcName);
+        return args;
+    }
 
-        // Add each argument as a string; the footer will take care of converting these to
-        // Python objects before invoking the function under test
-        TestCase test = this.tests.get(testIndex);
-        for (APyObj<?> arg : test.getArgs()) {
-            args.add(arg.toString());
+    /**
+     * Returns the input for running a single test case: its arguments, encoded as a
+     * JSON array by PyObjJson. Passing the arguments on standard input rather than the
+     * command line means they are not limited in size, and the footer and wrapper decode
+     * them with json.loads() rather than eval(). Each case is encoded once, the first
+     * time it is needed.
+     *
+     * @param testIndex the index of the test case
+     * @return the JSON encoding of the test case's arguments
+     */
+    private synchronized String getTestInput(int testIndex) {
+        if (this.caseInputs == null) {
+            this.caseInputs = new String[this.tests.size()];
         }
-        return args;
+        if (this.caseInputs[testIndex] == null) {
+            this.caseInputs[testIndex] = PyObjJson.encode(this.tests.get(testIndex).getArgs());
+        }
+        return this.caseInputs[testIndex];
     }
 
     /**
@@ -213,39 +868,206 @@ public class Tester {
      * list of arguments, as output by getTestArgs or getExpTestArgs) and reads its
      * output.
      *
-     * @param args the arguments for the process to be created
-     * @return the result of reading from the process
+     * @param args   the arguments for the process to be created
+     * @param input  the text to write to the standard input of the process
+     * @param limits the limits on the process, or null for none
+     * @return the result of reading from the process (the last line of its output), or
+     * the report of the limit it exceeded (see ResourceLimits)
      * @throws IOException if the file to run or its output cannot be accessed
      * @throws InterruptedException if the process is interrupted
      */
-    private String runTestHelper(List<String> args) throws IOException, InterruptedException {
-        ProcessBuilder pb = new ProcessBuilder();
-        pb.command(args);
-        Process process = pb.start();
+    private String runTestHelper(List<String> args, String input, ResourceLimits limits)
+            throws IOException, InterruptedException {
+        List<String> lines = this.runTestHelper(args, input, limits, 1);
+        return lines.isEmpty() ? "" : lines.get(0);
+    }
+
+    /**
+     * A helper function for runTestHelper() which runs a Python process exactly as it
+     * does, but returns up to the given number of lines from the end of the output.
+     *
+     * @param args     the arguments for the process to be created
+     * @param input    the text to write to the standard input of the process
+     * @param limits   the limits on the process, or null for none
+     * @param numLines the number of lines to return
+     * @return the last numLines lines of the output (or all of them, if there are fewer),
+     * in order, or just the report of the limit the process exceeded
+     * @throws IOException if the file to run or its output cannot be accessed
+     * @throws InterruptedException if the process is interrupted
+     */
+    private List<String> runTestHelper(List<String> args, String input,
+                                       ResourceLimits limits, int numLines)
+            throws IOException, InterruptedException {
+        long maxOutput = (limits == null) ? 0 : limits.getOutputBytes();
+        long wallSeconds = (limits == null) ? 0 : limits.getWallSeconds();
+        List<String> timeout = List.of(ResourceLimits.report(ResourceLimits.Violation.CPU));
 
-        // Redirect the output of the process to here
-        var sb = new StringBuilder();
-        var reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+        // Wait for a free process slot, so that no more than the limit are alive
+        this.processSlots.acquire();
+        try {
+            // Fork the process from the fork server, if there is one; the server is
+            // itself an interpreter, so it is given the args after "python3". A child
+            // whose output is cut off (or which runs out of time) fails on its next
+            // write, and so exits
+            ForkServer launcher = this.launcher;
+            if (launcher != null) {
+                AtomicBoolean timedOut = new AtomicBoolean();
+                CompletableFuture<Void> watchdog = null;
+                try {
+                    InputStream output = launcher.launch(args.subList(1, args.size()), input,
+                            limits);
+                    watchdog = startWatchdog(wallSeconds, timedOut, () -> {
+                        try {
+                            output.close();
+                        } catch (IOException e) {
+                            // The output has already been read
+                        }
+                    });
+                    List<String> result = lastLines(output, maxOutput, numLines);
+                    if (timedOut.get()) {
+                        return timeout;
+                    }
+                    return (result == null)
+                            ? List.of(ResourceLimits.report(ResourceLimits.Violation.OUTPUT))
+                            : result;
+                } catch (IOException e) {
+                    if (timedOut.get()) {
+                        return timeout;
+                    }
 
-        // Wait until the process has exited
-        process.waitFor();
+                    // The server has died, so start processes as usual from now on
+                    this.launcher = null;
+                    if (this.pool == null || !this.pool.isShared(launcher)) {
+                        launcher.close();
+                    }
+                } finally {
+                    if (watchdog != null) {
+                        watchdog.cancel(false);
+                    }
+                }
+            }
 
-        // Read the output of the process, the last line of which should be the result
-        String line;
-        String prevLine = "";
-        while ((line = reader.readLine()) != null) {
-            prevLine = line;
+            // Run the script through the launcher if there are rlimits to set first
+            List<String> command = args;
+            if (limits != null && limits.hasRlimits()) {
+                command = new ArrayList<>(List.of(args.get(0), "-c", ResourceLimits.LAUNCHER,
+                        limits.toJson()));
+                command.addAll(args.subList(1, args.size()));
+            }
+
+            // Discard the error output, which is never read, so that a process that writes
+            // a lot of it never blocks on a full pipe
+            ProcessBuilder pb = new ProcessBuilder();
+            pb.command(command);
+            pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+            this.setPythonEnvironment(pb.environment());
+            Process process = pb.start();
+
+            // Kill the process (and any it started) if it runs out of time
+            AtomicBoolean timedOut = new AtomicBoolean();
+            CompletableFuture<Void> watchdog = startWatchdog(wallSeconds, timedOut, () -> {
+                process.descendants().forEach(ProcessHandle::destroyForcibly);
+                process.destroyForcibly();
+            });
+            try {
+                // Send the input, closing the stream so that the process sees its end; a
+                // process that exits without reading it all is not an error here
+                try (var writer = new OutputStreamWriter(process.getOutputStream(),
+                        StandardCharsets.UTF_8)) {
+                    writer.write(input);
+                } catch (IOException e) {
+                    // The process has already exited; its output says what went wrong
+                }
+
+                // Read the output of the process before waiting, so that a chatty process
+                // never blocks on a full pipe, and kill it if it writes too much
+                List<String> result = lastLines(process.getInputStream(), maxOutput,
+                        numLines);
+                if (result == null) {
+                    process.destroyForcibly();
+                    result = List.of(ResourceLimits.report(ResourceLimits.Violation.OUTPUT));
+                }
+
+                // Wait until the process has exited
+                process.waitFor();
+
+                // Return the result
+                return timedOut.get() ? timeout : result;
+            } finally {
+                watchdog.cancel(false);
+            }
+        } finally {
+            this.processSlots.release();
         }
-        reader.close();
+    }
 
-        // Return the result
-        return prevLine;
+    /**
+     * Helper function for runTestHelper() which arranges for a process to be stopped
+     * once its limit on wall-clock time has passed, unless the returned future is
+     * cancelled first.
+     *
+     * @param wallSeconds the limit on wall-clock time, in seconds, or 0 for no limit
+     * @param timedOut    set to true just before the process is stopped
+     * @param stop        stops the process
+     * @return the pending stop, which never happens if there is no limit
+     */
+    private static CompletableFuture<Void> startWatchdog(long wallSeconds,
+                                                         AtomicBoolean timedOut,
+                                                         Runnable stop) {
+        if (wallSeconds == 0) {
+            return new CompletableFuture<>();
+        }
+        return CompletableFuture.runAsync(() -> {
+            timedOut.set(true);
+            stop.run();
+        }, CompletableFuture.delayedExecutor(wallSeconds, TimeUnit.SECONDS));
     }
 
     /**
-     * Creates a wrapper file that imports the expected results, reads the command-line
-     * args, dynamically imports the buggy implementation, generates the actual results
-     * for a single test case, compares the returned value to the expected value, and then
+     * Helper function for runTestHelper() which reads the output of a process, the last
+     * line of which should be the result.
+     *
+     * @param output    the standard output of the process, which is closed once read
+     * @param maxOutput the maximum number of bytes to read, or 0 for no limit
+     * @param numLines  the number of lines to keep from the end of the output
+     * @return the last numLines lines of the output (fewer if there are fewer), in order,
+     * or null if the output exceeds maxOutput
+     * @throws IOException if the output cannot be read
+     */
+    private static List<String> lastLines(InputStream output, long maxOutput, int numLines)
+            throws IOException {
+        try (output) {
+            InputStream in = output;
+            if (maxOutput > 0) {
+                // Read one byte beyond the limit, to tell whether the output exceeds it
+                byte[] bytes = output.readNBytes(
+                        (int) Math.min(maxOutput + 1, Integer.MAX_VALUE - 8));
+                if (bytes.length > maxOutput) {
+                    return null;
+                }
+                in = new ByteArrayInputStream(bytes);
+            }
+
+            String line;
+            Deque<String> lines = new ArrayDeque<>(numLines + 1);
+            var reader = new BufferedReader(new InputStreamReader(in));
+            while ((line = reader.readLine()) != null) {
+                lines.addLast(line);
+                if (lines.size() > numLines) {
+                    lines.removeFirst();
+                }
+            }
+            return new ArrayList<>(lines);
+        }
+    }
+
+    /**
+     * Creates a wrapper file that looks up the expected results (in the indexed results
+     * file, if computeExpectedResults() wrote one, or else by importing an expected.py
+     * written beforehand),
+     * reads the command-line args and the test case's arguments (from standard input),
+     * dynamically imports the buggy implementation, generates the actual results for a
+     * single test case, compares the returned value to the expected value, and then
      * returns a boolean value (True if test passes, False otherwise).
      *
      * @throws IOException if the wrapper file cannot be created
@@ -253,9 +1075,42 @@ public class Tester {
     private void createWrapperFile() throws IOException {
         StringBuilder sb = new StringBuilder();
 
-        // Import the expected results, plus the other modules we'll need
-        sb.append("import sys\nfrom importlib import import_module\nfrom expected " +
-                "import results\n\n");
+        // Import the modules we'll need
+        sb.append("import sys\nimport json\nfrom importlib import import_module\n");
+        if (this.expectedIndexed) {
+            // Look up a single expected result in the indexed results file. A result is
+            // the repr() of a value, which is parsed as a literal where it is one (safely
+            // and quickly), or else evaluated, as importing expected.py would have: e.g.
+            // frozenset({1}), range(3) or Decimal('1.5')
+            sb.append("import ast\nimport os\nimport struct\n\n");
+            sb.append("def _feat_parse(text):\n");
+            sb.append("    try:\n");
+            sb.append("        return ast.literal_eval(text)\n");
+            sb.append("    except (ValueError, TypeError, SyntaxError):\n");
+            sb.append("        from collections import Counter, OrderedDict, deque\n");
+            sb.append("        from decimal import Decimal\n");
+            sb.append("        from fractions import Fraction\n");
+            sb.append("        return eval(text, {\"Counter\": Counter, \"OrderedDict\": "
+                    + "OrderedDict, \"deque\": deque, \"Decimal\": Decimal, "
+                    + "\"Fraction\": Fraction})\n\n");
+            sb.append("def expected_result(case_num):\n");
+            sb.append("    path = os.path.join(os.path.dirname(os.path.abspath(__file__)), "
+                    + "\"expected.bin\")\n");
+            sb.append("    with open(path, \"rb\") as f:\n");
+            sb.append("        count, = struct.unpack(\">i\", f.read(4))\n");
+            sb.append("        f.seek(4 + 8 * case_num)\n");
+            sb.append("        start, end = struct.unpack(\">qq\", f.read(16))\n");
+            sb.append("        f.seek(4 + 8 * (count + 1) + start)\n");
+            sb.append("        return _feat_parse(f.read(end - start).decode(\"utf-8\"))\n\n");
+        } else {
+            // Import all of the expected results
+            sb.append("from expected import results\n\n");
+            sb.append("def expected_result(case_num):\n");
+            sb.append("    return results[case_num]\n\n");
+        }
+
+        // Hook for decoding the types JSON lacks (see PyObjJson)
+        sb.append(PyObjJson.DECODER).append("\n");
 
         // Function for comparing the buggy implementation's results to the
         // pre-determined expected results
@@ -264,7 +1119,7 @@ public class Tester {
         sb.append("    mod = import_module(mod_name)\n");
         sb.append("    func = getattr(mod, fname)\n");
         sb.append("    actual = func(*args)\n");
-        sb.append("    expected = results[case_num]\n");
+        sb.append("    expected = expected_result(case_num)\n");
         sb.append("    return (actual == expected)\n\n");
 
         // Footer to make the function executable from the command line
@@ -272,28 +1127,29 @@ public class Tester {
         sb.append("    case_num = int(sys.argv[1])\n");
         sb.append("    impl_name = sys.argv[2]\n");
         sb.append("    fname = sys.argv[3]\n");
-        sb.append("    args = sys.argv[4:]\n");
-        sb.append("    args = [eval(arg) for arg in args]\n");
+        sb.append("    args = json.loads(sys.stdin.read(), object_hook=_feat_decode)\n");
         sb.append("    print (test_buggy_impl(case_num, impl_name, fname, args))");
         String wrapperContents = sb.toString();
 
         // Create the Python wrapper file including the above code
-        FileWriter writer = new FileWriter(this.implDirPath + "/wrapper.py");
+        FileWriter writer = new FileWriter(this.implDir() + "/wrapper.py");
         writer.write(wrapperContents);
         writer.close();
     }
 
     /**
-     * Writes a footer to the solution file which converts the command-line args from
-     * strings into Python objects of the appropriate type, calls the function under test
-     * with arguments, and prints the result.
+     * Writes a footer to the solution file which decodes the test case's arguments (a
+     * JSON array, read from standard input) into Python objects of the appropriate type,
+     * calls the function under test with these arguments, and prints the result. Just
+     * before the result, it prints a line with the time the call took (see
+     * RUNTIME_MARKER).
      *
      * @throws IOException if the solution file cannot be accessed
      */
     private void appendToSolution() throws IOException {
         // Read the contents of the solution
         StringBuilder sb = new StringBuilder();
-        BufferedReader reader = new BufferedReader(new FileReader(this.solutionPath));
+        BufferedReader reader = new BufferedReader(new FileReader(this.solution()));
         String line;
         while ((line = reader.readLine()) != null) {
             sb.append(line).append("\n");
@@ -301,27 +1157,32 @@ public class Tester {
         String contents = sb.toString();
         reader.close();
 
-        // Generate the footer, which converts the command-line args from strings into
+        // Generate the footer, which decodes the arguments from standard input into
         // Python objects of the appropriate types, calls the function under test with
         // these arguments, and prints the result
         sb = new StringBuilder();
-        sb.append("import sys\n\n");
+        sb.append("import sys\nimport json\nimport time\n\n");
+        sb.append(PyObjJson.DECODER).append("\n");
         sb.append("if __name__ == \"__main__\":\n");
-        sb.append("    args = sys.argv[1:]\n");
-        sb.append("    new_args = [eval(arg) for arg in args]\n");
-        sb.append("    print (repr(").append(this.funcName).append("(*new_args)))");
+        sb.append("    new_args = json.loads(sys.stdin.read(), object_hook=_feat_decode)\n");
+        sb.append("    start = time.perf_counter_ns()\n");
+        sb.append("    result = ").append(this.funcName).append("(*new_args)\n");
+        sb.append("    elapsed = time.perf_counter_ns() - start\n");
+        sb.append("    sys.stdout.write(\"\\n").append(RUNTIME_MARKER)
+                .append("\" + str(elapsed) + \"\\n\")\n");
+        sb.append("    print (repr(result))");
         String textToAdd = sb.toString();
 
         if (!contents.contains("import sys")) {
             // If no footer is present, append it to the file
-            FileWriter writer = new FileWriter(this.solutionPath, true);
+            FileWriter writer = new FileWriter(this.solution(), true);
             writer.write("\n");
             writer.write(textToAdd);
             writer.close();
         } else {
             // If a footer is present, overwrite it
             String keepContents = contents.split("import sys")[0];
-            FileWriter writer = new FileWriter(this.solutionPath);
+            FileWriter writer = new FileWriter(this.solution());
             writer.write(keepContents);
             writer.write(textToAdd);
             writer.close();
@@ -329,20 +1190,215 @@ public class Tester {
     }
 
     /**
-     * Outputs the expected results (given) to the file expected.py in the form of a
-     * Python list.
+     * Outputs the expected results (given) to the indexed results file expected.bin,
+     * removing any expected.py left from earlier runs. The file is written as a stream,
+     * without ever building every result into one string.
+     * <p>
+     * The indexed file lets the wrapper read just the one result it needs, rather than
+     * importing every result. Its format (all values big-endian) is:
+     * <pre>
+     *   int    number of results, n
+     *   long[] n + 1 offsets: the start of each result within the data, then its end
+     *   ...    the data: the results, one after another, in UTF-8
+     * </pre>
      *
      * @param results the per-case list of expected results
-     * @throws IOException if the results file cannot be created or written to
+     * @throws IOException if the results files cannot be created or written to
      */
     private void outputExpectedResults(List<String> results) throws IOException {
-        // Convert input results to Python list
-        String contents = "results = " + results.toString();
+        // Output results to expected.bin, within the implementation directory, offsets
+        // first; an old expected.py would only go stale
+        Files.deleteIfExists(Path.of(this.implDir(), "expected.py"));
+        try (var out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(this.implDir() + "/expected.bin")))) {
+            out.writeInt(results.size());
+            long offset = 0;
+            out.writeLong(offset);
+            for (String result : results) {
+                offset += result.getBytes(StandardCharsets.UTF_8).length;
+                out.writeLong(offset);
+            }
+            for (String result : results) {
+                out.write(result.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        this.expectedIndexed = true;
+    }
 
-        // Output results to expected.py, within the implementation directory
-        FileWriter writer = new FileWriter(this.implDirPath + "/expected.py");
-        writer.write(contents);
-        writer.close();
+    /**
+     * Returns the path of the solution file that runs use: the copy in the workspace, if
+     * there is one, or else the given solution file.
+     *
+     * @return the path of the solution file in use
+     */
+    private String solution() {
+        if (this.workspace == null) {
+            return this.solutionPath;
+        }
+        return this.workspace.resolve(Path.of(this.solutionPath).getFileName()).toString();
+    }
+
+    /**
+     * Returns the path of the implementation directory that runs use: the one in the
+     * workspace, if there is one, or else the given implementation directory.
+     *
+     * @return the path of the implementation directory in use
+     */
+    private String implDir() {
+        if (this.workspace == null) {
+            return this.implDirPath;
+        }
+        return this.workspace.resolve("impls").toString();
+    }
+
+    /**
+     * Creates this run's workspace, if workspaces were requested and it does not exist
+     * yet, and stages the solution and implementations into it. Every file is copied
+     * rather than linked: a test process can write to the files it is given, and through
+     * a link that would change the original in the implementation directory, which later
+     * runs (and the hashes checked against the bytecode cache) depend on.
+     *
+     * @throws IOException if the workspace cannot be created or the files cannot be
+     *                     staged
+     */
+    private void stageWorkspace() throws IOException {
+        if (this.workspaceParent == null || this.workspace != null) {
+            return;
+        }
+        Files.createDirectories(this.workspaceParent);
+        Path workspace = Files.createTempDirectory(this.workspaceParent, "run");
+        try {
+            Path source = Path.of(this.solutionPath);
+            Files.copy(source, workspace.resolve(source.getFileName()));
+
+            Path impls = Files.createDirectory(workspace.resolve("impls"));
+            File[] files = new File(this.implDirPath).listFiles();
+            if (files == null) {
+                throw new IOException("Error: implDir is empty");
+            }
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+                Files.copy(file.toPath(), impls.resolve(file.getName()));
+            }
+        } catch (IOException e) {
+            deleteTree(workspace);
+            throw e;
+        }
+        this.workspace = workspace;
+    }
+
+    /**
+     * Deletes this run's workspace, if it has one.
+     *
+     * @throws IOException if the workspace cannot be deleted
+     */
+    private void removeWorkspace() throws IOException {
+        if (this.workspace != null) {
+            Path workspace = this.workspace;
+            this.workspace = null;
+            this.expectedIndexed = false;
+            deleteTree(workspace);
+        }
+    }
+
+    /**
+     * Helper function which deletes a directory and everything in it.
+     *
+     * @param root the directory to delete
+     * @throws IOException if anything cannot be deleted
+     */
+    private static void deleteTree(Path root) throws IOException {
+        try (var paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    /**
+     * Helper function which points a Python process at the bytecode cache, if there is
+     * one.
+     *
+     * @param environment the environment of the process
+     */
+    private void setPythonEnvironment(Map<String, String> environment) {
+        if (this.bytecodeCache != null) {
+            environment.put("PYTHONPYCACHEPREFIX", this.bytecodeCache.toString());
+        }
+    }
+
+    /**
+     * Helper function which starts the fork server for a run, if one was requested (see
+     * setForkServer()), or uses the pool's if it can. If it cannot be started, processes
+     * are started as usual instead.
+     *
+     * @throws InterruptedException if the process is interrupted
+     */
+    private void startLauncher() throws InterruptedException {
+        if (!this.forkServer) {
+            return;
+        }
+        if (this.pool != null) {
+            this.launcher = this.pool.getForkServer(this.bytecodeCache);
+            if (this.launcher != null) {
+                return;
+            }
+        }
+        Map<String, String> environment = new HashMap<>();
+        this.setPythonEnvironment(environment);
+        try {
+            this.launcher = ForkServer.start(environment);
+        } catch (IOException e) {
+            this.launcher = null;
+        }
+    }
+
+    /**
+     * Helper function which shuts down the fork server for a run, if there is one and it
+     * is not the pool's.
+     *
+     * @throws IOException if the server cannot be shut down
+     */
+    private void stopLauncher() throws IOException {
+        ForkServer launcher = this.launcher;
+        if (launcher != null) {
+            this.launcher = null;
+            if (this.pool == null || !this.pool.isShared(launcher)) {
+                launcher.close();
+            }
+        }
+    }
+
+    /**
+     * Helper function which compiles the given Python files into the bytecode cache, if
+     * there is one (see setBytecodeCache()). Files that fail to compile are skipped;
+     * running them reports the error as it would have anyway.
+     *
+     * @param paths the paths of the files to compile
+     * @throws IOException if the compiler cannot be run
+     * @throws InterruptedException if the process is interrupted
+     */
+    private void precompile(List<String> paths) throws IOException, InterruptedException {
+        if (this.bytecodeCache == null || paths.isEmpty()) {
+            return;
+        }
+        ProcessBuilder pb = new ProcessBuilder("python3", "-c", PRECOMPILE);
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        pb.redirectError(ProcessBuilder.Redirect.DISCARD);
+        this.setPythonEnvironment(pb.environment());
+        Process process = pb.start();
+        try (var writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(),
+                StandardCharsets.UTF_8))) {
+            for (String path : paths) {
+                writer.write(path);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            // The compiler has already exited; the files are compiled on import instead
+        }
+        process.waitFor();
     }
 
     /**
@@ -354,7 +1410,7 @@ public class Tester {
      */
     private void deletePyCache() throws IOException {
         // Get the list of all files in the pycache
-        File pyCacheDir = new File(this.implDirPath + "/__pycache__/");
+        File pyCacheDir = new File(this.implDir() + "/__pycache__/");
         String[] filepaths = pyCacheDir.list();
 
         if (filepaths != null) {
@@ -362,7 +1418,7 @@ public class Tester {
                 // Only delete .pyc files
                 if (filepath.contains(".pyc")) {
                     File cachedFile =
-                            new File(this.implDirPath + "/__pycache__/" + filepath);
+                            new File(this.implDir() + "/__pycache__/" + filepath);
                     if (!cachedFile.delete()) {
                         throw new IOException("could not delete cached file " + filepath);
                     }
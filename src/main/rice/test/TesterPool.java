@@ -0,0 +1,134 @@
+package main.rice.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * The resources that several Testers running at once (e.g. the jobs of a batch; see
+ * BatchRunner) can share, so that each is set up once rather than once per Tester: the
+ * process slots that bound how many Python processes are alive across all of the
+ * Testers, the executor on which their files are tested concurrently, and optionally a
+ * fork server from which all of their processes are launched (see setPool() in Tester).
+ * <p>
+ * The fork server's children inherit its environment, and so its bytecode cache; a
+ * Tester whose bytecode cache differs from the pool's starts a fork server of its own.
+ */
+public class TesterPool implements Closeable {
+
+    /**
+     * The process slots shared by every Tester using the pool.
+     */
+    private final ConcurrencyController processSlots;
+
+    /**
+     * The executor on which every Tester using the pool tests its files, when it tests
+     * more than one at once.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The directory in which the fork server's children cache bytecode, or null if they
+     * use none.
+     */
+    private final Path bytecodeCache;
+
+    /**
+     * The shared fork server, or null if there is none.
+     */
+    private final ForkServer forkServer;
+
+    /**
+     * Constructor for a TesterPool, which starts the shared fork server if one is
+     * requested. If the server cannot be started, Testers start their processes as usual
+     * instead.
+     *
+     * @param processSlots  the process slots to share
+     * @param forkServer    true to launch every process from one shared fork server
+     * @param bytecodeCache the bytecode cache the fork server's children should use, or
+     *                      null for none
+     * @throws InterruptedException if interrupted while starting the fork server
+     */
+    public TesterPool(ConcurrencyController processSlots, boolean forkServer,
+                      String bytecodeCache) throws InterruptedException {
+        this.processSlots = processSlots;
+        this.executor = Tester.newOrchestrator(processSlots.getMax());
+        this.bytecodeCache = (bytecodeCache == null) ? null
+                : Path.of(bytecodeCache).toAbsolutePath();
+        ForkServer server = null;
+        if (forkServer) {
+            Map<String, String> environment = new HashMap<>();
+            if (this.bytecodeCache != null) {
+                environment.put("PYTHONPYCACHEPREFIX", this.bytecodeCache.toString());
+            }
+            try {
+                server = ForkServer.start(environment);
+            } catch (IOException e) {
+                // Testers start their processes as usual instead
+            }
+        }
+        this.forkServer = server;
+    }
+
+    /**
+     * Returns the process slots shared by every Tester using the pool.
+     *
+     * @return the process slots
+     */
+    public ConcurrencyController getProcessSlots() {
+        return this.processSlots;
+    }
+
+    /**
+     * Returns the executor on which Testers using the pool test their files.
+     *
+     * @return the executor
+     */
+    public ExecutorService getExecutor() {
+        return this.executor;
+    }
+
+    /**
+     * Returns the shared fork server, if it can launch processes for a Tester with the
+     * given bytecode cache.
+     *
+     * @param bytecodeCache the Tester's bytecode cache, or null if it has none
+     * @return the fork server, or null if there is none or it uses another cache
+     */
+    ForkServer getForkServer(Path bytecodeCache) {
+        if (this.forkServer == null || !this.forkServer.isAlive()
+                || !Objects.equals(bytecodeCache, this.bytecodeCache)) {
+            return null;
+        }
+        return this.forkServer;
+    }
+
+    /**
+     * Returns whether the given fork server is the pool's, and so must not be closed by
+     * a Tester.
+     *
+     * @param server a fork server
+     * @return true if server is the shared fork server
+     */
+    boolean isShared(ForkServer server) {
+        return server != null && server == this.forkServer;
+    }
+
+    /**
+     * Shuts down the executor and the fork server. Testers must not use the pool
+     * afterwards.
+     *
+     * @throws IOException if the fork server cannot be shut down
+     */
+    @Override
+    public void close() throws IOException {
+        this.executor.shutdownNow();
+        if (this.forkServer != null) {
+            this.forkServer.close();
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package test.rice;
+
+import main.rice.BatchRunner;
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.obj.PyIntObj;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import main.rice.test.TestResultsIO;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the BatchRunner class. Jobs load previously-saved results rather than
+ * running Python, so that only the batching itself is exercised.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BatchRunnerTest {
+
+    /**
+     * A directory for the manifests and results files written by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * Tests that readManifest() reads each job's name and args in order, naming unnamed
+     * jobs by their position.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testReadManifest() throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("manifest.json"),
+                "{\"jobs\": [{\"name\": \"func0\", \"args\": [\"a.json\", \"impl\", \"s.py\"]},"
+                        + " {\"args\": [\"--load-results\", \"r.bin\"]}]}");
+        List<BatchRunner.Job> jobs = BatchRunner.readManifest(manifest.toString());
+        assertEquals(2, jobs.size());
+        assertEquals("func0", jobs.get(0).getName());
+        assertEquals(List.of("a.json", "impl", "s.py"), jobs.get(0).getArgs());
+        assertEquals("1", jobs.get(1).getName());
+        assertEquals(List.of("--load-results", "r.bin"), jobs.get(1).getArgs());
+    }
+
+    /**
+     * Tests that readManifest() rejects a manifest that is not of the expected form.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(2)
+    void testReadManifestMalformed() throws IOException {
+        Path manifest = Files.writeString(tempDir.resolve("bad.json"), "{\"jobs\": 3}");
+        assertThrows(IOException.class, () -> BatchRunner.readManifest(manifest.toString()));
+    }
+
+    /**
+     * Tests that run() gives every job the same result as running it alone, whatever
+     * the concurrency, and that a failing job does not stop the others.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(3)
+    void testRun() throws IOException, InterruptedException {
+        Random rand = new Random(38);
+        List<TestResults> inputs = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            inputs.add(randomResults(rand, 20, 50));
+            TestResultsIO.write(inputs.get(i), tempDir.resolve(i + ".bin").toString());
+        }
+
+        for (int concurrency : new int[]{1, 3, 8}) {
+            List<BatchRunner.Job> jobs = new ArrayList<>();
+            for (int i = 0; i < inputs.size(); i++) {
+                jobs.add(new BatchRunner.Job("job" + i,
+                        List.of("--load-results", tempDir.resolve(i + ".bin").toString())));
+            }
+            jobs.add(new BatchRunner.Job("missing",
+                    List.of("--load-results", tempDir.resolve("missing.bin").toString())));
+
+            BatchRunner.run(jobs, List.of(), concurrency);
+            for (int i = 0; i < inputs.size(); i++) {
+                assertNull(jobs.get(i).getError());
+                assertEquals(ConciseSetGenerator.setCover(inputs.get(i)),
+                        new HashSet<>(jobs.get(i).getResult()));
+            }
+            assertNull(jobs.get(inputs.size()).getResult());
+            assertTrue(jobs.get(inputs.size()).getError() instanceof IOException);
+        }
+    }
+
+    /**
+     * Tests that shared args are passed to every job, and that a job's own options take
+     * precedence over them.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testRunSharedArgs() throws IOException, InterruptedException {
+        Random rand = new Random(39);
+        TestResults shared = randomResults(rand, 10, 30);
+        TestResults own = randomResults(rand, 10, 30);
+        TestResultsIO.write(shared, tempDir.resolve("shared.bin").toString());
+        TestResultsIO.write(own, tempDir.resolve("own.bin").toString());
+
+        List<BatchRunner.Job> jobs = List.of(new BatchRunner.Job("shared", List.of()),
+                new BatchRunner.Job("own",
+                        List.of("--load-results", tempDir.resolve("own.bin").toString())));
+        BatchRunner.run(jobs,
+                List.of("--load-results", tempDir.resolve("shared.bin").toString()), 2);
+        assertEquals(ConciseSetGenerator.setCover(shared),
+                new HashSet<>(jobs.get(0).getResult()));
+        assertEquals(ConciseSetGenerator.setCover(own),
+                new HashSet<>(jobs.get(1).getResult()));
+    }
+
+    /**
+     * Helper function which generates random results, with one integer test case per
+     * row.
+     *
+     * @param rand     the RNG to use
+     * @param numCases the number of test cases
+     * @param numFiles the number of files
+     * @return the generated results
+     */
+    private static TestResults randomResults(Random rand, int numCases, int numFiles) {
+        List<TestCase> cases = new ArrayList<>();
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int i = 0; i < numCases; i++) {
+            cases.add(new TestCase(List.of(new PyIntObj(i))));
+            Set<Integer> files = new HashSet<>();
+            for (int file = 0; file < numFiles; file++) {
+                if (rand.nextInt(5) == 0) {
+                    files.add(file);
+                }
+            }
+            caseToFiles.add(files);
+            wrongSet.addAll(files);
+        }
+        return new TestResults(cases, caseToFiles, wrongSet);
+    }
+}
@@ -0,0 +1,314 @@
+package test.rice;
+
+import main.rice.GenerationServer;
+import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.obj.PyIntObj;
+import main.rice.test.ConcurrencyController;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import main.rice.test.TestResultsIO;
+import main.rice.test.TesterPool;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the GenerationServer class. Jobs load previously-saved results rather
+ * than running Python, so that only the server itself is exercised.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class GenerationServerTest {
+
+    /**
+     * A directory for the results files written by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * The shared secret the server under test requires.
+     */
+    private static final String TOKEN = "secret-token";
+
+    /**
+     * The server under test, listening on a free port, with tempDir as its root.
+     */
+    private static GenerationServer server;
+
+    /**
+     * The client used to make requests.
+     */
+    private static final HttpClient client = HttpClient.newHttpClient();
+
+    /**
+     * Starts the server before any test runs.
+     */
+    @BeforeAll
+    static void setUp() throws IOException, InterruptedException {
+        server = new GenerationServer(0, List.of(), 2, TOKEN, tempDir,
+                new TesterPool(new ConcurrencyController(2, 2), false, null));
+        server.start();
+    }
+
+    /**
+     * Stops the server after every test has run.
+     */
+    @AfterAll
+    static void tearDown() throws IOException {
+        server.stop();
+    }
+
+    /**
+     * Tests that /health responds, and only to GET requests.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testHealth() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(
+                HttpRequest.newBuilder(uri("/health")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        assertEquals("ok", response.body());
+
+        response = client.send(HttpRequest.newBuilder(uri("/health"))
+                        .POST(HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(405, response.statusCode());
+    }
+
+    /**
+     * Tests that /generate streams progress followed by the same result as running the
+     * job directly, for several concurrent requests.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(2)
+    void testGenerate() throws IOException, InterruptedException {
+        Random rand = new Random(39);
+        List<TestResults> inputs = new ArrayList<>();
+        List<HttpRequest> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            inputs.add(randomResults(rand, 20, 50));
+            String path = tempDir.resolve(i + ".bin").toString();
+            TestResultsIO.write(inputs.get(i), path);
+            requests.add(generateRequest(new JSONArray().put("--load-results").put(path)));
+        }
+
+        List<HttpResponse<String>> responses = new ArrayList<>();
+        for (HttpRequest request : requests) {
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .join());
+        }
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(200, responses.get(i).statusCode());
+            List<JSONObject> lines = parseLines(responses.get(i).body());
+            assertEquals("queued", lines.get(0).getString("progress"));
+            assertEquals("loading results", lines.get(1).getString("progress"));
+
+            Set<String> expected = new HashSet<>();
+            for (TestCase testCase : ConciseSetGenerator.setCover(inputs.get(i))) {
+                expected.add(testCase.toString());
+            }
+            Set<String> actual = new HashSet<>();
+            JSONArray result = lines.get(lines.size() - 1).getJSONArray("result");
+            for (int j = 0; j < result.length(); j++) {
+                actual.add(result.getString(j));
+            }
+            assertEquals(expected, actual);
+        }
+    }
+
+    /**
+     * Tests that a failing job reports its error, and that a malformed request is
+     * rejected, without stopping the server.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(3)
+    void testGenerateErrors() throws IOException, InterruptedException {
+        Files.writeString(tempDir.resolve("corrupt.bin"), "not results");
+        HttpResponse<String> response = client.send(generateRequest(new JSONArray()
+                        .put("--load-results").put("corrupt.bin")),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+        List<JSONObject> lines = parseLines(response.body());
+        assertTrue(lines.get(lines.size() - 1).has("error"));
+
+        response = client.send(authorized(HttpRequest.newBuilder(uri("/generate")))
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"args\": 3}")).build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, response.statusCode());
+
+        response = client.send(HttpRequest.newBuilder(uri("/health")).GET().build(),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, response.statusCode());
+    }
+
+    /**
+     * Tests that requests without the shared secret, cross-origin requests and requests
+     * that are not JSON are all rejected before any job runs.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testRejectsUntrustedRequests() throws IOException, InterruptedException {
+        String body = new JSONObject().put("args", new JSONArray()).toString();
+        HttpRequest.Builder noToken = HttpRequest.newBuilder(uri("/generate"))
+                .header("Content-Type", "application/json");
+        assertEquals(401, send(noToken.POST(HttpRequest.BodyPublishers.ofString(body))));
+        HttpRequest.Builder wrongToken = HttpRequest.newBuilder(uri("/generate"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + TOKEN + "x");
+        assertEquals(401, send(wrongToken.POST(HttpRequest.BodyPublishers.ofString(body))));
+
+        HttpRequest.Builder crossOrigin = authorized(HttpRequest.newBuilder(uri("/generate")))
+                .header("Origin", "http://example.com");
+        assertEquals(403, send(crossOrigin.POST(HttpRequest.BodyPublishers.ofString(body))));
+
+        HttpRequest.Builder form = HttpRequest.newBuilder(uri("/generate"))
+                .header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "text/plain");
+        assertEquals(415, send(form.POST(HttpRequest.BodyPublishers.ofString(body))));
+    }
+
+    /**
+     * Tests that a request may not set options other than those choosing the concise
+     * test set, nor name files outside the server's root.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(5)
+    void testRejectsDisallowedArgs() throws IOException, InterruptedException {
+        TestResultsIO.write(randomResults(new Random(39), 5, 5),
+                tempDir.resolve("allowed.bin").toString());
+        Path outside = Files.createTempFile("outside", ".bin");
+        try {
+            List<JSONArray> rejected = List.of(
+                    new JSONArray().put("--load-results").put("allowed.bin")
+                            .put("--save-results").put("copy.bin"),
+                    new JSONArray().put("--load-results").put("allowed.bin")
+                            .put("--matrix-file").put("matrix.bin"),
+                    new JSONArray().put("--load-results").put("allowed.bin")
+                            .put("--max-cpu-s").put("0"),
+                    new JSONArray().put("--load-results").put(outside.toString()),
+                    new JSONArray().put("--load-results").put("../" + outside.getFileName()),
+                    new JSONArray().put("--load-results"));
+            for (JSONArray args : rejected) {
+                assertEquals(400, send(generateRequest(args)));
+            }
+            assertFalse(Files.exists(tempDir.resolve("copy.bin")));
+
+            assertEquals(200, send(generateRequest(new JSONArray().put("--load-results")
+                    .put("allowed.bin").put("--reduce").put("true"))));
+        } finally {
+            Files.delete(outside);
+        }
+    }
+
+    /**
+     * Helper function which sends a request and returns its status.
+     *
+     * @param request the request, ready to build
+     * @return the status code of the response
+     */
+    private static int send(HttpRequest.Builder request) throws IOException,
+            InterruptedException {
+        return send(request.build());
+    }
+
+    /**
+     * Helper function which sends a request and returns its status.
+     *
+     * @param request the request
+     * @return the status code of the response
+     */
+    private static int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode();
+    }
+
+    /**
+     * Helper function which adds the shared secret and a JSON content type to a request.
+     *
+     * @param request the request
+     * @return the request, with the headers added
+     */
+    private static HttpRequest.Builder authorized(HttpRequest.Builder request) {
+        return request.header("Authorization", "Bearer " + TOKEN)
+                .header("Content-Type", "application/json");
+    }
+
+    /**
+     * Helper function which builds the URI of a path on the server.
+     *
+     * @param path the path
+     * @return the URI
+     */
+    private static URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + server.getPort() + path);
+    }
+
+    /**
+     * Helper function which builds a request to /generate.
+     *
+     * @param args the args of the job
+     * @return the request
+     */
+    private static HttpRequest generateRequest(JSONArray args) {
+        return authorized(HttpRequest.newBuilder(uri("/generate"))).POST(HttpRequest
+                .BodyPublishers.ofString(new JSONObject().put("args", args).toString())).build();
+    }
+
+    /**
+     * Helper function which parses a streamed response into its lines.
+     *
+     * @param body the body of the response
+     * @return the JSON object on each line, in order
+     */
+    private static List<JSONObject> parseLines(String body) {
+        List<JSONObject> lines = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            lines.add(new JSONObject(line));
+        }
+        return lines;
+    }
+
+    /**
+     * Helper function which generates random results, with one integer test case per
+     * row.
+     *
+     * @param rand     the RNG to use
+     * @param numCases the number of test cases
+     * @param numFiles the number of files
+     * @return the generated results
+     */
+    private static TestResults randomResults(Random rand, int numCases, int numFiles) {
+        List<TestCase> cases = new ArrayList<>();
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int i = 0; i < numCases; i++) {
+            cases.add(new TestCase(List.of(new PyIntObj(i))));
+            Set<Integer> files = new HashSet<>();
+            for (int file = 0; file < numFiles; file++) {
+                if (rand.nextInt(5) == 0) {
+                    files.add(file);
+                }
+            }
+            caseToFiles.add(files);
+            wrongSet.addAll(files);
+        }
+        return new TestResults(cases, caseToFiles, wrongSet);
+    }
+}
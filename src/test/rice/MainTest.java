@@ -153,6 +153,61 @@ class MainTest {
         }
     }
 
+    /**
+     * Tests that early stopping, which records only one catching test case per file, is
+     * rejected when more than one is needed.
+     */
+    @Test
+    @Order(7)
+    void testEarlyStopWithKCoverage() {
+        String[] args = buildArgs("func0", "func0simple", "f0multipleWrong");
+        List<String> withOptions = new ArrayList<>(Arrays.asList(args));
+        withOptions.addAll(List.of("--early-stop", "true", "--k-coverage", "2"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Main.generateTests(withOptions.toArray(new String[0])));
+    }
+
+    /**
+     * Tests that an exact cover, which would be computed from the partial results of
+     * early stopping, is rejected.
+     */
+    @Test
+    @Order(8)
+    void testEarlyStopWithExactCover() {
+        String[] args = buildArgs("func0", "func0simple", "f0multipleWrong");
+        List<String> withOptions = new ArrayList<>(Arrays.asList(args));
+        withOptions.addAll(List.of("--early-stop", "true", "--exact-ms", "100"));
+        assertThrows(IllegalArgumentException.class,
+                () -> Main.generateTests(withOptions.toArray(new String[0])));
+    }
+
+    /**
+     * Tests that conflicting options for selecting the concise test set are rejected,
+     * rather than all but one being ignored, while compatible ones are accepted.
+     */
+    @Test
+    @Order(9)
+    void testConflictingCoverOptions() {
+        String[] args = buildArgs("func0", "func0simple", "f0multipleWrong");
+        for (List<String> options : List.of(
+                List.of("--exact-ms", "100", "--weighted", "true"),
+                List.of("--reduce", "true", "--improve-ms", "100"),
+                List.of("--cover-threads", "2", "--weighted", "true"),
+                List.of("--k-coverage", "2", "--reduce", "true"))) {
+            List<String> withOptions = new ArrayList<>(Arrays.asList(args));
+            withOptions.addAll(options);
+            assertThrows(IllegalArgumentException.class,
+                    () -> Main.generateTests(withOptions.toArray(new String[0])));
+        }
+
+        // Options that are turned off do not conflict with anything
+        List<String> withOptions = new ArrayList<>(Arrays.asList(args));
+        withOptions.addAll(List.of("--weighted", "false", "--reduce", "true", "--load-results",
+                userDir + "/does/not/exist"));
+        assertThrows(IOException.class,
+                () -> Main.generateTests(withOptions.toArray(new String[0])));
+    }
+
     /**
      * Helper function for building the array of args for Main.main() by adding absolute
      * path information.
@@ -1,10 +1,12 @@
 package test.rice.concisegen;
 
 import main.rice.concisegen.ConciseSetGenerator;
+import main.rice.concisegen.CoverResult;
 import main.rice.obj.APyObj;
 import main.rice.obj.PyFloatObj;
 import main.rice.obj.PyIntObj;
 import main.rice.obj.PyStringObj;
+import main.rice.test.BitMatrix;
 import main.rice.test.TestCase;
 import main.rice.test.TestResults;
 import org.junit.jupiter.api.*;
@@ -12,6 +14,8 @@ import org.junit.jupiter.api.*;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 /**
  * Test cases for the ConciseSetGenerator class.
@@ -311,6 +315,412 @@ class ConciseSetGeneratorTest {
         assertEquals(expected, actual);
     }
 
+    /**
+     * Tests that setCover() selects the same cases for matrix-backed results as for the
+     * equivalent set-backed results, including where greedy is not optimal.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(12)
+    void testMatrixBackedMatchesSets() {
+        List<TestCase> allCases = generateIntegerCases(10);
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        for (int i = 9; i > -1; i--) {
+            caseToFiles.add(new HashSet<>(List.of(i, (i * 7) % 10, 64 + i)));
+        }
+        Set<Integer> wrongSet = new HashSet<>();
+        for (Set<Integer> files : caseToFiles) {
+            wrongSet.addAll(files);
+        }
+        TestResults input = new TestResults(allCases, caseToFiles, wrongSet);
+        assertEquals(ConciseSetGenerator.setCover(input),
+                ConciseSetGenerator.setCover(toMatrixResults(input)));
+    }
+
+    /**
+     * Tests that setCover() on matrix-backed results agrees with set-backed results on
+     * many randomly generated inputs.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(13)
+    void testMatrixBackedRandom() {
+        Random rand = new Random(26);
+        for (int trial = 0; trial < 50; trial++) {
+            int numCases = 1 + rand.nextInt(30);
+            int numFiles = 1 + rand.nextInt(150);
+            List<TestCase> allCases = generateIntegerCases(numCases);
+            List<Set<Integer>> caseToFiles = new ArrayList<>();
+            Set<Integer> wrongSet = new HashSet<>();
+            for (int i = 0; i < numCases; i++) {
+                Set<Integer> files = new HashSet<>();
+                for (int file = 0; file < numFiles; file++) {
+                    if (rand.nextInt(10) == 0) {
+                        files.add(file);
+                    }
+                }
+                caseToFiles.add(files);
+                wrongSet.addAll(files);
+            }
+            TestResults input = new TestResults(allCases, caseToFiles, wrongSet);
+            assertEquals(ConciseSetGenerator.setCover(input),
+                    ConciseSetGenerator.setCover(toMatrixResults(input)));
+        }
+    }
+
+    /**
+     * Tests that exactSetCover() finds a minimum cover where greedy does not.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(14)
+    void testExactBeatsGreedy() {
+        List<TestCase> allCases = generateIntegerCases(3);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 1, 2), Set.of(3, 4, 5),
+                Set.of(0, 1, 3, 4));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(6));
+        assertEquals(3, ConciseSetGenerator.setCover(input).size());
+
+        CoverResult result = ConciseSetGenerator.exactSetCover(input, 10_000);
+        assertEquals(Set.of(allCases.get(0), allCases.get(1)), result.getCover());
+        assertTrue(result.isOptimal());
+        assertEquals(2, result.getLowerBound());
+        assertEquals(0, result.getGap());
+    }
+
+    /**
+     * Tests that exactSetCover() agrees with brute force on many small random inputs,
+     * for both set-backed and matrix-backed results.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(15)
+    void testExactMatchesBruteForce() {
+        Random rand = new Random(29);
+        for (int trial = 0; trial < 60; trial++) {
+            int numCases = 1 + rand.nextInt(12);
+            int numFiles = 1 + rand.nextInt(40);
+            TestResults input = randomResults(rand, numCases, numFiles, 4);
+            int minimum = bruteForceMinimum(input);
+
+            for (TestResults results : List.of(input, toMatrixResults(input))) {
+                CoverResult result = ConciseSetGenerator.exactSetCover(results, 10_000);
+                assertTrue(result.isOptimal());
+                assertEquals(minimum, result.getCover().size());
+                assertTrue(isCover(results, result.getCover()));
+            }
+        }
+    }
+
+    /**
+     * Tests that exactSetCover() with no time budget returns a valid cover no larger than
+     * the greedy one, with a lower bound that does not exceed the true minimum.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(16)
+    void testExactNoBudget() {
+        Random rand = new Random(2929);
+        for (int trial = 0; trial < 20; trial++) {
+            TestResults input = randomResults(rand, 12, 60, 5);
+            CoverResult result = ConciseSetGenerator.exactSetCover(input, 0);
+            assertTrue(isCover(input, result.getCover()));
+            assertTrue(result.getCover().size()
+                    <= ConciseSetGenerator.setCover(input).size());
+            assertTrue(result.getLowerBound() <= bruteForceMinimum(input));
+            assertEquals(result.getCover().size() - result.getLowerBound(),
+                    result.getGap());
+        }
+    }
+
+    /**
+     * Tests that reducedSetCover() selects essential cases first and skips duplicate and
+     * dominated cases, on an instance that the reductions solve outright.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(17)
+    void testReducedSetCover() {
+        List<TestCase> allCases = generateIntegerCases(6);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 1), Set.of(1), Set.of(0, 1),
+                Set.of(2, 3), Set.of(3, 4), Set.of(4));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(5));
+
+        // File 2 forces case 3; cases 1 and 2 are dominated by case 0, and case 5 by
+        // case 4, after which files 0 and 4 force cases 0 and 4
+        assertEquals(List.of(allCases.get(3), allCases.get(0), allCases.get(4)),
+                new ArrayList<>(ConciseSetGenerator.reducedSetCover(input)));
+    }
+
+    /**
+     * Tests that reducedSetCover() always returns a valid cover, no smaller than the
+     * minimum, on many random inputs.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(18)
+    void testReducedSetCoverRandom() {
+        Random rand = new Random(30);
+        for (int trial = 0; trial < 60; trial++) {
+            TestResults input = randomResults(rand, 1 + rand.nextInt(12),
+                    1 + rand.nextInt(40), 1 + rand.nextInt(6));
+            Set<TestCase> cover = ConciseSetGenerator.reducedSetCover(input);
+            assertTrue(isCover(input, cover));
+            assertTrue(cover.size() >= bruteForceMinimum(input));
+        }
+    }
+
+    /**
+     * Tests that weightedSetCover() prefers several fast cases over one slow case that
+     * catches the same files, and drops cases made redundant by later selections.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(19)
+    void testWeightedSetCover() {
+        List<TestCase> allCases = generateIntegerCases(4);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 1, 2, 3), Set.of(0, 1),
+                Set.of(2, 3), Set.of(1, 2));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(4));
+        assertEquals(Set.of(allCases.get(0)), ConciseSetGenerator.setCover(input));
+
+        // Case 3 is picked first (1 file per unit), then 1 and 2, making 3 redundant
+        input.setCaseRuntimes(new long[]{100, 10, 10, 4});
+        assertEquals(List.of(allCases.get(1), allCases.get(2)),
+                new ArrayList<>(ConciseSetGenerator.weightedSetCover(input)));
+
+        // Without runtimes, every case costs the same
+        input.setCaseRuntimes(null);
+        assertEquals(List.of(allCases.get(0)),
+                new ArrayList<>(ConciseSetGenerator.weightedSetCover(input)));
+
+        // A case whose runtime was not measured costs as much as the slowest case, so
+        // cases 1 and 2 (20ns in all) are picked over case 0 (40ns)
+        input.setCaseRuntimes(new long[]{-1, 10, 10, 40});
+        assertEquals(Set.of(allCases.get(1), allCases.get(2)),
+                ConciseSetGenerator.weightedSetCover(input));
+    }
+
+    /**
+     * Tests that weightedSetCover() always returns a valid cover on random inputs with
+     * random runtimes.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(20)
+    void testWeightedSetCoverRandom() {
+        Random rand = new Random(31);
+        for (int trial = 0; trial < 50; trial++) {
+            int numCases = 1 + rand.nextInt(30);
+            TestResults input = randomResults(rand, numCases, 1 + rand.nextInt(100), 5);
+            input.setCaseRuntimes(rand.longs(numCases, 0, 1_000_000).toArray());
+            assertTrue(isCover(input, ConciseSetGenerator.weightedSetCover(input)));
+        }
+    }
+
+    /**
+     * Tests that multiSetCover() with k = 1 selects the same cases as setCover().
+     */
+    @Test
+    @Tag("0.5")
+    @Order(21)
+    void testMultiSetCoverK1() {
+        Random rand = new Random(32);
+        for (int trial = 0; trial < 30; trial++) {
+            TestResults input = randomResults(rand, 1 + rand.nextInt(30),
+                    1 + rand.nextInt(100), 5);
+            assertEquals(ConciseSetGenerator.setCover(input),
+                    ConciseSetGenerator.multiSetCover(input, 1));
+        }
+    }
+
+    /**
+     * Tests that multiSetCover() catches each file k times, or as many times as
+     * possible, and rejects k less than 1.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(22)
+    void testMultiSetCover() {
+        List<TestCase> allCases = generateIntegerCases(4);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 1, 2), Set.of(0, 1),
+                Set.of(1, 2), Set.of(0));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(3));
+        assertEquals(List.of(allCases.get(0)),
+                new ArrayList<>(ConciseSetGenerator.multiSetCover(input, 1)));
+        assertEquals(List.of(allCases.get(0), allCases.get(1), allCases.get(2)),
+                new ArrayList<>(ConciseSetGenerator.multiSetCover(input, 2)));
+        assertEquals(new HashSet<>(allCases),
+                ConciseSetGenerator.multiSetCover(input, 5));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConciseSetGenerator.multiSetCover(input, 0));
+    }
+
+    /**
+     * Tests that exactSetCover() with k > 1 agrees with brute force on many small random
+     * inputs, and that multiSetCover() is never smaller.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(23)
+    void testExactMultiSetCover() {
+        Random rand = new Random(3232);
+        for (int trial = 0; trial < 60; trial++) {
+            int k = 2 + rand.nextInt(2);
+            TestResults input = randomResults(rand, 1 + rand.nextInt(12),
+                    1 + rand.nextInt(30), 3);
+            int minimum = bruteForceMinimum(input, k);
+
+            CoverResult result = ConciseSetGenerator.exactSetCover(input, k, 10_000);
+            assertTrue(result.isOptimal());
+            assertEquals(minimum, result.getCover().size());
+            assertTrue(isCover(input, result.getCover(), k));
+
+            Set<TestCase> greedy = ConciseSetGenerator.multiSetCover(input, k);
+            assertTrue(isCover(input, greedy, k));
+            assertTrue(greedy.size() >= minimum);
+        }
+    }
+
+    /**
+     * Tests that extendCover() keeps the existing cover and adds only the cases needed
+     * to catch the new files it misses.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(24)
+    void testExtendCover() {
+        List<TestCase> allCases = generateIntegerCases(4);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 1, 4), Set.of(2, 3),
+                Set.of(0, 1, 2, 3, 5), Set.of(5, 6));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(7));
+        Set<TestCase> cover = new LinkedHashSet<>(List.of(allCases.get(0), allCases.get(1)));
+
+        // File 4 is already caught; 5 and 6 are best caught by case 3
+        assertEquals(List.of(allCases.get(0), allCases.get(1), allCases.get(3)),
+                new ArrayList<>(ConciseSetGenerator.extendCover(input, cover,
+                        Set.of(4, 5, 6))));
+        assertEquals(List.of(allCases.get(0), allCases.get(1)), new ArrayList<>(cover));
+
+        // Nothing to do if every new file is already caught
+        assertEquals(cover, ConciseSetGenerator.extendCover(input, cover, Set.of(4)));
+        assertThrows(IllegalArgumentException.class, () -> ConciseSetGenerator.extendCover(
+                input, Set.of(new TestCase(List.of(new PyIntObj(9)))), Set.of(4)));
+    }
+
+    /**
+     * Tests that extendCover() with an improvement pass drops cases made redundant by
+     * the cases that were added.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(25)
+    void testExtendCoverImprove() {
+        List<TestCase> allCases = generateIntegerCases(3);
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0), Set.of(1), Set.of(0, 1, 2));
+        TestResults input = new TestResults(allCases, caseToFiles, generateAllWrong(3));
+        Set<TestCase> cover = new LinkedHashSet<>(List.of(allCases.get(0), allCases.get(1)));
+
+        assertEquals(3, ConciseSetGenerator.extendCover(input, cover, Set.of(2)).size());
+        assertEquals(List.of(allCases.get(2)), new ArrayList<>(
+                ConciseSetGenerator.extendCover(input, cover, Set.of(2), 1_000)));
+    }
+
+    /**
+     * Tests that extending a cover of the old files always yields a cover of all files,
+     * on random inputs.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(26)
+    void testExtendCoverRandom() {
+        Random rand = new Random(33);
+        for (int trial = 0; trial < 40; trial++) {
+            int numOldFiles = 1 + rand.nextInt(60);
+            int numNewFiles = 1 + rand.nextInt(10);
+            TestResults input = randomResults(rand, 1 + rand.nextInt(20),
+                    numOldFiles + numNewFiles, 5);
+
+            // Cover the old files only, then extend to the new ones
+            List<Set<Integer>> oldCaseToFiles = new ArrayList<>();
+            for (Set<Integer> files : input.getCaseToFiles()) {
+                Set<Integer> oldFiles = new HashSet<>(files);
+                oldFiles.removeIf(file -> file >= numOldFiles);
+                oldCaseToFiles.add(oldFiles);
+            }
+            Set<Integer> oldWrongSet = new HashSet<>(input.getWrongSet());
+            oldWrongSet.removeIf(file -> file >= numOldFiles);
+            Set<TestCase> cover = ConciseSetGenerator.setCover(new TestResults(
+                    input.getAllCases(), oldCaseToFiles, oldWrongSet));
+
+            Set<Integer> newFiles = new HashSet<>();
+            for (int file = numOldFiles; file < numOldFiles + numNewFiles; file++) {
+                newFiles.add(file);
+            }
+            Set<TestCase> extended = ConciseSetGenerator.extendCover(input, cover, newFiles);
+            assertTrue(extended.containsAll(cover));
+            assertTrue(isCover(input, extended));
+
+            Set<TestCase> improved =
+                    ConciseSetGenerator.extendCover(input, cover, newFiles, 1_000);
+            assertTrue(isCover(input, improved));
+            assertTrue(improved.size() <= extended.size());
+        }
+    }
+
+    /**
+     * Tests that the parallel greedy approximation selects exactly the same cases as the
+     * sequential one, regardless of the number of threads, including on inputs large
+     * enough to be evaluated in parallel.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(27)
+    void testParallelSetCover() {
+        Random rand = new Random(34);
+        for (int trial = 0; trial < 30; trial++) {
+            boolean large = trial % 10 == 0;
+            TestResults input = large
+                    ? randomResults(rand, 200 + rand.nextInt(100), 1000 + rand.nextInt(1000), 20)
+                    : randomResults(rand, 1 + rand.nextInt(30), 1 + rand.nextInt(100),
+                    1 + rand.nextInt(8));
+            Set<TestCase> expected = ConciseSetGenerator.setCover(input);
+            for (int parallelism : new int[]{0, 1, 4}) {
+                Set<TestCase> actual = ConciseSetGenerator.parallelSetCover(input, parallelism);
+                assertEquals(expected, actual);
+                assertTrue(isCover(input, actual));
+            }
+        }
+    }
+
+    /**
+     * Tests that improvedSetCover() returns a cover that is never larger than the one
+     * setCover() returns, with or without time to improve it, and that it does shrink
+     * some greedy covers.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(28)
+    void testImprovedSetCover() {
+        Random rand = new Random(35);
+        int numImproved = 0;
+        for (int trial = 0; trial < 200; trial++) {
+            TestResults input = randomResults(rand, 1 + rand.nextInt(30),
+                    1 + rand.nextInt(60), 2 + rand.nextInt(6));
+            int greedySize = ConciseSetGenerator.setCover(input).size();
+
+            Set<TestCase> improved = ConciseSetGenerator.improvedSetCover(input, 1_000);
+            assertTrue(isCover(input, improved));
+            assertTrue(improved.size() <= greedySize);
+            numImproved += (improved.size() < greedySize) ? 1 : 0;
+
+            Set<TestCase> unimproved = ConciseSetGenerator.improvedSetCover(input, 0);
+            assertTrue(isCover(input, unimproved));
+            assertTrue(unimproved.size() <= greedySize);
+        }
+        assertTrue(numImproved > 0);
+    }
+
     /**
      * Helper function which generates an allCases list containing integers from 0 to
      * numTests - 1, inclusive.
@@ -431,4 +841,124 @@ class ConciseSetGeneratorTest {
         Set<TestCase> actual = ConciseSetGenerator.setCover(input);
         assertEquals(expected, actual);
     }
+
+    /**
+     * Helper function which converts set-backed results into the equivalent
+     * matrix-backed results.
+     *
+     * @param results the set-backed results
+     * @return matrix-backed results with the same cases and case-to-file mapping
+     */
+    private static TestResults toMatrixResults(TestResults results) {
+        List<Set<Integer>> caseToFiles = results.getCaseToFiles();
+        BitMatrix matrix = new BitMatrix(caseToFiles.size(), results.getNumFiles());
+        List<TestCase> allCases = new ArrayList<>();
+        for (int i = 0; i < caseToFiles.size(); i++) {
+            allCases.add(results.getTestCase(i));
+            for (int file : caseToFiles.get(i)) {
+                matrix.set(i, file);
+            }
+        }
+        return new TestResults(allCases, matrix);
+    }
+
+    /**
+     * Helper function which generates random results, in which each case catches each
+     * file with probability 1/density and the wrong set is the union of the cases.
+     *
+     * @param rand     the source of randomness
+     * @param numCases the number of test cases
+     * @param numFiles the number of files
+     * @param density  the inverse of the probability that a case catches a file
+     * @return the random results
+     */
+    private TestResults randomResults(Random rand, int numCases, int numFiles,
+                                      int density) {
+        List<Set<Integer>> caseToFiles = new ArrayList<>();
+        Set<Integer> wrongSet = new HashSet<>();
+        for (int i = 0; i < numCases; i++) {
+            Set<Integer> files = new HashSet<>();
+            for (int file = 0; file < numFiles; file++) {
+                if (rand.nextInt(density) == 0) {
+                    files.add(file);
+                }
+            }
+            caseToFiles.add(files);
+            wrongSet.addAll(files);
+        }
+        return new TestResults(generateIntegerCases(numCases), caseToFiles, wrongSet);
+    }
+
+    /**
+     * Helper function which returns whether the given cases catch every wrong file.
+     *
+     * @param results the results of testing
+     * @param cover   the selected test cases
+     * @return true if every file in the wrong set is caught by some case in cover
+     */
+    private boolean isCover(TestResults results, Set<TestCase> cover) {
+        return isCover(results, cover, 1);
+    }
+
+    /**
+     * Helper function which returns whether the given cases catch every wrong file k
+     * times, or as many times as any subset of the cases could.
+     *
+     * @param results the results of testing
+     * @param cover   the selected test cases
+     * @param k       the number of times each file should be caught
+     * @return true if every file in the wrong set is caught often enough by cover
+     */
+    private boolean isCover(TestResults results, Set<TestCase> cover, int k) {
+        for (int file : results.getWrongSet()) {
+            int available = 0;
+            int caught = 0;
+            for (int i = 0; i < results.getCaseToFiles().size(); i++) {
+                if (results.getCaseToFiles().get(i).contains(file)) {
+                    available++;
+                    caught += cover.contains(results.getTestCase(i)) ? 1 : 0;
+                }
+            }
+            if (caught < Math.min(k, available)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Helper function which finds the size of a minimum cover by trying every subset of
+     * the test cases.
+     *
+     * @param results the results of testing; must have few test cases
+     * @return the size of a minimum cover
+     */
+    private int bruteForceMinimum(TestResults results) {
+        return bruteForceMinimum(results, 1);
+    }
+
+    /**
+     * Helper function which finds the size of a minimum k-cover by trying every subset
+     * of the test cases.
+     *
+     * @param results the results of testing; must have few test cases
+     * @param k       the number of times each file should be caught
+     * @return the size of a minimum k-cover
+     */
+    private int bruteForceMinimum(TestResults results, int k) {
+        int numCases = results.getCaseToFiles().size();
+        int minimum = Integer.MAX_VALUE;
+        for (int subset = 0; subset < (1 << numCases); subset++) {
+            Set<TestCase> cover = new HashSet<>();
+            for (int i = 0; i < numCases; i++) {
+                if ((subset & (1 << i)) != 0) {
+                    cover.add(results.getTestCase(i));
+                }
+            }
+            if (cover.size() < minimum && isCover(results, cover, k)) {
+                minimum = cover.size();
+            }
+        }
+        return minimum;
+    }
 }
@@ -0,0 +1,100 @@
+package test.rice.obj;
+
+import main.rice.obj.*;
+import org.junit.jupiter.api.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the PyObjCodec class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PyObjCodecTest {
+
+    /**
+     * Tests round trips of primitive objects.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testRoundTripPrimitives() throws IOException {
+        for (APyObj<?> obj : List.of(new PyIntObj(Integer.MIN_VALUE), new PyIntObj(7),
+                new PyFloatObj(-0.5), new PyBoolObj(false), new PyBoolObj(true),
+                new PyStringObj(""), new PyStringObj("a'b"))) {
+            assertRoundTrip(obj);
+        }
+    }
+
+    /**
+     * Tests round trips of nested iterable objects.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testRoundTripNested() throws IOException {
+        PyTupleObj<PyIntObj> tuple = new PyTupleObj<>(List.of(new PyIntObj(1)));
+        assertRoundTrip(new PyListObj<>(List.of(tuple, new PyTupleObj<>(List.of()))));
+        assertRoundTrip(new PySetObj<>(Set.of(tuple)));
+        assertRoundTrip(new PySetObj<>(Set.of()));
+        assertRoundTrip(new PyDictObj<>(Map.of(tuple,
+                new PyListObj<>(List.of(new PyStringObj("x"))))));
+    }
+
+    /**
+     * Tests that decoded objects keep their Python type (e.g. a tuple and a list with
+     * the same elements are not confused).
+     */
+    @Test
+    @Tag("0.5")
+    @Order(3)
+    void testPreservesType() throws IOException {
+        APyObj<?> decoded = roundTrip(new PyTupleObj<>(List.of(new PyIntObj(2))));
+        assertTrue(decoded instanceof PyTupleObj);
+        assertEquals("(2,)", decoded.toString());
+    }
+
+    /**
+     * Tests that an unknown tag and a truncated encoding both throw an IOException.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(4)
+    void testMalformed() {
+        assertThrows(IOException.class, () -> PyObjCodec.read(ByteBuffer.wrap(new byte[]{99})));
+        assertThrows(IOException.class, () -> PyObjCodec.read(ByteBuffer.wrap(new byte[]{1, 0})));
+        assertThrows(IOException.class,
+                () -> PyObjCodec.read(ByteBuffer.wrap(new byte[]{5, 0x7f, 0, 0, 0})));
+    }
+
+    /**
+     * Helper function that encodes and then decodes the input object.
+     *
+     * @param obj the object to encode
+     * @return the decoded object
+     * @throws IOException if encoding or decoding fails
+     */
+    private static APyObj<?> roundTrip(APyObj<?> obj) throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        PyObjCodec.write(new DataOutputStream(bytes), obj);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        APyObj<?> decoded = PyObjCodec.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decoded;
+    }
+
+    /**
+     * Helper function that asserts that the input object survives a round trip.
+     *
+     * @param obj the object to encode and decode
+     * @throws IOException if encoding or decoding fails
+     */
+    private static void assertRoundTrip(APyObj<?> obj) throws IOException {
+        assertEquals(obj, roundTrip(obj));
+    }
+}
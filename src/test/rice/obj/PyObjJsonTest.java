@@ -0,0 +1,88 @@
+package test.rice.obj;
+
+import main.rice.obj.*;
+import org.junit.jupiter.api.*;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the PyObjJson class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class PyObjJsonTest {
+
+    /**
+     * Tests the encoding of primitive objects.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testEncodePrimitives() {
+        assertEquals("[-2147483648, 7]",
+                PyObjJson.encode(List.of(new PyIntObj(Integer.MIN_VALUE), new PyIntObj(7))));
+        assertEquals("[-0.5, 3.0, 1.0E10]", PyObjJson.encode(List.of(new PyFloatObj(-0.5),
+                new PyFloatObj(3.0), new PyFloatObj(1e10))));
+        assertEquals("[{\"f\": \"inf\"}, {\"f\": \"nan\"}]", PyObjJson.encode(List.of(
+                new PyFloatObj(Double.POSITIVE_INFINITY), new PyFloatObj(Double.NaN))));
+        assertEquals("[false, true]",
+                PyObjJson.encode(List.of(new PyBoolObj(false), new PyBoolObj(true))));
+        assertEquals("[\"\", \"a'b\\\"c\"]",
+                PyObjJson.encode(List.of(new PyStringObj(""), new PyStringObj("a'b\"c"))));
+    }
+
+    /**
+     * Tests the encoding of nested iterable objects, whose types JSON lacks.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testEncodeNested() {
+        PyTupleObj<PyIntObj> tuple = new PyTupleObj<>(List.of(new PyIntObj(1)));
+        assertEquals("[[{\"t\": [1]}, {\"t\": []}]]", PyObjJson.encode(List.of(
+                new PyListObj<>(List.of(tuple, new PyTupleObj<>(List.of()))))));
+        assertEquals("[{\"s\": [{\"t\": [1]}]}, {\"s\": []}]", PyObjJson.encode(List.of(
+                new PySetObj<>(Set.of(tuple)), new PySetObj<>(Set.of()))));
+        assertEquals("[{\"d\": [[{\"t\": [1]}, [\"x\"]]]}]", PyObjJson.encode(List.of(
+                new PyDictObj<>(Map.of(tuple, new PyListObj<>(List.of(new PyStringObj("x"))))))));
+    }
+
+    /**
+     * Tests that Python decodes the encoding, using the provided hook, to objects with
+     * the same type and value.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(3)
+    void testPythonDecode() throws IOException, InterruptedException {
+        PyTupleObj<PyIntObj> tuple = new PyTupleObj<>(List.of(new PyIntObj(1)));
+        List<APyObj<?>> args = List.of(new PyIntObj(-3), new PyFloatObj(2.5),
+                new PyBoolObj(true), new PyStringObj("ab"),
+                new PyListObj<>(List.of(tuple, new PyTupleObj<>(List.of()))),
+                new PySetObj<>(Set.of(tuple)), new PySetObj<>(Set.of()),
+                new PyDictObj<>(Map.of(tuple, new PyListObj<>(List.of(new PyFloatObj(-1.0))))),
+                new PyTupleObj<>(List.of(new PyListObj<>(List.of(new PyIntObj(2))),
+                        new PyIntObj(3))));
+        String program = "import sys\nimport json\n\n" + PyObjJson.DECODER
+                + "\nfor arg in json.loads(sys.stdin.read(), object_hook=_feat_decode):\n"
+                + "    print(type(arg).__name__, repr(arg))\n";
+
+        Process process = new ProcessBuilder("python3", "-c", program).start();
+        try (var writer = new OutputStreamWriter(process.getOutputStream(),
+                StandardCharsets.UTF_8)) {
+            writer.write(PyObjJson.encode(args));
+        }
+        String output = new String(process.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertEquals(0, process.waitFor());
+
+        List<String> expected = List.of("int -3", "float 2.5", "bool True", "str 'ab'",
+                "list [(1,), ()]", "set {(1,)}", "set set()", "dict {(1,): [-1.0]}",
+                "tuple ([2], 3)");
+        assertEquals(expected, Arrays.asList(output.split("\n")));
+    }
+}
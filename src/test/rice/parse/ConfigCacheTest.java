@@ -0,0 +1,122 @@
+package test.rice.parse;
+
+import main.rice.parse.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ConfigCache class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ConfigCacheTest {
+
+    /**
+     * A temporary directory holding the config file and the cache.
+     */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that loading through the cache yields the same config as parsing, and that
+     * the first load creates a single cache entry.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testLoadMatchesParse() throws IOException, InvalidConfigException {
+        Path config = this.writeConfig(ConfigSpecTest.NESTED_CONFIG);
+        Path cache = this.tempDir.resolve("cache");
+        ConfigFile loaded = ConfigCache.load(config.toString(), cache.toString());
+        ConfigSpecTest.assertSameConfig(
+                ConfigFileParser.parse(ConfigSpecTest.NESTED_CONFIG), loaded);
+        assertEquals(1, this.entries(cache).size());
+    }
+
+    /**
+     * Tests that a later load uses the cached spec rather than parsing the config again.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testLoadUsesCache() throws IOException, InvalidConfigException {
+        Path config = this.writeConfig(ConfigSpecTest.NESTED_CONFIG);
+        Path cache = this.tempDir.resolve("cache");
+        ConfigCache.load(config.toString(), cache.toString());
+
+        // Swap in a different spec under the same key; it should be what's loaded
+        String other = ConfigSpecTest.NESTED_CONFIG.replace("nested", "other");
+        Path entry = this.entries(cache).get(0);
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(entry))) {
+            ConfigSpec.compile(ConfigFileParser.parse(other)).write(out);
+        }
+        assertEquals("other", ConfigCache.load(config.toString(), cache.toString())
+                .getFuncName());
+    }
+
+    /**
+     * Tests that an unreadable cache entry is ignored and replaced.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(3)
+    void testCorruptEntryReplaced() throws IOException, InvalidConfigException {
+        Path config = this.writeConfig(ConfigSpecTest.NESTED_CONFIG);
+        Path cache = this.tempDir.resolve("cache");
+        ConfigCache.load(config.toString(), cache.toString());
+        Path entry = this.entries(cache).get(0);
+        Files.writeString(entry, "garbage");
+
+        assertEquals("nested", ConfigCache.load(config.toString(), cache.toString())
+                .getFuncName());
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(entry))) {
+            assertEquals("nested", ConfigSpec.read(in).toConfigFile().getFuncName());
+        }
+    }
+
+    /**
+     * Tests that an invalid config throws an InvalidConfigException and is not cached.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testInvalidConfigNotCached() throws IOException {
+        Path config = this.writeConfig("{\"fname\": \"broken\"}");
+        Path cache = this.tempDir.resolve("cache");
+        assertThrows(InvalidConfigException.class,
+                () -> ConfigCache.load(config.toString(), cache.toString()));
+        assertTrue(!Files.exists(cache) || this.entries(cache).isEmpty());
+    }
+
+    /**
+     * Helper function which writes a config file into the temporary directory.
+     *
+     * @param contents the contents of the config file
+     * @return the path to the config file
+     * @throws IOException if the file cannot be written
+     */
+    private Path writeConfig(String contents) throws IOException {
+        return Files.writeString(this.tempDir.resolve("config.json"), contents);
+    }
+
+    /**
+     * Helper function which lists the entries in a cache directory.
+     *
+     * @param cache the cache directory
+     * @return the paths of the files in cache
+     * @throws IOException if the directory cannot be listed
+     */
+    private List<Path> entries(Path cache) throws IOException {
+        try (Stream<Path> files = Files.list(cache)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
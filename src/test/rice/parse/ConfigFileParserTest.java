@@ -1016,6 +1016,84 @@ class ConfigFileParserTest {
         assertTrue(correctDomains(retval.getNodes(), nestedDictNodes, true));
     }
 
+    /**
+     * Tests that an InvalidConfigException reports the offset, within the offending type
+     * or domain string, at which the error was detected.
+     */
+    @Test
+    @Order(68)
+    void testErrorOffsets() {
+        String badType = buildConfigText("broken", "[\"list(tuple(integer\"]",
+                "[\"0~1(0~1(0~1\"]", "[\"0~1(0~1(0~1\"]", "1");
+        InvalidConfigException e = assertThrows(InvalidConfigException.class,
+                () -> ConfigFileParser.parse(badType));
+        assertEquals(11, e.getOffset());
+
+        String badDomain = buildConfigText("broken", "[\"dict(int:int\"]",
+                "[\"0~2(0~10:0~x\"]", "[\"0~2(0~10:0~10\"]", "1");
+        e = assertThrows(InvalidConfigException.class,
+                () -> ConfigFileParser.parse(badDomain));
+        assertEquals(11, e.getOffset());
+    }
+
+    /**
+     * Tests that deeply nested types and domains are parsed correctly (and quickly).
+     */
+    @Test
+    @Order(69)
+    void testDeeplyNested() throws InvalidConfigException {
+        int depth = 500;
+        String type = "list(".repeat(depth) + "int";
+        String domain = "1(".repeat(depth) + "0~2";
+        ConfigFile retval = ConfigFileParser.parse(buildConfigText("deep",
+                "[\"" + type + "\"]", "[\"" + domain + "\"]", "[\"" + domain + "\"]",
+                "1"));
+        APyNode<?> node = retval.getNodes().get(0);
+        for (int i = 0; i < depth; i++) {
+            assertTrue(node instanceof PyListNode);
+            assertEquals(List.of(1), node.getExDomain());
+            node = node.getLeftChild();
+        }
+        assertTrue(node instanceof PyIntNode);
+        assertTrue(domainEquals(List.of(0, 1, 2), node.getRanDomain()));
+    }
+
+    /**
+     * Tests that parseTypes() builds the expected tree for a valid type string, and
+     * returns null for an invalid one.
+     */
+    @Test
+    @Order(70)
+    void testParseTypes() {
+        APyNode<?> node = ConfigFileParser.parseTypes("dict(str(ab:list(float");
+        assertTrue(node instanceof PyDictNode);
+        assertTrue(node.getLeftChild() instanceof PyStringNode);
+        assertTrue(node.getRightChild() instanceof PyListNode);
+        assertTrue(node.getRightChild().getLeftChild() instanceof PyFloatNode);
+        assertNull(ConfigFileParser.parseTypes("dict(int"));
+    }
+
+    /**
+     * Tests the two domains the single-pass parser treats differently from the parser it
+     * replaced: a float range with spaces around the "~", which was rejected, is now
+     * accepted, and a negative string length, which was accepted, is now rejected.
+     */
+    @Test
+    @Order(71)
+    void testDomainDifferences() throws InvalidConfigException {
+        ConfigFile retval = ConfigFileParser.parse(buildConfigText("spaced",
+                "[\"float\"]", "[\"1 ~ 2\"]", "[\"1 ~ 2\"]", "1"));
+        APyNode<?> node = retval.getNodes().get(0);
+        assertTrue(node instanceof PyFloatNode);
+        assertTrue(domainEquals(List.of(1.0, 2.0), node.getExDomain()));
+        assertTrue(domainEquals(List.of(1.0, 2.0), node.getRanDomain()));
+
+        String negativeLength = buildConfigText("negative", "[\"str(abc\"]",
+                "[\"-1~1\"]", "[\"0~1\"]", "1");
+        assertThrows(InvalidConfigException.class,
+                () -> ConfigFileParser.parse(negativeLength));
+    }
+
     /**
      * Helper function for building a ConfigFile object.
      *
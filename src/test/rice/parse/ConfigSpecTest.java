@@ -0,0 +1,126 @@
+package test.rice.parse;
+
+import main.rice.node.*;
+import main.rice.parse.*;
+import org.junit.jupiter.api.*;
+
+import java.io.*;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ConfigSpec class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ConfigSpecTest {
+
+    /**
+     * Config file text with one parameter of every kind, several of them nested.
+     */
+    static final String NESTED_CONFIG = "{\"fname\": \"nested\", "
+            + "\"types\": [\"int\", \"float\", \"bool\", \"str(abc\", "
+            + "\"dict(tuple(bool:set(int\", \"list(list(str(xyz\", \"set(tuple(float\"], "
+            + "\"exhaustive domain\": [\"-2~2\", \"[0.5, 1.5]\", \"0~1\", \"0~2\", "
+            + "\"0~1(1~2(0~1:2~3(3~4\", \"1~2(0~1(1~2\", \"0~1(1~2(3~4\"], "
+            + "\"random domain\": [\"5~9\", \"1~3\", \"[1]\", \"[1, 3]\", "
+            + "\"0~2(1~3(0~0:2~4(3~5\", \"2(1~2(0~3\", \"1~2(0~2(3~5\"], "
+            + "\"num random\": 12}";
+
+    /**
+     * Tests that compiling a parsed config and building a ConfigFile from the spec
+     * yields the same function name, number of random tests, and node trees.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testCompileRoundTrip() throws InvalidConfigException {
+        ConfigFile parsed = ConfigFileParser.parse(NESTED_CONFIG);
+        ConfigFile built = ConfigSpec.compile(parsed).toConfigFile();
+        assertSameConfig(parsed, built);
+    }
+
+    /**
+     * Tests that a spec written to a stream and read back builds the same config.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testWriteReadRoundTrip() throws InvalidConfigException, IOException {
+        ConfigFile parsed = ConfigFileParser.parse(NESTED_CONFIG);
+        var bytes = new ByteArrayOutputStream();
+        ConfigSpec.compile(parsed).write(new DataOutputStream(bytes));
+        ConfigSpec read = ConfigSpec.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertSameConfig(parsed, read.toConfigFile());
+    }
+
+    /**
+     * Tests that each call to toConfigFile() builds new nodes, so that mutating one
+     * config does not affect the spec or any other config built from it.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(3)
+    void testToConfigFileIsFresh() throws InvalidConfigException {
+        ConfigSpec spec = ConfigSpec.compile(ConfigFileParser.parse(NESTED_CONFIG));
+        ConfigFile first = spec.toConfigFile();
+        first.getNodes().get(0).setExDomain(List.of(100));
+        ConfigFile second = spec.toConfigFile();
+        assertNotSame(first.getNodes().get(0), second.getNodes().get(0));
+        assertEquals(Set.of(-2, -1, 0, 1, 2),
+                new HashSet<>(second.getNodes().get(0).getExDomain()));
+    }
+
+    /**
+     * Tests that reading a stream that does not hold a spec throws an IOException.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testReadInvalid() {
+        byte[] bytes = "not a spec".getBytes();
+        assertThrows(IOException.class, () -> ConfigSpec.read(
+                new DataInputStream(new ByteArrayInputStream(bytes))));
+    }
+
+    /**
+     * Helper function which asserts that two configs have the same function name,
+     * number of random tests, and node trees (including domains).
+     *
+     * @param expected the expected config
+     * @param actual   the actual config
+     */
+    static void assertSameConfig(ConfigFile expected, ConfigFile actual) {
+        assertEquals(expected.getFuncName(), actual.getFuncName());
+        assertEquals(expected.getNumRand(), actual.getNumRand());
+        assertEquals(expected.getNodes().size(), actual.getNodes().size());
+        for (int i = 0; i < expected.getNodes().size(); i++) {
+            assertSameNode(expected.getNodes().get(i), actual.getNodes().get(i));
+        }
+    }
+
+    /**
+     * Helper function which asserts that two node trees have the same structure and
+     * domains.
+     *
+     * @param expected the expected node, or null
+     * @param actual   the actual node, or null
+     */
+    private static void assertSameNode(APyNode<?> expected, APyNode<?> actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertEquals(expected.getClass(), actual.getClass());
+        assertEquals(expected.getExDomain(), actual.getExDomain());
+        assertEquals(expected.getRanDomain(), actual.getRanDomain());
+        if (expected instanceof PyStringNode) {
+            assertEquals(((PyStringNode) expected).getCharDomain(),
+                    ((PyStringNode) actual).getCharDomain());
+            return;
+        }
+        assertSameNode(expected.getLeftChild(), actual.getLeftChild());
+        assertSameNode(expected.getRightChild(), actual.getRightChild());
+    }
+}
@@ -0,0 +1,158 @@
+package test.rice.test;
+
+import main.rice.test.BitFileSet;
+import main.rice.test.BitMatrix;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the BitMatrix and BitFileSet classes.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BitMatrixTest {
+
+    /**
+     * Tests that a newly-constructed matrix has the requested dimensions and no set bits.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testNewMatrixEmpty() {
+        BitMatrix matrix = new BitMatrix(3, 130);
+        assertEquals(3, matrix.getNumRows());
+        assertEquals(130, matrix.getNumCols());
+        assertEquals(3, matrix.getWordsPerRow());
+        for (int row = 0; row < 3; row++) {
+            assertEquals(0, matrix.rowCardinality(row));
+            assertEquals(Set.of(), matrix.rowView(row));
+        }
+    }
+
+    /**
+     * Tests set() and get() on bits that straddle word boundaries.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testSetAndGet() {
+        BitMatrix matrix = new BitMatrix(2, 130);
+        matrix.set(0, 0);
+        matrix.set(0, 63);
+        matrix.set(0, 64);
+        matrix.set(1, 129);
+        assertTrue(matrix.get(0, 0));
+        assertTrue(matrix.get(0, 63));
+        assertTrue(matrix.get(0, 64));
+        assertFalse(matrix.get(0, 129));
+        assertTrue(matrix.get(1, 129));
+        assertFalse(matrix.get(1, 0));
+        assertEquals(3, matrix.rowCardinality(0));
+        assertEquals(1, matrix.rowCardinality(1));
+    }
+
+    /**
+     * Tests that a row view is equal (in both directions) to the equivalent HashSet and
+     * iterates in ascending order.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(3)
+    void testRowViewEqualsHashSet() {
+        BitMatrix matrix = new BitMatrix(1, 200);
+        Set<Integer> expected = new HashSet<>(List.of(199, 3, 64, 65, 127));
+        for (int file : expected) {
+            matrix.set(0, file);
+        }
+        Set<Integer> view = matrix.rowView(0);
+        assertEquals(expected, view);
+        assertEquals(view, expected);
+        assertEquals(expected.hashCode(), view.hashCode());
+        assertEquals(List.of(3, 64, 65, 127, 199), new ArrayList<>(view));
+        assertFalse(view.contains(4));
+        assertFalse(view.contains(-1));
+        assertFalse(view.contains(1000));
+    }
+
+    /**
+     * Tests that row views reflect later changes to the matrix.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(4)
+    void testRowViewIsLive() {
+        BitMatrix matrix = new BitMatrix(2, 10);
+        Set<Integer> view = matrix.rowView(1);
+        assertTrue(view.isEmpty());
+        matrix.set(1, 7);
+        assertEquals(Set.of(7), view);
+    }
+
+    /**
+     * Tests that row views are read-only.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(5)
+    void testRowViewReadOnly() {
+        BitMatrix matrix = new BitMatrix(1, 10);
+        assertThrows(UnsupportedOperationException.class, () -> matrix.rowView(0).add(1));
+    }
+
+    /**
+     * Tests unionOfRows().
+     */
+    @Test
+    @Tag("0.5")
+    @Order(6)
+    void testUnionOfRows() {
+        BitMatrix matrix = new BitMatrix(3, 70);
+        matrix.set(0, 1);
+        matrix.set(1, 69);
+        matrix.set(2, 1);
+        assertEquals(Set.of(1, 69), new BitFileSet(matrix.unionOfRows()));
+    }
+
+    /**
+     * Tests that a matrix can wrap an existing buffer, and rejects one that is too small.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(7)
+    void testWrapBuffer() {
+        LongBuffer words = LongBuffer.wrap(new long[]{0b101L, 0L, 1L << 63, 1L});
+        BitMatrix matrix = new BitMatrix(2, 65, words);
+        assertEquals(Set.of(0, 2), matrix.rowView(0));
+        assertEquals(Set.of(63, 64), matrix.rowView(1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BitMatrix(3, 65, words));
+    }
+
+    /**
+     * Tests that a memory-mapped matrix starts empty, can be written, and is backed by a
+     * file of the expected size.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(8)
+    void testMap(@TempDir Path tempDir) throws IOException {
+        Path path = tempDir.resolve("matrix.bin");
+        Files.writeString(path, "stale contents that must be discarded");
+        BitMatrix matrix = BitMatrix.map(path.toString(), 3, 100);
+        for (int row = 0; row < 3; row++) {
+            assertEquals(0, matrix.rowCardinality(row));
+        }
+        matrix.set(2, 99);
+        matrix.set(0, 0);
+        assertEquals(Set.of(99), matrix.rowView(2));
+        assertEquals(Set.of(0), matrix.rowView(0));
+        assertEquals(3 * 2 * Long.BYTES, Files.size(path));
+    }
+}
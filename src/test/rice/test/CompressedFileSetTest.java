@@ -0,0 +1,163 @@
+package test.rice.test;
+
+import main.rice.test.CompressedFileSet;
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the CompressedFileSet class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class CompressedFileSetTest {
+
+    /**
+     * Tests that a new set is empty.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testNewSetEmpty() {
+        CompressedFileSet set = new CompressedFileSet();
+        assertTrue(set.isEmpty());
+        assertEquals(0, set.size());
+        assertEquals(Set.of(), set);
+        assertFalse(set.iterator().hasNext());
+    }
+
+    /**
+     * Tests adding files out of order, across chunks, and more than once.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testAddAndContains() {
+        CompressedFileSet set = new CompressedFileSet();
+        assertTrue(set.addFile(70000));
+        assertTrue(set.addFile(5));
+        assertTrue(set.addFile(3));
+        assertFalse(set.addFile(5));
+        assertTrue(set.add(65535));
+        assertEquals(4, set.size());
+        assertTrue(set.containsFile(3));
+        assertTrue(set.contains(65535));
+        assertFalse(set.containsFile(4));
+        assertFalse(set.containsFile(-1));
+        assertFalse(set.contains("5"));
+        assertEquals(List.of(3, 5, 65535, 70000), new ArrayList<>(set));
+        assertThrows(IllegalArgumentException.class, () -> set.addFile(-1));
+    }
+
+    /**
+     * Tests that a set is equal (in both directions) to the equivalent HashSet.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(3)
+    void testEqualsHashSet() {
+        Set<Integer> expected = new HashSet<>(List.of(199, 3, 64, 65, 127, 131072));
+        CompressedFileSet set = CompressedFileSet.of(expected);
+        assertEquals(expected, set);
+        assertEquals(set, expected);
+        assertEquals(expected.hashCode(), set.hashCode());
+        assertSame(set, CompressedFileSet.of(set));
+    }
+
+    /**
+     * Tests sets that are dense enough to need bitmap containers, and that consist of
+     * long runs, both before and after runOptimize().
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testDenseAndRuns() {
+        CompressedFileSet evens = new CompressedFileSet();
+        CompressedFileSet range = new CompressedFileSet();
+        TreeSet<Integer> expectedEvens = new TreeSet<>();
+        TreeSet<Integer> expectedRange = new TreeSet<>();
+        for (int file = 0; file < 20000; file++) {
+            if (file % 2 == 0) {
+                evens.addFile(file);
+                expectedEvens.add(file);
+            }
+            if (file >= 100 && file < 15000) {
+                range.addFile(file);
+                expectedRange.add(file);
+            }
+        }
+        assertEquals(expectedEvens, evens);
+        assertEquals(expectedRange, range);
+        range.runOptimize();
+        evens.runOptimize();
+        assertEquals(expectedEvens, evens);
+        assertEquals(expectedRange, range);
+        assertEquals(new ArrayList<>(expectedRange), new ArrayList<>(range));
+
+        // Adding to a run container must still work
+        range.addFile(99);
+        range.addFile(30000);
+        expectedRange.add(99);
+        expectedRange.add(30000);
+        assertEquals(expectedRange, range);
+    }
+
+    /**
+     * Tests and(), andNot(), or() and andCardinality() against TreeSet on random sets of
+     * varying density, so that every pairing of container types is exercised.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(5)
+    void testSetOperationsRandom() {
+        Random random = new Random(28);
+        int[][] shapes = {{200, 100, 10}, {20000, 1, 300}, {150000, 3, 20000},
+                {140000, 1000, 300}, {65536, 1, 10000}};
+        for (int trial = 0; trial < 50; trial++) {
+            TreeSet<Integer> first = randomSet(random, shapes[trial % 5]);
+            TreeSet<Integer> second = randomSet(random, shapes[(trial / 5) % 5]);
+            CompressedFileSet a = CompressedFileSet.of(first);
+            CompressedFileSet b = CompressedFileSet.of(second);
+
+            TreeSet<Integer> and = new TreeSet<>(first);
+            and.retainAll(second);
+            TreeSet<Integer> andNot = new TreeSet<>(first);
+            andNot.removeAll(second);
+            TreeSet<Integer> or = new TreeSet<>(first);
+            or.addAll(second);
+
+            assertEquals(and, a.and(b));
+            assertEquals(and.size(), a.andCardinality(b));
+            assertEquals(and.size(), b.andCardinality(a));
+            assertEquals(andNot, a.andNot(b));
+            assertEquals(or, a.or(b));
+            assertEquals(new ArrayList<>(or), new ArrayList<>(a.or(b)));
+
+            // The operands must be left unchanged
+            assertEquals(first, a);
+            assertEquals(second, b);
+        }
+    }
+
+    /**
+     * Helper function for building a random set made up of runs of consecutive files.
+     *
+     * @param random the source of randomness
+     * @param shape  the (exclusive) upper bound on files, the maximum run length, and
+     *               the maximum number of runs
+     * @return a random set of files
+     */
+    private static TreeSet<Integer> randomSet(Random random, int[] shape) {
+        TreeSet<Integer> set = new TreeSet<>();
+        int numRuns = 1 + random.nextInt(shape[2]);
+        for (int run = 0; run < numRuns; run++) {
+            int start = random.nextInt(shape[0]);
+            int length = 1 + random.nextInt(shape[1]);
+            for (int file = start; file < Math.min(shape[0], start + length); file++) {
+                set.add(file);
+            }
+        }
+        return set;
+    }
+}
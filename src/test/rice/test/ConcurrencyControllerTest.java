@@ -0,0 +1,219 @@
+package test.rice.test;
+
+import main.rice.test.ConcurrencyController;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ConcurrencyController class. A fake host supplies the time, load
+ * and free memory, so that each adjustment is deterministic.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ConcurrencyControllerTest {
+
+    /**
+     * A host whose readings are set by the test.
+     */
+    private static class FakeHost implements ConcurrencyController.Host {
+
+        /**
+         * The current time, in nanoseconds.
+         */
+        long time;
+
+        /**
+         * The current load per core.
+         */
+        double load;
+
+        /**
+         * The current free memory fraction.
+         */
+        double freeMemory = 0.5;
+
+        @Override
+        public long nanoTime() {
+            return this.time;
+        }
+
+        @Override
+        public double loadPerCore() {
+            return this.load;
+        }
+
+        @Override
+        public double freeMemoryFraction() {
+            return this.freeMemory;
+        }
+    }
+
+    /**
+     * Tests that the constructor rejects invalid bounds.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyController(0, 4));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyController(5, 4));
+    }
+
+    /**
+     * Tests that, on a healthy host with steady throughput, the limit starts at the
+     * minimum and doubles each window until it reaches the maximum.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testSlowStart() throws InterruptedException {
+        FakeHost host = new FakeHost();
+        ConcurrencyController controller = new ConcurrencyController(2, 12, host);
+        assertEquals(2, controller.getLimit());
+        runWindow(controller, host, 500);
+        assertEquals(4, controller.getLimit());
+        runWindow(controller, host, 500);
+        assertEquals(8, controller.getLimit());
+        runWindow(controller, host, 500);
+        assertEquals(12, controller.getLimit());
+        runWindow(controller, host, 500);
+        assertEquals(12, controller.getLimit());
+    }
+
+    /**
+     * Tests that overload (high load or low free memory) cuts the limit multiplicatively,
+     * that the limit then grows by one per window, and that it never falls below the
+     * minimum.
+     */
+    @Test
+    @Tag("1.5")
+    @Order(3)
+    void testOverload() throws InterruptedException {
+        FakeHost host = new FakeHost();
+        ConcurrencyController controller = new ConcurrencyController(2, 32, host);
+        runWindow(controller, host, 500);
+        runWindow(controller, host, 500);
+        runWindow(controller, host, 500);
+        assertEquals(16, controller.getLimit());
+
+        host.load = 3.0;
+        runWindow(controller, host, 500);
+        assertEquals(11, controller.getLimit());
+        host.load = 0.5;
+        runWindow(controller, host, 500);
+        assertEquals(12, controller.getLimit());
+        runWindow(controller, host, 500);
+        assertEquals(13, controller.getLimit());
+
+        host.freeMemory = 0.05;
+        for (int i = 0; i < 10; i++) {
+            runWindow(controller, host, 500);
+        }
+        assertEquals(2, controller.getLimit());
+    }
+
+    /**
+     * Tests that a fall in throughput cuts the limit, while a small fluctuation does not.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testThroughputDrop() throws InterruptedException {
+        FakeHost host = new FakeHost();
+        ConcurrencyController controller = new ConcurrencyController(1, 64, host);
+        runWindow(controller, host, 500);
+        runWindow(controller, host, 500);
+        assertEquals(4, controller.getLimit());
+
+        // The last window ran 4 processes in 500ms; running 4 in 1050ms is within
+        // tolerance, but then running 8 in 2400ms is not
+        runWindow(controller, host, 1050);
+        assertEquals(8, controller.getLimit());
+        runWindow(controller, host, 2400);
+        assertEquals(5, controller.getLimit());
+    }
+
+    /**
+     * Tests that no more than the limit of slots can be held at once, and that a waiting
+     * caller proceeds once a slot is released.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(5)
+    void testAcquireBlocks() throws InterruptedException {
+        ConcurrencyController controller = new ConcurrencyController(2, 2);
+        controller.acquire();
+        controller.acquire();
+
+        AtomicInteger acquired = new AtomicInteger();
+        Thread waiter = new Thread(() -> {
+            try {
+                controller.acquire();
+                acquired.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        waiter.start();
+        waiter.join(200);
+        assertEquals(0, acquired.get());
+
+        controller.release();
+        waiter.join(5000);
+        assertEquals(1, acquired.get());
+        assertEquals(2, controller.getLimit());
+    }
+
+    /**
+     * Tests that the system host reads available memory from MemAvailable, so that a
+     * host whose page cache keeps MemFree low is not considered short of memory, and
+     * falls back to the platform's reading when meminfo lacks it.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(6)
+    void testSystemHostMemAvailable(@TempDir Path tempDir) throws IOException {
+        Path meminfo = Files.writeString(tempDir.resolve("meminfo"),
+                "MemTotal:       16000000 kB\n"
+                        + "MemFree:          400000 kB\n"
+                        + "MemAvailable:   12000000 kB\n"
+                        + "Buffers:          200000 kB\n"
+                        + "Cached:         11000000 kB\n");
+        ConcurrencyController.Host host = new ConcurrencyController.SystemHost(meminfo);
+        assertEquals(0.75, host.freeMemoryFraction(), 1e-9);
+
+        Path oldMeminfo = Files.writeString(tempDir.resolve("old"),
+                "MemTotal:       16000000 kB\nMemFree:          400000 kB\n");
+        double fallback = new ConcurrencyController.SystemHost(oldMeminfo)
+                .freeMemoryFraction();
+        assertTrue(fallback == -1 || (fallback >= 0 && fallback <= 1));
+        assertEquals(fallback, new ConcurrencyController.SystemHost(
+                tempDir.resolve("missing")).freeMemoryFraction(), 0.05);
+    }
+
+    /**
+     * Helper function which runs one window's worth of processes, one slot's worth of
+     * completions spread evenly over the given length of time.
+     *
+     * @param controller the controller under test
+     * @param host       the fake host
+     * @param millis     the length of the window, in milliseconds (at least 500, the
+     *                   controller's shortest window)
+     */
+    private static void runWindow(ConcurrencyController controller, FakeHost host,
+                                  double millis) throws InterruptedException {
+        int count = controller.getLimit();
+        long step = (long) Math.ceil(millis * 1_000_000 / count);
+        for (int i = 0; i < count; i++) {
+            controller.acquire();
+            host.time += step;
+            controller.release();
+        }
+    }
+}
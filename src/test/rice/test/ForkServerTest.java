@@ -0,0 +1,115 @@
+package test.rice.test;
+
+import main.rice.test.ForkServer;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ForkServer class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ForkServerTest {
+
+    /**
+     * A directory for the scripts run by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * Tests that a launched script runs as __main__, with its args, its input and its
+     * own directory on the module search path, exactly as if run by a new interpreter.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testLaunch() throws IOException, InterruptedException {
+        Files.writeString(tempDir.resolve("helper.py"), "GREETING = 'hello'\n");
+        Path script = Files.writeString(tempDir.resolve("script.py"), """
+                import sys
+                from helper import GREETING
+                if __name__ == "__main__":
+                    print(GREETING, sys.argv[1:], sys.stdin.read())
+                """);
+        try (ForkServer server = ForkServer.start(Map.of())) {
+            assertEquals("hello ['a', 'b c'] [1, {\"t\": []}]\n", read(server.launch(
+                    List.of(script.toString(), "a", "b c"), "[1, {\"t\": []}]")));
+
+            // A script that fails or exits early still sends what it printed, and leaves
+            // the server running
+            Path failing = Files.writeString(tempDir.resolve("failing.py"),
+                    "print('before')\nraise ValueError()\n");
+            assertEquals("before\n", read(server.launch(List.of(failing.toString()), "")));
+            Path exiting = Files.writeString(tempDir.resolve("exiting.py"),
+                    "import sys\nprint('done')\nsys.exit(3)\n");
+            assertEquals("done\n", read(server.launch(List.of(exiting.toString()), "")));
+            assertTrue(server.isAlive());
+        }
+    }
+
+    /**
+     * Tests that scripts launched concurrently each get their own input and output.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testConcurrentLaunches() throws Exception {
+        Path script = Files.writeString(tempDir.resolve("echo.py"),
+                "import sys, time\ntime.sleep(0.05)\nprint(sys.stdin.read() * 2)\n");
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try (ForkServer server = ForkServer.start(Map.of())) {
+            List<Future<String>> outputs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String input = String.valueOf(i);
+                outputs.add(pool.submit(() -> read(server.launch(List.of(script.toString()),
+                        input))));
+            }
+            for (int i = 0; i < 32; i++) {
+                assertEquals(i + "" + i + "\n", outputs.get(i).get());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that a closed server refuses further launches.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(3)
+    void testClose() throws IOException, InterruptedException {
+        Path script = Files.writeString(tempDir.resolve("hello.py"), "print('hi')\n");
+        ForkServer server = ForkServer.start(Map.of());
+        server.close();
+        assertFalse(server.isAlive());
+        assertThrows(IOException.class, () -> server.launch(List.of(script.toString()), ""));
+    }
+
+    /**
+     * Helper function which reads a script's whole output.
+     *
+     * @param output the standard output of the script
+     * @return the output, as a string
+     * @throws IOException if the output cannot be read
+     */
+    private static String read(InputStream output) throws IOException {
+        try (output) {
+            return new String(output.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package test.rice.test;
+
+import main.rice.test.Outcome;
+import main.rice.test.OutcomeMatrix;
+import main.rice.test.ResourceLimits;
+import org.junit.jupiter.api.*;
+
+import java.nio.LongBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the OutcomeMatrix and Outcome classes.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class OutcomeMatrixTest {
+
+    /**
+     * Tests that a new matrix has the requested dimensions, holds FAIL in every cell, and
+     * allocates no words until a cell holds another outcome.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testNewMatrixLazy() {
+        OutcomeMatrix matrix = new OutcomeMatrix(3, 33);
+        assertEquals(3, matrix.getNumRows());
+        assertEquals(33, matrix.getNumCols());
+        assertEquals(2, matrix.getWordsPerRow());
+        matrix.set(2, 32, Outcome.FAIL);
+        assertFalse(matrix.hasWords());
+        assertEquals(Outcome.FAIL, matrix.get(2, 32));
+
+        matrix.set(1, 5, Outcome.CRASH);
+        assertTrue(matrix.hasWords());
+        assertEquals(Outcome.CRASH, matrix.get(1, 5));
+        assertEquals(Outcome.FAIL, matrix.get(2, 32));
+        assertThrows(IllegalArgumentException.class, () -> matrix.set(0, 0, Outcome.PASS));
+    }
+
+    /**
+     * Tests set() and get() on cells at either end of a word and across rows, including
+     * overwriting a cell.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testSetGet() {
+        OutcomeMatrix matrix = new OutcomeMatrix(2, 70);
+        int[] cols = {0, 20, 21, 62, 63, 69};
+        Outcome[] outcomes = {Outcome.FAIL, Outcome.CRASH, Outcome.TIMEOUT, Outcome.RESOURCE};
+        for (int row = 0; row < 2; row++) {
+            for (int i = 0; i < cols.length; i++) {
+                matrix.set(row, cols[i], outcomes[(i + row) % outcomes.length]);
+            }
+        }
+        for (int row = 0; row < 2; row++) {
+            for (int i = 0; i < cols.length; i++) {
+                assertEquals(outcomes[(i + row) % outcomes.length], matrix.get(row, cols[i]));
+            }
+        }
+
+        // Neighbouring cells are untouched by an overwrite
+        matrix.set(0, 20, Outcome.FAIL);
+        assertEquals(Outcome.FAIL, matrix.get(0, 20));
+        assertEquals(Outcome.TIMEOUT, matrix.get(0, 21));
+        assertEquals(Outcome.FAIL, matrix.get(0, 19));
+    }
+
+    /**
+     * Tests that a matrix can wrap an existing buffer, and rejects one that is too small.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(3)
+    void testWrapBuffer() {
+        LongBuffer words = LongBuffer.wrap(new long[]{0xAL, 5L});
+        OutcomeMatrix matrix = new OutcomeMatrix(2, 10, words);
+        assertEquals(Outcome.TIMEOUT, matrix.get(0, 0));
+        assertEquals(Outcome.CRASH, matrix.get(0, 1));
+        assertEquals(Outcome.FAIL, matrix.get(0, 2));
+        assertEquals(Outcome.RESOURCE, matrix.get(1, 0));
+        assertEquals(ResourceLimits.Violation.FILE_SIZE, matrix.getViolation(1, 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> new OutcomeMatrix(3, 10, words));
+    }
+
+    /**
+     * Tests that each cell records which limit, if any, its pair exceeded, alongside the
+     * outcome that the limit implies.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(5)
+    void testViolations() {
+        ResourceLimits.Violation[] violations = ResourceLimits.Violation.values();
+        OutcomeMatrix matrix = new OutcomeMatrix(2, violations.length + 2);
+        for (int col = 0; col < violations.length; col++) {
+            matrix.setViolation(1, col, violations[col]);
+        }
+        matrix.set(1, violations.length, Outcome.CRASH);
+        matrix.set(1, violations.length + 1, Outcome.RESOURCE);
+
+        for (int col = 0; col < violations.length; col++) {
+            assertEquals(violations[col], matrix.getViolation(1, col));
+            assertEquals(violations[col] == ResourceLimits.Violation.CPU
+                    ? Outcome.TIMEOUT : Outcome.RESOURCE, matrix.get(1, col));
+            assertNull(matrix.getViolation(0, col));
+        }
+        assertNull(matrix.getViolation(1, violations.length));
+        assertEquals(Outcome.RESOURCE, matrix.get(1, violations.length + 1));
+        assertNull(matrix.getViolation(1, violations.length + 1));
+
+        matrix.set(0, 0, Outcome.TIMEOUT);
+        assertEquals(ResourceLimits.Violation.CPU, matrix.getViolation(0, 0));
+    }
+
+    /**
+     * Tests the classification of the wrapper's results.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(4)
+    void testOutcomeOf() {
+        assertEquals(Outcome.PASS, Outcome.of("True"));
+        assertEquals(Outcome.FAIL, Outcome.of("False"));
+        assertEquals(Outcome.CRASH, Outcome.of(""));
+        assertEquals(Outcome.CRASH, Outcome.of("some debugging output"));
+        assertEquals(Outcome.TIMEOUT,
+                Outcome.of(ResourceLimits.report(ResourceLimits.Violation.CPU)));
+        assertEquals(Outcome.RESOURCE,
+                Outcome.of(ResourceLimits.report(ResourceLimits.Violation.OUTPUT)));
+    }
+}
@@ -0,0 +1,112 @@
+package test.rice.test;
+
+import main.rice.test.ResourceLimits;
+import org.json.JSONObject;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the ResourceLimits class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ResourceLimitsTest {
+
+    /**
+     * A directory for the scripts run by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * Tests that only the limits that are set are encoded as rlimits (which the limits on
+     * wall-clock time and output are not), and that negative limits are rejected.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testToJson() {
+        ResourceLimits limits = new ResourceLimits(1 << 20, 2, 5, 0, 0, 100);
+        assertTrue(limits.hasRlimits());
+        JSONObject json = new JSONObject(limits.toJson());
+        assertEquals(Set.of("RLIMIT_AS", "RLIMIT_CPU"), json.keySet());
+        assertEquals(1 << 20, json.getLong("RLIMIT_AS"));
+        assertEquals(2, json.getLong("RLIMIT_CPU"));
+        assertEquals(100, limits.getOutputBytes());
+        assertEquals(5, limits.getWallSeconds());
+
+        ResourceLimits outputOnly = new ResourceLimits(0, 0, 5, 0, 0, 100);
+        assertFalse(outputOnly.hasRlimits());
+        assertEquals("{}", outputOnly.toJson());
+        assertThrows(IllegalArgumentException.class,
+                () -> new ResourceLimits(0, -1, 0, 0, 0, 0));
+    }
+
+    /**
+     * Tests that reports of violations are recognized, and that other lines are not.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testParseViolation() {
+        for (ResourceLimits.Violation violation : ResourceLimits.Violation.values()) {
+            assertEquals(violation,
+                    ResourceLimits.parseViolation(ResourceLimits.report(violation)));
+        }
+        assertNull(ResourceLimits.parseViolation("True"));
+        assertNull(ResourceLimits.parseViolation(""));
+        assertNull(ResourceLimits.parseViolation(ResourceLimits.MARKER + "DISK"));
+    }
+
+    /**
+     * Tests that the launcher runs a script within its limits as a new interpreter would,
+     * and reports a script that exceeds one.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(3)
+    void testLauncher() throws IOException, InterruptedException {
+        String limits = new ResourceLimits(128 << 20, 0, 0, 0, 0, 0).toJson();
+        Files.writeString(tempDir.resolve("helper.py"), "NAME = 'helper'\n");
+        Path script = Files.writeString(tempDir.resolve("script.py"), """
+                import sys
+                from helper import NAME
+                print(__name__, NAME, sys.argv[1:], sys.stdin.read())
+                """);
+        assertEquals(List.of("__main__ helper ['a'] in"), launch(limits, script));
+
+        Path hog = Files.writeString(tempDir.resolve("hog.py"),
+                "print('start')\nx = bytearray(1 << 30)\n");
+        assertEquals(List.of("start", ResourceLimits.report(ResourceLimits.Violation.MEMORY)),
+                launch(limits, hog));
+    }
+
+    /**
+     * Helper function which runs a script through the launcher, with the argument "a"
+     * and the input "in".
+     *
+     * @param limits the JSON encoding of the rlimits to set
+     * @param script the path of the script
+     * @return the non-empty lines of the script's output
+     */
+    private static List<String> launch(String limits, Path script)
+            throws IOException, InterruptedException {
+        Process process = new ProcessBuilder("python3", "-c", ResourceLimits.LAUNCHER,
+                limits, script.toString(), "a").start();
+        try (var out = process.getOutputStream()) {
+            out.write("in".getBytes(StandardCharsets.UTF_8));
+        }
+        String output = new String(process.getInputStream().readAllBytes(),
+                StandardCharsets.UTF_8);
+        process.waitFor();
+        return output.lines().filter(line -> !line.isEmpty()).toList();
+    }
+}
@@ -0,0 +1,174 @@
+package test.rice.test;
+
+import main.rice.obj.PyIntObj;
+import main.rice.obj.PyStringObj;
+import main.rice.test.TestCase;
+import main.rice.test.TestHistory;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the TestHistory class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TestHistoryTest {
+
+    /**
+     * A directory for the history files written by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * A test case with a single integer argument.
+     */
+    private static final TestCase intCase = new TestCase(List.of(new PyIntObj(3)));
+
+    /**
+     * A test case with a single string argument.
+     */
+    private static final TestCase strCase = new TestCase(List.of(new PyStringObj("ab")));
+
+    /**
+     * Tests that a case with no history has a yield of 1/2, and that recorded outcomes
+     * accumulate across runs.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(1)
+    void testRecord() {
+        TestHistory history = new TestHistory();
+        assertEquals(0.5, history.getYield("func", intCase));
+
+        history.record("func", intCase, 8, 6);
+        assertEquals(7.0 / 10, history.getYield("func", intCase), 1e-9);
+        history.record("func", intCase, 10, 0);
+        assertEquals(7.0 / 20, history.getYield("func", intCase), 1e-9);
+        assertEquals(1, history.size());
+
+        // The same case of another function has its own history
+        assertEquals(0.5, history.getYield("other", intCase));
+        assertThrows(IllegalArgumentException.class,
+                () -> history.record("func", intCase, 2, 3));
+    }
+
+    /**
+     * Tests that a saved history loads back with the same yields, and that loading a
+     * file that does not exist gives an empty history.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(2)
+    void testSaveLoad() throws IOException {
+        TestHistory history = new TestHistory();
+        history.record("func", intCase, 40, 30);
+        history.record("func", strCase, 40, 1);
+        history.record("other", intCase, 5, 5);
+        String path = tempDir.resolve("history.bin").toString();
+        history.save(path);
+
+        TestHistory loaded = TestHistory.load(path);
+        assertEquals(3, loaded.size());
+        for (String funcName : new String[]{"func", "other"}) {
+            for (TestCase testCase : new TestCase[]{intCase, strCase}) {
+                assertEquals(history.getYield(funcName, testCase),
+                        loaded.getYield(funcName, testCase));
+            }
+        }
+
+        assertEquals(0, TestHistory.load(tempDir.resolve("missing.bin").toString()).size());
+    }
+
+    /**
+     * Tests that load() rejects a file that is not a valid history.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(3)
+    void testLoadCorrupt() throws IOException {
+        Path notHistory = Files.writeString(tempDir.resolve("not.bin"), "not a history");
+        assertThrows(IOException.class, () -> TestHistory.load(notHistory.toString()));
+
+        TestHistory history = new TestHistory();
+        history.record("func", intCase, 4, 2);
+        Path truncated = tempDir.resolve("truncated.bin");
+        history.save(truncated.toString());
+        byte[] bytes = Files.readAllBytes(truncated);
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+        assertThrows(IOException.class, () -> TestHistory.load(truncated.toString()));
+    }
+
+    /**
+     * Tests that histories loaded from the same file and saved in turn each add their
+     * outcomes to it, rather than the last one replacing the others'.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(4)
+    void testSaveMerges() throws IOException {
+        String path = tempDir.resolve("shared.bin").toString();
+        TestHistory first = TestHistory.load(path);
+        TestHistory second = TestHistory.load(path);
+        first.record("func", intCase, 4, 4);
+        second.record("func", intCase, 4, 0);
+        second.record("func", strCase, 2, 2);
+        first.save(path);
+        second.save(path);
+
+        TestHistory loaded = TestHistory.load(path);
+        assertEquals(2, loaded.size());
+        assertEquals(5.0 / 10, loaded.getYield("func", intCase), 1e-9);
+        assertEquals(3.0 / 4, loaded.getYield("func", strCase), 1e-9);
+
+        // The history that saved last now holds both runs' outcomes
+        assertEquals(5.0 / 10, second.getYield("func", intCase), 1e-9);
+    }
+
+    /**
+     * Tests that a case not run in the last MAX_IDLE_RUNS runs of its function is
+     * dropped, that runs of other functions do not age it, and that cases are stored in
+     * a fixed number of bytes however long their arguments are.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(5)
+    void testPrune() throws IOException {
+        Path path = tempDir.resolve("prune.bin");
+        TestHistory history = new TestHistory();
+        history.record("func", strCase, 1, 1);
+        history.save(path.toString());
+        for (int run = 1; run < 10; run++) {
+            history.record("func", intCase, 1, 0);
+            history.record("other", intCase, 1, 0);
+            history.save(path.toString());
+        }
+        assertEquals(2.0 / 3, TestHistory.load(path.toString()).getYield("func", strCase),
+                1e-9);
+
+        // A tenth run without the case drops it, but the case of the other function stays
+        history.record("func", intCase, 1, 0);
+        history.save(path.toString());
+        TestHistory loaded = TestHistory.load(path.toString());
+        assertEquals(0.5, loaded.getYield("func", strCase));
+        assertEquals(2, loaded.size());
+
+        TestHistory longCase = new TestHistory();
+        longCase.record("func", new TestCase(List.of(new PyStringObj("a".repeat(1000)))),
+                1, 1);
+        Path longPath = tempDir.resolve("long.bin");
+        longCase.save(longPath.toString());
+        TestHistory shortCase = new TestHistory();
+        shortCase.record("func", intCase, 1, 1);
+        Path shortPath = tempDir.resolve("short.bin");
+        shortCase.save(shortPath.toString());
+        assertEquals(Files.size(shortPath), Files.size(longPath));
+    }
+}
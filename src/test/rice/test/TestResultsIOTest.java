@@ -0,0 +1,215 @@
+package test.rice.test;
+
+import main.rice.obj.*;
+import main.rice.test.BitMatrix;
+import main.rice.test.Outcome;
+import main.rice.test.OutcomeMatrix;
+import main.rice.test.ResourceLimits;
+import main.rice.test.TestCase;
+import main.rice.test.TestResults;
+import main.rice.test.TestResultsIO;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test cases for the TestResultsIO class.
+ */
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TestResultsIOTest {
+
+    /**
+     * A directory for the results files written by these tests.
+     */
+    @TempDir
+    static Path tempDir;
+
+    /**
+     * Tests that results with no test cases survive a round trip.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(1)
+    void testRoundTripEmpty() throws IOException {
+        TestResults loaded = roundTrip(new TestResults(List.of(), List.of(), Set.of()),
+                "empty.bin");
+        assertEquals(List.of(), loaded.getCaseToFiles());
+        assertEquals(Set.of(), loaded.getWrongSet());
+    }
+
+    /**
+     * Tests that results constructed from sets survive a round trip, including test
+     * cases containing every kind of Python object.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(2)
+    void testRoundTripSets() throws IOException {
+        List<TestCase> cases = List.of(
+                new TestCase(List.of(new PyIntObj(-3), new PyFloatObj(2.5))),
+                new TestCase(List.of(new PyBoolObj(true), new PyStringObj("hi"))),
+                new TestCase(List.of(new PyListObj<>(List.of(new PyIntObj(1))),
+                        new PyTupleObj<>(List.of(new PyIntObj(1), new PyIntObj(2))))),
+                new TestCase(List.of(new PySetObj<>(Set.of(new PyIntObj(4))),
+                        new PyDictObj<>(Map.of(new PyStringObj("k"), new PyFloatObj(0.0))))));
+        List<Set<Integer>> caseToFiles = List.of(Set.of(0, 70), Set.of(), Set.of(3),
+                Set.of(0, 3, 129));
+        Set<Integer> wrongSet = Set.of(0, 3, 70, 129);
+
+        TestResults loaded = roundTrip(new TestResults(cases, caseToFiles, wrongSet),
+                "sets.bin");
+        assertEquals(130, loaded.getNumFiles());
+        assertEquals(caseToFiles, loaded.getCaseToFiles());
+        assertEquals(wrongSet, loaded.getWrongSet());
+        for (int i = 0; i < cases.size(); i++) {
+            assertEquals(cases.get(i), loaded.getTestCase(i));
+            assertEquals(cases.get(i).toString(), loaded.getTestCase(i).toString());
+        }
+    }
+
+    /**
+     * Tests that matrix-backed results survive a round trip, including files that were
+     * never caught.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(3)
+    void testRoundTripMatrix() throws IOException {
+        BitMatrix matrix = new BitMatrix(2, 10);
+        matrix.set(0, 2);
+        matrix.set(1, 9);
+        List<TestCase> cases = List.of(new TestCase(List.of(new PyIntObj(0))),
+                new TestCase(List.of(new PyIntObj(1))));
+
+        TestResults loaded = roundTrip(new TestResults(cases, matrix), "matrix.bin");
+        assertEquals(10, loaded.getNumFiles());
+        assertEquals(List.of(Set.of(2), Set.of(9)), loaded.getCaseToFiles());
+        assertEquals(Set.of(2, 9), loaded.getWrongSet());
+    }
+
+    /**
+     * Tests that reading a file that is not a results file throws an IOException.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(4)
+    void testReadInvalidFile() throws IOException {
+        Path path = tempDir.resolve("garbage.bin");
+        Files.writeString(path, "this is not a results file");
+        assertThrows(IOException.class, () -> TestResultsIO.read(path.toString()));
+    }
+
+    /**
+     * Tests that reading a truncated results file throws an IOException.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(5)
+    void testReadTruncatedFile() throws IOException {
+        Path path = tempDir.resolve("truncated.bin");
+        TestResultsIO.write(new TestResults(
+                List.of(new TestCase(List.of(new PyStringObj("abc")))),
+                List.of(Set.of(1)), Set.of(1)), path.toString());
+        byte[] contents = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(contents, contents.length - 8));
+        assertThrows(IOException.class, () -> TestResultsIO.read(path.toString()));
+    }
+
+    /**
+     * Tests that per-case runtimes survive a round trip, even if the first case's was not
+     * measured, and that results without them load without them.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(6)
+    void testRoundTripRuntimes() throws IOException {
+        List<TestCase> cases = List.of(new TestCase(List.of(new PyIntObj(1))),
+                new TestCase(List.of(new PyIntObj(2))));
+        TestResults results = new TestResults(cases, List.of(Set.of(0), Set.of(1)),
+                Set.of(0, 1));
+        assertNull(roundTrip(results, "no-runtimes.bin").getCaseRuntimes());
+
+        results.setCaseRuntimes(new long[]{-1L, 0L});
+        assertArrayEquals(new long[]{-1L, 0L},
+                roundTrip(results, "some-runtimes.bin").getCaseRuntimes());
+        results.setCaseRuntimes(new long[]{1_000_000L, 0L});
+        assertArrayEquals(new long[]{1_000_000L, 0L},
+                roundTrip(results, "runtimes.bin").getCaseRuntimes());
+    }
+
+    /**
+     * Tests that how each pair was caught survives a round trip, and that results in
+     * which every catch was a FAIL load without an outcome matrix.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(7)
+    void testRoundTripOutcomes() throws IOException {
+        List<TestCase> cases = List.of(new TestCase(List.of(new PyIntObj(1))),
+                new TestCase(List.of(new PyIntObj(2))));
+        TestResults results = new TestResults(cases, List.of(Set.of(0, 40), Set.of(1)),
+                Set.of(0, 1, 40), 41);
+        assertNull(roundTrip(results, "no-outcomes.bin").getOutcomes());
+
+        OutcomeMatrix outcomes = new OutcomeMatrix(2, 41);
+        outcomes.set(0, 40, Outcome.RESOURCE);
+        outcomes.set(1, 1, Outcome.CRASH);
+        results.setOutcomes(outcomes);
+        TestResults loaded = roundTrip(results, "outcomes.bin");
+        assertEquals(Outcome.FAIL, loaded.getOutcome(0, 0));
+        assertEquals(Outcome.RESOURCE, loaded.getOutcome(0, 40));
+        assertEquals(Outcome.CRASH, loaded.getOutcome(1, 1));
+        assertEquals(Outcome.PASS, loaded.getOutcome(1, 40));
+        assertEquals(results.getOutcomeCounts(), loaded.getOutcomeCounts());
+    }
+
+    /**
+     * Tests that the limit each pair exceeded survives a round trip, along with the
+     * counts of each kind of limit exceeded.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(8)
+    void testRoundTripViolations() throws IOException {
+        List<TestCase> cases = List.of(new TestCase(List.of(new PyIntObj(1))),
+                new TestCase(List.of(new PyIntObj(2))));
+        TestResults results = new TestResults(cases, List.of(Set.of(0, 1, 40), Set.of(1)),
+                Set.of(0, 1, 40), 41);
+        OutcomeMatrix outcomes = new OutcomeMatrix(2, 41);
+        outcomes.setViolation(0, 0, ResourceLimits.Violation.CPU);
+        outcomes.setViolation(0, 40, ResourceLimits.Violation.OUTPUT);
+        outcomes.setViolation(1, 1, ResourceLimits.Violation.OUTPUT);
+        outcomes.set(0, 1, Outcome.CRASH);
+        results.setOutcomes(outcomes);
+
+        TestResults loaded = roundTrip(results, "violations.bin");
+        assertEquals(ResourceLimits.Violation.CPU, loaded.getViolation(0, 0));
+        assertEquals(ResourceLimits.Violation.OUTPUT, loaded.getViolation(0, 40));
+        assertEquals(Outcome.RESOURCE, loaded.getOutcome(1, 1));
+        assertNull(loaded.getViolation(0, 1));
+        assertEquals(Map.of(ResourceLimits.Violation.CPU, 1,
+                ResourceLimits.Violation.OUTPUT, 2), loaded.getViolationCounts());
+        assertEquals(results.getOutcomeCounts(), loaded.getOutcomeCounts());
+    }
+
+    /**
+     * Helper function that writes the input results to a file and reads them back.
+     *
+     * @param results  the results to be written
+     * @param filename the name of the file to write, within the temporary directory
+     * @return the results read back from the file
+     * @throws IOException if writing or reading fails
+     */
+    private static TestResults roundTrip(TestResults results, String filename)
+            throws IOException {
+        String path = tempDir.resolve(filename).toString();
+        TestResultsIO.write(results, path);
+        return TestResultsIO.read(path);
+    }
+}
@@ -3,14 +3,16 @@ package test.rice.test;
 import main.rice.obj.PyBoolObj;
 import main.rice.obj.PyIntObj;
 import main.rice.obj.PyStringObj;
+import main.rice.test.BitMatrix;
+import main.rice.test.Outcome;
+import main.rice.test.OutcomeMatrix;
 import main.rice.test.TestCase;
 import main.rice.test.TestResults;
 import org.junit.jupiter.api.*;
 
 import java.util.*;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * Test cases for the TestResults class.
@@ -175,4 +177,86 @@ class TestResultsTest {
     void testGetCaseToFilesNonEmpty() {
         assertEquals(new ArrayList<>(someFilesFail), someFail.getCaseToFiles());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that matrix-backed results expose the same accessors as set-backed results.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(10)
+    void testMatrixBackedAccessors() {
+        BitMatrix matrix = new BitMatrix(10, 10);
+        for (int i = 0; i < 10; i++) {
+            for (int file : someFilesFail.get(i)) {
+                matrix.set(i, file);
+            }
+        }
+        TestResults fromMatrix = new TestResults(testCases, matrix);
+        assertEquals(someFilesFail, fromMatrix.getCaseToFiles());
+        assertEquals(wrongSet, fromMatrix.getWrongSet());
+        assertEquals(testCases.get(4), fromMatrix.getTestCase(4));
+        assertSame(matrix, fromMatrix.getMatrix());
+        assertNull(someFail.getMatrix());
+    }
+
+    /**
+     * Tests getNumFiles() for both set-backed and matrix-backed results.
+     */
+    @Test
+    @Tag("0.2")
+    @Order(11)
+    void testGetNumFiles() {
+        assertEquals(0, noTests.getNumFiles());
+        assertEquals(10, someFail.getNumFiles());
+        assertEquals(42, new TestResults(testCases, new BitMatrix(10, 42)).getNumFiles());
+    }
+
+    /**
+     * Tests that case runtimes are absent by default, can be set, and must have one
+     * entry per test case.
+     */
+    @Test
+    @Tag("0.2")
+    @Order(12)
+    void testCaseRuntimes() {
+        TestResults results = new TestResults(testCases, new BitMatrix(10, 3));
+        assertNull(results.getCaseRuntimes());
+        long[] runtimes = new long[10];
+        runtimes[3] = 42;
+        results.setCaseRuntimes(runtimes);
+        assertArrayEquals(runtimes, results.getCaseRuntimes());
+        assertThrows(IllegalArgumentException.class,
+                () -> results.setCaseRuntimes(new long[9]));
+    }
+
+    /**
+     * Tests that every caught pair is a FAIL and every other pair a PASS until outcomes
+     * are set, and that the counts cover every pair.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(13)
+    void testOutcomes() {
+        BitMatrix caught = new BitMatrix(10, 3);
+        caught.set(0, 0);
+        caught.set(0, 2);
+        caught.set(4, 1);
+        TestResults results = new TestResults(testCases, caught);
+        assertNull(results.getOutcomes());
+        assertEquals(Outcome.FAIL, results.getOutcome(0, 2));
+        assertEquals(Outcome.PASS, results.getOutcome(0, 1));
+
+        OutcomeMatrix outcomes = new OutcomeMatrix(10, 3);
+        outcomes.set(0, 2, Outcome.CRASH);
+        outcomes.set(4, 1, Outcome.TIMEOUT);
+        results.setOutcomes(outcomes);
+        assertEquals(Outcome.FAIL, results.getOutcome(0, 0));
+        assertEquals(Outcome.CRASH, results.getOutcome(0, 2));
+        assertEquals(Outcome.TIMEOUT, results.getOutcome(4, 1));
+        assertEquals(Outcome.PASS, results.getOutcome(4, 0));
+        assertEquals(Map.of(Outcome.PASS, 27L, Outcome.FAIL, 1L, Outcome.CRASH, 1L,
+                Outcome.TIMEOUT, 1L, Outcome.RESOURCE, 0L), results.getOutcomeCounts());
+        assertThrows(IllegalArgumentException.class,
+                () -> results.setOutcomes(new OutcomeMatrix(9, 3)));
+    }
+}
@@ -1,15 +1,26 @@
 package test.rice.test;
 
 import main.rice.obj.*;
+import main.rice.test.ConcurrencyController;
+import main.rice.test.Outcome;
+import main.rice.test.ResourceLimits;
 import main.rice.test.TestCase;
 import main.rice.test.TestResults;
 import main.rice.test.Tester;
+import main.rice.test.TesterPool;
 import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -195,7 +206,7 @@ class TesterTest {
     }
 
     /**
-     * Tests that expected.py doesn't keep growing longer(gets overwritten, not appended
+     * Tests that expected.bin doesn't keep growing longer(gets overwritten, not appended
      * to, on subsequent runs).
      */
     @Test
@@ -208,18 +219,18 @@ class TesterTest {
                 implDirPath, Collections.singletonList(f0Tests.get(0)));
 
         try {
-            // Run computeExpectedResults() twice, grabbing the contents of expected.py
+            // Run computeExpectedResults() twice, grabbing the contents of expected.bin
             // after each
             writeSolContents(0);
             tester.computeExpectedResults();
-            String oldContents = Files.readString(
-                    Paths.get(implDirPath + "/expected.py"));
+            byte[] oldContents = Files.readAllBytes(
+                    Paths.get(implDirPath + "/expected.bin"));
             tester.computeExpectedResults();
-            String newContents = Files.readString(
-                    Paths.get(implDirPath + "/expected.py"));
+            byte[] newContents = Files.readAllBytes(
+                    Paths.get(implDirPath + "/expected.bin"));
 
             // Make sure the contents didn't change
-            assertEquals(oldContents, newContents);
+            assertArrayEquals(oldContents, newContents);
 
         } catch (Exception e) {
             e.printStackTrace();
@@ -302,21 +313,27 @@ class TesterTest {
     }
 
     /**
-     * Checks that computeExpectedResults() correctly creates expected.py.
+     * Checks that computeExpectedResults() correctly creates expected.bin, and no
+     * expected.py.
      */
     @Test
     @Tag("2.0")
     @Order(10)
-    void testWritesExpectedPyFile() {
+    void testWritesExpectedBinFile() {
         String implDirPath = userDir + "/src/test/rice/test/pyfiles/f0oneRight";
-        String expectedContents = "results = [0, 1, 2, 3, 4]";
+        ByteBuffer expectedContents = ByteBuffer.allocate(4 + 6 * Long.BYTES + 5).putInt(5);
+        for (long offset = 0; offset <= 5; offset++) {
+            expectedContents.putLong(offset);
+        }
+        expectedContents.put("01234".getBytes(StandardCharsets.UTF_8));
         Tester tester = new Tester("func0", userDir +
                 "/src/test/rice/test/pyfiles/sols/func0sol.py", implDirPath, f0Tests);
         try {
             // Compute the actual results and compare to the expected
             List<String> actual = tester.computeExpectedResults();
-            String actualContents = Files.readString(Paths.get(implDirPath + "/expected.py"));
-            assertEquals(expectedContents, actualContents);
+            byte[] actualContents = Files.readAllBytes(Paths.get(implDirPath + "/expected.bin"));
+            assertArrayEquals(expectedContents.array(), actualContents);
+            assertFalse(Files.exists(Paths.get(implDirPath + "/expected.py")));
         } catch (Exception e) {
             e.printStackTrace();
             fail();
@@ -910,6 +927,490 @@ class TesterTest {
                 f3resultStr, Set.of(0, 1, 2), expected, 1);
     }
 
+    /**
+     * Tests that setMaxProcesses() rejects a limit that would allow no processes at all.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(46)
+    void testSetMaxProcessesInvalid() {
+        Tester tester = new Tester("func0", null, userDir + "/src/test/rice/test/pyfiles/",
+                f0Tests);
+        assertThrows(IllegalArgumentException.class, () -> tester.setMaxProcesses(0));
+        tester.setMaxProcesses(1);
+    }
+
+    /**
+     * Tests computing the expected results and then running the tests end to end, with
+     * the wrapper reading each expected result from the indexed results file; the same
+     * results should be found whether files are tested one at a time or concurrently.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(47)
+    void testComputeThenRunIndexed(@TempDir Path tempDir) throws IOException,
+            InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+
+        List<List<Set<Integer>>> caseToFiles = new ArrayList<>();
+        for (int maxProcesses : new int[]{1, 3}) {
+            Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                    f3Tests);
+            tester.setMaxProcesses(maxProcesses);
+            tester.computeExpectedResults();
+            assertTrue(Files.exists(implDir.resolve("expected.bin")));
+            TestResults results = tester.runTests();
+            assertEquals(Set.of(1), results.getWrongSet());
+
+            List<Set<Integer>> files = new ArrayList<>();
+            for (Set<Integer> caught : results.getCaseToFiles()) {
+                files.add(new HashSet<>(caught));
+            }
+            caseToFiles.add(files);
+        }
+        assertEquals(caseToFiles.get(0), caseToFiles.get(1));
+    }
+
+    /**
+     * Tests that runs given a workspace leave the solution and implementation directory
+     * untouched, so that several can test the same files at once.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(48)
+    void testConcurrentWorkspaces(@TempDir Path tempDir) throws Exception {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        Path workspaces = tempDir.resolve("workspaces");
+
+        List<Thread> threads = new ArrayList<>();
+        List<TestResults> results = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 3; i++) {
+            threads.add(new Thread(() -> {
+                try {
+                    Tester tester = new Tester("func3", solution.toString(),
+                            implDir.toString(), f3Tests);
+                    tester.setWorkspaceDir(workspaces.toString());
+                    tester.computeExpectedResults();
+                    results.add(tester.runTests());
+                } catch (IOException | InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(3, results.size());
+        for (TestResults result : results) {
+            assertEquals(Set.of(1), result.getWrongSet());
+        }
+        assertEquals(solContentsArray[3], Files.readString(solution));
+        try (var files = Files.list(implDir)) {
+            assertEquals(Set.of("a_right.py", "b_wrong.py"),
+                    new HashSet<>(files.map(path -> path.getFileName().toString()).toList()));
+        }
+        try (var files = Files.list(workspaces)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Tests that with a bytecode cache, no __pycache__ is left in the implementation
+     * directory, and that an implementation rewritten in place (with the same size and
+     * modification time, which would fool timestamp-based pycs) is never run from stale
+     * bytecode.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(49)
+    void testBytecodeCache(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        Path cache = tempDir.resolve("pycache");
+
+        Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                f3Tests);
+        tester.setBytecodeCache(cache.toString());
+        tester.computeExpectedResults();
+        assertEquals(Set.of(1), tester.runTests().getCaseToFiles().get(0));
+        assertFalse(Files.exists(implDir.resolve("__pycache__")));
+        try (var files = Files.walk(cache)) {
+            assertTrue(files.anyMatch(path -> path.toString().endsWith(".pyc")));
+        }
+
+        // The first case expects ('5', '6'), which the rewritten file now returns
+        Path wrong = implDir.resolve("b_wrong.py");
+        var modified = Files.getLastModifiedTime(wrong);
+        Files.writeString(wrong, Files.readString(wrong).replace("('0', '1')", "('5', '6')"));
+        Files.setLastModifiedTime(wrong, modified);
+        tester = new Tester("func3", solution.toString(), implDir.toString(), f3Tests);
+        tester.setBytecodeCache(cache.toString());
+        tester.computeExpectedResults();
+        assertEquals(Set.of(), tester.runTests().getCaseToFiles().get(0));
+    }
+
+    /**
+     * Tests that processes forked from a fork server give the same expected results and
+     * the same results as processes that each start an interpreter of their own.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(50)
+    void testForkServer(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+
+        List<List<String>> expected = new ArrayList<>();
+        List<List<Set<Integer>>> caseToFiles = new ArrayList<>();
+        for (boolean forkServer : new boolean[]{false, true}) {
+            Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                    f3Tests);
+            tester.setForkServer(forkServer);
+            tester.setMaxProcesses(2);
+            expected.add(tester.computeExpectedResults());
+            TestResults results = tester.runTests();
+            assertEquals(Set.of(1), results.getWrongSet());
+
+            List<Set<Integer>> files = new ArrayList<>();
+            for (Set<Integer> caught : results.getCaseToFiles()) {
+                files.add(new HashSet<>(caught));
+            }
+            caseToFiles.add(files);
+        }
+        assertEquals(expected.get(0), expected.get(1));
+        assertEquals(caseToFiles.get(0), caseToFiles.get(1));
+    }
+
+    /**
+     * Tests that processes which exceed a resource limit are stopped and recorded as
+     * catching their implementation, along with the limit exceeded, whether they are
+     * started directly or forked from a fork server; implementations within the limits
+     * are unaffected.
+     */
+    @Test
+    @Tag("2.0")
+    @Order(51)
+    void testResourceLimits(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        String header = "def func3(set_val, list_val, tup_val):\n";
+        Files.writeString(implDir.resolve("c_spin.py"), header + "    while True:\n"
+                + "        pass\n");
+        Files.writeString(implDir.resolve("d_hog.py"), header
+                + "    return bytearray(1 << 34)\n");
+        Files.writeString(implDir.resolve("e_chatty.py"), header
+                + "    print('x' * 100000)\n");
+        Files.writeString(implDir.resolve("f_writer.py"), "import os\n\n" + header
+                + "    with open(os.path.join(os.path.dirname(__file__), 'big.txt'), 'w') "
+                + "as f:\n        f.write('x' * (2 << 20))\n");
+        Map<Integer, ResourceLimits.Violation> expected = Map.of(
+                2, ResourceLimits.Violation.CPU, 3, ResourceLimits.Violation.MEMORY,
+                4, ResourceLimits.Violation.OUTPUT, 5, ResourceLimits.Violation.FILE_SIZE);
+
+        for (boolean forkServer : new boolean[]{false, true}) {
+            Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                    f3Tests);
+            tester.setResourceLimits(new ResourceLimits(256 << 20, 1, 0, 1 << 20, 0,
+                    10 << 10));
+            tester.setForkServer(forkServer);
+            tester.setEarlyStop(true);
+            tester.computeExpectedResults();
+            TestResults results = tester.runTests();
+
+            // Every file but the correct one is caught by the first case, and only the
+            // files that exceeded a limit record one
+            assertEquals(Set.of(1, 2, 3, 4, 5), results.getWrongSet());
+            for (int fileIndex = 1; fileIndex <= 5; fileIndex++) {
+                assertTrue(results.getCaseToFiles().get(0).contains(fileIndex));
+                assertEquals(expected.get(fileIndex), results.getViolation(0, fileIndex));
+            }
+            assertEquals(4, results.getViolationCounts().size());
+            assertEquals(Outcome.FAIL, results.getOutcome(0, 1));
+            assertEquals(Outcome.TIMEOUT, results.getOutcome(0, 2));
+            assertEquals(Outcome.RESOURCE, results.getOutcome(0, 3));
+        }
+    }
+
+    /**
+     * Tests that the results record how each test case caught each file: by returning the
+     * wrong answer, or by crashing (raising an exception, or exiting without a result).
+     */
+    @Test
+    @Tag("1.0")
+    @Order(52)
+    void testOutcomes(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        String header = "def func3(set_val, list_val, tup_val):\n";
+        Files.writeString(implDir.resolve("c_raise.py"), header + "    return 1 / 0\n");
+        Files.writeString(implDir.resolve("d_exit.py"), "import os\n\n" + header
+                + "    os._exit(0)\n");
+
+        Tester tester = new Tester("func3", solution.toString(), implDir.toString(), f3Tests);
+        tester.computeExpectedResults();
+        TestResults results = tester.runTests();
+        for (int testIndex = 0; testIndex < f3Tests.size(); testIndex++) {
+            assertEquals(Outcome.PASS, results.getOutcome(testIndex, 0));
+            assertEquals(Outcome.FAIL, results.getOutcome(testIndex, 1));
+            assertEquals(Outcome.CRASH, results.getOutcome(testIndex, 2));
+            assertEquals(Outcome.CRASH, results.getOutcome(testIndex, 3));
+        }
+        long numCases = f3Tests.size();
+        assertEquals(Map.of(Outcome.PASS, numCases, Outcome.FAIL, numCases,
+                Outcome.CRASH, 2 * numCases, Outcome.TIMEOUT, 0L, Outcome.RESOURCE, 0L),
+                results.getOutcomeCounts());
+    }
+
+    /**
+     * Tests that the runtime of each test case covers only the call to the function under
+     * test, not starting the process or loading the solution, while the expected results
+     * are unaffected by the timing.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(53)
+    void testCaseRuntimes(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Files.writeString(solution, "import time\ntime.sleep(0.5)\n\n" + solContentsArray[3]);
+
+        Tester tester = new Tester("func3", solution.toString(),
+                tempDir.resolve("impls").toString(), f3Tests);
+        tester.computeExpectedResults();
+        TestResults results = tester.runTests();
+        long[] runtimes = results.getCaseRuntimes();
+        assertEquals(f3Tests.size(), runtimes.length);
+        for (long runtime : runtimes) {
+            assertTrue(runtime > 0 && runtime < 250_000_000L);
+        }
+        assertEquals(Set.of(1), results.getWrongSet());
+    }
+
+    /**
+     * Tests that a test case on which the solution raises, and so reports no runtime,
+     * records a runtime of -1 rather than 0.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(57)
+    void testUnmeasuredRuntimes(@TempDir Path tempDir) throws IOException,
+            InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Files.writeString(solution, solContentsArray[3] + "\n\n_func3 = func3\n\n"
+                + "def func3(set_val, list_val, tup_val):\n"
+                + "    if set_val:\n"
+                + "        raise ValueError\n"
+                + "    return _func3(set_val, list_val, tup_val)\n");
+
+        Tester tester = new Tester("func3", solution.toString(),
+                tempDir.resolve("impls").toString(), f3Tests);
+        tester.computeExpectedResults();
+        long[] runtimes = tester.runTests().getCaseRuntimes();
+        for (int i = 0; i < f3Tests.size(); i++) {
+            // The first four cases have an empty set, and the rest do not
+            if (i < 4) {
+                assertTrue(runtimes[i] > 0);
+            } else {
+                assertEquals(-1, runtimes[i]);
+            }
+        }
+    }
+
+    /**
+     * Tests that expected results whose repr() is not a literal (a frozenset, a range and
+     * a Decimal) are still read back from the indexed results file, so that a correct
+     * implementation passes rather than crashing.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(58)
+    void testNonLiteralExpectedResults(@TempDir Path tempDir) throws IOException,
+            InterruptedException {
+        String header = "from decimal import Decimal\n\ndef func0(intval):\n";
+        Path solution = Files.writeString(tempDir.resolve("func0sol.py"), header
+                + "    return (frozenset({intval}), range(intval), Decimal(intval) / 2)\n");
+        Path implDir = Files.createDirectory(tempDir.resolve("impls"));
+        Files.copy(solution, implDir.resolve("a_right.py"));
+        Files.writeString(implDir.resolve("b_wrong.py"), header
+                + "    return (frozenset({intval}), range(intval + 1), Decimal(intval) / 2)\n");
+
+        Tester tester = new Tester("func0", solution.toString(), implDir.toString(), f0Tests);
+        tester.computeExpectedResults();
+        assertFalse(Files.exists(implDir.resolve("expected.py")));
+        TestResults results = tester.runTests();
+        assertEquals(Set.of(1), results.getWrongSet());
+        for (int testIndex = 0; testIndex < f0Tests.size(); testIndex++) {
+            assertEquals(Outcome.PASS, results.getOutcome(testIndex, 0));
+            assertEquals(Outcome.FAIL, results.getOutcome(testIndex, 1));
+        }
+    }
+
+    /**
+     * Tests that, when stopping early while testing files concurrently, each file is
+     * recorded as caught by the same case on every run: without a history, the first
+     * case in index order that catches it.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(59)
+    void testEarlyStopConcurrentOrder(@TempDir Path tempDir) throws IOException,
+            InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        Files.writeString(implDir.resolve("c_raise.py"),
+                "def func3(set_val, list_val, tup_val):\n    return 1 / 0\n");
+        Files.writeString(implDir.resolve("d_partial.py"), solContentsArray[3]
+                + "\n\n_func3 = func3\n\n"
+                + "def func3(set_val, list_val, tup_val):\n"
+                + "    if set_val:\n"
+                + "        return None\n"
+                + "    return _func3(set_val, list_val, tup_val)\n");
+
+        // Find the first case that catches each file when every case is run
+        Tester full = new Tester("func3", solution.toString(), implDir.toString(), f3Tests);
+        full.computeExpectedResults();
+        TestResults fullResults = full.runTests();
+        Map<Integer, Integer> firstCatch = new HashMap<>();
+        for (int testIndex = f3Tests.size() - 1; testIndex >= 0; testIndex--) {
+            for (int fileIndex : fullResults.getCaseToFiles().get(testIndex)) {
+                firstCatch.put(fileIndex, testIndex);
+            }
+        }
+        assertEquals(Set.of(1, 2, 3), firstCatch.keySet());
+        assertEquals(4, firstCatch.get(3));
+
+        for (int run = 0; run < 2; run++) {
+            Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                    f3Tests);
+            tester.setMaxProcesses(3);
+            tester.setEarlyStop(true);
+            tester.computeExpectedResults();
+            TestResults results = tester.runTests();
+            for (int testIndex = 0; testIndex < f3Tests.size(); testIndex++) {
+                for (int fileIndex : results.getCaseToFiles().get(testIndex)) {
+                    assertEquals(firstCatch.get(fileIndex), testIndex);
+                }
+            }
+            assertEquals(Set.of(1, 2, 3), results.getWrongSet());
+        }
+    }
+
+    /**
+     * Tests that Testers sharing a pool, one after another and at once, get the same
+     * results as a Tester on its own, and leave the pool's resources running for the
+     * next.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(54)
+    void testSharedPool(@TempDir Path tempDir) throws Exception {
+        List<Path> solutions = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            solutions.add(writeFunc3Files(Files.createDirectory(tempDir.resolve("job" + i))));
+        }
+
+        try (TesterPool pool = new TesterPool(new ConcurrencyController(2, 2), true, null)) {
+            assertEquals(Set.of(1), runPooled(pool, solutions.get(0)).getWrongSet());
+
+            ExecutorService jobs = Executors.newFixedThreadPool(2);
+            try {
+                Future<TestResults> job1 = jobs.submit(() -> runPooled(pool, solutions.get(1)));
+                Future<TestResults> job2 = jobs.submit(() -> runPooled(pool, solutions.get(2)));
+                assertEquals(Set.of(1), job1.get().getWrongSet());
+                assertEquals(Set.of(1), job2.get().getWrongSet());
+            } finally {
+                jobs.shutdownNow();
+            }
+            assertFalse(pool.getExecutor().isShutdown());
+        }
+    }
+
+    /**
+     * Tests that an implementation which writes to its own file while being tested, in a
+     * workspace, changes only its staged copy and not the original.
+     */
+    @Test
+    @Tag("0.5")
+    @Order(55)
+    void testWorkspaceIsolatesWrites(@TempDir Path tempDir) throws IOException,
+            InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        Path writer = Files.writeString(implDir.resolve("c_writer.py"),
+                "def func3(set_val, list_val, tup_val):\n"
+                        + "    with open(__file__, \"a\") as f:\n"
+                        + "        f.write(\"# touched\\n\")\n"
+                        + "    return ('0', '1')\n");
+        String original = Files.readString(writer);
+
+        Tester tester = new Tester("func3", solution.toString(), implDir.toString(), f3Tests);
+        tester.setWorkspaceDir(tempDir.resolve("workspaces").toString());
+        tester.computeExpectedResults();
+        assertEquals(Set.of(1, 2), tester.runTests().getWrongSet());
+        assertEquals(original, Files.readString(writer));
+    }
+
+    /**
+     * Tests that a process which outlives its limit on wall-clock time without using any
+     * CPU time is killed and records a timeout, and that one which floods its error
+     * output is not blocked by it, whether processes are started directly or forked from
+     * a fork server.
+     */
+    @Test
+    @Tag("1.0")
+    @Order(56)
+    void testWallClockLimit(@TempDir Path tempDir) throws IOException, InterruptedException {
+        Path solution = writeFunc3Files(tempDir);
+        Path implDir = tempDir.resolve("impls");
+        String header = "import sys, time\n\ndef func3(set_val, list_val, tup_val):\n";
+        Files.writeString(implDir.resolve("c_sleep.py"), header + "    time.sleep(600)\n");
+        Files.writeString(implDir.resolve("d_stderr.py"), header
+                + "    sys.stderr.write('x' * 200000)\n"
+                + "    sys.stderr.flush()\n");
+
+        for (boolean forkServer : new boolean[]{false, true}) {
+            Tester tester = new Tester("func3", solution.toString(), implDir.toString(),
+                    f3Tests);
+            tester.setResourceLimits(new ResourceLimits(0, 0, 2, 0, 0, 0));
+            tester.setForkServer(forkServer);
+            tester.setEarlyStop(true);
+            tester.computeExpectedResults();
+            long start = System.nanoTime();
+            TestResults results = tester.runTests();
+            assertTrue(System.nanoTime() - start < 60_000_000_000L);
+
+            assertEquals(Set.of(1, 2, 3), results.getWrongSet());
+            assertEquals(Outcome.TIMEOUT, results.getOutcome(0, 2));
+            assertEquals(ResourceLimits.Violation.CPU, results.getViolation(0, 2));
+            assertEquals(Outcome.FAIL, results.getOutcome(0, 3));
+        }
+    }
+
+    /**
+     * Helper function which tests the f3 files written by writeFunc3Files() with a Tester
+     * that uses the given pool, and its fork server.
+     *
+     * @param pool     the pool to use
+     * @param solution the path of the solution
+     * @return the results of testing
+     * @throws IOException if the files cannot be accessed
+     * @throws InterruptedException if the process is interrupted
+     */
+    private static TestResults runPooled(TesterPool pool, Path solution)
+            throws IOException, InterruptedException {
+        Tester tester = new Tester("func3", solution.toString(),
+                solution.resolveSibling("impls").toString(), f3Tests);
+        tester.setForkServer(true);
+        tester.setPool(pool);
+        tester.computeExpectedResults();
+        return tester.runTests();
+    }
+
     /**
      * Sets up the test cases for function f0, which takes one simple argument.
      */
@@ -1030,6 +1531,23 @@ class TesterTest {
         writer.close();
     }
 
+    /**
+     * Helper function which writes the solution to f3 and a directory holding one correct
+     * and one incorrect implementation of it ("impls") into the given directory.
+     *
+     * @param dir the directory to write to
+     * @return the path of the solution
+     * @throws IOException if the files cannot be written
+     */
+    private static Path writeFunc3Files(Path dir) throws IOException {
+        Path solution = Files.writeString(dir.resolve("func3sol.py"), solContentsArray[3]);
+        Path implDir = Files.createDirectory(dir.resolve("impls"));
+        Files.writeString(implDir.resolve("a_right.py"), solContentsArray[3]);
+        Files.writeString(implDir.resolve("b_wrong.py"),
+                "def func3(set_val, list_val, tup_val):\n    return ('0', '1')");
+        return solution;
+    }
+
     /**
      * Helper function for testing the runTests() function; instantiates a Tester object,
      * fakes computation of the expected results, gets the actual results, and compares